@@ -859,6 +859,23 @@ public class Const {
    */
   public static final String KETTLE_MAX_LOG_TIMEOUT_IN_MINUTES = "KETTLE_MAX_LOG_TIMEOUT_IN_MINUTES";
 
+  /**
+   * System wide flag to deliver log lines to the log buffer, the log listeners and the log files on a background thread
+   * instead of on the logging thread (Y/N, default N)
+   */
+  public static final String KETTLE_LOG_ASYNC = "KETTLE_LOG_ASYNC";
+
+  /**
+   * System wide flag to set the maximum number of log lines waiting for asynchronous delivery (default 100000)
+   */
+  public static final String KETTLE_LOG_ASYNC_QUEUE_SIZE = "KETTLE_LOG_ASYNC_QUEUE_SIZE";
+
+  /**
+   * System wide flag to drop log lines when the asynchronous delivery queue is full instead of letting the logging
+   * threads wait (Y/N, default N)
+   */
+  public static final String KETTLE_LOG_ASYNC_DROP_WHEN_FULL = "KETTLE_LOG_ASYNC_DROP_WHEN_FULL";
+
   /**
    * System wide flag to determine whether standard error will be redirected to Kettle logging facilities. Will redirect
    * if the value is equal ignoring case to the string "Y"
@@ -878,11 +895,17 @@ public class Const {
   public static final String KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES = "KETTLE_CARTE_OBJECT_TIMEOUT_MINUTES";
 
   /**
-   * System wide parameter: the maximum number of step performance snapshots to keep in memory. Set to 0 to keep all
-   * snapshots indefinitely (default)
+   * System wide parameter: the maximum number of step performance snapshots to keep in memory. Set to 0 to keep
+   * snapshots of the whole run, merging snapshots as the run gets longer (default)
    */
   public static final String KETTLE_STEP_PERFORMANCE_SNAPSHOT_LIMIT = "KETTLE_STEP_PERFORMANCE_SNAPSHOT_LIMIT";
 
+  /**
+   * System wide parameter: the number of step performance snapshots kept per step copy when there is no snapshot limit.
+   * When they're all taken, pairs of snapshots are merged (default 1000)
+   */
+  public static final String KETTLE_STEP_PERFORMANCE_SNAPSHOT_SAMPLES = "KETTLE_STEP_PERFORMANCE_SNAPSHOT_SAMPLES";
+
   /**
    * A variable to configure the maximum number of job trackers kept in memory.
    */
@@ -1045,6 +1068,32 @@ public class Const {
    */
   public static final String KETTLE_BATCHING_ROWSET = "KETTLE_BATCHING_ROWSET";
 
+  /**
+   * Set this variable to Y to run the steps of a transformation on virtual threads instead of platform threads. This
+   * requires Java 21 or later. Set it in kettle.properties for all transformations (on a Carte server for example) or
+   * as a variable or parameter of a single transformation. (default = N)
+   */
+  public static final String KETTLE_STEP_VIRTUAL_THREADS = "KETTLE_STEP_VIRTUAL_THREADS";
+
+  /**
+   * Set this variable to Y to run the steps of a transformation on a shared pool of worker threads instead of one
+   * thread per step copy. A step copy then only occupies a thread while it has rows to process. (default = N)
+   */
+  public static final String KETTLE_STEP_WORKER_POOL = "KETTLE_STEP_WORKER_POOL";
+
+  /**
+   * The number of worker threads in the shared step worker pool, see {@link #KETTLE_STEP_WORKER_POOL}. This is a
+   * setting for the whole JVM, set it in kettle.properties. (default = the number of available processors)
+   */
+  public static final String KETTLE_STEP_WORKER_POOL_SIZE = "KETTLE_STEP_WORKER_POOL_SIZE";
+
+  /**
+   * Set this variable to Y to send an immutable copy of the row metadata over the hops between steps. Reading the
+   * metadata of every row then doesn't need any locking. Steps that modify the row metadata of their input rows instead
+   * of a clone of it will fail with this option. (default = N)
+   */
+  public static final String KETTLE_FREEZE_ROW_META = "KETTLE_FREEZE_ROW_META";
+
   /**
    * Set this variable to limit max number of files the Text File Output step can have open at one time.
    */
@@ -1418,6 +1467,12 @@ public class Const {
    */
   public static final String SHARED_STREAMING_BATCH_POOL_SIZE = "SHARED_STREAMING_BATCH_POOL_SIZE";
 
+  /**
+   * <p>Set this variable to Y to let streaming consumer steps adapt the number of records per batch and the number of
+   * parallel batches to the load. The configured values are then the lower and upper limits. (default = N)</p>
+   */
+  public static final String KETTLE_STREAMING_ADAPTIVE_WINDOW = "KETTLE_STREAMING_ADAPTIVE_WINDOW";
+
   /**
    * <p>This environment variable is used by the Kinesis consumer to control the number of records retrieved
    * by the PollingConfig, if used.  Ignored with Enhanced Fan Out./p>
@@ -1627,6 +1682,13 @@ public class Const {
   public static final String KETTLE_USE_META_FILE_CACHE = "KETTLE_USE_META_FILE_CACHE";
   public static final String KETTLE_USE_META_FILE_CACHE_DEFAULT = "N";
 
+  /**
+   * The maximum number of transformations kept in the process-wide cache of the sub-transformations that steps like
+   * Mapping and Transformation Executor load from files. 0 disables the cache, which is the default.
+   */
+  public static final String KETTLE_SHARED_TRANS_META_CACHE_SIZE = "KETTLE_SHARED_TRANS_META_CACHE_SIZE";
+  public static final String KETTLE_SHARED_TRANS_META_CACHE_SIZE_DEFAULT = "0";
+
   /**
    * Value used to replace nulls in Python Executor Step Input Lines. Empty will mean no replacement will be done
    */
@@ -0,0 +1,256 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.util.VirtualThreadUtil;
+
+/**
+ * A bounded buffer of rows backed by a lock-free ring buffer. This row set is only safe when exactly one thread puts
+ * rows and exactly one (other) thread gets rows, which is the case for a hop between two single step copies.<br>
+ * <br>
+ * A thread that has to wait for free space or for a new row first spins for a short while, then yields and finally
+ * parks until the other side signals it or until the timeout expires.
+ *
+ * @since 9.6
+ */
+public class LockFreeRowSet extends BaseRowSet implements Comparable<RowSet>, RowSet {
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 10;
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+  private final Object[][] buffer;
+  private final int mask;
+  private final int maxSize;
+
+  /** The index of the next slot to read, only written by the consumer. */
+  private final AtomicLong head = new AtomicLong();
+  /** The index of the next slot to write, only written by the producer. */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** Producer side cache of the head index to avoid reading the shared counter on every put. */
+  private long headCache;
+  /** Consumer side cache of the tail index to avoid reading the shared counter on every get. */
+  private long tailCache;
+
+  private volatile Thread waitingProducer;
+  private volatile Thread waitingConsumer;
+
+  private int timeoutPut;
+  private int timeoutGet;
+
+  /**
+   * Create a new lock-free row set with maxSize capacity.
+   *
+   * @param maxSize
+   */
+  public LockFreeRowSet( int maxSize ) {
+    super();
+
+    this.maxSize = Math.max( 1, maxSize );
+    int capacity = Integer.highestOneBit( this.maxSize );
+    if ( capacity < this.maxSize ) {
+      capacity <<= 1;
+    }
+    buffer = new Object[capacity][];
+    mask = capacity - 1;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.KETTLE_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( RowMetaInterface rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( RowMetaInterface rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( rowData == null ) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+
+    long t = tail.get();
+    if ( t - headCache >= maxSize ) {
+      headCache = head.get();
+      if ( t - headCache >= maxSize && !awaitFreeSlot( t, tu.toNanos( time ) ) ) {
+        return false;
+      }
+    }
+
+    buffer[(int) t & mask] = rowData;
+    tail.lazySet( t + 1 );
+
+    Thread consumer = waitingConsumer;
+    if ( consumer != null ) {
+      LockSupport.unpark( consumer );
+    }
+    return true;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long h = head.get();
+    if ( h >= tailCache ) {
+      tailCache = tail.get();
+      if ( h >= tailCache ) {
+        return null;
+      }
+    }
+    return take( h );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long h = head.get();
+    if ( h >= tailCache ) {
+      tailCache = tail.get();
+      if ( h >= tailCache && !awaitAvailableRow( h, tu.toNanos( timeout ) ) ) {
+        return null;
+      }
+    }
+    return take( h );
+  }
+
+  private Object[] take( long h ) {
+    int index = (int) h & mask;
+    Object[] row = buffer[index];
+    buffer[index] = null;
+    head.lazySet( h + 1 );
+
+    Thread producer = waitingProducer;
+    if ( producer != null ) {
+      LockSupport.unpark( producer );
+    }
+    return row;
+  }
+
+  private boolean awaitFreeSlot( long t, long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int tries = initialTries();
+    try {
+      while ( true ) {
+        headCache = head.get();
+        if ( t - headCache < maxSize ) {
+          return true;
+        }
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 || Thread.currentThread().isInterrupted() ) {
+          return false;
+        }
+        tries = backOff( tries, remaining, true );
+      }
+    } finally {
+      waitingProducer = null;
+    }
+  }
+
+  private boolean awaitAvailableRow( long h, long timeoutNanos ) {
+    long deadline = System.nanoTime() + timeoutNanos;
+    int tries = initialTries();
+    try {
+      while ( true ) {
+        tailCache = tail.get();
+        if ( h < tailCache ) {
+          return true;
+        }
+        long remaining = deadline - System.nanoTime();
+        if ( remaining <= 0 || Thread.currentThread().isInterrupted() ) {
+          return false;
+        }
+        tries = backOff( tries, remaining, false );
+      }
+    } finally {
+      waitingConsumer = null;
+    }
+  }
+
+  /**
+   * A virtual thread that spins keeps its carrier thread busy, so it parks right away.
+   */
+  private static int initialTries() {
+    return VirtualThreadUtil.isVirtual( Thread.currentThread() ) ? SPIN_TRIES + YIELD_TRIES : 0;
+  }
+
+  /**
+   * Spin, then yield, then park. When parking the waiting thread is published first so the other side can wake it up as
+   * soon as the state of the buffer changes. The park is always bounded so a missed signal only costs a short delay.
+   */
+  private int backOff( int tries, long remainingNanos, boolean producer ) {
+    if ( tries < SPIN_TRIES ) {
+      return tries + 1;
+    }
+    if ( tries < SPIN_TRIES + YIELD_TRIES ) {
+      Thread.yield();
+      return tries + 1;
+    }
+    if ( producer ) {
+      waitingProducer = Thread.currentThread();
+      if ( tail.get() - head.get() < maxSize ) {
+        return tries;
+      }
+    } else {
+      waitingConsumer = Thread.currentThread();
+      if ( head.get() < tail.get() ) {
+        return tries;
+      }
+    }
+    LockSupport.parkNanos( this, Math.min( remainingNanos, MAX_PARK_NANOS ) );
+    return tries;
+  }
+
+  @Override
+  public int size() {
+    // Read head first: the result can then only over-estimate, never go negative.
+    long h = head.get();
+    return (int) ( tail.get() - h );
+  }
+
+  /**
+   * Clears the row set. Like the other row set implementations this should only be called when neither the producer
+   * nor the consumer is active.
+   */
+  @Override
+  public void clear() {
+    for ( int i = 0; i < buffer.length; i++ ) {
+      buffer[i] = null;
+    }
+    head.set( 0L );
+    tail.set( 0L );
+    headCache = 0L;
+    tailCache = 0L;
+    done.set( false );
+  }
+
+}
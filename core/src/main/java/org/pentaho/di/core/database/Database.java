@@ -154,6 +154,7 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
   private DatabaseMetaData dbmd;
 
   private RowMetaInterface rowMeta;
+  private RowMetaInterface batchLookupRowMeta;
 
   private int written;
 
@@ -2900,6 +2901,119 @@ public class Database implements VariableSpace, LoggingObjectInterface, Closeabl
     }
   }
 
+  /**
+   * Prepares a statement that looks up a number of keys in one round trip. The key fields are selected first, followed
+   * by the fields to get, so that the caller can match the returned rows with the keys. A single key field is looked up
+   * with an IN list, composite keys with a list of OR-ed conditions.
+   *
+   * @param schemaName the schema of the lookup table
+   * @param tableName  the lookup table
+   * @param codes      the key fields, all compared with "="
+   * @param gets       the fields to return
+   * @param rename     the new names of the fields to return, can be null
+   * @param orderby    an optional order by clause
+   * @param nrKeys     the number of keys the statement looks up
+   * @return the prepared statement
+   * @throws KettleDatabaseException in case the statement can't be prepared
+   */
+  public PreparedStatement prepareBatchLookup( String schemaName, String tableName, String[] codes, String[] gets,
+                                               String[] rename, String orderby, int nrKeys )
+    throws KettleDatabaseException {
+    String table = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
+
+    StringBuilder sql = new StringBuilder( "SELECT " );
+    for ( int i = 0; i < codes.length; i++ ) {
+      if ( i != 0 ) {
+        sql.append( ", " );
+      }
+      sql.append( databaseMeta.quoteField( codes[ i ] ) );
+    }
+    for ( int i = 0; i < gets.length; i++ ) {
+      sql.append( ", " ).append( databaseMeta.quoteField( gets[ i ] ) );
+      if ( rename != null && rename[ i ] != null && !gets[ i ].equalsIgnoreCase( rename[ i ] ) ) {
+        sql.append( " AS " ).append( databaseMeta.quoteField( rename[ i ] ) );
+      }
+    }
+
+    sql.append( " FROM " ).append( table ).append( " WHERE " );
+
+    if ( codes.length == 1 ) {
+      sql.append( databaseMeta.quoteField( codes[ 0 ] ) ).append( " IN ( " );
+      for ( int k = 0; k < nrKeys; k++ ) {
+        sql.append( k == 0 ? "?" : ", ?" );
+      }
+      sql.append( " )" );
+    } else {
+      for ( int k = 0; k < nrKeys; k++ ) {
+        sql.append( k == 0 ? "( " : " OR ( " );
+        for ( int i = 0; i < codes.length; i++ ) {
+          if ( i != 0 ) {
+            sql.append( " AND " );
+          }
+          sql.append( databaseMeta.quoteField( codes[ i ] ) ).append( " = ?" );
+        }
+        sql.append( " )" );
+      }
+    }
+
+    if ( orderby != null && orderby.length() != 0 ) {
+      sql.append( " ORDER BY " ).append( orderby );
+    }
+
+    if ( log.isDetailed() ) {
+      log.logDetailed( "Setting batch lookup preparedStatement to [" + sql + "]" );
+    }
+    return prepareSQL( sql.toString() );
+  }
+
+  /**
+   * Executes a statement prepared with {@link #prepareBatchLookup} and returns all the rows found. The layout of the
+   * rows is available afterwards through {@link #getBatchLookupRowMeta()}, the regular return row metadata used by
+   * the single row lookups is left untouched.
+   *
+   * @param ps      the batch lookup statement
+   * @param keyMeta the metadata of a key
+   * @param keys    the keys to look up, there should be exactly as many as the statement was prepared for
+   * @return the rows found, keys first, in the order returned by the database
+   * @throws KettleDatabaseException in case something goes wrong
+   */
+  public List<Object[]> getBatchLookup( PreparedStatement ps, RowMetaInterface keyMeta, List<Object[]> keys )
+    throws KettleDatabaseException {
+    log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_START, databaseMeta.getName() );
+    try {
+      int pos = 1;
+      for ( Object[] key : keys ) {
+        for ( int i = 0; i < keyMeta.size(); i++ ) {
+          setValue( ps, keyMeta.getValueMeta( i ), key[ i ], pos++ );
+        }
+      }
+
+      List<Object[]> rows = new ArrayList<>();
+      try ( ResultSet res = ps.executeQuery() ) {
+        if ( batchLookupRowMeta == null ) {
+          batchLookupRowMeta = getRowInfo( res.getMetaData(), databaseMeta.isMySQLVariant(), false );
+        }
+        Object[] row = getRow( res, null, batchLookupRowMeta );
+        while ( row != null ) {
+          rows.add( row );
+          row = getRow( res, null, batchLookupRowMeta );
+        }
+      }
+      return rows;
+    } catch ( SQLException ex ) {
+      throw new KettleDatabaseException( "Error looking up a batch of rows in database", ex );
+    } finally {
+      log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_STOP, databaseMeta.getName() );
+    }
+  }
+
+  /**
+   * @return the metadata of the rows returned by the last {@link #getBatchLookup} call
+   */
+  public RowMetaInterface getBatchLookupRowMeta() {
+    return batchLookupRowMeta;
+  }
+
   public boolean prepareUpdate( String table, String[] codes, String[] condition, String[] sets ) {
     return prepareUpdate( null, table, codes, condition, sets );
   }
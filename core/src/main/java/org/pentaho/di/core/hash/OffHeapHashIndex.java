@@ -0,0 +1,283 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hash index of binary keys and values that keeps the data out of the Java object heap. The entries are appended to
+ * large memory blocks, either direct (off-heap) buffers or plain byte arrays, and the index itself is a pair of
+ * primitive arrays using open addressing with linear probing. Compared to a map of objects this avoids millions of
+ * small objects for the garbage collector to trace and roughly halves the memory needed per entry.<br>
+ * <br>
+ * The keys are compared byte by byte so they need to be serialized in a stable way, for example with
+ * {@link org.pentaho.di.core.row.RowMeta#extractData(org.pentaho.di.core.row.RowMetaInterface, Object[])} on normal
+ * storage data. This class is not thread safe.
+ *
+ * @since 9.6
+ */
+public class OffHeapHashIndex {
+
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+
+  /** The default size of a block of entry data: 4MB */
+  public static final int STANDARD_BLOCK_SIZE = 4 * 1024 * 1024;
+
+  /** Every entry starts with the length of the key and the length of the value */
+  private static final int ENTRY_HEADER_SIZE = 8;
+
+  private final boolean direct;
+  private final int blockSize;
+
+  private final List<ByteBuffer> blocks;
+  private ByteBuffer currentBlock;
+  private long allocatedBytes;
+
+  /**
+   * The addresses of the entries: the block number + 1 in the upper 32 bits, the offset in the block in the lower 32
+   * bits. Zero means the slot is empty.
+   */
+  private long[] addresses;
+  private int[] hashCodes;
+  private int nrEntries;
+  private int resizeThreshold;
+
+  /**
+   * Create an index with the standard sizes.
+   *
+   * @param direct
+   *          true to store the entries in direct (off-heap) memory, false to use byte arrays on the heap.
+   */
+  public OffHeapHashIndex( boolean direct ) {
+    this( direct, STANDARD_INDEX_SIZE, STANDARD_BLOCK_SIZE );
+  }
+
+  /**
+   * @param direct
+   *          true to store the entries in direct (off-heap) memory, false to use byte arrays on the heap.
+   * @param size
+   *          the expected number of entries
+   * @param blockSize
+   *          the size of the memory blocks to allocate. Entries larger than a block get a block of their own.
+   */
+  public OffHeapHashIndex( boolean direct, int size, int blockSize ) {
+    this.direct = direct;
+    this.blockSize = Math.max( ENTRY_HEADER_SIZE, blockSize );
+    this.blocks = new ArrayList<>();
+
+    int capacity = 1;
+    while ( capacity * STANDARD_LOAD_FACTOR <= size ) {
+      capacity <<= 1;
+    }
+    allocateIndex( capacity );
+  }
+
+  private void allocateIndex( int capacity ) {
+    addresses = new long[capacity];
+    hashCodes = new int[capacity];
+    resizeThreshold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  /**
+   * @return the number of entries in the index
+   */
+  public int size() {
+    return nrEntries;
+  }
+
+  public boolean isEmpty() {
+    return nrEntries == 0;
+  }
+
+  /**
+   * @return the number of bytes allocated by the index and the data blocks
+   */
+  public long getMemoryUsage() {
+    return allocatedBytes + addresses.length * (long) ( Long.BYTES + Integer.BYTES );
+  }
+
+  /**
+   * @return true if the entries are stored outside of the Java heap
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  public byte[] get( byte[] key ) {
+    int hashCode = generateHashCode( key );
+    int mask = addresses.length - 1;
+    int slot = hashCode & mask;
+
+    long address;
+    while ( ( address = addresses[slot] ) != 0L ) {
+      if ( hashCodes[slot] == hashCode && equalsKey( address, key ) ) {
+        return readValue( address );
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Store a value for the key. The value of an existing key is replaced, like in a map.
+   */
+  public void put( byte[] key, byte[] value ) {
+    int hashCode = generateHashCode( key );
+    int mask = addresses.length - 1;
+    int slot = hashCode & mask;
+
+    long address;
+    while ( ( address = addresses[slot] ) != 0L ) {
+      if ( hashCodes[slot] == hashCode && equalsKey( address, key ) ) {
+        ByteBuffer block = getBlock( address );
+        int offset = getOffset( address );
+        if ( block.getInt( offset + 4 ) == value.length ) {
+          // Same length: overwrite the old value in place
+          //
+          int valueOffset = offset + ENTRY_HEADER_SIZE + key.length;
+          for ( int i = 0; i < value.length; i++ ) {
+            block.put( valueOffset + i, value[i] );
+          }
+        } else {
+          addresses[slot] = writeEntry( key, value );
+        }
+        return;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+
+    addresses[slot] = writeEntry( key, value );
+    hashCodes[slot] = hashCode;
+    nrEntries++;
+
+    if ( nrEntries >= resizeThreshold ) {
+      resize();
+    }
+  }
+
+  /**
+   * Release all the entries. Direct memory is given back to the operating system once the garbage collector has
+   * collected the blocks.
+   */
+  public void clear() {
+    blocks.clear();
+    currentBlock = null;
+    allocatedBytes = 0L;
+    nrEntries = 0;
+    allocateIndex( STANDARD_INDEX_SIZE );
+  }
+
+  private void resize() {
+    long[] oldAddresses = addresses;
+    int[] oldHashCodes = hashCodes;
+
+    // Double the size to keep the size of the index a power of 2.
+    // The hash codes are kept in the index so the entries themselves don't need to be read.
+    //
+    allocateIndex( oldAddresses.length * 2 );
+    int mask = addresses.length - 1;
+    for ( int i = 0; i < oldAddresses.length; i++ ) {
+      if ( oldAddresses[i] != 0L ) {
+        int slot = oldHashCodes[i] & mask;
+        while ( addresses[slot] != 0L ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        addresses[slot] = oldAddresses[i];
+        hashCodes[slot] = oldHashCodes[i];
+      }
+    }
+  }
+
+  private long writeEntry( byte[] key, byte[] value ) {
+    int length = ENTRY_HEADER_SIZE + key.length + value.length;
+    if ( currentBlock == null || currentBlock.remaining() < length ) {
+      int size = Math.max( blockSize, length );
+      currentBlock = direct ? ByteBuffer.allocateDirect( size ) : ByteBuffer.allocate( size );
+      blocks.add( currentBlock );
+      allocatedBytes += size;
+    }
+    int offset = currentBlock.position();
+    currentBlock.putInt( key.length );
+    currentBlock.putInt( value.length );
+    currentBlock.put( key );
+    currentBlock.put( value );
+
+    return ( (long) blocks.size() << 32 ) | offset;
+  }
+
+  private ByteBuffer getBlock( long address ) {
+    return blocks.get( (int) ( address >>> 32 ) - 1 );
+  }
+
+  private static int getOffset( long address ) {
+    return (int) address;
+  }
+
+  private boolean equalsKey( long address, byte[] key ) {
+    ByteBuffer block = getBlock( address );
+    int offset = getOffset( address );
+    if ( block.getInt( offset ) != key.length ) {
+      return false;
+    }
+    int keyOffset = offset + ENTRY_HEADER_SIZE;
+    for ( int i = 0; i < key.length; i++ ) {
+      if ( block.get( keyOffset + i ) != key[i] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private byte[] readValue( long address ) {
+    ByteBuffer block = getBlock( address );
+    int offset = getOffset( address );
+    int keyLength = block.getInt( offset );
+    byte[] value = new byte[block.getInt( offset + 4 )];
+    int valueOffset = offset + ENTRY_HEADER_SIZE + keyLength;
+    for ( int i = 0; i < value.length; i++ ) {
+      value[i] = block.get( valueOffset + i );
+    }
+    return value;
+  }
+
+  /**
+   * Hash of the serialized key. The bits are spread with the MurmurHash3 finalizer because only the lower bits select
+   * the slot.
+   */
+  public static int generateHashCode( byte[] key ) {
+    int h = 1;
+    for ( byte b : key ) {
+      h = 31 * h + b;
+    }
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
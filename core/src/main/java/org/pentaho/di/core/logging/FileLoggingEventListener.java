@@ -110,7 +110,39 @@ public class FileLoggingEventListener implements KettleLoggingEventListener {
     }
   }
 
+  /**
+   * Writes a batch of events with a single write, looking up the log channel children only once.
+   */
+  @Override
+  public void eventsAdded( List<KettleLoggingEvent> events ) {
+    try {
+      List<String> logChannelChildren = null;
+      if ( logChannelId != null ) {
+        logChannelChildren = LoggingRegistry.getInstance().getLogChannelChildren( logChannelId );
+      }
+
+      StringBuilder logText = new StringBuilder();
+      for ( KettleLoggingEvent event : events ) {
+        Object messageObject = event.getMessage();
+        if ( messageObject instanceof LogMessage && ( logChannelChildren == null
+          || Const.indexOfString( ( (LogMessage) messageObject ).getLogChannelId(), logChannelChildren ) >= 0 ) ) {
+          logText.append( layout.format( event ) ).append( Const.CR );
+        }
+      }
+      if ( logText.length() > 0 ) {
+        outputStream.write( logText.toString().getBytes() );
+      }
+    } catch ( Exception e ) {
+      exception = new KettleException( "Unable to write to logging event to file '" + filename + "'", e );
+    }
+  }
+
   public void close() throws KettleException {
+    // Write out the lines that are still waiting to be delivered
+    //
+    if ( KettleLogStore.isInitialized() ) {
+      KettleLogStore.getAppender().flush();
+    }
     try {
       if ( outputStream != null ) {
         outputStream.close();
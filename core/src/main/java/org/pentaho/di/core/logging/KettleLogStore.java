@@ -65,6 +65,11 @@ public class KettleLogStore {
    */
   private KettleLogStore( int maxSize, int maxLogTimeoutMinutes, boolean redirectStdOut, boolean redirectStdErr ) {
     this.appender = new LoggingBuffer( maxSize );
+    if ( EnvUtil.getSystemProperty( Const.KETTLE_LOG_ASYNC, "N" ).equalsIgnoreCase( "Y" ) ) {
+      appender.startAsyncDelivery(
+        Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_LOG_ASYNC_QUEUE_SIZE ), 100000 ),
+        EnvUtil.getSystemProperty( Const.KETTLE_LOG_ASYNC_DROP_WHEN_FULL, "N" ).equalsIgnoreCase( "Y" ) );
+    }
     replaceLogCleaner( maxLogTimeoutMinutes );
 
     if ( redirectStdOut ) {
@@ -244,10 +249,10 @@ public class KettleLogStore {
     // Remove all the rows for these ids
     LoggingBuffer bufferAppender = getInstance().appender;
 
-    for ( String id : ids ) {
-      // Remove it from the central log buffer
-      bufferAppender.removeChannelFromBuffer( id );
+    // Remove them from the central log buffer
+    bufferAppender.removeChannelsFromBuffer( ids );
 
+    for ( String id : ids ) {
       // Also remove the item from the registry.
       metricsRegistry.getSnapshotLists().remove( id );
       metricsRegistry.getSnapshotMaps().remove( id );
@@ -267,6 +272,9 @@ public class KettleLogStore {
 
   public void reset() {
     if ( initialized.compareAndSet( true, false ) ) {
+      if ( appender != null ) {
+        appender.stopAsyncDelivery();
+      }
       appender = null;
       if ( logCleanerTimer != null ) {
         logCleanerTimer.cancel();
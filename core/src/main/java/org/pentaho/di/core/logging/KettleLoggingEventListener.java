@@ -22,6 +22,20 @@
 
 package org.pentaho.di.core.logging;
 
+import java.util.List;
+
 public interface KettleLoggingEventListener {
   public void eventAdded( KettleLoggingEvent event );
+
+  /**
+   * Called with a batch of events when the logging events are delivered asynchronously. Listeners that can handle a
+   * batch more efficiently than one event at a time should override this.
+   *
+   * @param events the events in the order they were logged
+   */
+  default void eventsAdded( List<KettleLoggingEvent> events ) {
+    for ( KettleLoggingEvent event : events ) {
+      eventAdded( event );
+    }
+  }
 }
@@ -135,15 +135,21 @@ public class LogChannel implements LogChannelInterface {
 
     KettleLoggingEvent loggingEvent = new KettleLoggingEvent( logMessage, System.currentTimeMillis(),
       logMessage.getLevel() );
-    KettleLogStore.getAppender().addLogggingEvent( loggingEvent );
 
     if ( this.fileWriter == null ) {
       this.fileWriter = LoggingRegistry.getInstance().getLogChannelFileWriterBuffer( logChannelId );
     }
 
-    // add to buffer
-    if ( this.fileWriter != null ) {
-      this.fileWriter.addEvent( loggingEvent );
+    // With asynchronous delivery the event goes to the log buffer and the file writer buffer on a background thread
+    //
+    LoggingBuffer appender = KettleLogStore.getAppender();
+    if ( !appender.offerLoggingEvent( loggingEvent, this.fileWriter ) ) {
+      appender.addLogggingEvent( loggingEvent );
+
+      // add to buffer
+      if ( this.fileWriter != null ) {
+        this.fileWriter.addEvent( loggingEvent );
+      }
     }
 
     callAfterLog();
@@ -47,6 +47,12 @@ public class LogChannelFileWriterBuffer {
     }
   }
 
+  public void addEvents( List<KettleLoggingEvent> events ) {
+    synchronized ( buffer ) {
+      buffer.addAll( events );
+    }
+  }
+
   public StringBuffer getBuffer() {
     StringBuffer stringBuffer = new StringBuffer( 1000 );
 
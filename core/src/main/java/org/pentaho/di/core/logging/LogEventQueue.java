@@ -0,0 +1,232 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.logging;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.i18n.BaseMessages;
+
+/**
+ * Delivers the logging events of a {@link LoggingBuffer} on a background thread. Logging threads only put the event on
+ * a lock-free queue, a single drainer thread takes the events off in batches, stores them in the buffer under a single
+ * lock and hands them to the event listeners and the log file writer buffers.<br>
+ * <br>
+ * The queue is bounded. When it's full, logging threads either wait for the drainer to catch up or the event is dropped
+ * and counted. Dropped events are reported with a log line of their own.
+ *
+ * @see org.pentaho.di.core.Const#KETTLE_LOG_ASYNC
+ */
+class LogEventQueue {
+  private static Class<?> PKG = LogEventQueue.class; // for i18n purposes, needed by Translator2!!
+
+  private static final int MAX_BATCH_SIZE = 1024;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+  private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 100 );
+  private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos( 30 );
+
+  private final LoggingBuffer target;
+  private final int capacity;
+  private final boolean dropWhenFull;
+
+  private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicLong accepted = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private volatile long delivered;
+  private long droppedReported;
+
+  private final Thread drainer;
+  private volatile boolean drainerParked;
+  private volatile boolean running = true;
+
+  LogEventQueue( LoggingBuffer target, int capacity, boolean dropWhenFull ) {
+    this.target = target;
+    this.capacity = Math.max( 1, capacity );
+    this.dropWhenFull = dropWhenFull;
+
+    drainer = new Thread( this::drain, "Kettle log event delivery" );
+    drainer.setDaemon( true );
+  }
+
+  void start() {
+    drainer.start();
+  }
+
+  /**
+   * Put an event on the queue.
+   *
+   * @param event      the logging event
+   * @param fileWriter the log file writer buffer to add the event to, can be null
+   * @return false if the event was not queued and the caller has to deliver it itself
+   */
+  boolean offer( KettleLoggingEvent event, LogChannelFileWriterBuffer fileWriter ) {
+    if ( !running || Thread.currentThread() == drainer ) {
+      // A listener logging something while events are delivered would wait for itself
+      //
+      return false;
+    }
+    while ( true ) {
+      int current = size.get();
+      if ( current < capacity ) {
+        if ( size.compareAndSet( current, current + 1 ) ) {
+          break;
+        }
+        continue;
+      }
+      if ( dropWhenFull ) {
+        dropped.incrementAndGet();
+        return true;
+      }
+      if ( !running || !drainer.isAlive() ) {
+        return false;
+      }
+      LockSupport.unpark( drainer );
+      LockSupport.parkNanos( this, FULL_PARK_NANOS );
+    }
+
+    // Count before adding so that flush() never waits for less than what was added before it was called
+    //
+    accepted.incrementAndGet();
+    queue.offer( new Entry( event, fileWriter ) );
+    if ( drainerParked ) {
+      LockSupport.unpark( drainer );
+    }
+    return true;
+  }
+
+  /**
+   * Wait until all the events that were queued before this call are delivered.
+   */
+  void flush() {
+    if ( Thread.currentThread() == drainer ) {
+      return;
+    }
+    long target = accepted.get();
+    long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+    while ( delivered < target && drainer.isAlive() && System.nanoTime() < deadline ) {
+      LockSupport.unpark( drainer );
+      LockSupport.parkNanos( this, FULL_PARK_NANOS );
+    }
+  }
+
+  /**
+   * Deliver the remaining events and stop the drainer thread.
+   */
+  void stop() {
+    running = false;
+    LockSupport.unpark( drainer );
+    try {
+      drainer.join( TimeUnit.NANOSECONDS.toMillis( FLUSH_TIMEOUT_NANOS ) );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  long getDroppedCount() {
+    return dropped.get();
+  }
+
+  int size() {
+    return size.get();
+  }
+
+  private void drain() {
+    List<Entry> batch = new ArrayList<>( MAX_BATCH_SIZE );
+    while ( true ) {
+      Entry entry;
+      while ( batch.size() < MAX_BATCH_SIZE && ( entry = queue.poll() ) != null ) {
+        batch.add( entry );
+      }
+      if ( batch.isEmpty() ) {
+        if ( !running ) {
+          return;
+        }
+        drainerParked = true;
+        if ( queue.isEmpty() ) {
+          LockSupport.parkNanos( this, IDLE_PARK_NANOS );
+        }
+        drainerParked = false;
+        continue;
+      }
+
+      size.addAndGet( -batch.size() );
+      try {
+        deliver( batch );
+      } catch ( Throwable t ) {
+        // Never let a failing listener stop the delivery of the log
+        //
+        t.printStackTrace( KettleLogStore.OriginalSystemErr );
+      }
+      delivered += batch.size();
+      batch.clear();
+    }
+  }
+
+  private void deliver( List<Entry> batch ) {
+    List<KettleLoggingEvent> events = new ArrayList<>( batch.size() + 1 );
+    long droppedNow = dropped.get();
+    if ( droppedNow > droppedReported ) {
+      String message = BaseMessages.getString( PKG, "LogEventQueue.Log.EventsDropped",
+        Long.toString( droppedNow - droppedReported ), Integer.toString( capacity ) );
+      LogMessage logMessage = new LogMessage( message, LogChannel.GENERAL.getLogChannelId(), LogLevel.MINIMAL );
+      events.add( new KettleLoggingEvent( logMessage, System.currentTimeMillis(), LogLevel.MINIMAL ) );
+      droppedReported = droppedNow;
+    }
+
+    // Group the events per log file writer buffer, keeping the order of the events
+    //
+    Map<LogChannelFileWriterBuffer, List<KettleLoggingEvent>> fileWriterEvents = null;
+    for ( Entry entry : batch ) {
+      events.add( entry.event );
+      if ( entry.fileWriter != null ) {
+        if ( fileWriterEvents == null ) {
+          fileWriterEvents = new IdentityHashMap<>();
+        }
+        fileWriterEvents.computeIfAbsent( entry.fileWriter, writer -> new ArrayList<>() ).add( entry.event );
+      }
+    }
+
+    target.deliver( events );
+    if ( fileWriterEvents != null ) {
+      fileWriterEvents.forEach( LogChannelFileWriterBuffer::addEvents );
+    }
+  }
+
+  private static class Entry {
+    private final KettleLoggingEvent event;
+    private final LogChannelFileWriterBuffer fileWriter;
+
+    Entry( KettleLoggingEvent event, LogChannelFileWriterBuffer fileWriter ) {
+      this.event = event;
+      this.fileWriter = fileWriter;
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.logging;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An index on the lines of a {@link LoggingBuffer}, grouped per top-level log channel. A segment keeps the lines of a
+ * top-level channel (a transformation or job that was started on its own) and of all its children in line number
+ * order, so the lines after a given line number are found with a binary search instead of a scan of the whole buffer.
+ * <br>
+ * <br>
+ * The index is not thread-safe, it's guarded by the lock of the logging buffer.
+ */
+class LogLineIndex {
+  private static final int MAX_PARENT_DEPTH = 1000;
+
+  private final Function<String, String> parentResolver;
+
+  private final Map<String, Segment> segmentsByRoot = new HashMap<>();
+  private final Map<String, Segment> segmentsByChannel = new HashMap<>();
+
+  /**
+   * @param parentResolver returns the parent log channel ID of a log channel ID, or null for a top-level channel
+   */
+  LogLineIndex( Function<String, String> parentResolver ) {
+    this.parentResolver = parentResolver;
+  }
+
+  /**
+   * Add the newest line of the buffer.
+   */
+  void add( BufferLine line, String logChannelId ) {
+    Segment segment = segmentsByChannel.get( logChannelId );
+    if ( segment == null ) {
+      String root = findRoot( logChannelId );
+      segment = segmentsByRoot.get( root );
+      if ( segment == null ) {
+        segment = new Segment( root );
+        segmentsByRoot.put( root, segment );
+      }
+      segment.channels.add( logChannelId );
+      segmentsByChannel.put( logChannelId, segment );
+    }
+    segment.add( line, logChannelId );
+  }
+
+  /**
+   * Remove the oldest line of the buffer.
+   */
+  void removeOldest( BufferLine line, String logChannelId ) {
+    Segment segment = segmentsByChannel.get( logChannelId );
+    if ( segment != null && segment.size > 0 && segment.get( 0 ) == line ) {
+      segment.removeFirst();
+      if ( segment.size == 0 ) {
+        remove( segment );
+      }
+    }
+  }
+
+  /**
+   * Remove all the lines of the given log channels. Only the segments these channels belong to are visited.
+   */
+  void removeChannels( Collection<String> logChannelIds ) {
+    Set<String> channels = new HashSet<>( logChannelIds );
+    Set<Segment> segments = new HashSet<>();
+    for ( String logChannelId : channels ) {
+      Segment segment = segmentsByChannel.remove( logChannelId );
+      if ( segment != null ) {
+        segment.channels.remove( logChannelId );
+        segments.add( segment );
+      }
+    }
+    for ( Segment segment : segments ) {
+      segment.removeChannels( channels );
+      if ( segment.size == 0 ) {
+        remove( segment );
+      }
+    }
+  }
+
+  /**
+   * Index the lines of the buffer again, after lines were removed from the middle of the buffer.
+   */
+  void rebuild( List<BufferLine> lines, Function<BufferLine, String> logChannelIdGetter ) {
+    clear();
+    for ( BufferLine line : lines ) {
+      add( line, logChannelIdGetter.apply( line ) );
+    }
+  }
+
+  void clear() {
+    segmentsByRoot.clear();
+    segmentsByChannel.clear();
+  }
+
+  /**
+   * Get the lines of the given log channels with a line number in the range ]from, to].
+   *
+   * @param logChannelIds the log channel IDs
+   * @param from          the line number after which to start
+   * @param to            the last line number to include
+   * @return the lines in line number order
+   */
+  List<BufferLine> getLines( Collection<String> logChannelIds, int from, int to ) {
+    Set<String> channels = new HashSet<>( logChannelIds );
+    Set<Segment> segments = new HashSet<>();
+    for ( String logChannelId : channels ) {
+      Segment segment = segmentsByChannel.get( logChannelId );
+      if ( segment != null ) {
+        segments.add( segment );
+      }
+    }
+
+    List<BufferLine> lines = new ArrayList<>();
+    for ( Segment segment : segments ) {
+      boolean allChannels = channels.containsAll( segment.channels );
+      for ( int i = segment.indexAfter( from ); i < segment.size; i++ ) {
+        BufferLine line = segment.get( i );
+        if ( line.getNr() > to ) {
+          break;
+        }
+        if ( allChannels || channels.contains( segment.channelOf( i ) ) ) {
+          lines.add( line );
+        }
+      }
+    }
+    if ( segments.size() > 1 ) {
+      lines.sort( ( line1, line2 ) -> Integer.compare( line1.getNr(), line2.getNr() ) );
+    }
+    return lines;
+  }
+
+  int getSegmentCount() {
+    return segmentsByRoot.size();
+  }
+
+  private void remove( Segment segment ) {
+    segmentsByRoot.remove( segment.root );
+    for ( String logChannelId : segment.channels ) {
+      segmentsByChannel.remove( logChannelId );
+    }
+  }
+
+  private String findRoot( String logChannelId ) {
+    String root = logChannelId;
+    for ( int depth = 0; root != null && depth < MAX_PARENT_DEPTH; depth++ ) {
+      String parent = parentResolver.apply( root );
+      if ( parent == null || parent.equals( root ) ) {
+        break;
+      }
+      root = parent;
+    }
+    return root;
+  }
+
+  /**
+   * The lines of a top-level log channel and its children, kept in a ring buffer that grows when needed.
+   */
+  private static class Segment {
+    private final String root;
+    private final Set<String> channels = new HashSet<>();
+
+    private BufferLine[] lines = new BufferLine[16];
+    private String[] lineChannels = new String[16];
+    private int head;
+    private int size;
+
+    Segment( String root ) {
+      this.root = root;
+    }
+
+    BufferLine get( int index ) {
+      return lines[( head + index ) & ( lines.length - 1 )];
+    }
+
+    String channelOf( int index ) {
+      return lineChannels[( head + index ) & ( lines.length - 1 )];
+    }
+
+    void add( BufferLine line, String logChannelId ) {
+      if ( size == lines.length ) {
+        BufferLine[] newLines = new BufferLine[lines.length * 2];
+        String[] newLineChannels = new String[lines.length * 2];
+        for ( int i = 0; i < size; i++ ) {
+          newLines[i] = get( i );
+          newLineChannels[i] = channelOf( i );
+        }
+        lines = newLines;
+        lineChannels = newLineChannels;
+        head = 0;
+      }
+      int index = ( head + size ) & ( lines.length - 1 );
+      lines[index] = line;
+      lineChannels[index] = logChannelId;
+      size++;
+    }
+
+    void removeFirst() {
+      lines[head] = null;
+      lineChannels[head] = null;
+      head = ( head + 1 ) & ( lines.length - 1 );
+      size--;
+    }
+
+    /**
+     * Remove the lines of the given channels, keeping the other lines in order.
+     */
+    void removeChannels( Set<String> logChannelIds ) {
+      int kept = 0;
+      for ( int i = 0; i < size; i++ ) {
+        String logChannelId = channelOf( i );
+        if ( !logChannelIds.contains( logChannelId ) ) {
+          BufferLine line = get( i );
+          int index = ( head + kept ) & ( lines.length - 1 );
+          lines[index] = line;
+          lineChannels[index] = logChannelId;
+          kept++;
+        }
+      }
+      for ( int i = kept; i < size; i++ ) {
+        int index = ( head + i ) & ( lines.length - 1 );
+        lines[index] = null;
+        lineChannels[index] = null;
+      }
+      size = kept;
+    }
+
+    /**
+     * @return the index of the first line with a line number higher than the given one
+     */
+    int indexAfter( int nr ) {
+      int low = 0;
+      int high = size;
+      while ( low < high ) {
+        int middle = ( low + high ) >>> 1;
+        if ( get( middle ).getNr() <= nr ) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+}
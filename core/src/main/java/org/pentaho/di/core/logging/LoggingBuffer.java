@@ -27,6 +27,8 @@ import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -56,6 +58,10 @@ public class LoggingBuffer {
 
   private LoggingRegistry loggingRegistry = LoggingRegistry.getInstance();
 
+  private final LogLineIndex index = new LogLineIndex( this::getParentLogChannelId );
+
+  private volatile LogEventQueue eventQueue;
+
   public LoggingBuffer( int bufferSize ) {
     this.bufferSize = bufferSize;
     // The buffer overflow protection allows it to be overflowed for 1 item within a single thread.
@@ -93,6 +99,12 @@ public class LoggingBuffer {
                                                       int to ) {
     lock.readLock().lock();
     try {
+      if ( !Utils.isEmpty( channelId ) && !includeGeneral ) {
+        // Only look at the lines of the channels, starting after line number "from"
+        //
+        return index.getLines( channelId, from, to ).stream().map( BufferLine::getEvent )
+          .collect( Collectors.toList() );
+      }
       Stream<BufferLine> bufferStream = buffer.stream().filter( line -> line.getNr() > from && line.getNr() <= to );
       if ( !Utils.isEmpty( channelId ) ) {
         bufferStream = bufferStream.filter( line -> {
@@ -156,9 +168,12 @@ public class LoggingBuffer {
     if ( event.getMessage() instanceof LogMessage ) {
       lock.writeLock().lock();
       try {
-        buffer.add( new BufferLine( event ) );
+        BufferLine line = new BufferLine( event );
+        buffer.add( line );
+        index.add( line, getLogChId( line ) );
         while ( bufferSize > 0 && buffer.size() > bufferSize ) {
-          buffer.remove( 0 );
+          BufferLine removed = buffer.remove( 0 );
+          index.removeOldest( removed, getLogChId( removed ) );
         }
       } finally {
         lock.writeLock().unlock();
@@ -166,6 +181,96 @@ public class LoggingBuffer {
     }
   }
 
+  /**
+   * Appends a batch of events under a single lock and passes them on to the event listeners. Called by the drainer
+   * thread of the asynchronous delivery.
+   */
+  void deliver( List<KettleLoggingEvent> events ) {
+    lock.writeLock().lock();
+    try {
+      for ( KettleLoggingEvent event : events ) {
+        if ( event.getMessage() instanceof LogMessage ) {
+          BufferLine line = new BufferLine( event );
+          buffer.add( line );
+          index.add( line, getLogChId( line ) );
+        }
+      }
+      int excess = bufferSize > 0 ? buffer.size() - bufferSize : 0;
+      if ( excess > 0 ) {
+        removeOldest( excess );
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+    eventListeners.forEach( listener -> listener.eventsAdded( events ) );
+  }
+
+  /**
+   * Hand the logging events over to a background thread instead of delivering them on the logging thread. The logging
+   * threads then only put the events on a bounded queue.
+   *
+   * @param capacity     the maximum number of events waiting to be delivered
+   * @param dropWhenFull true to drop events when the queue is full, false to let the logging threads wait
+   */
+  public synchronized void startAsyncDelivery( int capacity, boolean dropWhenFull ) {
+    if ( eventQueue == null ) {
+      LogEventQueue queue = new LogEventQueue( this, capacity, dropWhenFull );
+      queue.start();
+      eventQueue = queue;
+    }
+  }
+
+  /**
+   * Deliver the events that are still queued and go back to delivering the events on the logging threads.
+   */
+  public synchronized void stopAsyncDelivery() {
+    LogEventQueue queue = eventQueue;
+    if ( queue != null ) {
+      eventQueue = null;
+      queue.stop();
+    }
+  }
+
+  /**
+   * @return true if the logging events are delivered by a background thread
+   */
+  public boolean isAsynchronous() {
+    return eventQueue != null;
+  }
+
+  /**
+   * Wait until the events logged so far are in the buffer and have been passed on to the listeners. This is a no-op
+   * when the events are delivered synchronously.
+   */
+  public void flush() {
+    LogEventQueue queue = eventQueue;
+    if ( queue != null ) {
+      queue.flush();
+    }
+  }
+
+  /**
+   * @return the number of events dropped because the asynchronous delivery queue was full
+   */
+  public long getDroppedEventCount() {
+    LogEventQueue queue = eventQueue;
+    return queue == null ? 0L : queue.getDroppedCount();
+  }
+
+  /**
+   * Queue a logging event for asynchronous delivery to this buffer, its listeners and optionally a log file writer
+   * buffer.
+   *
+   * @param loggingEvent the event to log
+   * @param fileWriter   the log file writer buffer of the log channel, can be null
+   * @return false if the event was not queued and has to be delivered by the caller with
+   * {@link #addLogggingEvent(KettleLoggingEvent)}
+   */
+  public boolean offerLoggingEvent( KettleLoggingEvent loggingEvent, LogChannelFileWriterBuffer fileWriter ) {
+    LogEventQueue queue = eventQueue;
+    return queue != null && queue.offer( loggingEvent, fileWriter );
+  }
+
   public void setName( String name ) {
     this.name = name;
   }
@@ -190,6 +295,7 @@ public class LoggingBuffer {
     lock.writeLock().lock();
     try {
       buffer.clear();
+      index.clear();
     } finally {
       lock.writeLock().unlock();
     }
@@ -222,9 +328,21 @@ public class LoggingBuffer {
    * @param id the id of the logging channel to remove
    */
   public void removeChannelFromBuffer( String id ) {
+    removeChannelsFromBuffer( Collections.singleton( id ) );
+  }
+
+  /**
+   * Removes the lines of all the given logging channels in a single pass over the buffer.
+   *
+   * @param ids the ids of the logging channels to remove
+   */
+  public void removeChannelsFromBuffer( Collection<String> ids ) {
+    Set<String> channels = new HashSet<>( ids );
     lock.writeLock().lock();
     try {
-      buffer.removeIf( line -> id.equals( getLogChId( line ) ) );
+      if ( buffer.removeIf( line -> channels.contains( getLogChId( line ) ) ) ) {
+        index.removeChannels( channels );
+      }
     } finally {
       lock.writeLock().unlock();
     }
@@ -237,7 +355,16 @@ public class LoggingBuffer {
   public void removeGeneralMessages() {
     lock.writeLock().lock();
     try {
-      buffer.removeIf( line -> isGeneral( getLogChId( line ) ) );
+      Set<String> generalChannels = new HashSet<>();
+      buffer.removeIf( line -> {
+        String logChannelId = getLogChId( line );
+        if ( !isGeneral( logChannelId ) ) {
+          return false;
+        }
+        generalChannels.add( logChannelId );
+        return true;
+      } );
+      index.removeChannels( generalChannels );
     } finally {
       lock.writeLock().unlock();
     }
@@ -284,7 +411,9 @@ public class LoggingBuffer {
   public void removeBufferLines( List<BufferLine> linesToRemove ) {
     lock.writeLock().lock();
     try {
-      buffer.removeAll( linesToRemove );
+      if ( buffer.removeAll( linesToRemove ) ) {
+        index.rebuild( buffer, LoggingBuffer::getLogChId );
+      }
     } finally {
       lock.writeLock().unlock();
     }
@@ -307,28 +436,35 @@ public class LoggingBuffer {
   }
 
   public void removeBufferLinesBefore( long minTimeBoundary ) {
-    // Using HashSet even though BufferLine does not implement hashcode and equals,
-    // we just need to remove the exact objects we have found and put in the set.
-    Set<BufferLine> linesToRemove = new HashSet<>();
     lock.writeLock().lock();
     try {
-      for ( BufferLine bufferLine : buffer ) {
-        if ( bufferLine.getEvent().timeStamp < minTimeBoundary ) {
-          linesToRemove.add( bufferLine );
-        } else {
-          break;
-        }
+      // The lines are in the order they were logged, so the lines to remove are at the start of the buffer
+      //
+      int count = 0;
+      while ( count < buffer.size() && buffer.get( count ).getEvent().timeStamp < minTimeBoundary ) {
+        count++;
       }
-      // removeAll should run fast against a HashSet,
-      // since ArrayList.batchRemove check for each element of a collection given if it is in the ArrayList.
-      // Thus, removeAll should run in a linear time.
-      buffer.removeAll( linesToRemove );
+      removeOldest( count );
     } finally {
       lock.writeLock().unlock();
     }
   }
 
+  /**
+   * Removes the first lines of the buffer, the caller holds the write lock.
+   */
+  private void removeOldest( int count ) {
+    List<BufferLine> oldest = buffer.subList( 0, count );
+    for ( BufferLine line : oldest ) {
+      index.removeOldest( line, getLogChId( line ) );
+    }
+    oldest.clear();
+  }
+
   public void addLogggingEvent( KettleLoggingEvent loggingEvent ) {
+    if ( offerLoggingEvent( loggingEvent, null ) ) {
+      return;
+    }
     doAppend( loggingEvent );
     eventListeners.forEach( event -> event.eventAdded( loggingEvent ) );
   }
@@ -338,9 +474,18 @@ public class LoggingBuffer {
   }
 
   public void removeLoggingEventListener( KettleLoggingEventListener listener ) {
+    // Make sure the listener sees everything that was logged before it was removed
+    //
+    flush();
     eventListeners.remove( listener );
   }
 
+  private String getParentLogChannelId( String logChannelId ) {
+    LoggingObjectInterface loggingObject = loggingRegistry.getLoggingObject( logChannelId );
+    LoggingObjectInterface parent = loggingObject == null ? null : loggingObject.getParent();
+    return parent == null ? null : parent.getLogChannelId();
+  }
+
   private boolean isGeneral( String logChannelId ) {
     LoggingObjectInterface loggingObject = loggingRegistry.getLoggingObject( logChannelId );
     return loggingObject != null && LoggingObjectType.GENERAL.equals( loggingObject.getObjectType() );
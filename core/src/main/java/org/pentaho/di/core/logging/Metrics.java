@@ -133,6 +133,14 @@ public class Metrics implements MetricsInterface {
     MetricsSnapshotType.START, "METRIC_STEP_INIT", "Initialize a step" );
   public static Metrics METRIC_STEP_INIT_STOP = new Metrics(
     MetricsSnapshotType.STOP, "METRIC_STEP_INIT", "Initialize a step" );
+  public static Metrics METRIC_STEP_LOOKUP_MEMORY_USAGE = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_STEP_LOOKUP_MEMORY_USAGE", "Memory used by the lookup data of a step (bytes)" );
+  public static Metrics METRIC_STEP_CACHE_HITS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_HITS", "Rows found in the lookup cache of a step" );
+  public static Metrics METRIC_STEP_CACHE_MISSES = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_MISSES", "Rows not found in the lookup cache of a step" );
+  public static Metrics METRIC_STEP_CACHE_EVICTIONS = new Metrics(
+    MetricsSnapshotType.SUM, "METRIC_STEP_CACHE_EVICTIONS", "Entries removed from the lookup cache of a step" );
 
   // Logging back-end
   //
@@ -0,0 +1,453 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.w3c.dom.Node;
+
+/**
+ * An immutable snapshot of row metadata. The list of values can't be changed, so all lookups work on a plain array and
+ * a name to index map that are computed once, without taking any lock. This makes it a good fit for the metadata that
+ * travels with every row on a hop, which is read for every field of every row but never changes once the step started
+ * sending rows.<br>
+ * <br>
+ * The value metadata objects themselves are shared with the row metadata the snapshot was taken from. All methods that
+ * change the list of values throw an {@link UnsupportedOperationException}, use {@link #clone()} to get a modifiable
+ * copy.
+ *
+ * @see RowMeta#freeze()
+ * @since 9.6
+ */
+public class FrozenRowMeta implements RowMetaInterface {
+
+  private final ValueMetaInterface[] valueMetas;
+  private final List<ValueMetaInterface> valueMetaList;
+  private final Map<String, Integer> indexes;
+  private final int[] needRealClone;
+
+  /**
+   * Used for the methods that are not on the row hot path (XML, serialization, ...). It holds the same value metadata
+   * objects and is never modified.
+   */
+  private final RowMeta rowMeta;
+
+  /**
+   * Take a snapshot of the given row metadata.
+   *
+   * @param source the row metadata to freeze
+   */
+  public FrozenRowMeta( RowMetaInterface source ) {
+    List<ValueMetaInterface> list = source.getValueMetaList();
+    valueMetas = list.toArray( new ValueMetaInterface[ list.size() ] );
+    valueMetaList = Collections.unmodifiableList( Arrays.asList( valueMetas ) );
+
+    indexes = new HashMap<>( valueMetas.length * 2 );
+    List<Integer> realClone = new ArrayList<>();
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      String name = valueMetas[ i ].getName();
+      if ( name != null ) {
+        indexes.putIfAbsent( name.toLowerCase(), i );
+      }
+      if ( valueMetas[ i ].requiresRealClone() ) {
+        realClone.add( i );
+      }
+    }
+    needRealClone = new int[ realClone.size() ];
+    for ( int i = 0; i < needRealClone.length; i++ ) {
+      needRealClone[ i ] = realClone.get( i );
+    }
+
+    rowMeta = new RowMeta();
+    rowMeta.setValueMetaList( new ArrayList<>( valueMetaList ) );
+  }
+
+  /**
+   * @return a modifiable copy of this row metadata
+   */
+  @Override
+  public RowMetaInterface clone() {
+    return rowMeta.clone();
+  }
+
+  @Override
+  public RowMetaInterface cloneToType( int targetType ) throws KettleValueException {
+    return rowMeta.cloneToType( targetType );
+  }
+
+  @Override
+  public List<ValueMetaInterface> getValueMetaList() {
+    return valueMetaList;
+  }
+
+  @Override
+  public int size() {
+    return valueMetas.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return valueMetas.length == 0;
+  }
+
+  @Override
+  public ValueMetaInterface getValueMeta( int index ) {
+    if ( index >= 0 && index < valueMetas.length ) {
+      return valueMetas[ index ];
+    }
+    return null;
+  }
+
+  @Override
+  public boolean exists( ValueMetaInterface meta ) {
+    return meta != null && indexOfValue( meta.getName() ) >= 0;
+  }
+
+  /**
+   * Searches the index of a value meta with a given name, ignoring case. The value metadata is shared and can still be
+   * renamed, so a hit in the precomputed map is verified and we fall back to a scan when the name doesn't match.
+   *
+   * @param valueName the name of the value metadata to look for
+   * @return the index or -1 in case we didn't find the value
+   */
+  @Override
+  public int indexOfValue( String valueName ) {
+    if ( valueName == null ) {
+      return -1;
+    }
+    Integer index = indexes.get( valueName.toLowerCase() );
+    if ( index != null && valueName.equalsIgnoreCase( valueMetas[ index ].getName() ) ) {
+      return index;
+    }
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      if ( valueName.equalsIgnoreCase( valueMetas[ i ].getName() ) ) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public ValueMetaInterface searchValueMeta( String valueName ) {
+    int index = indexOfValue( valueName );
+    return index < 0 ? null : valueMetas[ index ];
+  }
+
+  @Override
+  public String[] getFieldNames() {
+    String[] names = new String[ valueMetas.length ];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      String valueName = valueMetas[ i ].getName();
+      names[ i ] = valueName == null ? "" : valueName;
+    }
+    return names;
+  }
+
+  @Override
+  public String getString( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return null;
+    }
+    return valueMetas[ index ].getString( dataRow[ index ] );
+  }
+
+  @Override
+  public Long getInteger( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return null;
+    }
+    return valueMetas[ index ].getInteger( dataRow[ index ] );
+  }
+
+  @Override
+  public Double getNumber( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return null;
+    }
+    return valueMetas[ index ].getNumber( dataRow[ index ] );
+  }
+
+  @Override
+  public Date getDate( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return null;
+    }
+    return valueMetas[ index ].getDate( dataRow[ index ] );
+  }
+
+  @Override
+  public BigDecimal getBigNumber( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return null;
+    }
+    return valueMetas[ index ].getBigNumber( dataRow[ index ] );
+  }
+
+  @Override
+  public Boolean getBoolean( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return null;
+    }
+    return valueMetas[ index ].getBoolean( dataRow[ index ] );
+  }
+
+  @Override
+  public byte[] getBinary( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return null;
+    }
+    return valueMetas[ index ].getBinary( dataRow[ index ] );
+  }
+
+  @Override
+  public boolean isNull( Object[] dataRow, int index ) throws KettleValueException {
+    if ( dataRow == null ) {
+      return true;
+    }
+    return valueMetas[ index ].isNull( dataRow[ index ] );
+  }
+
+  @Override
+  public String getString( Object[] dataRow, String valueName, String defaultValue ) throws KettleValueException {
+    int index = indexOfValue( valueName );
+    return index < 0 ? defaultValue : getString( dataRow, index );
+  }
+
+  @Override
+  public Long getInteger( Object[] dataRow, String valueName, Long defaultValue ) throws KettleValueException {
+    int index = indexOfValue( valueName );
+    return index < 0 ? defaultValue : getInteger( dataRow, index );
+  }
+
+  @Override
+  public Date getDate( Object[] dataRow, String valueName, Date defaultValue ) throws KettleValueException {
+    int index = indexOfValue( valueName );
+    return index < 0 ? defaultValue : getDate( dataRow, index );
+  }
+
+  @Override
+  public Object[] cloneRow( Object[] objects ) throws KettleValueException {
+    return cloneRow( objects, objects.clone() );
+  }
+
+  @Override
+  public Object[] cloneRow( Object[] objects, Object[] cloneTo ) throws KettleValueException {
+    for ( int i : needRealClone ) {
+      cloneTo[ i ] = valueMetas[ i ].cloneValueData( objects[ i ] );
+    }
+    return cloneTo;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
+    for ( int fieldnr : fieldnrs ) {
+      int cmp = valueMetas[ fieldnr ].compare( rowData1[ fieldnr ], rowData2[ fieldnr ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean equals( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws KettleValueException {
+    return compare( rowData1, rowData2, fieldnrs ) == 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs1, int[] fieldnrs2 )
+    throws KettleValueException {
+    int len = Math.min( fieldnrs1.length, fieldnrs2.length );
+    for ( int i = 0; i < len; i++ ) {
+      int cmp = valueMetas[ fieldnrs1[ i ] ].compare( rowData1[ fieldnrs1[ i ] ], rowData2[ fieldnrs2[ i ] ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, RowMetaInterface rowMeta2, Object[] rowData2, int[] fieldnrs1,
+                      int[] fieldnrs2 ) throws KettleValueException {
+    int len = Math.min( fieldnrs1.length, fieldnrs2.length );
+    for ( int i = 0; i < len; i++ ) {
+      ValueMetaInterface valueMeta1 = valueMetas[ fieldnrs1[ i ] ];
+      ValueMetaInterface valueMeta2 = rowMeta2.getValueMeta( fieldnrs2[ i ] );
+      int cmp = valueMeta1.compare( rowData1[ fieldnrs1[ i ] ], valueMeta2, rowData2[ fieldnrs2[ i ] ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2 ) throws KettleValueException {
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      int cmp = valueMetas[ i ].compare( rowData1[ i ], rowData2[ i ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  @Deprecated
+  public int oldXORHashCode( Object[] rowData ) throws KettleValueException {
+    int hash = 0;
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      hash ^= valueMetas[ i ].hashCode( rowData[ i ] );
+    }
+    return hash;
+  }
+
+  @Override
+  public int hashCode( Object[] rowData ) throws KettleValueException {
+    return Arrays.deepHashCode( rowData );
+  }
+
+  @Override
+  public int convertedValuesHashCode( Object[] rowData ) throws KettleValueException {
+    return rowMeta.convertedValuesHashCode( rowData );
+  }
+
+  @Override
+  public void writeMeta( DataOutputStream outputStream ) throws KettleFileException {
+    rowMeta.writeMeta( outputStream );
+  }
+
+  @Override
+  public void writeData( DataOutputStream outputStream, Object[] data ) throws KettleFileException {
+    rowMeta.writeData( outputStream, data );
+  }
+
+  @Override
+  public Object[] readData( DataInputStream inputStream ) throws KettleFileException, SocketTimeoutException {
+    return rowMeta.readData( inputStream );
+  }
+
+  @Override
+  public String getString( Object[] row ) throws KettleValueException {
+    return rowMeta.getString( row );
+  }
+
+  @Override
+  public String[] getFieldNamesAndTypes( int maxlen ) {
+    return rowMeta.getFieldNamesAndTypes( maxlen );
+  }
+
+  @Override
+  public String toStringMeta() {
+    return rowMeta.toStringMeta();
+  }
+
+  @Override
+  public String getMetaXML() throws IOException {
+    return rowMeta.getMetaXML();
+  }
+
+  @Override
+  public String getDataXML( Object[] rowData ) throws IOException {
+    return rowMeta.getDataXML( rowData );
+  }
+
+  @Override
+  public Object[] getRow( Node node ) throws KettleException {
+    return rowMeta.getRow( node );
+  }
+
+  @Override
+  public String toString() {
+    return rowMeta.toString();
+  }
+
+  @Override
+  public void setValueMetaList( List<ValueMetaInterface> valueMetaList ) {
+    throw frozen();
+  }
+
+  @Override
+  public void addValueMeta( ValueMetaInterface meta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void addValueMeta( int index, ValueMetaInterface meta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void setValueMeta( int index, ValueMetaInterface valueMeta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void addRowMeta( RowMetaInterface rowMeta ) {
+    throw frozen();
+  }
+
+  @Override
+  public void mergeRowMeta( RowMetaInterface r ) {
+    throw frozen();
+  }
+
+  @Override
+  public void mergeRowMeta( RowMetaInterface r, String originStepName ) {
+    throw frozen();
+  }
+
+  @Override
+  public void clear() {
+    throw frozen();
+  }
+
+  @Override
+  public void removeValueMeta( String string ) throws KettleValueException {
+    throw frozen();
+  }
+
+  @Override
+  public void removeValueMeta( int index ) {
+    throw frozen();
+  }
+
+  private static UnsupportedOperationException frozen() {
+    return new UnsupportedOperationException( "This row metadata is frozen and can't be modified, clone it first" );
+  }
+}
@@ -0,0 +1,163 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+/**
+ * A batch of data rows sharing one RowMetaInterface, used to move many rows between steps in a single call.
+ * <p>
+ * The rows are kept as the regular Object[] rows the rest of the engine works with, so a batch can be handed to a row
+ * set or to a row listener without converting anything. Steps that prefer to work on a column at a time can use
+ * {@link #getValue(int, int)} or copy a column vector with {@link #getColumn(int, Object[])}.
+ *
+ * @since 9.6
+ */
+public class RowBatch {
+  /** The number of rows steps typically ask for in one batch. */
+  public static final int DEFAULT_SIZE = 1000;
+
+  private final RowMetaInterface rowMeta;
+  private final Object[][] rows;
+  private int size;
+
+  /**
+   * @param rowMeta
+   *          the metadata of all the rows in the batch
+   * @param capacity
+   *          the maximum number of rows in the batch
+   */
+  public RowBatch( RowMetaInterface rowMeta, int capacity ) {
+    this.rowMeta = rowMeta;
+    this.rows = new Object[ Math.max( 1, capacity ) ][];
+    this.size = 0;
+  }
+
+  /**
+   * @return the rowMeta
+   */
+  public RowMetaInterface getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * Adds a row at the end of the batch.
+   *
+   * @param row
+   *          the row to add
+   * @throws IllegalStateException
+   *           in case the batch is full
+   */
+  public void addRow( Object[] row ) {
+    if ( size >= rows.length ) {
+      throw new IllegalStateException( "Row batch is full, capacity is " + rows.length );
+    }
+    rows[ size++ ] = row;
+  }
+
+  /**
+   * @param rowNr
+   *          the index of the row in the batch
+   * @return the row
+   */
+  public Object[] getRow( int rowNr ) {
+    if ( rowNr >= size ) {
+      throw new IndexOutOfBoundsException( "Row " + rowNr + " requested, batch size is " + size );
+    }
+    return rows[ rowNr ];
+  }
+
+  /**
+   * Replaces a row in the batch, for example after a step added fields to it.
+   *
+   * @param rowNr
+   *          the index of the row in the batch
+   * @param row
+   *          the new row
+   */
+  public void setRow( int rowNr, Object[] row ) {
+    if ( rowNr >= size ) {
+      throw new IndexOutOfBoundsException( "Row " + rowNr + " requested, batch size is " + size );
+    }
+    rows[ rowNr ] = row;
+  }
+
+  /**
+   * @param rowNr
+   *          the index of the row in the batch
+   * @param columnNr
+   *          the index of the value in the row metadata
+   * @return the value
+   */
+  public Object getValue( int rowNr, int columnNr ) {
+    return getRow( rowNr )[ columnNr ];
+  }
+
+  /**
+   * Copy the values of one column into a vector.
+   *
+   * @param columnNr
+   *          the index of the value in the row metadata
+   * @param vector
+   *          the vector to fill or null to allocate one. It needs to be at least {@link #size()} long.
+   * @return the column vector
+   */
+  public Object[] getColumn( int columnNr, Object[] vector ) {
+    Object[] column = vector != null && vector.length >= size ? vector : new Object[ size ];
+    for ( int i = 0; i < size; i++ ) {
+      column[ i ] = rows[ i ][ columnNr ];
+    }
+    return column;
+  }
+
+  /**
+   * @return the number of rows in the batch
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the maximum number of rows in the batch
+   */
+  public int getCapacity() {
+    return rows.length;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public boolean isFull() {
+    return size >= rows.length;
+  }
+
+  /**
+   * Removes all rows from the batch so it can be filled again.
+   */
+  public void clear() {
+    for ( int i = 0; i < size; i++ ) {
+      rows[ i ] = null;
+    }
+    size = 0;
+  }
+}
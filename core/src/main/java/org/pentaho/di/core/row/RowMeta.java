@@ -119,6 +119,17 @@ public class RowMeta implements RowMetaInterface {
     }
   }
 
+  /**
+   * Creates an immutable snapshot of this row metadata. Lookups on the snapshot don't take any lock, which makes it
+   * cheaper to use for every row once the layout of the rows is known. The value metadata objects are shared.
+   *
+   * @return the frozen row metadata
+   * @see FrozenRowMeta
+   */
+  public RowMetaInterface freeze() {
+    return new FrozenRowMeta( this );
+  }
+
   @Override
   public String toString() {
     StringBuilder buffer = new StringBuilder();
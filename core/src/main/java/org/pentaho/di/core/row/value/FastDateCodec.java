@@ -0,0 +1,319 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * A fast date parser and formatter for the common purely numeric date masks like <code>yyyy/MM/dd HH:mm:ss.SSS</code>
+ * or <code>yyyyMMdd</code>. The mask is compiled once from a {@link SimpleDateFormat}, after which parsing works
+ * directly on the characters of the value without any intermediate objects and without a {@link Calendar}. The codec is
+ * immutable and thread-safe.<br>
+ * <br>
+ * Only the fields y (4 digits), M, d, H, m, s (2 digits) and S (3 digits) and non-letter literals are supported. When
+ * the mask contains anything else, or when a value is not an exact, valid match of the mask (other lengths, out of
+ * range fields, years before 1583, close to a daylight saving transition, ...), the codec gives up and the caller
+ * should use the {@link SimpleDateFormat} instead. That way the results are always identical to the ones of the date
+ * format.
+ */
+public final class FastDateCodec {
+
+  /** Returned by {@link #parse(CharSequence)} when the value has to be parsed by the date format. */
+  public static final long NO_RESULT = Long.MIN_VALUE;
+
+  private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+  private static final long DAYS_0000_TO_1970 = 719528L;
+  private static final int MIN_YEAR = 1583;
+  private static final int MAX_YEAR = 9999;
+  private static final long MIN_MILLIS = -12212553600000L; // 1583-01-01T00:00:00Z
+  private static final long MAX_MILLIS = 253402300800000L; // 10000-01-01T00:00:00Z
+
+  private final SimpleDateFormat format;
+  private final String pattern;
+  private final TimeZone timeZone;
+
+  /** The field letter of every position in the text, or 0 for a literal. */
+  private final char[] fields;
+  /** The literal character of every position in the text. */
+  private final char[] literals;
+  private final boolean supported;
+
+  /**
+   * Compile the pattern of the given date format.
+   *
+   * @param format the date format to create a codec for
+   */
+  public FastDateCodec( SimpleDateFormat format ) {
+    this.format = format;
+    this.pattern = format.toPattern();
+    this.timeZone = format.getTimeZone();
+
+    char[] compiledFields = compile( pattern );
+    Calendar calendar = format.getCalendar();
+    NumberFormat numberFormat = format.getNumberFormat();
+    supported = compiledFields != null && calendar.getClass() == GregorianCalendar.class
+      && ( (GregorianCalendar) calendar ).getGregorianChange().getTime() < MIN_MILLIS
+      && numberFormat instanceof DecimalFormat
+      && ( (DecimalFormat) numberFormat ).getDecimalFormatSymbols().getZeroDigit() == '0';
+
+    fields = supported ? compiledFields : new char[ 0 ];
+    literals = pattern.toCharArray();
+  }
+
+  /**
+   * @param format the date format that is about to be used
+   * @return true if this codec was compiled for the given date format and the format didn't change since then
+   */
+  public boolean isCodecFor( SimpleDateFormat format ) {
+    return this.format == format && pattern.equals( format.toPattern() ) && timeZone == format.getTimeZone();
+  }
+
+  /**
+   * @return true if the mask can be handled by this codec
+   */
+  public boolean isSupported() {
+    return supported;
+  }
+
+  /**
+   * Parse a date.
+   *
+   * @param text the text to parse, already trimmed
+   * @return the time in milliseconds since the epoch or {@link #NO_RESULT} if the date format has to parse the value
+   */
+  public long parse( CharSequence text ) {
+    if ( !supported || text.length() != fields.length ) {
+      return NO_RESULT;
+    }
+    int year = 0;
+    int month = 0;
+    int day = 0;
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    int millis = 0;
+    int pos = 0;
+    while ( pos < fields.length ) {
+      char field = fields[ pos ];
+      if ( field == 0 ) {
+        if ( text.charAt( pos ) != literals[ pos ] ) {
+          return NO_RESULT;
+        }
+        pos++;
+        continue;
+      }
+      int value = 0;
+      while ( pos < fields.length && fields[ pos ] == field ) {
+        char c = text.charAt( pos++ );
+        if ( c < '0' || c > '9' ) {
+          return NO_RESULT;
+        }
+        value = value * 10 + ( c - '0' );
+      }
+      switch ( field ) {
+        case 'y':
+          year = value;
+          break;
+        case 'M':
+          month = value;
+          break;
+        case 'd':
+          day = value;
+          break;
+        case 'H':
+          hour = value;
+          break;
+        case 'm':
+          minute = value;
+          break;
+        case 's':
+          second = value;
+          break;
+        default:
+          millis = value;
+          break;
+      }
+    }
+    if ( year < MIN_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth( year, month )
+      || hour > 23 || minute > 59 || second > 59 ) {
+      return NO_RESULT;
+    }
+
+    long local = toEpochDay( year, month, day ) * MILLIS_PER_DAY + ( ( hour * 60 + minute ) * 60 + second ) * 1000L
+      + millis;
+
+    // Wall clock times around a daylight saving transition can be ambiguous or invalid: leave those to the calendar
+    //
+    int offset = timeZone.getOffset( local - MILLIS_PER_DAY );
+    if ( offset != timeZone.getOffset( local + MILLIS_PER_DAY ) ) {
+      return NO_RESULT;
+    }
+    return local - offset;
+  }
+
+  /**
+   * Format a date.
+   *
+   * @param time the time in milliseconds since the epoch
+   * @return the formatted date or null if the date format has to format the value
+   */
+  public String format( long time ) {
+    if ( !supported || time < MIN_MILLIS - MILLIS_PER_DAY || time > MAX_MILLIS + MILLIS_PER_DAY ) {
+      return null;
+    }
+    long local = time + timeZone.getOffset( time );
+    long epochDay = Math.floorDiv( local, MILLIS_PER_DAY );
+    int millisOfDay = (int) Math.floorMod( local, MILLIS_PER_DAY );
+
+    // Civil date from the day number, see java.time.LocalDate.ofEpochDay()
+    //
+    long zeroDay = epochDay + DAYS_0000_TO_1970 - 60;
+    long yearEstimate = ( 400 * zeroDay + 591 ) / 146097;
+    long dayOfYearEstimate = zeroDay - ( 365 * yearEstimate + yearEstimate / 4 - yearEstimate / 100
+      + yearEstimate / 400 );
+    if ( dayOfYearEstimate < 0 ) {
+      yearEstimate--;
+      dayOfYearEstimate = zeroDay - ( 365 * yearEstimate + yearEstimate / 4 - yearEstimate / 100
+        + yearEstimate / 400 );
+    }
+    int marchDayOfYear = (int) dayOfYearEstimate;
+    int marchMonth = ( marchDayOfYear * 5 + 2 ) / 153;
+    int month = ( marchMonth + 2 ) % 12 + 1;
+    int day = marchDayOfYear - ( marchMonth * 306 + 5 ) / 10 + 1;
+    int year = (int) ( yearEstimate + marchMonth / 10 );
+    if ( year < MIN_YEAR || year > MAX_YEAR ) {
+      return null;
+    }
+
+    char[] buffer = new char[ fields.length ];
+    int pos = fields.length - 1;
+    while ( pos >= 0 ) {
+      char field = fields[ pos ];
+      if ( field == 0 ) {
+        buffer[ pos ] = literals[ pos ];
+        pos--;
+        continue;
+      }
+      int value;
+      switch ( field ) {
+        case 'y':
+          value = year;
+          break;
+        case 'M':
+          value = month;
+          break;
+        case 'd':
+          value = day;
+          break;
+        case 'H':
+          value = millisOfDay / 3600000;
+          break;
+        case 'm':
+          value = millisOfDay / 60000 % 60;
+          break;
+        case 's':
+          value = millisOfDay / 1000 % 60;
+          break;
+        default:
+          value = millisOfDay % 1000;
+          break;
+      }
+      while ( pos >= 0 && fields[ pos ] == field ) {
+        buffer[ pos-- ] = (char) ( '0' + value % 10 );
+        value /= 10;
+      }
+    }
+    return new String( buffer );
+  }
+
+  /**
+   * @return the field letter of every character position or null if the pattern is not supported
+   */
+  private static char[] compile( String pattern ) {
+    char[] result = new char[ pattern.length() ];
+    String seen = "";
+    int i = 0;
+    while ( i < pattern.length() ) {
+      char c = pattern.charAt( i );
+      if ( c == '\'' ) {
+        return null;
+      }
+      if ( !( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) ) ) {
+        i++;
+        continue;
+      }
+      int start = i;
+      while ( i < pattern.length() && pattern.charAt( i ) == c ) {
+        result[ i++ ] = c;
+      }
+      int expectedWidth = "yMdHmsS".indexOf( c ) < 0 ? -1 : ( c == 'y' ? 4 : c == 'S' ? 3 : 2 );
+      if ( i - start != expectedWidth || seen.indexOf( c ) >= 0 ) {
+        return null;
+      }
+      seen += c;
+    }
+    if ( seen.indexOf( 'y' ) < 0 || seen.indexOf( 'M' ) < 0 || seen.indexOf( 'd' ) < 0 ) {
+      return null;
+    }
+    return result;
+  }
+
+  private static boolean isLeapYear( int year ) {
+    return ( year & 3 ) == 0 && ( year % 100 != 0 || year % 400 == 0 );
+  }
+
+  private static int lengthOfMonth( int year, int month ) {
+    switch ( month ) {
+      case 2:
+        return isLeapYear( year ) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * The number of days since 1970-01-01, see java.time.LocalDate.toEpochDay()
+   */
+  private static long toEpochDay( int year, int month, int day ) {
+    long total = 365L * year + ( year + 3 ) / 4 - ( year + 99 ) / 100 + ( year + 399 ) / 400;
+    total += ( 367 * month - 362 ) / 12;
+    total += day - 1;
+    if ( month > 2 ) {
+      total--;
+      if ( !isLeapYear( year ) ) {
+        total--;
+      }
+    }
+    return total - DAYS_0000_TO_1970;
+  }
+}
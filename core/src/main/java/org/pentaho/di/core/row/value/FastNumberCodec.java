@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * A fast number parser and integer formatter for the plain number masks like <code>#.##</code>,
+ * <code>####0.0#########</code> or <code>####0;-####0</code>. The relevant settings are taken once from a
+ * {@link DecimalFormat}, after which numbers are parsed directly from the characters of the value without any
+ * intermediate objects. The codec is immutable and thread-safe.<br>
+ * <br>
+ * Only an optional minus sign followed by digits with an optional decimal separator and more digits is handled. Values
+ * with grouping symbols, exponents, currency symbols, too many digits to be exact, ... are left to the decimal format,
+ * just like masks with prefixes, suffixes or a multiplier. That way the results are always identical to the ones
+ * of the decimal format.
+ */
+public final class FastNumberCodec {
+
+  /** Returned by {@link #parseInteger(CharSequence)} when the value has to be parsed by the decimal format. */
+  public static final long NO_RESULT = Long.MIN_VALUE;
+
+  /** The largest mantissa that is still exactly represented as a double. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+  private static final long MAX_MANTISSA_BEFORE_DIGIT = 10_000_000_000_000_000L;
+
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+    1e21, 1e22 };
+
+  private final DecimalFormat format;
+  private final boolean parseSupported;
+  private final boolean integerFormatSupported;
+  private final char decimalSeparator;
+  private final char minusSign;
+
+  /**
+   * Take the settings of the given decimal format.
+   *
+   * @param format the decimal format to create a codec for
+   */
+  public FastNumberCodec( DecimalFormat format ) {
+    this.format = format;
+
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    decimalSeparator = symbols.getDecimalSeparator();
+    String negativePrefix = format.getNegativePrefix();
+    minusSign = negativePrefix.length() == 1 ? negativePrefix.charAt( 0 ) : 0;
+
+    boolean plain = format.getMultiplier() == 1 && format.getPositivePrefix().isEmpty()
+      && format.getPositiveSuffix().isEmpty() && format.getNegativeSuffix().isEmpty() && minusSign != 0
+      && !Character.isDigit( minusSign ) && minusSign != decimalSeparator;
+
+    parseSupported = plain && !format.isParseIntegerOnly() && !Character.isDigit( decimalSeparator );
+    integerFormatSupported = plain && minusSign == '-' && symbols.getZeroDigit() == '0'
+      && format.toPattern().indexOf( 'E' ) < 0
+      && ( !format.isGroupingUsed() || format.getGroupingSize() <= 0 )
+      && format.getMinimumIntegerDigits() <= 1 && format.getMaximumIntegerDigits() >= 19
+      && format.getMinimumFractionDigits() == 0 && !format.isDecimalSeparatorAlwaysShown();
+  }
+
+  /**
+   * @param format the decimal format that is about to be used
+   * @return true if this codec was created for the given decimal format
+   */
+  public boolean isCodecFor( DecimalFormat format ) {
+    return this.format == format;
+  }
+
+  /**
+   * Parse a number.
+   *
+   * @param text the text to parse, already trimmed
+   * @return the number or NaN if the decimal format has to parse the value
+   */
+  public double parseNumber( CharSequence text ) {
+    if ( !parseSupported ) {
+      return Double.NaN;
+    }
+    int length = text.length();
+    int pos = 0;
+    boolean negative = length > 0 && text.charAt( 0 ) == minusSign;
+    if ( negative ) {
+      pos++;
+    }
+    long mantissa = 0;
+    int integerDigits = 0;
+    int fractionDigits = 0;
+    boolean fraction = false;
+    for ( ; pos < length; pos++ ) {
+      char c = text.charAt( pos );
+      if ( c >= '0' && c <= '9' ) {
+        if ( mantissa >= MAX_MANTISSA_BEFORE_DIGIT ) {
+          return Double.NaN;
+        }
+        mantissa = mantissa * 10 + ( c - '0' );
+        if ( fraction ) {
+          fractionDigits++;
+        } else {
+          integerDigits++;
+        }
+      } else if ( c == decimalSeparator && !fraction ) {
+        fraction = true;
+      } else {
+        return Double.NaN;
+      }
+    }
+    if ( integerDigits == 0 || ( fraction && fractionDigits == 0 ) || mantissa > MAX_EXACT_MANTISSA
+      || fractionDigits >= POWERS_OF_TEN.length ) {
+      return Double.NaN;
+    }
+
+    // Both operands are exact, so a single division gives the correctly rounded result
+    //
+    double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[ fractionDigits ];
+    return negative ? -value : value;
+  }
+
+  /**
+   * Parse an integer.
+   *
+   * @param text the text to parse, already trimmed
+   * @return the integer or {@link #NO_RESULT} if the decimal format has to parse the value
+   */
+  public long parseInteger( CharSequence text ) {
+    if ( !parseSupported ) {
+      return NO_RESULT;
+    }
+    int length = text.length();
+    int pos = 0;
+    boolean negative = length > 0 && text.charAt( 0 ) == minusSign;
+    if ( negative ) {
+      pos++;
+    }
+    if ( pos == length ) {
+      return NO_RESULT;
+    }
+    long value = 0;
+    for ( ; pos < length; pos++ ) {
+      char c = text.charAt( pos );
+      if ( c < '0' || c > '9' || value >= MAX_MANTISSA_BEFORE_DIGIT ) {
+        return NO_RESULT;
+      }
+      value = value * 10 + ( c - '0' );
+    }
+    return negative ? -value : value;
+  }
+
+  /**
+   * Format an integer.
+   *
+   * @param value the integer to format
+   * @return the formatted integer or null if the decimal format has to format the value
+   */
+  public String formatInteger( long value ) {
+    return integerFormatSupported ? Long.toString( value ) : null;
+  }
+}
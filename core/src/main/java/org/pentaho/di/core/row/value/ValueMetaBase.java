@@ -160,6 +160,11 @@ public class ValueMetaBase implements ValueMetaInterface {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  // Compiled from the date and decimal formats above for the fast conversion of common masks
+  //
+  private FastDateCodec fastDateCodec;
+  private FastNumberCodec fastNumberCodec;
+
   protected ValueMetaInterface storageMetadata;
   protected boolean identicalFormat;
 
@@ -439,6 +444,8 @@ public class ValueMetaBase implements ValueMetaInterface {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.fastDateCodec = null;
+      valueMeta.fastNumberCodec = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -905,7 +912,9 @@ public class ValueMetaBase implements ValueMetaInterface {
       return null;
     }
 
-    return getDateFormat().format( date );
+    SimpleDateFormat format = getDateFormat();
+    String string = getFastDateCodec( format ).format( date.getTime() );
+    return string != null ? string : format.format( date );
   }
 
   protected static SimpleDateFormat compatibleDateFormat = new SimpleDateFormat( COMPATIBLE_DATE_FORMAT_PATTERN );
@@ -927,8 +936,14 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
+      SimpleDateFormat format = getDateFormat( TYPE_DATE );
+      long time = getFastDateCodec( format ).parse( string );
+      if ( time != FastDateCodec.NO_RESULT ) {
+        return new Date( time );
+      }
+
       ParsePosition pp = new ParsePosition( 0 );
-      Date result = getDateFormat( TYPE_DATE ).parse( string, pp );
+      Date result = format.parse( string, pp );
       if ( pp.getErrorIndex() >= 0 ) {
         // error happen
         throw new ParseException( string, pp.getErrorIndex() );
@@ -1024,6 +1039,11 @@ public class ValueMetaBase implements ValueMetaInterface {
 
     try {
       DecimalFormat format = getDecimalFormat( false );
+      double value = getFastNumberCodec( format ).parseNumber( string );
+      if ( !Double.isNaN( value ) ) {
+        return value;
+      }
+
       Number number;
       if ( lenientStringToNumber ) {
         number = format.parse( string );
@@ -1050,6 +1070,34 @@ public class ValueMetaBase implements ValueMetaInterface {
     return getDateFormat( getType() );
   }
 
+  /**
+   * The fast codec only handles the values it can convert exactly like the date format, for everything else it returns
+   * no result and the date format is used.
+   *
+   * @param format the date format that is used for the conversion
+   * @return the codec compiled from the date format
+   */
+  private FastDateCodec getFastDateCodec( SimpleDateFormat format ) {
+    if ( fastDateCodec == null || !fastDateCodec.isCodecFor( format ) ) {
+      fastDateCodec = new FastDateCodec( format );
+    }
+    return fastDateCodec;
+  }
+
+  /**
+   * The fast codec only handles the values it can convert exactly like the decimal format, for everything else it
+   * returns no result and the decimal format is used.
+   *
+   * @param format the decimal format that is used for the conversion
+   * @return the codec created from the decimal format
+   */
+  private FastNumberCodec getFastNumberCodec( DecimalFormat format ) {
+    if ( fastNumberCodec == null || !fastNumberCodec.isCodecFor( format ) ) {
+      fastNumberCodec = new FastNumberCodec( format );
+    }
+    return fastNumberCodec;
+  }
+
   private synchronized SimpleDateFormat getDateFormat( int valueMetaType ) {
     // If we have a Date that is represented as a String
     // In that case we can set the format of the original Date on the String
@@ -1313,7 +1361,9 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
-      return getDecimalFormat( false ).format( integer );
+      DecimalFormat format = getDecimalFormat( false );
+      String string = getFastNumberCodec( format ).formatInteger( integer );
+      return string != null ? string : format.format( integer );
     } catch ( Exception e ) {
       throw new KettleValueException( toString() + " : couldn't convert Long to String ", e );
     }
@@ -1336,6 +1386,11 @@ public class ValueMetaBase implements ValueMetaInterface {
     }
 
     try {
+      long value = getFastNumberCodec( getDecimalFormat( false ) ).parseInteger( string );
+      if ( value != FastNumberCodec.NO_RESULT ) {
+        return value;
+      }
+
       Number number;
       if ( lenientStringToNumber ) {
         number = new Long( getDecimalFormat( false ).parse( string ).longValue() );
@@ -4717,6 +4772,14 @@ public class ValueMetaBase implements ValueMetaInterface {
     this.ignoreWhitespace = ignoreWhitespace;
   }
 
+  /**
+   * @return the comparator used to compare values instead of the default comparison for the data type, or null if
+   *         the default comparison is used
+   */
+  public Comparator<Object> getComparator() {
+    return comparator;
+  }
+
   @Override
   public void drawValue( PrimitiveGCInterface gc, Object value ) throws KettleValueException {
     // Just draw the string by default.
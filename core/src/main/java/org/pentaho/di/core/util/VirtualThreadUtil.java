@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Creates virtual threads on Java versions that have them (21 and up). Since the code is compiled for older Java
+ * versions the API is looked up once through method handles. On older Java versions {@link #isSupported()} simply
+ * returns false.
+ */
+public class VirtualThreadUtil {
+
+  private static final MethodHandle OF_VIRTUAL;
+  private static final MethodHandle NAME;
+  private static final MethodHandle UNSTARTED;
+  private static final MethodHandle IS_VIRTUAL;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle unstarted = null;
+    MethodHandle isVirtual = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> builderClass = Class.forName( "java.lang.Thread$Builder" );
+      Class<?> ofVirtualClass = Class.forName( "java.lang.Thread$Builder$OfVirtual" );
+      ofVirtual = lookup.findStatic( Thread.class, "ofVirtual", MethodType.methodType( ofVirtualClass ) );
+      name = lookup.findVirtual( builderClass, "name", MethodType.methodType( builderClass, String.class ) );
+      unstarted =
+        lookup.findVirtual( builderClass, "unstarted", MethodType.methodType( Thread.class, Runnable.class ) );
+      isVirtual = lookup.findVirtual( Thread.class, "isVirtual", MethodType.methodType( boolean.class ) );
+
+      // On Java 19 and 20 virtual threads are a preview feature: the methods are there but fail unless enabled.
+      //
+      unstarted.invoke( ofVirtual.invoke(), (Runnable) () -> { } );
+    } catch ( Throwable t ) {
+      ofVirtual = null;
+      name = null;
+      unstarted = null;
+      isVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    UNSTARTED = unstarted;
+    IS_VIRTUAL = isVirtual;
+  }
+
+  private VirtualThreadUtil() {
+  }
+
+  /**
+   * @return true if this JVM can create virtual threads
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Creates a new virtual thread that is not started yet.
+   *
+   * @param name     the name of the thread
+   * @param runnable the code to run
+   * @return the unstarted virtual thread
+   * @throws UnsupportedOperationException if this JVM doesn't support virtual threads
+   */
+  public static Thread newVirtualThread( String name, Runnable runnable ) {
+    if ( !isSupported() ) {
+      throw new UnsupportedOperationException( "Virtual threads are not supported by this Java version" );
+    }
+    try {
+      Object builder = NAME.invoke( OF_VIRTUAL.invoke(), name );
+      return (Thread) UNSTARTED.invoke( builder, runnable );
+    } catch ( RuntimeException | Error e ) {
+      throw e;
+    } catch ( Throwable t ) {
+      throw new IllegalStateException( t );
+    }
+  }
+
+  /**
+   * @param thread the thread to check
+   * @return true if the given thread is a virtual thread
+   */
+  public static boolean isVirtual( Thread thread ) {
+    if ( IS_VIRTUAL == null ) {
+      return false;
+    }
+    try {
+      return (boolean) IS_VIRTUAL.invokeExact( thread );
+    } catch ( Throwable t ) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.junit.rules.RestorePDIEnvironment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LockFreeRowSetTest {
+  @ClassRule public static RestorePDIEnvironment env = new RestorePDIEnvironment();
+
+  private RowMetaInterface createRowMetaInterface() {
+    RowMetaInterface rm = new RowMeta();
+    rm.addValueMeta( new ValueMetaInteger( "ROWNR" ) );
+    return rm;
+  }
+
+  @Test
+  public void testBasicCreation() {
+    RowSet set = new LockFreeRowSet( 10 );
+
+    assertFalse( set.isDone() );
+    assertEquals( 0, set.size() );
+  }
+
+  @Test
+  public void testPutAndGetInOrder() {
+    LockFreeRowSet set = new LockFreeRowSet( 5 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    assertNull( set.getRowImmediate() );
+    for ( long i = 0; i < 5; i++ ) {
+      assertTrue( set.putRow( rm, new Object[] { i } ) );
+    }
+    assertEquals( 5, set.size() );
+    assertSame( rm, set.getRowMeta() );
+
+    // The row set is full: putting another row times out
+    //
+    assertFalse( set.putRowWait( rm, new Object[] { 5L }, 1, TimeUnit.MILLISECONDS ) );
+
+    for ( long i = 0; i < 5; i++ ) {
+      assertArrayEquals( new Object[] { i }, set.getRowImmediate() );
+    }
+    assertEquals( 0, set.size() );
+    assertNull( set.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testCapacityIsNotRoundedUp() {
+    LockFreeRowSet set = new LockFreeRowSet( 3 );
+    RowMetaInterface rm = createRowMetaInterface();
+
+    for ( long i = 0; i < 3; i++ ) {
+      assertTrue( set.putRowWait( rm, new Object[] { i }, 1, TimeUnit.MILLISECONDS ) );
+    }
+    assertFalse( set.putRowWait( rm, new Object[] { 3L }, 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testNullRowIsRejected() {
+    LockFreeRowSet set = new LockFreeRowSet( 2 );
+
+    assertFalse( set.putRow( createRowMetaInterface(), null ) );
+    assertEquals( 0, set.size() );
+  }
+
+  @Test
+  public void testClear() {
+    LockFreeRowSet set = new LockFreeRowSet( 2 );
+    RowMetaInterface rm = createRowMetaInterface();
+    set.putRow( rm, new Object[] { 1L } );
+    set.setDone();
+
+    set.clear();
+
+    assertEquals( 0, set.size() );
+    assertFalse( set.isDone() );
+    assertNull( set.getRowImmediate() );
+    assertTrue( set.putRow( rm, new Object[] { 2L } ) );
+    assertArrayEquals( new Object[] { 2L }, set.getRowImmediate() );
+  }
+
+  @Test( timeout = 60000 )
+  public void testProducerAndConsumerThreads() throws Exception {
+    final LockFreeRowSet set = new LockFreeRowSet( 7 );
+    final RowMetaInterface rm = createRowMetaInterface();
+    final long nrRows = 100000;
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+
+    Thread producer = new Thread( () -> {
+      try {
+        for ( long i = 0; i < nrRows; i++ ) {
+          Object[] row = new Object[] { i };
+          while ( !set.putRow( rm, row ) ) {
+            // wait for the consumer to catch up
+          }
+        }
+        set.setDone();
+      } catch ( Throwable t ) {
+        error.set( t );
+      }
+    } );
+    producer.start();
+
+    long expected = 0;
+    while ( true ) {
+      Object[] row = set.getRow();
+      if ( row == null ) {
+        if ( set.isDone() ) {
+          row = set.getRowImmediate();
+          if ( row == null ) {
+            break;
+          }
+        } else {
+          continue;
+        }
+      }
+      assertEquals( expected++, row[0] );
+    }
+    producer.join();
+
+    assertNull( error.get() );
+    assertEquals( nrRows, expected );
+  }
+}
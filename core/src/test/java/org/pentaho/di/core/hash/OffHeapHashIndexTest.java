@@ -0,0 +1,94 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.hash;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class OffHeapHashIndexTest {
+
+  @Test
+  public void testGetAndPut() {
+    OffHeapHashIndex obj = new OffHeapHashIndex( true );
+    assertTrue( obj.isEmpty() );
+    assertNull( obj.get( new byte[] { 10 } ) );
+
+    obj.put( new byte[] { 10 }, new byte[] { 53, 12 } );
+    assertEquals( 1, obj.size() );
+    assertArrayEquals( new byte[] { 53, 12 }, obj.get( new byte[] { 10 } ) );
+    assertNull( obj.get( new byte[] { 10, 0 } ) );
+    assertNull( obj.get( new byte[] {} ) );
+  }
+
+  @Test
+  public void testReplaceValue() {
+    OffHeapHashIndex obj = new OffHeapHashIndex( false );
+    obj.put( new byte[] { 1, 2 }, new byte[] { 3 } );
+    obj.put( new byte[] { 1, 2 }, new byte[] { 4 } );
+    assertArrayEquals( new byte[] { 4 }, obj.get( new byte[] { 1, 2 } ) );
+
+    obj.put( new byte[] { 1, 2 }, new byte[] { 5, 6, 7 } );
+    assertArrayEquals( new byte[] { 5, 6, 7 }, obj.get( new byte[] { 1, 2 } ) );
+    assertEquals( 1, obj.size() );
+  }
+
+  @Test
+  public void testResizeAndSmallBlocks() {
+    // Blocks of 64 bytes force many blocks and an entry larger than a block
+    //
+    OffHeapHashIndex obj = new OffHeapHashIndex( true, 4, 64 );
+    int nr = 10000;
+    for ( int i = 0; i < nr; i++ ) {
+      obj.put( key( i ), value( i ) );
+    }
+    byte[] large = new byte[200];
+    obj.put( key( -1 ), large );
+
+    assertEquals( nr + 1, obj.size() );
+    for ( int i = 0; i < nr; i++ ) {
+      assertArrayEquals( value( i ), obj.get( key( i ) ) );
+    }
+    assertArrayEquals( large, obj.get( key( -1 ) ) );
+    assertNull( obj.get( key( nr ) ) );
+    assertTrue( obj.getMemoryUsage() > nr * 16L );
+
+    obj.clear();
+    assertTrue( obj.isEmpty() );
+    assertNull( obj.get( key( 1 ) ) );
+  }
+
+  private static byte[] key( int i ) {
+    return ByteBuffer.allocate( 4 ).putInt( i ).array();
+  }
+
+  private static byte[] value( int i ) {
+    return ByteBuffer.allocate( 8 ).putLong( i * 31L ).array();
+  }
+}
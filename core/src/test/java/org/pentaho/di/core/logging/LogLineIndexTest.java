@@ -0,0 +1,159 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.logging;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class LogLineIndexTest {
+
+  private Map<String, String> parents;
+  private LogLineIndex index;
+  private List<BufferLine> lines;
+
+  @Before
+  public void setUp() {
+    parents = new HashMap<>();
+    parents.put( "step1", "trans1" );
+    parents.put( "step2", "trans1" );
+    parents.put( "trans1", "job1" );
+    parents.put( "step3", "trans2" );
+    index = new LogLineIndex( parents::get );
+    lines = new ArrayList<>();
+  }
+
+  private BufferLine add( String logChannelId ) {
+    KettleLoggingEvent event = new KettleLoggingEvent( new LogMessage( "line " + lines.size(), logChannelId,
+      LogLevel.BASIC ), lines.size(), LogLevel.BASIC );
+    BufferLine line = new BufferLine( event );
+    lines.add( line );
+    index.add( line, logChannelId );
+    return line;
+  }
+
+  @Test
+  public void testLinesAreGroupedPerTopLevelChannel() {
+    add( "job1" );
+    add( "step1" );
+    add( "step3" );
+    add( "trans1" );
+    add( "step2" );
+    add( "trans2" );
+
+    Assert.assertEquals( 2, index.getSegmentCount() );
+    Assert.assertEquals( Arrays.asList( lines.get( 0 ), lines.get( 1 ), lines.get( 3 ), lines.get( 4 ) ),
+      index.getLines( Arrays.asList( "job1", "trans1", "step1", "step2" ), 0, Integer.MAX_VALUE ) );
+    Assert.assertEquals( Arrays.asList( lines.get( 1 ), lines.get( 3 ) ),
+      index.getLines( Arrays.asList( "trans1", "step1" ), 0, Integer.MAX_VALUE ) );
+    Assert.assertEquals( Arrays.asList( lines.get( 1 ), lines.get( 2 ), lines.get( 5 ) ),
+      index.getLines( Arrays.asList( "step1", "trans2", "step3" ), 0, Integer.MAX_VALUE ) );
+    Assert.assertTrue( index.getLines( Collections.singletonList( "unknown" ), 0, Integer.MAX_VALUE ).isEmpty() );
+  }
+
+  @Test
+  public void testLinesInRange() {
+    for ( int i = 0; i < 100; i++ ) {
+      add( i % 2 == 0 ? "step1" : "step3" );
+    }
+    int from = lines.get( 49 ).getNr();
+    int to = lines.get( 59 ).getNr();
+
+    List<BufferLine> result = index.getLines( Collections.singletonList( "step1" ), from, to );
+    Assert.assertEquals( 5, result.size() );
+    Assert.assertSame( lines.get( 50 ), result.get( 0 ) );
+    Assert.assertSame( lines.get( 58 ), result.get( 4 ) );
+  }
+
+  @Test
+  public void testRemoveOldest() {
+    for ( int i = 0; i < 40; i++ ) {
+      add( i < 20 ? "step3" : "step1" );
+    }
+    for ( int i = 0; i < 30; i++ ) {
+      BufferLine line = lines.get( i );
+      index.removeOldest( line, ( (LogMessage) line.getEvent().getMessage() ).getLogChannelId() );
+    }
+
+    // All the lines of the second transformation are gone
+    //
+    Assert.assertEquals( 1, index.getSegmentCount() );
+    Assert.assertEquals( lines.subList( 30, 40 ),
+      index.getLines( Collections.singletonList( "step1" ), 0, Integer.MAX_VALUE ) );
+
+    // The segment wraps around
+    //
+    add( "step2" );
+    Assert.assertEquals( lines.subList( 30, 41 ),
+      index.getLines( Arrays.asList( "step1", "step2" ), 0, Integer.MAX_VALUE ) );
+  }
+
+  @Test
+  public void testRemoveChannels() {
+    for ( int i = 0; i < 40; i++ ) {
+      add( i % 4 == 0 ? "step3" : ( i % 2 == 0 ? "step1" : "step2" ) );
+    }
+    for ( int i = 0; i < 10; i++ ) {
+      BufferLine line = lines.get( i );
+      index.removeOldest( line, ( (LogMessage) line.getEvent().getMessage() ).getLogChannelId() );
+    }
+    index.removeChannels( Arrays.asList( "step1", "step3", "unknown" ) );
+
+    // Only the lines of the second step of the first transformation are left
+    //
+    Assert.assertEquals( 1, index.getSegmentCount() );
+    List<BufferLine> expected = new ArrayList<>();
+    for ( int i = 11; i < 40; i += 2 ) {
+      expected.add( lines.get( i ) );
+    }
+    Assert.assertEquals( expected, index.getLines( Arrays.asList( "step1", "step2", "step3" ), 0,
+      Integer.MAX_VALUE ) );
+    Assert.assertEquals( expected.subList( 5, 15 ), index.getLines( Collections.singletonList( "step2" ),
+      lines.get( 20 ).getNr(), Integer.MAX_VALUE ) );
+
+    // New lines of a removed channel are indexed again
+    //
+    expected.add( add( "step1" ) );
+    Assert.assertEquals( expected, index.getLines( Arrays.asList( "step1", "step2" ), 0, Integer.MAX_VALUE ) );
+  }
+
+  @Test
+  public void testRebuild() {
+    add( "step1" );
+    add( "step3" );
+    add( "step2" );
+    lines.remove( 0 );
+    index.rebuild( lines, line -> ( (LogMessage) line.getEvent().getMessage() ).getLogChannelId() );
+
+    Assert.assertEquals( Collections.singletonList( lines.get( 1 ) ),
+      index.getLines( Arrays.asList( "step1", "step2" ), 0, Integer.MAX_VALUE ) );
+    Assert.assertEquals( 2, index.getSegmentCount() );
+  }
+}
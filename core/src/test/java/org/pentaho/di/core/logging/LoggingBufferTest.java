@@ -26,9 +26,15 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.pentaho.di.core.Const;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LoggingBufferTest {
 
@@ -186,4 +192,163 @@ public class LoggingBufferTest {
     Assert.assertEquals( 10, loggingBuffer.size() );
   }
 
+  @Test
+  public void testRemoveChannelsFromBuffer() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 30 );
+    for ( int i = 0; i < 50; i++ ) {
+      LogMessage message = new LogMessage( "test", String.valueOf( i % 3 ), LogLevel.BASIC );
+      loggingBuffer.addLogggingEvent( new KettleLoggingEvent( message, i, LogLevel.BASIC ) );
+    }
+    int last = loggingBuffer.getLastBufferLineNr();
+
+    loggingBuffer.removeChannelsFromBuffer( Arrays.asList( "0", "2" ) );
+    Assert.assertEquals( 10, loggingBuffer.size() );
+    List<KettleLoggingEvent> events =
+      loggingBuffer.getLogBufferFromTo( Arrays.asList( "0", "1", "2" ), false, 0, last );
+    Assert.assertEquals( 10, events.size() );
+    for ( KettleLoggingEvent event : events ) {
+      Assert.assertEquals( "1", ( (LogMessage) event.getMessage() ).getLogChannelId() );
+    }
+  }
+
+  @Test
+  public void testGetLogBufferFromToForChannels() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 30 );
+    for ( int i = 0; i < 50; i++ ) {
+      LogMessage message = new LogMessage( "test", String.valueOf( i % 3 ), LogLevel.BASIC );
+      loggingBuffer.addLogggingEvent( new KettleLoggingEvent( message, i, LogLevel.BASIC ) );
+    }
+    int last = loggingBuffer.getLastBufferLineNr();
+
+    // Only the last 30 lines are kept: 20..49
+    //
+    List<KettleLoggingEvent> events = loggingBuffer.getLogBufferFromTo( Arrays.asList( "1", "2" ), false, 0, last );
+    Assert.assertEquals( 20, events.size() );
+    Assert.assertEquals( 20L, events.get( 0 ).getTimeStamp() );
+    Assert.assertEquals( 49L, events.get( 19 ).getTimeStamp() );
+
+    events = loggingBuffer.getLogBufferFromTo( Collections.singletonList( "0" ), false, last - 10, last );
+    Assert.assertEquals( 3, events.size() );
+    Assert.assertEquals( 42L, events.get( 0 ).getTimeStamp() );
+
+    loggingBuffer.removeChannelFromBuffer( "1" );
+    Assert.assertEquals( 10, loggingBuffer.getLogBufferFromTo( Arrays.asList( "1", "2" ), false, 0, last ).size() );
+
+    loggingBuffer.removeBufferLinesBefore( 40 );
+    Assert.assertEquals( 3, loggingBuffer.getLogBufferFromTo( Arrays.asList( "0" ), false, 0, last ).size() );
+  }
+
+  @Test
+  public void testAsyncDelivery() throws Exception {
+    final int threadCount = 4;
+    final int eventCount = 5000;
+    final LoggingBuffer buff = new LoggingBuffer( 0 );
+    final AtomicInteger listenerEvents = new AtomicInteger();
+    buff.addLoggingEventListener( new KettleLoggingEventListener() {
+      @Override public void eventAdded( KettleLoggingEvent event ) {
+        listenerEvents.incrementAndGet();
+      }
+    } );
+    LogChannelFileWriterBuffer fileWriter = new LogChannelFileWriterBuffer( "1" );
+
+    buff.startAsyncDelivery( 100, false );
+    try {
+      Assert.assertTrue( buff.isAsynchronous() );
+      List<Thread> threads = new ArrayList<>();
+      for ( int t = 0; t < threadCount; t++ ) {
+        final String logChannelId = String.valueOf( t );
+        Thread thread = new Thread( () -> {
+          for ( int i = 0; i < eventCount; i++ ) {
+            LogMessage message = new LogMessage( String.valueOf( i ), logChannelId, LogLevel.BASIC );
+            KettleLoggingEvent event = new KettleLoggingEvent( message, i, LogLevel.BASIC );
+            if ( !buff.offerLoggingEvent( event, "1".equals( logChannelId ) ? fileWriter : null ) ) {
+              throw new IllegalStateException( "Event not queued" );
+            }
+          }
+        } );
+        thread.start();
+        threads.add( thread );
+      }
+      for ( Thread thread : threads ) {
+        thread.join();
+      }
+      buff.flush();
+
+      Assert.assertEquals( threadCount * eventCount, buff.getNrLines() );
+      Assert.assertEquals( threadCount * eventCount, listenerEvents.get() );
+      Assert.assertEquals( 0L, buff.getDroppedEventCount() );
+
+      // The events of a single thread keep their order
+      //
+      List<KettleLoggingEvent> events = buff.getLogBufferFromTo( Collections.singletonList( "2" ), false, 0,
+        buff.getLastBufferLineNr() );
+      Assert.assertEquals( eventCount, events.size() );
+      for ( int i = 0; i < eventCount; i++ ) {
+        Assert.assertEquals( i, events.get( i ).getTimeStamp() );
+      }
+      Assert.assertEquals( eventCount, fileWriter.getBuffer().toString().split( Const.CR ).length );
+    } finally {
+      buff.stopAsyncDelivery();
+    }
+    Assert.assertFalse( buff.isAsynchronous() );
+  }
+
+  @Test
+  public void testAsyncDeliveryTrimsBuffer() {
+    final LoggingBuffer buff = new LoggingBuffer( 10 );
+    buff.startAsyncDelivery( 1000, false );
+    try {
+      for ( int i = 1; i <= 25; i++ ) {
+        buff.addLogggingEvent(
+          new KettleLoggingEvent( new LogMessage( "Test #" + i, "1", LogLevel.BASIC ), i, LogLevel.BASIC ) );
+      }
+      buff.flush();
+      Assert.assertEquals( 10, buff.getNrLines() );
+      Assert.assertEquals( 16L, buff.getBufferIterator().next().getEvent().getTimeStamp() );
+    } finally {
+      buff.stopAsyncDelivery();
+    }
+  }
+
+  @Test
+  public void testAsyncDeliveryDropsWhenFull() throws Exception {
+    final LoggingBuffer buff = new LoggingBuffer( 0 );
+    final CountDownLatch delivering = new CountDownLatch( 1 );
+    final CountDownLatch release = new CountDownLatch( 1 );
+    buff.addLoggingEventListener( new KettleLoggingEventListener() {
+      @Override public void eventAdded( KettleLoggingEvent event ) {
+        delivering.countDown();
+        try {
+          release.await( 10, TimeUnit.SECONDS );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    } );
+
+    buff.startAsyncDelivery( 2, true );
+    try {
+      buff.addLogggingEvent( new KettleLoggingEvent( new LogMessage( "first", "1", LogLevel.BASIC ), 0L,
+        LogLevel.BASIC ) );
+      Assert.assertTrue( delivering.await( 10, TimeUnit.SECONDS ) );
+
+      // The drainer is stuck in the listener: 2 events fit in the queue, the other 3 are dropped
+      //
+      for ( int i = 1; i <= 5; i++ ) {
+        Assert.assertTrue( buff.offerLoggingEvent(
+          new KettleLoggingEvent( new LogMessage( "Test #" + i, "1", LogLevel.BASIC ), i, LogLevel.BASIC ), null ) );
+      }
+      Assert.assertEquals( 3L, buff.getDroppedEventCount() );
+      release.countDown();
+      buff.flush();
+
+      // The queued events and a line reporting the dropped events
+      //
+      Assert.assertEquals( 4, buff.getNrLines() );
+    } finally {
+      release.countDown();
+      buff.stopAsyncDelivery();
+    }
+  }
+
 }
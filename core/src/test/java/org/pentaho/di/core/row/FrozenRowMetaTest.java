@@ -0,0 +1,134 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FrozenRowMetaTest {
+
+  private RowMeta rowMeta;
+  private RowMetaInterface frozen;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "Amount" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "data" ) );
+    frozen = rowMeta.freeze();
+  }
+
+  @Test
+  public void testLookups() {
+    assertEquals( 3, frozen.size() );
+    assertFalse( frozen.isEmpty() );
+    assertEquals( 1, frozen.indexOfValue( "amount" ) );
+    assertEquals( 1, frozen.indexOfValue( "AMOUNT" ) );
+    assertEquals( -1, frozen.indexOfValue( "missing" ) );
+    assertEquals( -1, frozen.indexOfValue( null ) );
+    assertSame( rowMeta.getValueMeta( 0 ), frozen.searchValueMeta( "Name" ) );
+    assertNull( frozen.getValueMeta( 3 ) );
+    assertArrayEquals( new String[] { "name", "Amount", "data" }, frozen.getFieldNames() );
+    assertEquals( rowMeta.toStringMeta(), frozen.toStringMeta() );
+  }
+
+  @Test
+  public void testRenamedValueIsFound() {
+    rowMeta.getValueMeta( 1 ).setName( "total" );
+
+    assertEquals( 1, frozen.indexOfValue( "total" ) );
+    assertEquals( -1, frozen.indexOfValue( "amount" ) );
+  }
+
+  @Test
+  public void testGettersAndCompare() throws Exception {
+    Object[] row1 = new Object[] { "a", 1L, null };
+    Object[] row2 = new Object[] { "a", 2L, null };
+
+    assertEquals( "a", frozen.getString( row1, 0 ) );
+    assertEquals( Long.valueOf( 2L ), frozen.getInteger( row2, "amount", null ) );
+    assertEquals( "default", frozen.getString( row1, "missing", "default" ) );
+    assertTrue( frozen.isNull( row1, 2 ) );
+    assertTrue( frozen.compare( row1, row2 ) < 0 );
+    assertTrue( frozen.equals( row1, row2, new int[] { 0 } ) );
+    assertEquals( rowMeta.compare( row2, row1, new int[] { 1 } ), frozen.compare( row2, row1, new int[] { 1 } ) );
+    assertEquals( rowMeta.oldXORHashCode( row1 ), frozen.oldXORHashCode( row1 ) );
+  }
+
+  @Test
+  public void testCloneRowCopiesBinaryData() throws Exception {
+    byte[] data = new byte[] { 1, 2, 3 };
+    Object[] row = new Object[] { "a", 1L, data };
+
+    Object[] copy = frozen.cloneRow( row );
+
+    assertNotSame( row, copy );
+    assertSame( row[ 0 ], copy[ 0 ] );
+    assertNotSame( data, copy[ 2 ] );
+    assertArrayEquals( data, (byte[]) copy[ 2 ] );
+  }
+
+  @Test
+  public void testCloneIsModifiable() {
+    RowMetaInterface clone = frozen.clone();
+    clone.addValueMeta( new ValueMetaString( "extra" ) );
+
+    assertEquals( 4, clone.size() );
+    assertEquals( 3, frozen.size() );
+  }
+
+  @Test
+  public void testFreezeIsASnapshot() {
+    rowMeta.addValueMeta( new ValueMetaString( "extra" ) );
+
+    assertEquals( 3, frozen.size() );
+    assertEquals( -1, frozen.indexOfValue( "extra" ) );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void testAddValueMetaFails() {
+    frozen.addValueMeta( new ValueMetaString( "extra" ) );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void testRemoveValueMetaFails() {
+    frozen.removeValueMeta( 0 );
+  }
+
+  @Test( expected = UnsupportedOperationException.class )
+  public void testValueMetaListIsReadOnly() {
+    frozen.getValueMetaList().clear();
+  }
+}
@@ -0,0 +1,106 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.core.row;
+
+import org.junit.Test;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RowBatchTest {
+
+  private RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  @Test
+  public void testAddAndGetRows() {
+    RowMetaInterface rowMeta = createRowMeta();
+    RowBatch batch = new RowBatch( rowMeta, 3 );
+    assertTrue( batch.isEmpty() );
+    assertEquals( 3, batch.getCapacity() );
+
+    Object[] row0 = new Object[] { 0L, "a" };
+    Object[] row1 = new Object[] { 1L, "b" };
+    batch.addRow( row0 );
+    batch.addRow( row1 );
+
+    assertSame( rowMeta, batch.getRowMeta() );
+    assertEquals( 2, batch.size() );
+    assertFalse( batch.isFull() );
+    assertSame( row0, batch.getRow( 0 ) );
+    assertSame( row1, batch.getRow( 1 ) );
+    assertEquals( "b", batch.getValue( 1, 1 ) );
+  }
+
+  @Test
+  public void testGetColumn() {
+    RowBatch batch = new RowBatch( createRowMeta(), 2 );
+    batch.addRow( new Object[] { 0L, "a" } );
+    batch.addRow( new Object[] { 1L, "b" } );
+
+    assertArrayEquals( new Object[] { 0L, 1L }, batch.getColumn( 0, null ) );
+
+    Object[] vector = new Object[ 5 ];
+    assertSame( vector, batch.getColumn( 1, vector ) );
+    assertEquals( "a", vector[ 0 ] );
+    assertEquals( "b", vector[ 1 ] );
+  }
+
+  @Test( expected = IllegalStateException.class )
+  public void testAddRowToFullBatch() {
+    RowBatch batch = new RowBatch( createRowMeta(), 1 );
+    batch.addRow( new Object[] { 0L, "a" } );
+    assertTrue( batch.isFull() );
+    batch.addRow( new Object[] { 1L, "b" } );
+  }
+
+  @Test( expected = IndexOutOfBoundsException.class )
+  public void testGetRowBeyondSize() {
+    RowBatch batch = new RowBatch( createRowMeta(), 2 );
+    batch.addRow( new Object[] { 0L, "a" } );
+    batch.getRow( 1 );
+  }
+
+  @Test
+  public void testClear() {
+    RowBatch batch = new RowBatch( createRowMeta(), 2 );
+    batch.addRow( new Object[] { 0L, "a" } );
+    batch.addRow( new Object[] { 1L, "b" } );
+
+    batch.clear();
+
+    assertTrue( batch.isEmpty() );
+    batch.addRow( new Object[] { 2L, "c" } );
+    assertEquals( 1, batch.size() );
+  }
+}
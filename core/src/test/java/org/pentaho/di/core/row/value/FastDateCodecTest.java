@@ -0,0 +1,122 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import org.junit.Test;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FastDateCodecTest {
+
+  private static SimpleDateFormat format( String mask, String timeZone ) {
+    SimpleDateFormat format = new SimpleDateFormat( mask );
+    format.setTimeZone( TimeZone.getTimeZone( timeZone ) );
+    return format;
+  }
+
+  @Test
+  public void testSupportedMasks() {
+    assertTrue( new FastDateCodec( format( "yyyy/MM/dd HH:mm:ss.SSS", "UTC" ) ).isSupported() );
+    assertTrue( new FastDateCodec( format( "yyyyMMdd", "UTC" ) ).isSupported() );
+    assertTrue( new FastDateCodec( format( "dd-MM-yyyy HH:mm", "UTC" ) ).isSupported() );
+
+    assertFalse( new FastDateCodec( format( "yy-MM-dd", "UTC" ) ).isSupported() );
+    assertFalse( new FastDateCodec( format( "yyyy-MMM-dd", "UTC" ) ).isSupported() );
+    assertFalse( new FastDateCodec( format( "yyyy-MM-dd'T'HH:mm", "UTC" ) ).isSupported() );
+    assertFalse( new FastDateCodec( format( "HH:mm:ss", "UTC" ) ).isSupported() );
+  }
+
+  @Test
+  public void testParse() {
+    FastDateCodec codec = new FastDateCodec( format( "yyyy/MM/dd HH:mm:ss.SSS", "UTC" ) );
+
+    assertEquals( 1700000000123L, codec.parse( "2023/11/14 22:13:20.123" ) );
+    assertEquals( FastDateCodec.NO_RESULT, codec.parse( "2023/11/14 22:13:20" ) );
+    assertEquals( FastDateCodec.NO_RESULT, codec.parse( "2023/02/29 22:13:20.123" ) );
+    assertEquals( FastDateCodec.NO_RESULT, codec.parse( "2023-11-14 22:13:20.123" ) );
+    assertEquals( FastDateCodec.NO_RESULT, codec.parse( "1500/11/14 22:13:20.123" ) );
+  }
+
+  @Test
+  public void testDaylightSavingTransitionIsLeftToTheDateFormat() {
+    FastDateCodec codec = new FastDateCodec( format( "yyyy-MM-dd HH:mm", "Europe/Brussels" ) );
+
+    assertEquals( FastDateCodec.NO_RESULT, codec.parse( "2023-03-26 02:30" ) );
+    assertEquals( 1688164200000L, codec.parse( "2023-07-01 00:30" ) );
+  }
+
+  @Test
+  public void testFormat() {
+    FastDateCodec codec = new FastDateCodec( format( "yyyy/MM/dd HH:mm:ss.SSS", "UTC" ) );
+
+    assertEquals( "2023/11/14 22:13:20.123", codec.format( 1700000000123L ) );
+    assertEquals( "1970/01/01 00:00:00.000", codec.format( 0L ) );
+    assertNull( codec.format( -15000000000000L ) );
+  }
+
+  @Test
+  public void testSameResultsAsDateFormat() {
+    Random random = new Random( 1 );
+    for ( String timeZone : new String[] { "UTC", "Europe/Brussels", "America/Sao_Paulo", "Asia/Kolkata" } ) {
+      SimpleDateFormat format = format( "yyyy-MM-dd HH:mm:ss.SSS", timeZone );
+      FastDateCodec codec = new FastDateCodec( format );
+      for ( int i = 0; i < 10000; i++ ) {
+        long time = ( random.nextLong() % 4000000000000L ) + 1000000000000L;
+        String text = format.format( new Date( time ) );
+
+        String formatted = codec.format( time );
+        if ( formatted != null ) {
+          assertEquals( text, formatted );
+        }
+        long parsed = codec.parse( text );
+        if ( parsed != FastDateCodec.NO_RESULT ) {
+          assertEquals( format.parse( text, new ParsePosition( 0 ) ).getTime(), parsed );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testChangedFormatIsDetected() {
+    SimpleDateFormat format = format( "yyyy-MM-dd", "UTC" );
+    FastDateCodec codec = new FastDateCodec( format );
+    assertTrue( codec.isCodecFor( format ) );
+
+    format.applyPattern( "yyyy/MM/dd" );
+    assertFalse( codec.isCodecFor( format ) );
+
+    format = format( "yyyy-MM-dd", "UTC" );
+    codec = new FastDateCodec( format );
+    format.setTimeZone( TimeZone.getTimeZone( "Europe/Brussels" ) );
+    assertFalse( codec.isCodecFor( format ) );
+  }
+}
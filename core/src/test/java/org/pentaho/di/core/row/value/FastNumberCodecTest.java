@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.row.value;
+
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FastNumberCodecTest {
+
+  private static DecimalFormat format( String mask, char decimalSeparator ) {
+    DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance( Locale.US );
+    symbols.setDecimalSeparator( decimalSeparator );
+    return new DecimalFormat( mask, symbols );
+  }
+
+  @Test
+  public void testParseNumber() {
+    FastNumberCodec codec = new FastNumberCodec( format( "####0.0#########", '.' ) );
+
+    assertEquals( 12.5, codec.parseNumber( "12.5" ), 0.0 );
+    assertEquals( -0.1, codec.parseNumber( "-0.1" ), 0.0 );
+    assertEquals( 42.0, codec.parseNumber( "42" ), 0.0 );
+    assertTrue( Double.isNaN( codec.parseNumber( "1,234.5" ) ) );
+    assertTrue( Double.isNaN( codec.parseNumber( "1E5" ) ) );
+    assertTrue( Double.isNaN( codec.parseNumber( "12." ) ) );
+    assertTrue( Double.isNaN( codec.parseNumber( "-" ) ) );
+    assertTrue( Double.isNaN( codec.parseNumber( "12345678901234567890" ) ) );
+  }
+
+  @Test
+  public void testParseNumberWithCommaSeparator() {
+    FastNumberCodec codec = new FastNumberCodec( format( "#.##", ',' ) );
+
+    assertEquals( 12.5, codec.parseNumber( "12,5" ), 0.0 );
+    assertTrue( Double.isNaN( codec.parseNumber( "12.5" ) ) );
+  }
+
+  @Test
+  public void testParseInteger() {
+    FastNumberCodec codec = new FastNumberCodec( format( "####0", '.' ) );
+
+    assertEquals( 123L, codec.parseInteger( "00123" ) );
+    assertEquals( -42L, codec.parseInteger( "-42" ) );
+    assertEquals( FastNumberCodec.NO_RESULT, codec.parseInteger( "12.0" ) );
+    assertEquals( FastNumberCodec.NO_RESULT, codec.parseInteger( "9223372036854775807" ) );
+  }
+
+  @Test
+  public void testUnsupportedMasks() {
+    assertTrue( Double.isNaN( new FastNumberCodec( format( "#%", '.' ) ).parseNumber( "12" ) ) );
+    assertTrue( Double.isNaN( new FastNumberCodec( format( "$#.##", '.' ) ).parseNumber( "12" ) ) );
+    assertNull( new FastNumberCodec( format( "#,##0", '.' ) ).formatInteger( 1234L ) );
+    assertNull( new FastNumberCodec( format( "00000", '.' ) ).formatInteger( 12L ) );
+  }
+
+  @Test
+  public void testFormatInteger() {
+    DecimalFormat format = format( "####0;-####0", '.' );
+    FastNumberCodec codec = new FastNumberCodec( format );
+
+    for ( long value : new long[] { 0L, 7L, -123456L, Long.MAX_VALUE, Long.MIN_VALUE } ) {
+      assertEquals( format.format( value ), codec.formatInteger( value ) );
+    }
+  }
+
+  @Test
+  public void testSameResultsAsDecimalFormat() {
+    Random random = new Random( 1 );
+    DecimalFormat format = format( "####0.0#########", '.' );
+    FastNumberCodec codec = new FastNumberCodec( format );
+    for ( int i = 0; i < 10000; i++ ) {
+      String text = Double.toString( random.nextDouble() * Math.pow( 10, random.nextInt( 16 ) - 4 ) );
+      double value = codec.parseNumber( text );
+      if ( !Double.isNaN( value ) ) {
+        assertEquals( format.parse( text, new ParsePosition( 0 ) ).doubleValue(), value, 0.0 );
+      }
+    }
+  }
+}
@@ -0,0 +1,61 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.core.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VirtualThreadUtilTest {
+
+  @Test
+  public void testPlatformThreadIsNotVirtual() {
+    assertFalse( VirtualThreadUtil.isVirtual( Thread.currentThread() ) );
+  }
+
+  @Test
+  public void testNewVirtualThread() throws Exception {
+    final AtomicBoolean ranVirtual = new AtomicBoolean();
+    Runnable runnable = () -> ranVirtual.set( VirtualThreadUtil.isVirtual( Thread.currentThread() ) );
+
+    if ( !VirtualThreadUtil.isSupported() ) {
+      try {
+        VirtualThreadUtil.newVirtualThread( "test", runnable );
+        fail( "Virtual threads aren't supported on this Java version" );
+      } catch ( UnsupportedOperationException e ) {
+        return;
+      }
+    }
+
+    Thread thread = VirtualThreadUtil.newVirtualThread( "test", runnable );
+    assertEquals( "test", thread.getName() );
+    thread.start();
+    thread.join();
+    assertTrue( ranVirtual.get() );
+  }
+}
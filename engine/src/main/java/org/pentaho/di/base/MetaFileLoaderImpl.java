@@ -280,9 +280,14 @@ public class MetaFileLoaderImpl<T> implements IMetaFileLoader<T> {
     theMeta = attemptCacheRead( realFilename );
 
     if ( theMeta == null ) {
-      theMeta = isTransMeta()
-        ? (T) new TransMeta( realFilename, metaStore, null, true, transSpace, null )
-        : (T) new JobMeta( jobSpace, realFilename, rep, metaStore, null );
+      if ( isTransMeta() && baseStepMeta != null && rep == null ) {
+        // Sub-transformations of steps can be shared by all the runs in this JVM
+        theMeta = (T) SharedTransMetaCache.getInstance().getTransMeta( realFilename, metaStore, transSpace );
+      } else {
+        theMeta = isTransMeta()
+          ? (T) new TransMeta( realFilename, metaStore, null, true, transSpace, null )
+          : (T) new JobMeta( jobSpace, realFilename, rep, metaStore, null );
+      }
       idContainer[ 0 ] = realFilename;  //only pass back the id used in the cache, if a cache entry should be created
     }
     return theMeta;
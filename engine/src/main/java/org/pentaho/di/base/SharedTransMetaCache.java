@@ -0,0 +1,209 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.base;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.vfs.KettleVFS;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.metastore.api.IMetaStore;
+
+/**
+ * A process-wide cache of the transformations that steps like Mapping, Simple Mapping, Transformation Executor and
+ * ETL Metadata Injection load from a file. Where {@link IMetaFileCache} only lives for one run of the parent job or
+ * transformation, this cache is shared by all the runs in the JVM so that a sub-transformation which is executed over
+ * and over (on Carte for example) is only parsed once.<br>
+ * <br>
+ * A cached transformation is only used as long as the modification time of the file is unchanged and the shared
+ * objects file resolves to the same name. At most {@link Const#KETTLE_SHARED_TRANS_META_CACHE_SIZE} transformations
+ * are kept, the least recently used one is dropped first, and they are held through soft references so they can be
+ * reclaimed when memory runs low. Every caller gets its own clone with its own variables.
+ */
+public class SharedTransMetaCache {
+
+  private static final SharedTransMetaCache instance = new SharedTransMetaCache();
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>( 16, 0.75f, true );
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  SharedTransMetaCache() {
+  }
+
+  public static SharedTransMetaCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the transformation in the given file, loaded the same way as
+   * {@code new TransMeta( filename, metaStore, null, true, space, null )} would.
+   *
+   * @param filename  the name of the transformation file
+   * @param metaStore the metastore to load and execute with
+   * @param space     the parent variable space used to load the transformation
+   * @return a transformation that is not shared with any other caller
+   * @throws KettleException in case the transformation can't be loaded
+   */
+  public TransMeta getTransMeta( String filename, IMetaStore metaStore, VariableSpace space ) throws KettleException {
+    int maxSize = getMaxSize();
+    if ( maxSize <= 0 ) {
+      return loadTransMeta( filename, metaStore, space );
+    }
+
+    String key;
+    long lastModified;
+    try {
+      FileObject file = KettleVFS.getFileObject( filename, space );
+      key = file.getName().getURI();
+      lastModified = file.getContent().getLastModifiedTime();
+    } catch ( Exception e ) {
+      // Don't cache what we can't check for changes, loading it reports the actual problem.
+      //
+      return loadTransMeta( filename, metaStore, space );
+    }
+
+    Entry entry;
+    synchronized ( entries ) {
+      entry = entries.get( key );
+    }
+    TransMeta cached = entry != null && entry.isValid( lastModified, metaStore, space ) ? entry.transMeta.get() : null;
+    if ( cached != null ) {
+      TransMeta transMeta = cloneForExecution( cached, metaStore, space );
+      if ( transMeta != null ) {
+        hits.incrementAndGet();
+        if ( LogChannel.GENERAL.isDetailed() ) {
+          LogChannel.GENERAL.logDetailed( "Loading transformation [" + key + "] from the shared cache" );
+        }
+        return transMeta;
+      }
+    }
+
+    misses.incrementAndGet();
+    TransMeta transMeta = loadTransMeta( filename, metaStore, space );
+    TransMeta master = (TransMeta) transMeta.realClone( false );
+    if ( master != null ) {
+      Entry newEntry = new Entry( lastModified, metaStore, resolveSharedObjectsFile( transMeta, space ), master );
+      synchronized ( entries ) {
+        entries.put( key, newEntry );
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ( entries.size() > maxSize && iterator.hasNext() ) {
+          iterator.next();
+          iterator.remove();
+        }
+      }
+    }
+    return transMeta;
+  }
+
+  TransMeta loadTransMeta( String filename, IMetaStore metaStore, VariableSpace space ) throws KettleException {
+    return new TransMeta( filename, metaStore, null, true, space, null );
+  }
+
+  /**
+   * Makes a copy of a cached transformation that can be executed independently of the other copies. The variables are
+   * initialized the same way as loading the transformation does: copied from the parent space without keeping a
+   * reference to it.
+   */
+  private TransMeta cloneForExecution( TransMeta cached, IMetaStore metaStore, VariableSpace space ) {
+    TransMeta transMeta = (TransMeta) cached.realClone( false );
+    if ( transMeta == null ) {
+      return null;
+    }
+    transMeta.variables = new Variables();
+    transMeta.initializeVariablesFrom( space );
+    transMeta.initializeVariablesFrom( null );
+    transMeta.setInternalKettleVariables();
+    transMeta.setMetaStore( metaStore );
+    transMeta.setCounters( new Hashtable<>() );
+    transMeta.setResultRows( new ArrayList<>() );
+    transMeta.setResultFiles( new ArrayList<>() );
+    return transMeta;
+  }
+
+  private static String resolveSharedObjectsFile( TransMeta transMeta, VariableSpace space ) {
+    String sharedObjectsFile = transMeta.getSharedObjectsFile();
+    return space == null ? sharedObjectsFile : space.environmentSubstitute( sharedObjectsFile );
+  }
+
+  private static int getMaxSize() {
+    return Const.toInt( EnvUtil.getSystemProperty( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE ),
+      Const.toInt( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE_DEFAULT, 0 ) );
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public int size() {
+    synchronized ( entries ) {
+      return entries.size();
+    }
+  }
+
+  public void clear() {
+    synchronized ( entries ) {
+      entries.clear();
+    }
+    hits.set( 0L );
+    misses.set( 0L );
+  }
+
+  private static class Entry {
+    private final long lastModified;
+    private final IMetaStore metaStore;
+    private final String sharedObjectsFile;
+    private final SoftReference<TransMeta> transMeta;
+
+    Entry( long lastModified, IMetaStore metaStore, String sharedObjectsFile, TransMeta transMeta ) {
+      this.lastModified = lastModified;
+      this.metaStore = metaStore;
+      this.sharedObjectsFile = sharedObjectsFile;
+      this.transMeta = new SoftReference<>( transMeta );
+    }
+
+    boolean isValid( long lastModified, IMetaStore metaStore, VariableSpace space ) {
+      TransMeta cached = transMeta.get();
+      return cached != null && this.lastModified == lastModified && this.metaStore == metaStore
+        && Objects.equals( sharedObjectsFile, resolveSharedObjectsFile( cached, space ) );
+    }
+  }
+}
@@ -85,6 +85,12 @@ public class ClusterSchema extends ChangedFlag implements Cloneable, SharedObjec
   /** flag to compress data over the sockets or not */
   private boolean socketsCompressed;
 
+  /**
+   * The compression to use when rows are sent over the sockets in blocks: NONE, SNAPPY or DEFLATE. When empty rows are
+   * sent one by one.
+   */
+  private String socketsBlockCompression;
+
   /**
    * Flag to indicate that this cluster schema is dynamic.<br>
    * This means that the slave server configuration is taken from one of the defined master servers.<br>
@@ -131,6 +137,7 @@ public class ClusterSchema extends ChangedFlag implements Cloneable, SharedObjec
     this.basePort = clusterSchema.basePort;
     this.socketsBufferSize = clusterSchema.socketsBufferSize;
     this.socketsCompressed = clusterSchema.socketsCompressed;
+    this.socketsBlockCompression = clusterSchema.socketsBlockCompression;
     this.socketsFlushInterval = clusterSchema.socketsFlushInterval;
     this.dynamic = clusterSchema.dynamic;
 
@@ -167,6 +174,7 @@ public class ClusterSchema extends ChangedFlag implements Cloneable, SharedObjec
     xml.append( "        " ).append( XMLHandler.addTagValue( "sockets_buffer_size", socketsBufferSize ) );
     xml.append( "        " ).append( XMLHandler.addTagValue( "sockets_flush_interval", socketsFlushInterval ) );
     xml.append( "        " ).append( XMLHandler.addTagValue( "sockets_compressed", socketsCompressed ) );
+    xml.append( "        " ).append( XMLHandler.addTagValue( "sockets_block_compression", socketsBlockCompression ) );
     xml.append( "        " ).append( XMLHandler.addTagValue( "dynamic", dynamic ) );
 
     xml.append( "        " ).append( XMLHandler.openTag( "slaveservers" ) ).append( Const.CR );
@@ -187,6 +195,7 @@ public class ClusterSchema extends ChangedFlag implements Cloneable, SharedObjec
     socketsBufferSize = XMLHandler.getTagValue( clusterSchemaNode, "sockets_buffer_size" );
     socketsFlushInterval = XMLHandler.getTagValue( clusterSchemaNode, "sockets_flush_interval" );
     socketsCompressed = "Y".equalsIgnoreCase( XMLHandler.getTagValue( clusterSchemaNode, "sockets_compressed" ) );
+    socketsBlockCompression = XMLHandler.getTagValue( clusterSchemaNode, "sockets_block_compression" );
     dynamic = "Y".equalsIgnoreCase( XMLHandler.getTagValue( clusterSchemaNode, "dynamic" ) );
 
     Node slavesNode = XMLHandler.getSubNode( clusterSchemaNode, "slaveservers" );
@@ -344,6 +353,22 @@ public class ClusterSchema extends ChangedFlag implements Cloneable, SharedObjec
     this.socketsCompressed = socketsCompressed;
   }
 
+  /**
+   * @return the compression of the row blocks sent over the sockets or null if rows are sent one by one
+   */
+  public String getSocketsBlockCompression() {
+    return socketsBlockCompression;
+  }
+
+  /**
+   * @param socketsBlockCompression
+   *          the compression of the row blocks sent over the sockets: NONE, SNAPPY or DEFLATE. Leave empty to send
+   *          rows one by one.
+   */
+  public void setSocketsBlockCompression( String socketsBlockCompression ) {
+    this.socketsBlockCompression = socketsBlockCompression;
+  }
+
   public SlaveServer findSlaveServer( String slaveServerName ) {
     for ( int i = 0; i < slaveServers.size(); i++ ) {
       SlaveServer slaveServer = slaveServers.get( i );
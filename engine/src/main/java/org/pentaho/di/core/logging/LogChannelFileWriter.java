@@ -157,6 +157,9 @@ public class LogChannelFileWriter {
   }
 
   public void stopLogging() {
+    if ( KettleLogStore.isInitialized() ) {
+      KettleLogStore.getAppender().flush();
+    }
     flush();
     active.set( false );
     while ( !finished.get() ) {
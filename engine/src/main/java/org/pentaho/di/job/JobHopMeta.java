@@ -22,6 +22,9 @@
 
 package org.pentaho.di.job;
 
+import java.util.List;
+import java.util.Map;
+
 import org.pentaho.di.base.BaseHopMeta;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleXMLException;
@@ -62,6 +65,19 @@ public class JobHopMeta extends BaseHopMeta<JobEntryCopy> {
   }
 
   public JobHopMeta( Node hopnode, JobMeta job ) throws KettleXMLException {
+    loadXML( hopnode, job, null );
+  }
+
+  /**
+   * Loads a hop while the job is loaded: the job entry copies are looked up in a map by their (case insensitive) name,
+   * the copies with the same name are listed in the order of the job.
+   */
+  JobHopMeta( Node hopnode, Map<String, List<JobEntryCopy>> copiesByName ) throws KettleXMLException {
+    loadXML( hopnode, null, copiesByName );
+  }
+
+  private void loadXML( Node hopnode, JobMeta job, Map<String, List<JobEntryCopy>> copiesByName )
+    throws KettleXMLException {
     try {
       String fromNameValue = XMLHandler.getTagValue( hopnode, "from" );
       String toNameValue = XMLHandler.getTagValue( hopnode, "to" );
@@ -76,8 +92,13 @@ public class JobHopMeta extends BaseHopMeta<JobEntryCopy> {
       fromNr = Const.toInt( fromNrValue, 0 );
       toNr = Const.toInt( toNrValue, 0 );
 
-      this.from = job.findJobEntry( fromNameValue, fromNr, true );
-      this.to = job.findJobEntry( toNameValue, toNr, true );
+      if ( copiesByName != null ) {
+        this.from = findJobEntry( copiesByName, fromNameValue, fromNr );
+        this.to = findJobEntry( copiesByName, toNameValue, toNr );
+      } else {
+        this.from = job.findJobEntry( fromNameValue, fromNr, true );
+        this.to = job.findJobEntry( toNameValue, toNr, true );
+      }
 
       if ( enabledValue == null ) {
         enabled = true;
@@ -96,6 +117,18 @@ public class JobHopMeta extends BaseHopMeta<JobEntryCopy> {
     }
   }
 
+  private static JobEntryCopy findJobEntry( Map<String, List<JobEntryCopy>> copiesByName, String name, int nr ) {
+    List<JobEntryCopy> copies = name == null ? null : copiesByName.get( name );
+    if ( copies != null ) {
+      for ( JobEntryCopy copy : copies ) {
+        if ( copy.getNr() == nr ) {
+          return copy;
+        }
+      }
+    }
+    return null;
+  }
+
   public String getXML() {
     StringBuilder retval = new StringBuilder( 200 );
     String shortSpaces = "    ";
@@ -102,6 +102,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * The definition of a PDI job is represented by a JobMeta object. It is typically loaded from a .kjb file, a PDI
@@ -1085,11 +1086,7 @@ public class JobMeta extends AbstractMeta
        * read the job entries...
        */
       Node entriesnode = XMLHandler.getSubNode( jobnode, "entries" );
-      int tr = XMLHandler.countNodes( entriesnode, "entry" );
-      for ( int i = 0; i < tr; i++ ) {
-        Node entrynode = XMLHandler.getSubNodeByNr( entriesnode, "entry", i );
-        // System.out.println("Reading entry:\n"+entrynode);
-
+      for ( Node entrynode : XMLHandler.getNodes( entriesnode, "entry" ) ) {
         JobEntryCopy je = new JobEntryCopy( entrynode, databases, slaveServers, rep, metaStore );
 
         if ( je.isSpecial() && je.isMissing() ) {
@@ -1126,11 +1123,19 @@ public class JobMeta extends AbstractMeta
         addJobEntry( je );
       }
 
+      // Look up the job entry copies of the hops by name in a map instead of searching all copies for every hop.
+      // Like findJobEntry() the first copy with a matching name and number is used.
+      //
+      Map<String, List<JobEntryCopy>> copiesByName = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+      for ( JobEntryCopy copy : jobcopies ) {
+        if ( copy.getName() == null ) {
+          continue;
+        }
+        copiesByName.computeIfAbsent( copy.getName(), name -> new ArrayList<>() ).add( copy );
+      }
       Node hopsnode = XMLHandler.getSubNode( jobnode, "hops" );
-      int ho = XMLHandler.countNodes( hopsnode, "hop" );
-      for ( int i = 0; i < ho; i++ ) {
-        Node hopnode = XMLHandler.getSubNodeByNr( hopsnode, "hop", i );
-        JobHopMeta hi = new JobHopMeta( hopnode, this );
+      for ( Node hopnode : XMLHandler.getNodes( hopsnode, "hop" ) ) {
+        JobHopMeta hi = new JobHopMeta( hopnode, copiesByName );
         jobhops.add( hi );
       }
 
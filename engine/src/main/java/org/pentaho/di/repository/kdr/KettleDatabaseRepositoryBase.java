@@ -436,6 +436,7 @@ public abstract class KettleDatabaseRepositoryBase extends AbstractRepository {
   public static final String TRANS_ATTRIBUTE_FEEDBACK_SHOWN = "FEEDBACK_SHOWN";
   public static final String TRANS_ATTRIBUTE_FEEDBACK_SIZE = "FEEDBACK_SIZE";
   public static final String TRANS_ATTRIBUTE_USING_THREAD_PRIORITIES = "USING_THREAD_PRIORITIES";
+  public static final String TRANS_ATTRIBUTE_LOCK_FREE_ROWSETS = "LOCK_FREE_ROWSETS";
   public static final String TRANS_ATTRIBUTE_SHARED_FILE = "SHARED_FILE";
   public static final String TRANS_ATTRIBUTE_CAPTURE_STEP_PERFORMANCE = "CAPTURE_STEP_PERFORMANCE";
   public static final String TRANS_ATTRIBUTE_STEP_PERFORMANCE_CAPTURING_DELAY = "STEP_PERFORMANCE_CAPTURING_DELAY";
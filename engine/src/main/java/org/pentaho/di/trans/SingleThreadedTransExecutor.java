@@ -26,10 +26,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.pentaho.di.core.Result;
+import org.pentaho.di.core.ResultFile;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.trans.TransMeta.TransformationType;
+import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepMetaDataCombi;
 import org.pentaho.di.trans.step.errorhandling.StreamInterface;
 
@@ -265,10 +268,27 @@ public class SingleThreadedTransExecutor {
   }
 
   public boolean init() throws KettleException {
+    log.logBasic( "Single Threaded Executor initializing Trans: [" + trans.getName( ) + "]" );
+    checkSupportedTransformationTypes();
 
-    // See if the steps support the SingleThreaded transformation type...
+    // Initialize all the steps...
     //
-    log.logBasic( "Single Threaded Executor initializing Trans: [" + trans.getName( ) + "]" );
+    for ( StepMetaDataCombi combi : steps ) {
+      boolean ok = combi.step.init( combi.meta, combi.data );
+      if ( !ok ) {
+        return false;
+      }
+    }
+    return true;
+
+  }
+
+  /**
+   * See if the steps support the SingleThreaded transformation type...
+   *
+   * @throws KettleException in case one of the steps can't be executed by this engine
+   */
+  public void checkSupportedTransformationTypes() throws KettleException {
     for ( StepMetaDataCombi combi : steps ) {
       TransformationType[] types = combi.stepMeta.getStepMetaInterface().getSupportedTransformationTypes();
       boolean ok = false;
@@ -283,16 +303,6 @@ public class SingleThreadedTransExecutor {
           + "' is not yet supported in a Single Threaded transformation engine." );
       }
     }
-    // Initialize all the steps...
-    //
-    for ( StepMetaDataCombi combi : steps ) {
-      boolean ok = combi.step.init( combi.meta, combi.data );
-      if ( !ok ) {
-        return false;
-      }
-    }
-    return true;
-
   }
 
   /**
@@ -389,6 +399,28 @@ public class SingleThreadedTransExecutor {
     return total;
   }
 
+  /**
+   * Starts a new result for the next batch of rows: the result rows and files of the transformation are cleared and
+   * the row counters of the steps are set back to zero. This way the result of every iteration can be told apart when
+   * the same transformation processes batch after batch.
+   */
+  public void resetBatchResult() {
+    trans.setResultRows( new ArrayList<RowMetaAndData>() );
+    trans.setResultFiles( new ArrayList<ResultFile>() );
+    for ( StepMetaDataCombi combi : steps ) {
+      if ( combi.step instanceof BaseStep ) {
+        BaseStep step = (BaseStep) combi.step;
+        step.setLinesRead( 0L );
+        step.setLinesWritten( 0L );
+        step.setLinesInput( 0L );
+        step.setLinesOutput( 0L );
+        step.setLinesUpdated( 0L );
+        step.setLinesRejected( 0L );
+        step.setLinesSkipped( 0L );
+      }
+    }
+  }
+
   public long getErrors() {
     return trans.getErrors();
   }
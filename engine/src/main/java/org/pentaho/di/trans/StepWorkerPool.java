@@ -0,0 +1,622 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.logging.LogChannel;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.trans.step.RunThread;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.step.StepInterface;
+import org.pentaho.di.trans.step.StepMetaDataCombi;
+import org.pentaho.di.trans.step.StepMetaInterface;
+
+/**
+ * Runs the steps of transformations on a small, shared set of worker threads instead of one thread per step copy, see
+ * {@link Const#KETTLE_STEP_WORKER_POOL}.<br>
+ * <br>
+ * A step copy only gets a worker when it can make progress: it has rows waiting on its input and free space on its
+ * output. It then processes a bounded slice of rows and hands the worker back. A step that produced rows schedules its
+ * consumers on the front of the queue of its own worker so the rows are picked up while they are still in the CPU
+ * cache. Idle workers steal from the back of the queues of busy workers.<br>
+ * <br>
+ * Steps that block inside processRow() (waiting for an info stream, a remote server or a paused transformation) keep
+ * their worker. When all workers are blocked while there is work queued, the pool adds extra workers which retire
+ * again after they have been idle for a while.<br>
+ * <br>
+ * A step can also write more rows than it read (a row normaliser for example) or read more rows than were available
+ * when its slice started. Before such a step waits on a full or empty row set, the steps on the other side of the row
+ * set are woken up right away, and a worker is added when no other worker is free to run them. See
+ * {@link #beforePutRow(RowSet)} and {@link #beforeGetRow(RowSet)}.
+ *
+ * @since 9.6
+ */
+public class StepWorkerPool {
+
+  private static final LogChannelInterface log = new LogChannel( "StepWorkerPool" );
+
+  /** The maximum number of processRow() calls in one slice */
+  private static final int SLICE_MAX_ROWS = 1024;
+  /** The maximum duration of one slice */
+  private static final long SLICE_MAX_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+  /** How often idle steps are checked for rows that were written outside of the pool */
+  private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos( 5 );
+  /** How long an idle worker parks when there are no steps at all */
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+  /** How often the pool checks for blocked workers */
+  private static final long MONITOR_INTERVAL_MILLIS = 100;
+  /** How long an extra worker stays around without work */
+  private static final long SPARE_KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos( 10 );
+  /** The maximum number of extra workers */
+  private static final int MAX_SPARE_WORKERS = 256;
+
+  private static StepWorkerPool instance;
+
+  private final int coreSize;
+  private final List<Worker> workers = new CopyOnWriteArrayList<>();
+  private final ConcurrentLinkedQueue<Worker> parked = new ConcurrentLinkedQueue<>();
+  private final ConcurrentLinkedQueue<StepTask> submissions = new ConcurrentLinkedQueue<>();
+  private final Set<StepTask> tasks = Collections.newSetFromMap( new ConcurrentHashMap<StepTask, Boolean>() );
+
+  private final AtomicInteger workerNr = new AtomicInteger();
+  private final AtomicLong slices = new AtomicLong();
+  private final AtomicLong lastSweep = new AtomicLong( System.nanoTime() );
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+
+  private long lastMonitoredSlices = -1L;
+
+  public static synchronized StepWorkerPool getInstance() {
+    if ( instance == null ) {
+      int size = Const.toInt( System.getProperty( Const.KETTLE_STEP_WORKER_POOL_SIZE ), 0 );
+      instance = new StepWorkerPool( size > 0 ? size : Runtime.getRuntime().availableProcessors() );
+    }
+    return instance;
+  }
+
+  StepWorkerPool( int coreSize ) {
+    this.coreSize = Math.max( 1, coreSize );
+    for ( int i = 0; i < this.coreSize; i++ ) {
+      startWorker( false );
+    }
+    Timer monitor = new Timer( "StepWorkerPool monitor", true );
+    monitor.schedule( new TimerTask() {
+      @Override
+      public void run() {
+        monitor();
+      }
+    }, MONITOR_INTERVAL_MILLIS, MONITOR_INTERVAL_MILLIS );
+  }
+
+  /**
+   * Runs the given step copies of a transformation on the pool. The rows sets between the steps have to be in place,
+   * the transformation is considered finished when all the steps are marked as stopped, just like with step threads.
+   *
+   * @param trans
+   *          the transformation the steps belong to
+   * @param steps
+   *          the step copies to run
+   */
+  public void execute( Trans trans, List<StepMetaDataCombi> steps ) {
+    Map<String, StepTask> byCopy = new HashMap<>();
+    List<StepTask> newTasks = new ArrayList<>( steps.size() );
+    for ( StepMetaDataCombi combi : steps ) {
+      StepTask task = new StepTask( combi );
+      byCopy.put( copyKey( combi.stepname, combi.copy ), task );
+      newTasks.add( task );
+    }
+
+    // The error row set is no longer part of the output row sets of a step once the error handling is identified,
+    // so the row sets of the transformation are checked as well.
+    //
+    for ( StepTask task : newTasks ) {
+      Set<RowSet> inputs = Collections.newSetFromMap( new IdentityHashMap<RowSet, Boolean>() );
+      inputs.addAll( task.step.getInputRowSets() );
+      Set<RowSet> outputs = Collections.newSetFromMap( new IdentityHashMap<RowSet, Boolean>() );
+      outputs.addAll( task.step.getOutputRowSets() );
+      for ( RowSet rowSet : trans.getRowsets() ) {
+        if ( task.stepname.equals( rowSet.getOriginStepName() ) && task.copy == rowSet.getOriginStepCopy() ) {
+          outputs.add( rowSet );
+        }
+      }
+      outputs.removeAll( inputs );
+
+      for ( RowSet rowSet : inputs ) {
+        task.inputs.add( rowSet );
+        StepTask producer = byCopy.get( copyKey( rowSet.getOriginStepName(), rowSet.getOriginStepCopy() ) );
+        if ( producer != null && producer != task ) {
+          task.producers.add( producer );
+        }
+      }
+      for ( RowSet rowSet : outputs ) {
+        task.outputs.add( rowSet );
+        StepTask consumer = byCopy.get( copyKey( rowSet.getDestinationStepName(), rowSet.getDestinationStepCopy() ) );
+        if ( consumer != null && consumer != task ) {
+          task.consumers.add( consumer );
+        }
+      }
+    }
+
+    int rowSetSize = trans.getTransMeta().getSizeRowset();
+    for ( StepTask task : newTasks ) {
+      task.rowSetSize = rowSetSize;
+      tasks.add( task );
+    }
+    for ( StepTask task : newTasks ) {
+      task.state.set( StepTask.SCHEDULED );
+      submit( task, false );
+    }
+  }
+
+  /**
+   * @return the number of step copies that did not finish yet
+   */
+  public int getActiveStepCount() {
+    return tasks.size();
+  }
+
+  /**
+   * @return the current number of worker threads, including extra workers for blocked steps
+   */
+  public int getWorkerCount() {
+    return workers.size();
+  }
+
+  /**
+   * Called by a step before it puts a row in the given row set. When the step runs on the pool and the row set is full
+   * the consumers of the step are woken up, so the step doesn't have to wait for the end of the slice of the consumer
+   * or for the next sweep.
+   *
+   * @param rowSet
+   *          the row set the row is going to be put in
+   */
+  public static void beforePutRow( RowSet rowSet ) {
+    Thread current = Thread.currentThread();
+    if ( current instanceof Worker ) {
+      ( (Worker) current ).beforePutRow( rowSet );
+    }
+  }
+
+  /**
+   * Called by a step before it waits for a row from the given row set. When the step runs on the pool and the row set
+   * is empty the producers of the step are woken up.
+   *
+   * @param rowSet
+   *          the row set the row is going to be read from
+   */
+  public static void beforeGetRow( RowSet rowSet ) {
+    Thread current = Thread.currentThread();
+    if ( current instanceof Worker ) {
+      ( (Worker) current ).beforeGetRow( rowSet );
+    }
+  }
+
+  private static String copyKey( String stepname, int copy ) {
+    return stepname + "." + copy;
+  }
+
+  private void startWorker( boolean spare ) {
+    Worker worker = new Worker( spare );
+    workers.add( worker );
+    worker.start();
+  }
+
+  /**
+   * Queues a step that is ready to run. From within a worker the task goes on the queue of that worker: at the front
+   * for steps that just received rows, at the back for a step that used up its slice.
+   */
+  private void submit( StepTask task, boolean front ) {
+    Thread current = Thread.currentThread();
+    if ( current instanceof Worker && ( (Worker) current ).pool == this ) {
+      if ( front ) {
+        ( (Worker) current ).queue.addFirst( task );
+      } else {
+        ( (Worker) current ).queue.addLast( task );
+      }
+    } else {
+      submissions.add( task );
+    }
+    Worker idle = parked.poll();
+    if ( idle != null ) {
+      LockSupport.unpark( idle );
+    }
+  }
+
+  private StepTask nextTask( Worker worker ) {
+    StepTask task = worker.queue.pollFirst();
+    if ( task != null ) {
+      return task;
+    }
+    task = submissions.poll();
+    if ( task != null ) {
+      return task;
+    }
+    for ( Worker other : workers ) {
+      if ( other != worker ) {
+        task = other.queue.pollLast();
+        if ( task != null ) {
+          return task;
+        }
+      }
+    }
+    return null;
+  }
+
+  private boolean hasQueuedTasks() {
+    if ( !submissions.isEmpty() ) {
+      return true;
+    }
+    for ( Worker worker : workers ) {
+      if ( !worker.queue.isEmpty() ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Rows can also arrive from outside of the pool, from a RowProducer or a mapping for example, and steps can be
+   * stopped from the outside. Every now and then the idle steps are checked so they don't wait forever.
+   */
+  private void sweep( boolean force ) {
+    long last = lastSweep.get();
+    long now = System.nanoTime();
+    if ( !force && now - last < SWEEP_INTERVAL_NANOS ) {
+      return;
+    }
+    if ( !sweeping.compareAndSet( false, true ) ) {
+      return;
+    }
+    try {
+      lastSweep.set( now );
+      for ( StepTask task : tasks ) {
+        task.wake();
+      }
+    } finally {
+      sweeping.set( false );
+    }
+  }
+
+  /**
+   * Adds a worker when all workers are stuck in a blocking step while other steps are waiting to run.
+   */
+  private synchronized void monitor() {
+    try {
+      sweep( true );
+      long current = slices.get();
+      boolean stalled = current == lastMonitoredSlices && parked.isEmpty() && hasQueuedTasks();
+      lastMonitoredSlices = current;
+      if ( stalled && workers.size() < coreSize + MAX_SPARE_WORKERS ) {
+        if ( log.isDetailed() ) {
+          log.logDetailed( "All step workers are blocked, adding a worker to the pool" );
+        }
+        startWorker( true );
+      }
+    } catch ( Throwable t ) {
+      log.logError( "Unexpected error monitoring the step worker pool", t );
+    }
+  }
+
+  /**
+   * Adds a worker when a worker is about to wait inside a step while no other worker is free to run the queued steps.
+   * Every step copy runs on one worker at a time, so there is no use in having more workers than steps.
+   */
+  private synchronized void compensate() {
+    int size = workers.size();
+    if ( parked.isEmpty() && hasQueuedTasks() && size < tasks.size() && size < coreSize + MAX_SPARE_WORKERS ) {
+      if ( log.isDetailed() ) {
+        log.logDetailed( "A step worker has to wait for a row set, adding a worker to the pool" );
+      }
+      startWorker( true );
+    }
+  }
+
+  private class Worker extends Thread {
+    private final StepWorkerPool pool = StepWorkerPool.this;
+    private final ConcurrentLinkedDeque<StepTask> queue = new ConcurrentLinkedDeque<>();
+    private final boolean spare;
+
+    /** The step running on this worker, only used by the worker itself */
+    private StepTask current;
+    /** The number of rows the current step can still put without checking its output */
+    private int putsLeft;
+    /** The number of rows the current step can still get without checking its input */
+    private int getsLeft;
+    /** Whether a worker was already added for the current slice */
+    private boolean compensated;
+
+    Worker( boolean spare ) {
+      super( "StepWorkerPool worker " + workerNr.incrementAndGet() );
+      this.spare = spare;
+      setDaemon( true );
+    }
+
+    @Override
+    public void run() {
+      long idleSince = System.nanoTime();
+      while ( true ) {
+        StepTask task = nextTask( this );
+        if ( task != null ) {
+          runTask( task );
+          slices.incrementAndGet();
+          sweep( false );
+          idleSince = System.nanoTime();
+          continue;
+        }
+        sweep( false );
+
+        // Register as idle before the final check so a submit in between can't be missed
+        //
+        parked.add( this );
+        task = nextTask( this );
+        if ( task != null ) {
+          parked.remove( this );
+          runTask( task );
+          slices.incrementAndGet();
+          idleSince = System.nanoTime();
+          continue;
+        }
+        LockSupport.parkNanos( this, tasks.isEmpty() ? IDLE_PARK_NANOS : SWEEP_INTERVAL_NANOS );
+        parked.remove( this );
+
+        if ( spare && System.nanoTime() - idleSince > SPARE_KEEP_ALIVE_NANOS && queue.isEmpty() ) {
+          workers.remove( this );
+          // Hand over anything that was queued on this worker in the mean time
+          //
+          for ( StepTask left = queue.poll(); left != null; left = queue.poll() ) {
+            submissions.add( left );
+          }
+          return;
+        }
+      }
+    }
+
+    private void runTask( StepTask task ) {
+      current = task;
+      compensated = false;
+      try {
+        task.run( this );
+      } finally {
+        current = null;
+      }
+    }
+
+    /**
+     * Sets the number of rows the current step can put and get without waiting.
+     */
+    void setBudget( int budget ) {
+      putsLeft = budget;
+      getsLeft = budget;
+    }
+
+    void beforePutRow( RowSet rowSet ) {
+      if ( putsLeft > 0 ) {
+        putsLeft--;
+      } else if ( current != null && rowSet.size() >= current.rowSetSize ) {
+        blocked( current.consumers );
+      }
+    }
+
+    void beforeGetRow( RowSet rowSet ) {
+      if ( getsLeft > 0 ) {
+        getsLeft--;
+      } else if ( current != null && rowSet.size() == 0 && !rowSet.isDone() ) {
+        blocked( current.producers );
+      }
+    }
+
+    /**
+     * The current step is about to wait for the given steps, make sure they get to run.
+     */
+    private void blocked( Set<StepTask> others ) {
+      for ( StepTask other : others ) {
+        other.wake();
+      }
+      if ( !compensated ) {
+        compensated = true;
+        compensate();
+      }
+    }
+  }
+
+  /**
+   * The scheduling state of a single step copy.
+   */
+  private class StepTask {
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int RUNNING = 2;
+    private static final int NOTIFIED = 3;
+    private static final int DONE = 4;
+
+    private final String stepname;
+    private final int copy;
+    private final StepInterface step;
+    private final StepMetaInterface meta;
+    private final StepDataInterface data;
+    private final RunThread runThread;
+    private final AtomicInteger state = new AtomicInteger( IDLE );
+
+    private final List<RowSet> inputs = new ArrayList<>();
+    private final List<RowSet> outputs = new ArrayList<>();
+    private final Set<StepTask> producers = Collections.newSetFromMap( new IdentityHashMap<StepTask, Boolean>() );
+    private final Set<StepTask> consumers = Collections.newSetFromMap( new IdentityHashMap<StepTask, Boolean>() );
+
+    private int rowSetSize;
+    private boolean started;
+
+    StepTask( StepMetaDataCombi combi ) {
+      this.stepname = combi.stepname;
+      this.copy = combi.copy;
+      this.step = combi.step;
+      this.meta = combi.meta;
+      this.data = combi.data;
+      this.runThread = new RunThread( combi );
+    }
+
+    /**
+     * Signals that the rows sets of this step changed. An idle step that can make progress is queued, a running step
+     * will check again before it goes idle.
+     */
+    void wake() {
+      while ( true ) {
+        int current = state.get();
+        if ( current == IDLE ) {
+          if ( !isReady() ) {
+            return;
+          }
+          if ( state.compareAndSet( IDLE, SCHEDULED ) ) {
+            submit( this, true );
+            return;
+          }
+        } else if ( current == RUNNING ) {
+          if ( state.compareAndSet( RUNNING, NOTIFIED ) ) {
+            return;
+          }
+        } else {
+          return;
+        }
+      }
+    }
+
+    boolean isReady() {
+      return step.isStopped() || getBudget() > 0;
+    }
+
+    /**
+     * @return the number of rows this step can process without blocking: the free space on its output, limited by the
+     *         rows waiting on its input as long as the input is not complete.
+     */
+    int getBudget() {
+      int budget = SLICE_MAX_ROWS;
+      for ( int i = 0; i < outputs.size(); i++ ) {
+        budget = Math.min( budget, rowSetSize - outputs.get( i ).size() );
+      }
+      if ( budget <= 0 || inputs.isEmpty() ) {
+        return budget;
+      }
+      int available = 0;
+      boolean open = false;
+      for ( int i = 0; i < inputs.size(); i++ ) {
+        RowSet input = inputs.get( i );
+        available += input.size();
+        open |= !input.isDone();
+      }
+      return open ? Math.min( budget, available ) : budget;
+    }
+
+    void run( Worker worker ) {
+      state.set( RUNNING );
+      boolean finished;
+      try {
+        if ( !started ) {
+          started = true;
+          runThread.startProcessing();
+        }
+        finished = processSlice( worker );
+      } catch ( Throwable t ) {
+        runThread.handleError( t );
+        finished = true;
+      }
+
+      if ( finished ) {
+        state.set( DONE );
+        tasks.remove( this );
+        runThread.finishProcessing();
+        wakeNeighbours();
+        return;
+      }
+
+      wakeNeighbours();
+      while ( true ) {
+        if ( isReady() ) {
+          state.set( SCHEDULED );
+          submit( this, false );
+          return;
+        }
+        if ( state.compareAndSet( RUNNING, IDLE ) ) {
+          return;
+        }
+        // Notified while running, check again
+        //
+        state.set( RUNNING );
+      }
+    }
+
+    /**
+     * @return true if the step is done processing rows
+     */
+    private boolean processSlice( Worker worker ) throws Exception {
+      long deadline = System.nanoTime() + SLICE_MAX_NANOS;
+      int processed = 0;
+      while ( processed < SLICE_MAX_ROWS ) {
+        if ( step.isStopped() ) {
+          return true;
+        }
+        int budget = Math.min( getBudget(), SLICE_MAX_ROWS - processed );
+        if ( budget <= 0 ) {
+          return false;
+        }
+        worker.setBudget( budget );
+        for ( int i = 0; i < budget; i++ ) {
+          if ( !step.processRow( meta, data ) || step.isStopped() ) {
+            return true;
+          }
+        }
+        processed += budget;
+        if ( System.nanoTime() - deadline > 0 ) {
+          return false;
+        }
+      }
+      return false;
+    }
+
+    private void wakeNeighbours() {
+      for ( StepTask consumer : consumers ) {
+        consumer.wake();
+      }
+      for ( StepTask producer : producers ) {
+        producer.wake();
+      }
+    }
+  }
+}
@@ -45,6 +45,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -68,6 +69,7 @@ import org.pentaho.di.core.Counter;
 import org.pentaho.di.core.ExecutorInterface;
 import org.pentaho.di.core.ExtensionDataInterface;
 import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.LockFreeRowSet;
 import org.pentaho.di.core.QueueRowSet;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.ResultFile;
@@ -113,6 +115,7 @@ import org.pentaho.di.core.parameters.UnknownParamException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.util.EnvUtil;
+import org.pentaho.di.core.util.VirtualThreadUtil;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
 import org.pentaho.di.core.vfs.KettleVFS;
@@ -128,6 +131,8 @@ import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.resource.ResourceUtil;
 import org.pentaho.di.resource.TopLevelResource;
 import org.pentaho.di.trans.cluster.TransSplitter;
+import org.pentaho.di.trans.performance.StepPerformanceRing;
+import org.pentaho.di.trans.performance.StepPerformanceSampler;
 import org.pentaho.di.trans.performance.StepPerformanceSnapShot;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.BaseStepData.StepExecutionStatus;
@@ -443,9 +448,14 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
   private Map<String, List<StepPerformanceSnapShot>> stepPerformanceSnapShots;
 
   /**
-   * The step performance snapshot timer.
+   * The step performance samples per step copy, the snapshots are calculated from these.
    */
-  private Timer stepPerformanceSnapShotTimer;
+  private Map<String, StepPerformanceRing> stepPerformanceRings;
+
+  /**
+   * The task taking the step performance snapshots on the shared sampler.
+   */
+  private ScheduledFuture<?> stepPerformanceSnapShotTimer;
 
   /**
    * A list of listeners attached to the transformation.
@@ -517,6 +527,11 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   private int stepPerformanceSnapshotSizeLimit;
 
+  /**
+   * The number of step performance snapshots kept per step copy when there is no size limit.
+   */
+  private int stepPerformanceSnapshotSamples;
+
   /**
    * The servlet print writer.
    */
@@ -566,6 +581,8 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
   private static final int TRANS_FINISHED_BLOCKING_QUEUE_SIZE =
     Integer.parseInt( System.getProperty( Const.KETTLE_TRANS_FINISHED_BLOCKING_QUEUE_SIZE, "200" ) );
 
+  private static final int DEFAULT_STEP_PERFORMANCE_SAMPLES = 1000;
+
   /**
    * Instantiates a new transformation.
    */
@@ -968,6 +985,10 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.KETTLE_BATCHING_ROWSET ) );
                 if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
                   rowSet = new BlockingBatchingRowSet( transMeta.getSizeRowset() );
+                } else if ( dispatchType == TYPE_DISP_1_1 && transMeta.isUsingLockFreeRowSets() ) {
+                  // Exactly one producer and one consumer thread: no locking needed.
+                  //
+                  rowSet = new LockFreeRowSet( transMeta.getSizeRowset() );
                 } else {
                   rowSet = new BlockingRowSet( transMeta.getSizeRowset() );
                 }
@@ -1428,7 +1449,8 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
     if ( transMeta.isCapturingStepPerformanceSnapShots() ) {
       stepPerformanceSnapshotSeqNr = new AtomicInteger( 0 );
-      stepPerformanceSnapShots = new ConcurrentHashMap<>();
+      stepPerformanceRings = new ConcurrentHashMap<>();
+      stepPerformanceSnapShots = StepPerformanceRing.asSnapShotMap( stepPerformanceRings );
 
       // Calculate the maximum number of snapshots to be kept in memory
       //
@@ -1437,19 +1459,16 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         limitString = EnvUtil.getSystemProperty( Const.KETTLE_STEP_PERFORMANCE_SNAPSHOT_LIMIT );
       }
       stepPerformanceSnapshotSizeLimit = Const.toInt( limitString, 0 );
+      stepPerformanceSnapshotSamples = Const.toInt(
+        EnvUtil.getSystemProperty( Const.KETTLE_STEP_PERFORMANCE_SNAPSHOT_SAMPLES ), DEFAULT_STEP_PERFORMANCE_SAMPLES );
 
-      // Set a timer to collect the performance data from the running threads...
+      // Collect the performance data from the running steps on the sampler thread shared by all transformations...
       //
-      stepPerformanceSnapShotTimer = new Timer( "stepPerformanceSnapShot Timer: " + transMeta.getName() );
-      TimerTask timerTask = new TimerTask() {
-        @Override
-        public void run() {
-          if ( !isFinished() ) {
-            addStepPerformanceSnapShot();
-          }
+      stepPerformanceSnapShotTimer = StepPerformanceSampler.schedule( () -> {
+        if ( !isFinished() ) {
+          addStepPerformanceSnapShot();
         }
-      };
-      stepPerformanceSnapShotTimer.schedule( timerTask, 100, transMeta.getStepPerformanceCapturingDelay() );
+      }, 100, transMeta.getStepPerformanceCapturingDelay() );
     }
 
     // Now start a thread to monitor the running transformation...
@@ -1482,7 +1501,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
         // one...
         //
         if ( transMeta.isCapturingStepPerformanceSnapShots() && stepPerformanceSnapShotTimer != null ) {
-          stepPerformanceSnapShotTimer.cancel();
+          stepPerformanceSnapShotTimer.cancel( false );
         }
 
         transMeta.disposeEmbeddedMetastoreProvider();
@@ -1528,11 +1547,21 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
         // Now start all the threads...
         //
+        boolean workerPool = isUsingStepWorkerPool();
+        boolean virtualThreads = !workerPool && isUsingVirtualThreads();
         for ( int i = 0; i < steps.size(); i++ ) {
           final StepMetaDataCombi combi = steps.get( i );
-          RunThread runThread = new RunThread( combi );
-          Thread thread = new Thread( runThread );
-          thread.setName( getName() + " - " + combi.stepname );
+          Thread thread = null;
+          if ( !workerPool ) {
+            RunThread runThread = new RunThread( combi );
+            String threadName = getName() + " - " + combi.stepname;
+            if ( virtualThreads ) {
+              thread = VirtualThreadUtil.newVirtualThread( threadName, runThread );
+            } else {
+              thread = new Thread( runThread );
+              thread.setName( threadName );
+            }
+          }
           ExtensionPointHandler.callExtensionPoint( log, KettleExtensionPoint.StepBeforeStart.id, combi );
           // Call an extension point at the end of the step
           //
@@ -1549,7 +1578,12 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
 
           } );
 
-          thread.start();
+          if ( thread != null ) {
+            thread.start();
+          }
+        }
+        if ( workerPool ) {
+          StepWorkerPool.getInstance().execute( this, steps );
         }
         break;
 
@@ -1686,45 +1720,32 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    */
   protected void addStepPerformanceSnapShot() {
 
-    if ( stepPerformanceSnapShots == null ) {
+    Map<String, StepPerformanceRing> rings = stepPerformanceRings;
+    if ( rings == null ) {
       return; // Race condition somewhere?
     }
 
-    boolean pausedAndNotEmpty = isPaused() && !stepPerformanceSnapShots.isEmpty();
-    boolean stoppedAndNotEmpty = isStopped() && !stepPerformanceSnapShots.isEmpty();
+    boolean pausedAndNotEmpty = isPaused() && !rings.isEmpty();
+    boolean stoppedAndNotEmpty = isStopped() && !rings.isEmpty();
 
     if ( transMeta.isCapturingStepPerformanceSnapShots() && !pausedAndNotEmpty && !stoppedAndNotEmpty ) {
       // get the statistics from the steps and keep them...
       //
       int seqNr = stepPerformanceSnapshotSeqNr.incrementAndGet();
+      long time = System.currentTimeMillis();
+
+      // Without a limit the whole run is kept, merging snapshots as the run gets longer
+      //
+      boolean downsampling = stepPerformanceSnapshotSizeLimit <= 0;
+      int capacity = downsampling ? stepPerformanceSnapshotSamples : stepPerformanceSnapshotSizeLimit;
       for ( int i = 0; i < steps.size(); i++ ) {
         StepMeta stepMeta = steps.get( i ).stepMeta;
         StepInterface step = steps.get( i ).step;
 
-        StepPerformanceSnapShot snapShot =
-          new StepPerformanceSnapShot( seqNr, getBatchId(), new Date(), getName(), stepMeta.getName(), step.getCopy(),
-            step.getLinesRead(), step.getLinesWritten(), step.getLinesInput(), step.getLinesOutput(), step
-            .getLinesUpdated(), step.getLinesRejected(), step.getErrors() );
-
-        synchronized ( stepPerformanceSnapShots ) {
-          List<StepPerformanceSnapShot> snapShotList = stepPerformanceSnapShots.get( step.toString() );
-          StepPerformanceSnapShot previous;
-          if ( snapShotList == null ) {
-            snapShotList = new ArrayList<>();
-            stepPerformanceSnapShots.put( step.toString(), snapShotList );
-            previous = null;
-          } else {
-            previous = snapShotList.get( snapShotList.size() - 1 ); // the last one...
-          }
-          // Make the difference...
-          //
-          snapShot.diff( previous, step.rowsetInputSize(), step.rowsetOutputSize() );
-          snapShotList.add( snapShot );
-
-          if ( stepPerformanceSnapshotSizeLimit > 0 && snapShotList.size() > stepPerformanceSnapshotSizeLimit ) {
-            snapShotList.remove( 0 );
-          }
-        }
+        StepPerformanceRing ring = rings.computeIfAbsent( step.toString(),
+          key -> new StepPerformanceRing( getName(), stepMeta.getName(), step.getCopy(), capacity, downsampling ) );
+        ring.add( seqNr, getBatchId(), time, step.getCounters(), step.rowsetInputSize(), step.rowsetOutputSize(),
+          step.getCpuTime() );
       }
 
       lastStepPerformanceSnapshotSeqNrAdded = stepPerformanceSnapshotSeqNr.get();
@@ -2748,6 +2769,35 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
     db.disconnect();
   }
 
+  /**
+   * Checks whether the steps run on the shared {@link StepWorkerPool}, see {@link Const#KETTLE_STEP_WORKER_POOL}.
+   *
+   * @return true if the steps should run on the shared worker pool instead of on their own threads
+   */
+  protected boolean isUsingStepWorkerPool() {
+    Boolean workerPool = ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_STEP_WORKER_POOL ) );
+    return workerPool != null && workerPool;
+  }
+
+  /**
+   * Checks whether the step threads are virtual threads, see {@link Const#KETTLE_STEP_VIRTUAL_THREADS}. Waiting for
+   * rows then only parks the virtual thread, which makes it possible to run a lot more steps and transformations at
+   * the same time.
+   *
+   * @return true if the steps should run on virtual threads and this JVM supports them
+   */
+  protected boolean isUsingVirtualThreads() {
+    Boolean virtualThreads = ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_STEP_VIRTUAL_THREADS ) );
+    if ( virtualThreads == null || !virtualThreads ) {
+      return false;
+    }
+    if ( !VirtualThreadUtil.isSupported() ) {
+      log.logBasic( BaseMessages.getString( PKG, "Trans.Log.VirtualThreadsNotSupported" ) );
+      return false;
+    }
+    return true;
+  }
+
   /**
    * Gets the result of the transformation. The Result object contains such measures as the number of errors, number of
    * lines read/written/input/output/updated/rejected, etc.
@@ -2896,7 +2946,7 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
    * @throws KettleException if any errors occur during logging
    */
   private int writeStepPerformanceLogRecords( int startSequenceNr, LogStatus status ) throws KettleException {
-    int lastSeqNr = 0;
+    int lastSeqNr = lastStepPerformanceSnapshotSeqNrAdded;
     Database ldb = null;
     PerformanceLogTable performanceLogTable = transMeta.getPerformanceLogTable();
 
@@ -2916,24 +2966,27 @@ public class Trans implements VariableSpace, NamedParams, HasLogChannelInterface
       RowMetaInterface rowMeta = performanceLogTable.getLogRecord( LogStatus.START, null, null ).getRowMeta();
       ldb.prepareInsert( rowMeta, performanceLogTable.getActualSchemaName(), performanceLogTable.getActualTableName() );
 
-      synchronized ( stepPerformanceSnapShots ) {
-        Iterator<List<StepPerformanceSnapShot>> iterator = stepPerformanceSnapShots.values().iterator();
-        while ( iterator.hasNext() ) {
-          List<StepPerformanceSnapShot> snapshots = iterator.next();
-          synchronized ( snapshots ) {
-            Iterator<StepPerformanceSnapShot> snapshotsIterator = snapshots.iterator();
-            while ( snapshotsIterator.hasNext() ) {
-              StepPerformanceSnapShot snapshot = snapshotsIterator.next();
-              if ( snapshot.getSeqNr() >= startSequenceNr && snapshot
-                .getSeqNr() <= lastStepPerformanceSnapshotSeqNrAdded ) {
-
-                RowMetaAndData row = performanceLogTable.getLogRecord( LogStatus.START, snapshot, null );
-
-                ldb.setValuesInsert( row.getRowMeta(), row.getData() );
-                ldb.insertRow( true );
-              }
-              lastSeqNr = snapshot.getSeqNr();
-            }
+      // The snapshots are calculated from the step performance rings. A ring hands them over and keeps the samples
+      // that are added from now on apart from the ones that are written, under one lock.
+      //
+      List<List<StepPerformanceSnapShot>> snapshotLists;
+      if ( stepPerformanceRings != null ) {
+        snapshotLists = new ArrayList<>();
+        for ( StepPerformanceRing ring : stepPerformanceRings.values() ) {
+          snapshotLists.add( ring.takeSnapShotsUpTo( lastSeqNr ) );
+        }
+      } else {
+        snapshotLists = new ArrayList<>( stepPerformanceSnapShots.values() );
+      }
+
+      for ( List<StepPerformanceSnapShot> snapshots : snapshotLists ) {
+        for ( StepPerformanceSnapShot snapshot : snapshots ) {
+          if ( snapshot.getSeqNr() >= startSequenceNr && snapshot.getSeqNr() <= lastSeqNr ) {
+
+            RowMetaAndData row = performanceLogTable.getLogRecord( LogStatus.START, snapshot, null );
+
+            ldb.setValuesInsert( row.getRowMeta(), row.getData() );
+            ldb.insertRow( true );
           }
         }
       }
@@ -23,6 +23,7 @@
 package org.pentaho.di.trans;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import org.pentaho.di.base.BaseHopMeta;
@@ -96,6 +97,23 @@ public class TransHopMeta extends BaseHopMeta<StepMeta> implements Comparable<Tr
     return this.to;
   }
 
+  /**
+   * Loads a hop while the transformation is loaded: the steps are looked up in a map by their (case insensitive) name.
+   */
+  TransHopMeta( Node hopnode, Map<String, StepMeta> stepsByName ) throws KettleXMLException {
+    try {
+      String fromName = XMLHandler.getTagValue( hopnode, TransHopMeta.XML_FROM_TAG );
+      String toName = XMLHandler.getTagValue( hopnode, TransHopMeta.XML_TO_TAG );
+      this.from = fromName == null ? null : stepsByName.get( fromName );
+      this.to = toName == null ? null : stepsByName.get( toName );
+      String en = XMLHandler.getTagValue( hopnode, "enabled" );
+
+      enabled = en == null || en.equalsIgnoreCase( "Y" );
+    } catch ( Exception e ) {
+      throw new KettleXMLException( BaseMessages.getString( PKG, "TransHopMeta.Exception.UnableToLoadHopInfo" ), e );
+    }
+  }
+
   private StepMeta searchStep( List<StepMeta> steps, String name ) {
     for ( StepMeta stepMeta : steps ) {
       if ( stepMeta.getName().equalsIgnoreCase( name ) ) {
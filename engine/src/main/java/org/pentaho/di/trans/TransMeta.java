@@ -120,6 +120,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -128,6 +129,7 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -192,6 +194,9 @@ public class TransMeta extends AbstractMeta
   /** The size of the current rowset. */
   protected int sizeRowset;
 
+  /** Flag to indicate that hops between single step copies use lock-free row sets. */
+  protected boolean usingLockFreeRowSets;
+
   /** The meta-data for the database connection associated with "max date" auditing information. */
   protected DatabaseMeta maxDateConnection;
 
@@ -567,6 +572,11 @@ public class TransMeta extends AbstractMeta
 
     try {
       TransMeta transMeta = (TransMeta) super.clone();
+      // The caches belong to the original object, never share them with the clone
+      //
+      transMeta.stepsFieldsCache = new HashMap<>();
+      transMeta.loopCache = new HashMap<>();
+      transMeta.previousStepCache = new HashMap<>();
       if ( doClear ) {
         transMeta.clear();
       } else {
@@ -660,6 +670,7 @@ public class TransMeta extends AbstractMeta
     metricsLogTable = MetricsLogTable.getDefault( this, this );
 
     sizeRowset = Const.ROWS_IN_ROWSET;
+    usingLockFreeRowSets = false;
     sleepTimeEmpty = Const.TIMEOUT_GET_MILLIS;
     sleepTimeFull = Const.TIMEOUT_PUT_MILLIS;
 
@@ -2475,6 +2486,7 @@ public class TransMeta extends AbstractMeta
     retval.append( "    " ).append( XMLHandler.closeTag( "maxdate" ) ).append( Const.CR );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "size_rowset", sizeRowset ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "lock_free_rowsets", usingLockFreeRowSets ) );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "sleep_time_empty", sleepTimeEmpty ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "sleep_time_full", sleepTimeFull ) );
@@ -3065,13 +3077,21 @@ public class TransMeta extends AbstractMeta
         }
 
         // Handle Steps
-        int s = XMLHandler.countNodes( transnode, StepMeta.XML_TAG );
+        List<Node> stepnodes = XMLHandler.getNodes( transnode, StepMeta.XML_TAG );
 
         if ( log.isDebug() ) {
-          log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.ReadingSteps" ) + s + " steps..." );
+          log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.ReadingSteps" ) + stepnodes.size() + " steps..." );
+        }
+
+        // Look up the steps by name in a map while loading: with thousands of steps the linear searches of findStep()
+        // would dominate the loading time. Like findStep() the map returns the first step with a matching name.
+        //
+        Map<String, StepMeta> stepsByName = new TreeMap<>( String.CASE_INSENSITIVE_ORDER );
+        for ( StepMeta stepMeta : steps ) {
+          stepsByName.putIfAbsent( stepMeta.getName(), stepMeta );
         }
-        for ( int i = 0; i < s; i++ ) {
-          Node stepnode = XMLHandler.getSubNodeByNr( transnode, StepMeta.XML_TAG, i );
+        for ( int i = 0; i < stepnodes.size(); i++ ) {
+          Node stepnode = stepnodes.get( i );
 
           if ( log.isDebug() ) {
             log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.LookingAtStep" ) + i );
@@ -3087,7 +3107,7 @@ public class TransMeta extends AbstractMeta
           // If so, then we will keep the shared version, not this one.
           // The stored XML is only for backup purposes.
           //
-          StepMeta check = findStep( stepMeta.getName() );
+          StepMeta check = stepMeta.getName() == null ? null : stepsByName.get( stepMeta.getName() );
           if ( check != null ) {
             if ( !check.isShared() ) {
               // Don't overwrite shared objects
@@ -3099,6 +3119,9 @@ public class TransMeta extends AbstractMeta
             }
           } else {
             addStep( stepMeta ); // simply add it.
+            if ( stepMeta.getName() != null ) {
+              stepsByName.put( stepMeta.getName(), stepMeta );
+            }
           }
         }
 
@@ -3127,19 +3150,22 @@ public class TransMeta extends AbstractMeta
         // Handle Hops
         //
         Node ordernode = XMLHandler.getSubNode( transnode, XML_TAG_ORDER );
-        n = XMLHandler.countNodes( ordernode, TransHopMeta.XML_HOP_TAG );
+        List<Node> hopnodes = XMLHandler.getNodes( ordernode, TransHopMeta.XML_HOP_TAG );
 
         if ( log.isDebug() ) {
-          log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.WeHaveHops" ) + n + " hops..." );
+          log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.WeHaveHops" ) + hopnodes.size() + " hops..." );
         }
-        for ( int i = 0; i < n; i++ ) {
+        Set<List<String>> errorHops = getErrorHops( errorHandlingNode );
+        for ( int i = 0; i < hopnodes.size(); i++ ) {
           if ( log.isDebug() ) {
             log.logDebug( BaseMessages.getString( PKG, "TransMeta.Log.LookingAtHop" ) + i );
           }
-          Node hopnode = XMLHandler.getSubNodeByNr( ordernode, TransHopMeta.XML_HOP_TAG, i );
+          Node hopnode = hopnodes.get( i );
 
-          TransHopMeta hopinf = new TransHopMeta( hopnode, steps );
-          hopinf.setErrorHop( isErrorNode( errorHandlingNode, hopnode ) );
+          TransHopMeta hopinf = new TransHopMeta( hopnode, stepsByName );
+          hopinf.setErrorHop( errorHops.contains( getHopStepNames(
+            XMLHandler.getSubNode( hopnode, TransHopMeta.XML_FROM_TAG ),
+            XMLHandler.getSubNode( hopnode, TransHopMeta.XML_TO_TAG ) ) ) );
           addTransHop( hopinf );
         }
 
@@ -3388,6 +3414,7 @@ public class TransMeta extends AbstractMeta
 
         String srowset = XMLHandler.getTagValue( infonode, "size_rowset" );
         sizeRowset = Const.toInt( srowset, Const.ROWS_IN_ROWSET );
+        usingLockFreeRowSets = "Y".equalsIgnoreCase( XMLHandler.getTagValue( infonode, "lock_free_rowsets" ) );
         sleepTimeEmpty =
             Const.toInt( XMLHandler.getTagValue( infonode, "sleep_time_empty" ), Const.TIMEOUT_GET_MILLIS );
         sleepTimeFull = Const.toInt( XMLHandler.getTagValue( infonode, "sleep_time_full" ), Const.TIMEOUT_PUT_MILLIS );
@@ -3708,37 +3735,32 @@ public class TransMeta extends AbstractMeta
 
   }
 
-  private boolean isErrorNode( Node errorHandingNode, Node checkNode ) {
+  /**
+   * Collects the source and target step names of the error handling definitions so that the hops can be checked for
+   * being an error hop without scanning all the error handling nodes for every hop.
+   */
+  private Set<List<String>> getErrorHops( Node errorHandingNode ) {
+    Set<List<String>> errorHops = new HashSet<>();
     if ( errorHandingNode != null ) {
       NodeList errors = errorHandingNode.getChildNodes();
-
-      Node nodeHopFrom = XMLHandler.getSubNode( checkNode, TransHopMeta.XML_FROM_TAG );
-      Node nodeHopTo = XMLHandler.getSubNode( checkNode, TransHopMeta.XML_TO_TAG );
-
-      int i = 0;
-      while ( i < errors.getLength() ) {
-
+      for ( int i = 0; i < errors.getLength(); i++ ) {
         Node errorNode = errors.item( i );
-
-        if ( !StepErrorMeta.XML_ERROR_TAG.equals( errorNode.getNodeName() ) ) {
-          i++;
-          continue;
-        }
-
-        Node errorSourceNode = XMLHandler.getSubNode( errorNode, StepErrorMeta.XML_SOURCE_STEP_TAG );
-        Node errorTagetNode = XMLHandler.getSubNode( errorNode, StepErrorMeta.XML_TARGET_STEP_TAG );
-
-        String sourceContent = errorSourceNode.getTextContent().trim();
-        String tagetContent = errorTagetNode.getTextContent().trim();
-
-        if ( sourceContent.equals( nodeHopFrom.getTextContent().trim() )
-            && tagetContent.equals( nodeHopTo.getTextContent().trim() ) ) {
-          return true;
+        if ( StepErrorMeta.XML_ERROR_TAG.equals( errorNode.getNodeName() ) ) {
+          List<String> names = getHopStepNames(
+            XMLHandler.getSubNode( errorNode, StepErrorMeta.XML_SOURCE_STEP_TAG ),
+            XMLHandler.getSubNode( errorNode, StepErrorMeta.XML_TARGET_STEP_TAG ) );
+          if ( !names.contains( null ) ) {
+            errorHops.add( names );
+          }
         }
-        i++;
       }
     }
-    return false;
+    return errorHops;
+  }
+
+  private static List<String> getHopStepNames( Node fromNode, Node toNode ) {
+    return Arrays.asList( fromNode == null ? null : fromNode.getTextContent().trim(),
+      toNode == null ? null : toNode.getTextContent().trim() );
   }
 
   /**
@@ -4996,6 +5018,25 @@ public class TransMeta extends AbstractMeta
     this.sizeRowset = sizeRowset;
   }
 
+  /**
+   * Checks whether hops between single step copies use lock-free (single producer, single consumer) row sets.
+   *
+   * @return true if lock-free row sets are used for 1:1 hops, false otherwise
+   */
+  public boolean isUsingLockFreeRowSets() {
+    return usingLockFreeRowSets;
+  }
+
+  /**
+   * Sets whether hops between single step copies use lock-free (single producer, single consumer) row sets.
+   *
+   * @param usingLockFreeRowSets
+   *          true to use lock-free row sets for 1:1 hops, false to use blocking row sets everywhere
+   */
+  public void setUsingLockFreeRowSets( boolean usingLockFreeRowSets ) {
+    this.usingLockFreeRowSets = usingLockFreeRowSets;
+  }
+
   /**
    * Gets the database cache object.
    *
@@ -6382,6 +6423,7 @@ public class TransMeta extends AbstractMeta
         .append( this.getName() )
         .append( this.getTransformationType() )
         .append( this.getSizeRowset() )
+        .append( this.isUsingLockFreeRowSets() )
         .append( this.getSleepTimeEmpty() )
         .append( this.getSleepTimeFull() )
         .append( this.isUsingUniqueConnections() )
@@ -89,6 +89,7 @@ public class TransSplitter {
     new SlaveStepCopyPartitionDistribution();
   private int socketsBufferSize;
   private boolean compressingSocketStreams;
+  private String socketsBlockCompression;
 
   private Map<String, Integer> portCache;
 
@@ -195,6 +196,8 @@ public class TransSplitter {
           Const.toInt(
             originalTransformation.environmentSubstitute( clusterSchema.getSocketsBufferSize() ), 50000 );
         compressingSocketStreams = clusterSchema.isSocketsCompressed();
+        socketsBlockCompression =
+          originalTransformation.environmentSubstitute( clusterSchema.getSocketsBlockCompression() );
 
         // Validate the number of slaves. We need at least one to have a valid cluster
         //
@@ -358,6 +361,7 @@ public class TransSplitter {
 
     // Rowset size
     transMeta.setSizeRowset( originalTransformation.getSizeRowset() );
+    transMeta.setUsingLockFreeRowSets( originalTransformation.isUsingLockFreeRowSets() );
 
     return transMeta;
   }
@@ -604,6 +608,7 @@ public class TransSplitter {
                         socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
+                    remoteMasterStep.setRowBlockCompression( socketsBlockCompression );
                     remoteMasterStep.setKey( transformationKey );
                     masterStep.getRemoteInputSteps().add( remoteMasterStep );
 
@@ -615,6 +620,7 @@ public class TransSplitter {
                         socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
+                    remoteSlaveStep.setRowBlockCompression( socketsBlockCompression );
                     remoteSlaveStep.setKey( transformationKey );
                     slaveStep.getRemoteOutputSteps().add( remoteSlaveStep );
 
@@ -750,6 +756,7 @@ public class TransSplitter {
                           .getName(), socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteMasterStep.setEncryptingStreams( encrypt );
+                    remoteMasterStep.setRowBlockCompression( socketsBlockCompression );
                     remoteMasterStep.setKey( transformationKey );
                     sourceStep.getRemoteOutputSteps().add( remoteMasterStep );
 
@@ -761,6 +768,7 @@ public class TransSplitter {
                           .getName(), socketsBufferSize, compressingSocketStreams, originalTransformation
                           .getStepFields( previousStep ) );
                     remoteSlaveStep.setEncryptingStreams( encrypt );
+                    remoteSlaveStep.setRowBlockCompression( socketsBlockCompression );
                     remoteSlaveStep.setKey( transformationKey );
                     targetStep.getRemoteInputSteps().add( remoteSlaveStep );
 
@@ -964,6 +972,7 @@ public class TransSplitter {
                                     .getName(), socketsBufferSize, compressingSocketStreams,
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteOutputStep.setEncryptingStreams( encrypt );
+                              remoteOutputStep.setRowBlockCompression( socketsBlockCompression );
                               remoteOutputStep.setKey( transformationKey );
                               sourceStep.getRemoteOutputSteps().add( remoteOutputStep );
 
@@ -982,6 +991,7 @@ public class TransSplitter {
                                     .getName(), socketsBufferSize, compressingSocketStreams,
                                   originalTransformation.getStepFields( previousStep ) );
                               remoteInputStep.setEncryptingStreams( encrypt );
+                              remoteInputStep.setRowBlockCompression( socketsBlockCompression );
                               remoteInputStep.setKey( transformationKey );
                               targetStep.getRemoteInputSteps().add( remoteInputStep );
                             }
@@ -0,0 +1,302 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.performance;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.pentaho.di.trans.step.StepCounters;
+
+/**
+ * Keeps the performance samples of a step copy in a fixed number of slots of primitive values. The samples hold the
+ * running totals of the step counters, so a sample can be left out without losing any rows: the difference with the
+ * previous sample that is kept simply covers a longer period.<br>
+ * <br>
+ * When all the slots are taken, either the oldest sample is dropped or, when downsampling, pairs of samples are merged
+ * and from then on every slot takes twice as many samples. Downsampling keeps the whole run in the ring, at a
+ * resolution that goes down as the run gets longer.
+ *
+ * @since 9.6
+ */
+public class StepPerformanceRing {
+
+  private static final int SEQ_NR = 0;
+  private static final int TIME = 1;
+  private static final int LINES_READ = 2;
+  private static final int LINES_WRITTEN = 3;
+  private static final int LINES_INPUT = 4;
+  private static final int LINES_OUTPUT = 5;
+  private static final int LINES_UPDATED = 6;
+  private static final int LINES_REJECTED = 7;
+  private static final int ERRORS = 8;
+  private static final int INPUT_BUFFER_SIZE = 9;
+  private static final int OUTPUT_BUFFER_SIZE = 10;
+  private static final int CPU_TIME = 11;
+  private static final int FIELDS = 12;
+
+  private final String transName;
+  private final String stepName;
+  private final int stepCopy;
+  private final int capacity;
+  private final boolean downsampling;
+
+  private long[] samples;
+  private int slots;
+  private int head;
+  private int size;
+
+  /** The last sample that was dropped, the first sample that is kept is compared to it. */
+  private final long[] baseline = new long[FIELDS];
+  private boolean hasBaseline;
+
+  /** The number of samples merged into a slot when downsampling. */
+  private int stride = 1;
+  /** The number of samples merged into the newest slot. */
+  private int newestSlotSamples;
+
+  private long batchId;
+  private int seqNrBoundary;
+
+  /**
+   * @param transName    the name of the transformation
+   * @param stepName     the name of the step
+   * @param stepCopy     the step copy number
+   * @param capacity     the number of samples to keep
+   * @param downsampling true to merge older samples when the ring is full, false to drop the oldest sample
+   */
+  public StepPerformanceRing( String transName, String stepName, int stepCopy, int capacity, boolean downsampling ) {
+    this.transName = transName;
+    this.stepName = stepName;
+    this.stepCopy = stepCopy;
+    this.capacity = Math.max( downsampling ? 4 : 1, capacity );
+    this.downsampling = downsampling;
+    this.slots = Math.min( this.capacity, 16 );
+    this.samples = new long[slots * FIELDS];
+  }
+
+  /**
+   * Add a sample with the running totals of the step copy.
+   *
+   * @param cpuTime the CPU time used by the step copy so far in nanoseconds, -1 if unknown
+   */
+  public synchronized void add( int seqNr, long batchId, long time, StepCounters counters,
+    long inputBufferSize, long outputBufferSize, long cpuTime ) {
+    if ( cpuTime < 0 && size > 0 ) {
+      // The thread of the step has ended, keep the last known value
+      //
+      cpuTime = samples[slot( size - 1 ) + CPU_TIME];
+    }
+    this.batchId = batchId;
+
+    int offset;
+    if ( size > 0 && newestSlotSamples < stride && sameSide( samples[slot( size - 1 ) + SEQ_NR], seqNr ) ) {
+      // Merge the sample into the newest slot
+      //
+      offset = slot( size - 1 );
+      inputBufferSize = Math.max( inputBufferSize, samples[offset + INPUT_BUFFER_SIZE] );
+      outputBufferSize = Math.max( outputBufferSize, samples[offset + OUTPUT_BUFFER_SIZE] );
+      newestSlotSamples++;
+    } else {
+      if ( size == slots && slots < capacity ) {
+        grow();
+      }
+      if ( size == capacity && ( !downsampling || !downsample() ) ) {
+        System.arraycopy( samples, slot( 0 ), baseline, 0, FIELDS );
+        hasBaseline = true;
+        head = ( head + 1 ) % slots;
+        size--;
+      }
+      offset = slot( size++ );
+      newestSlotSamples = 1;
+    }
+    samples[offset + SEQ_NR] = seqNr;
+    samples[offset + TIME] = time;
+    samples[offset + LINES_READ] = counters.getLinesRead();
+    samples[offset + LINES_WRITTEN] = counters.getLinesWritten();
+    samples[offset + LINES_INPUT] = counters.getLinesInput();
+    samples[offset + LINES_OUTPUT] = counters.getLinesOutput();
+    samples[offset + LINES_UPDATED] = counters.getLinesUpdated();
+    samples[offset + LINES_REJECTED] = counters.getLinesRejected();
+    samples[offset + ERRORS] = counters.getErrors();
+    samples[offset + INPUT_BUFFER_SIZE] = inputBufferSize;
+    samples[offset + OUTPUT_BUFFER_SIZE] = outputBufferSize;
+    samples[offset + CPU_TIME] = cpuTime;
+  }
+
+  /**
+   * Get the snapshots to write to the performance log table. From then on the samples up to the given sequence number
+   * are never merged with later samples, so a snapshot that was written doesn't change and isn't written again. Both
+   * happen under the lock of the ring, no sample can be added in between.
+   *
+   * @param lastSeqNr the sequence number of the last sample to write
+   * @return the snapshots with a sequence number up to the given one
+   */
+  public synchronized List<StepPerformanceSnapShot> takeSnapShotsUpTo( int lastSeqNr ) {
+    seqNrBoundary = lastSeqNr + 1;
+    List<StepPerformanceSnapShot> snapShots = getSnapShots();
+    snapShots.removeIf( snapShot -> snapShot.getSeqNr() > lastSeqNr );
+    return snapShots;
+  }
+
+  /**
+   * Merge pairs of samples: the later sample of a pair is kept, with the largest buffer sizes of the two.
+   *
+   * @return true if at least one slot was freed
+   */
+  private boolean downsample() {
+    int read = 0;
+    int write = 0;
+    while ( read < size ) {
+      int from = slot( read );
+      if ( read + 1 < size && sameSide( samples[from + SEQ_NR], samples[slot( read + 1 ) + SEQ_NR] ) ) {
+        int next = slot( read + 1 );
+        samples[next + INPUT_BUFFER_SIZE] =
+          Math.max( samples[from + INPUT_BUFFER_SIZE], samples[next + INPUT_BUFFER_SIZE] );
+        samples[next + OUTPUT_BUFFER_SIZE] =
+          Math.max( samples[from + OUTPUT_BUFFER_SIZE], samples[next + OUTPUT_BUFFER_SIZE] );
+        from = next;
+        read += 2;
+      } else {
+        read++;
+      }
+      int to = slot( write++ );
+      if ( to != from ) {
+        System.arraycopy( samples, from, samples, to, FIELDS );
+      }
+    }
+    if ( write == size ) {
+      return false;
+    }
+    size = write;
+    stride *= 2;
+    return true;
+  }
+
+  /**
+   * The slots are only allocated when they're needed, most transformations don't run long enough to fill the ring.
+   */
+  private void grow() {
+    int newSlots = (int) Math.min( capacity, slots * 2L );
+    long[] newSamples = new long[newSlots * FIELDS];
+    for ( int i = 0; i < size; i++ ) {
+      System.arraycopy( samples, slot( i ), newSamples, i * FIELDS, FIELDS );
+    }
+    samples = newSamples;
+    slots = newSlots;
+    head = 0;
+  }
+
+  private boolean sameSide( long seqNr1, long seqNr2 ) {
+    return ( seqNr1 < seqNrBoundary ) == ( seqNr2 < seqNrBoundary );
+  }
+
+  private int slot( int index ) {
+    return ( ( head + index ) % slots ) * FIELDS;
+  }
+
+  /**
+   * @return the number of samples kept
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  public synchronized boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the samples as snapshots, with the differences calculated against the previous sample
+   */
+  public synchronized List<StepPerformanceSnapShot> getSnapShots() {
+    List<StepPerformanceSnapShot> snapShots = new ArrayList<>( size );
+    StepPerformanceSnapShot previous = hasBaseline ? toSnapShot( baseline, 0 ) : null;
+    for ( int i = 0; i < size; i++ ) {
+      int offset = slot( i );
+      StepPerformanceSnapShot snapShot = toSnapShot( samples, offset );
+      snapShot.diff( previous, samples[offset + INPUT_BUFFER_SIZE], samples[offset + OUTPUT_BUFFER_SIZE] );
+      snapShots.add( snapShot );
+      previous = snapShot;
+    }
+    return snapShots;
+  }
+
+  private StepPerformanceSnapShot toSnapShot( long[] values, int offset ) {
+    StepPerformanceSnapShot snapShot = new StepPerformanceSnapShot( (int) values[offset + SEQ_NR], batchId,
+      new Date( values[offset + TIME] ), transName, stepName, stepCopy, values[offset + LINES_READ],
+      values[offset + LINES_WRITTEN], values[offset + LINES_INPUT], values[offset + LINES_OUTPUT],
+      values[offset + LINES_UPDATED], values[offset + LINES_REJECTED], values[offset + ERRORS] );
+    snapShot.setTotalCpuTime( values[offset + CPU_TIME] );
+    return snapShot;
+  }
+
+  /**
+   * A read-only view on the snapshots of a number of rings. The snapshots are calculated from the rings each time a
+   * list is retrieved, so the view always shows the latest samples.
+   *
+   * @param rings the rings by step copy
+   * @return the snapshots by step copy
+   */
+  public static Map<String, List<StepPerformanceSnapShot>> asSnapShotMap( Map<String, StepPerformanceRing> rings ) {
+    return new AbstractMap<String, List<StepPerformanceSnapShot>>() {
+      @Override
+      public List<StepPerformanceSnapShot> get( Object key ) {
+        StepPerformanceRing ring = rings.get( key );
+        return ring == null ? null : ring.getSnapShots();
+      }
+
+      @Override
+      public boolean containsKey( Object key ) {
+        return rings.containsKey( key );
+      }
+
+      @Override
+      public int size() {
+        return rings.size();
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return rings.isEmpty();
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return Collections.unmodifiableSet( rings.keySet() );
+      }
+
+      @Override
+      public Set<Entry<String, List<StepPerformanceSnapShot>>> entrySet() {
+        Map<String, List<StepPerformanceSnapShot>> snapShots = new LinkedHashMap<>();
+        rings.forEach( ( key, ring ) -> snapShots.put( key, ring.getSnapShots() ) );
+        return Collections.unmodifiableMap( snapShots ).entrySet();
+      }
+    };
+  }
+}
@@ -0,0 +1,61 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.performance;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single scheduler thread for the whole JVM that takes the step performance snapshots of all the running
+ * transformations, instead of a timer thread per transformation.
+ *
+ * @since 9.6
+ */
+public final class StepPerformanceSampler {
+
+  private static ScheduledThreadPoolExecutor executor;
+
+  private StepPerformanceSampler() {
+  }
+
+  /**
+   * Run a sampling task at a fixed delay until it's cancelled. The task runs on a shared thread, so it should be short.
+   *
+   * @param task                the task taking the snapshots
+   * @param initialDelayMillis  the delay before the first run
+   * @param delayMillis         the delay between the end of a run and the start of the next one
+   * @return the future to cancel the task with
+   */
+  public static synchronized ScheduledFuture<?> schedule( Runnable task, long initialDelayMillis, long delayMillis ) {
+    if ( executor == null ) {
+      executor = new ScheduledThreadPoolExecutor( 1, runnable -> {
+        Thread thread = new Thread( runnable, "Step performance sampler" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+      executor.setRemoveOnCancelPolicy( true );
+    }
+    return executor.scheduleWithFixedDelay( task, initialDelayMillis, delayMillis, TimeUnit.MILLISECONDS );
+  }
+}
@@ -52,6 +52,9 @@ public class StepPerformanceSnapShot {
   private long inputBufferSize;
   private long outputBufferSize;
 
+  private long totalCpuTime = -1L;
+  private long cpuTime = -1L;
+
   /**
    * @param date
    * @param stepName
@@ -95,6 +98,7 @@ public class StepPerformanceSnapShot {
       linesUpdated = totalLinesUpdated;
       linesRejected = totalLinesRejected;
       errors = totalErrors;
+      cpuTime = totalCpuTime;
     } else {
       timeDifference = date.getTime() - previous.date.getTime();
       linesRead = totalLinesRead - previous.totalLinesRead;
@@ -104,6 +108,7 @@ public class StepPerformanceSnapShot {
       linesUpdated = totalLinesUpdated - previous.totalLinesUpdated;
       linesRejected = totalLinesRejected - previous.totalLinesRejected;
       errors = totalErrors - previous.totalErrors;
+      cpuTime = totalCpuTime < 0 || previous.totalCpuTime < 0 ? -1L : totalCpuTime - previous.totalCpuTime;
     }
   }
 
@@ -407,6 +412,36 @@ public class StepPerformanceSnapShot {
     this.outputBufferSize = outputBufferSize;
   }
 
+  /**
+   * @return the CPU time in nanoseconds used by the step copy so far, -1 if unknown
+   */
+  public long getTotalCpuTime() {
+    return totalCpuTime;
+  }
+
+  /**
+   * @param totalCpuTime
+   *          the CPU time in nanoseconds used by the step copy so far, -1 if unknown
+   */
+  public void setTotalCpuTime( long totalCpuTime ) {
+    this.totalCpuTime = totalCpuTime;
+  }
+
+  /**
+   * @return the CPU time in nanoseconds used by the step copy since the previous snapshot, -1 if unknown
+   */
+  public long getCpuTime() {
+    return cpuTime;
+  }
+
+  /**
+   * @param cpuTime
+   *          the CPU time in nanoseconds used by the step copy since the previous snapshot, -1 if unknown
+   */
+  public void setCpuTime( long cpuTime ) {
+    this.cpuTime = cpuTime;
+  }
+
   /**
    * @return the seqNr
    */
@@ -25,6 +25,8 @@ package org.pentaho.di.trans.step;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.net.ServerSocket;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
@@ -39,6 +41,8 @@ import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -62,6 +66,8 @@ import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LogLevel;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
 import org.pentaho.di.core.logging.LoggingObjectType;
+import org.pentaho.di.core.row.FrozenRowMeta;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -79,6 +85,7 @@ import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectory;
 import org.pentaho.di.trans.BasePartitioner;
 import org.pentaho.di.trans.SlaveStepCopyPartitionDistribution;
+import org.pentaho.di.trans.StepWorkerPool;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.cluster.TransSplitter;
@@ -167,7 +174,27 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private Trans trans;
 
-  private final Object statusCountersLock = new Object();
+  /*
+   * The row counters are updated for every row by the step thread and read by the monitoring threads. They are guarded
+   * by a sequence lock: an update makes the version odd, changes the counter and makes the version even again. A
+   * reader copies the counters and retries when the version was odd or changed in the meantime, so getCounters()
+   * returns a consistent snapshot without ever making the step thread wait for a reader. The deprecated public fields
+   * below are still added to the totals for steps that update them directly, they are not part of the snapshot.
+   */
+  private static final int LINES_READ = 0;
+  private static final int LINES_WRITTEN = 1;
+  private static final int LINES_INPUT = 2;
+  private static final int LINES_OUTPUT = 3;
+  private static final int LINES_UPDATED = 4;
+  private static final int LINES_SKIPPED = 5;
+  private static final int LINES_REJECTED = 6;
+  private static final int ERRORS = 7;
+
+  private final AtomicLong countersVersion = new AtomicLong();
+  private final AtomicLongArray counters = new AtomicLongArray( ERRORS + 1 );
+
+  /** The ID of the thread that runs this step copy on its own, -1 when it doesn't have a thread of its own. */
+  private volatile long processingThreadId = -1L;
 
   /**
    * nr of lines read from previous step(s)
@@ -175,7 +202,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesRead()}, {@link #incrementLinesRead()}, or {@link #decrementLinesRead()}
    */
   @Deprecated
-  public long linesRead;
+  public volatile long linesRead;
 
   /**
    * nr of lines written to next step(s)
@@ -183,7 +210,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesWritten()}, {@link #incrementLinesWritten()}, or {@link #decrementLinesWritten()}
    */
   @Deprecated
-  public long linesWritten;
+  public volatile long linesWritten;
 
   /**
    * nr of lines read from file or database
@@ -191,7 +218,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesInput()} or {@link #incrementLinesInput()}
    */
   @Deprecated
-  public long linesInput;
+  public volatile long linesInput;
 
   /**
    * nr of lines written to file or database
@@ -199,7 +226,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesOutput()} or {@link #incrementLinesOutput()}
    */
   @Deprecated
-  public long linesOutput;
+  public volatile long linesOutput;
 
   /**
    * nr of updates in a database table or file
@@ -207,7 +234,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesUpdated()} or {@link #incrementLinesUpdated()}
    */
   @Deprecated
-  public long linesUpdated;
+  public volatile long linesUpdated;
 
   /**
    * nr of lines skipped
@@ -215,7 +242,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesSkipped()} or {@link #incrementLinesSkipped()}
    */
   @Deprecated
-  public long linesSkipped;
+  public volatile long linesSkipped;
 
   /**
    * total sleep time in ns caused by an empty input buffer (previous step is slow)
@@ -223,7 +250,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @deprecated use {@link #getLinesRejected()} or {@link #incrementLinesRejected()}
    */
   @Deprecated
-  public long linesRejected;
+  public volatile long linesRejected;
 
   private boolean distributed;
 
@@ -231,8 +258,6 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
   private RowDistributionInterface rowDistribution;
 
-  private long errors;
-
   private StepMeta[] nextSteps;
 
   private StepMeta[] prevSteps;
@@ -426,6 +451,12 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   private boolean allowEmptyFieldNamesAndTypes = false;
 
+  /**
+   * set this flag to true to send a frozen copy of the row metadata to the output row sets, see
+   * {@link Const#KETTLE_FREEZE_ROW_META}
+   */
+  private boolean freezeOutputRowMeta = false;
+
   /**
    * Keeps track of the number of rows read for input deadlock verification.
    */
@@ -488,15 +519,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     init = false;
 
-    synchronized ( statusCountersLock ) {
-      linesRead = 0L; // new AtomicLong(0L); // Keep some statistics!
-      linesWritten = 0L; // new AtomicLong(0L);
-      linesUpdated = 0L; // new AtomicLong(0L);
-      linesSkipped = 0L; // new AtomicLong(0L);
-      linesRejected = 0L; // new AtomicLong(0L);
-      linesInput = 0L; // new AtomicLong(0L);
-      linesOutput = 0L; // new AtomicLong(0L);
-    }
+    linesRead = 0L; // Keep some statistics!
+    linesWritten = 0L;
+    linesUpdated = 0L;
+    linesSkipped = 0L;
+    linesRejected = 0L;
+    linesInput = 0L;
+    linesOutput = 0L;
 
     inputRowSets = null;
     outputRowSets = null;
@@ -682,6 +711,9 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     allowEmptyFieldNamesAndTypes = Boolean.parseBoolean( System.getProperties().getProperty(
       Const.KETTLE_ALLOW_EMPTY_FIELD_NAMES_AND_TYPES, "false" ) );
 
+    freezeOutputRowMeta =
+      Boolean.TRUE.equals( ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_FREEZE_ROW_META ) ) );
+
     // Now that these things have been done, we also need to start a number of server sockets.
     // One for each of the remote output steps that we're going to write to.
     //
@@ -899,7 +931,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getErrors() {
-    return errors;
+    return getCounter( ERRORS );
   }
 
   /*
@@ -909,7 +941,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void setErrors( long e ) {
-    errors = e;
+    setCounter( ERRORS, e );
   }
 
   /**
@@ -917,9 +949,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return linesRead;
-    }
+    return linesRead + getCounter( LINES_READ );
   }
 
   /**
@@ -928,9 +958,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRead;
-    }
+    return linesRead + addToCounter( LINES_READ, 1L );
+  }
+
+  /**
+   * Increments the number of lines read from previous steps by the size of a batch
+   *
+   * @param nrLines the number of lines read
+   * @return Returns the new value
+   */
+  private long addLinesRead( long nrLines ) {
+    return linesRead + addToCounter( LINES_READ, nrLines );
   }
 
   /**
@@ -939,18 +977,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesRead() {
-    synchronized ( statusCountersLock ) {
-      return --linesRead;
-    }
+    return linesRead + addToCounter( LINES_READ, -1L );
   }
 
   /**
    * @param newLinesReadValue the new number of lines read from previous steps
    */
   public void setLinesRead( long newLinesReadValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRead = newLinesReadValue;
-    }
+    setCounter( LINES_READ, newLinesReadValue );
+    linesRead = 0L;
   }
 
   /**
@@ -958,9 +993,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return linesInput;
-    }
+    return linesInput + getCounter( LINES_INPUT );
   }
 
   /**
@@ -969,18 +1002,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesInput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesInput;
-    }
+    return linesInput + addToCounter( LINES_INPUT, 1L );
   }
 
   /**
    * @param newLinesInputValue the new number of lines read from an input source: database, file, socket, etc.
    */
   public void setLinesInput( long newLinesInputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesInput = newLinesInputValue;
-    }
+    setCounter( LINES_INPUT, newLinesInputValue );
+    linesInput = 0L;
   }
 
   /**
@@ -988,9 +1018,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return linesOutput;
-    }
+    return linesOutput + getCounter( LINES_OUTPUT );
   }
 
   /**
@@ -999,18 +1027,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesOutput() {
-    synchronized ( statusCountersLock ) {
-      return ++linesOutput;
-    }
+    return linesOutput + addToCounter( LINES_OUTPUT, 1L );
   }
 
   /**
    * @param newLinesOutputValue the new number of lines written to an output target: database, file, socket, etc.
    */
   public void setLinesOutput( long newLinesOutputValue ) {
-    synchronized ( statusCountersLock ) {
-      linesOutput = newLinesOutputValue;
-    }
+    setCounter( LINES_OUTPUT, newLinesOutputValue );
+    linesOutput = 0L;
   }
 
   /**
@@ -1018,9 +1043,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return linesWritten;
-    }
+    return linesWritten + getCounter( LINES_WRITTEN );
   }
 
   /**
@@ -1029,9 +1052,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long incrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return ++linesWritten;
-    }
+    return linesWritten + addToCounter( LINES_WRITTEN, 1L );
+  }
+
+  /**
+   * Increments the number of lines written to next steps by the size of a batch
+   *
+   * @param nrLines the number of lines written
+   * @return Returns the new value
+   */
+  private long addLinesWritten( long nrLines ) {
+    return linesWritten + addToCounter( LINES_WRITTEN, nrLines );
   }
 
   /**
@@ -1040,18 +1071,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return Returns the new value
    */
   public long decrementLinesWritten() {
-    synchronized ( statusCountersLock ) {
-      return --linesWritten;
-    }
+    return linesWritten + addToCounter( LINES_WRITTEN, -1L );
   }
 
   /**
    * @param newLinesWrittenValue the new number of lines written to next steps
    */
   public void setLinesWritten( long newLinesWrittenValue ) {
-    synchronized ( statusCountersLock ) {
-      linesWritten = newLinesWrittenValue;
-    }
+    setCounter( LINES_WRITTEN, newLinesWrittenValue );
+    linesWritten = 0L;
   }
 
   /**
@@ -1059,9 +1087,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return linesUpdated;
-    }
+    return linesUpdated + getCounter( LINES_UPDATED );
   }
 
   /**
@@ -1070,18 +1096,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesUpdated() {
-    synchronized ( statusCountersLock ) {
-      return ++linesUpdated;
-    }
+    return linesUpdated + addToCounter( LINES_UPDATED, 1L );
   }
 
   /**
    * @param newLinesUpdatedValue the new number of lines updated in an output target: database, file, socket, etc.
    */
   public void setLinesUpdated( long newLinesUpdatedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesUpdated = newLinesUpdatedValue;
-    }
+    setCounter( LINES_UPDATED, newLinesUpdatedValue );
+    linesUpdated = 0L;
   }
 
   /**
@@ -1089,9 +1112,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public long getLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return linesRejected;
-    }
+    return linesRejected + getCounter( LINES_REJECTED );
   }
 
   /**
@@ -1100,9 +1121,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesRejected() {
-    synchronized ( statusCountersLock ) {
-      return ++linesRejected;
-    }
+    return linesRejected + addToCounter( LINES_REJECTED, 1L );
   }
 
   /**
@@ -1110,18 +1129,93 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void setLinesRejected( long newLinesRejectedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesRejected = newLinesRejectedValue;
+    setCounter( LINES_REJECTED, newLinesRejectedValue );
+    linesRejected = 0L;
+  }
+
+  /**
+   * @return a consistent snapshot of the row counters and the number of errors
+   */
+  @Override
+  public StepCounters getCounters() {
+    long[] values = new long[ERRORS + 1];
+    while ( true ) {
+      long version = countersVersion.get();
+      if ( ( version & 1L ) == 0L ) {
+        for ( int i = 0; i < values.length; i++ ) {
+          values[i] = counters.get( i );
+        }
+        if ( countersVersion.get() == version ) {
+          break;
+        }
+      }
+      Thread.yield();
     }
+    return new StepCounters( linesRead + values[LINES_READ], linesWritten + values[LINES_WRITTEN],
+      linesInput + values[LINES_INPUT], linesOutput + values[LINES_OUTPUT], linesUpdated + values[LINES_UPDATED],
+      linesSkipped + values[LINES_SKIPPED], linesRejected + values[LINES_REJECTED], values[ERRORS] );
+  }
+
+  private long getCounter( int counter ) {
+    return counters.get( counter );
+  }
+
+  private long addToCounter( int counter, long delta ) {
+    long version = lockCounters();
+    long value = counters.get( counter ) + delta;
+    counters.lazySet( counter, value );
+    countersVersion.lazySet( version + 2L );
+    return value;
+  }
+
+  private void setCounter( int counter, long value ) {
+    long version = lockCounters();
+    counters.lazySet( counter, value );
+    countersVersion.lazySet( version + 2L );
+  }
+
+  /**
+   * Makes the version of the counters odd. Only the step thread normally updates the counters, so this hardly ever
+   * has to wait for another update to finish.
+   *
+   * @return the even version before the update
+   */
+  private long lockCounters() {
+    long version = countersVersion.get();
+    while ( ( version & 1L ) != 0L || !countersVersion.compareAndSet( version, version + 1L ) ) {
+      Thread.yield();
+      version = countersVersion.get();
+    }
+    return version;
+  }
+
+  /**
+   * @param thread the thread that runs this step copy on its own
+   */
+  public void setProcessingThread( Thread thread ) {
+    processingThreadId = thread == null ? -1L : thread.getId();
+  }
+
+  /**
+   * @return the CPU time in nanoseconds used by the thread running this step copy, -1 if the step copy doesn't have a
+   * thread of its own, the thread has ended or the JVM doesn't measure thread CPU time
+   */
+  @Override
+  public long getCpuTime() {
+    long threadId = processingThreadId;
+    if ( threadId < 0 ) {
+      return -1L;
+    }
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    return threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()
+      ? threadMXBean.getThreadCpuTime( threadId ) : -1L;
   }
 
   /**
    * @return the number of lines skipped
    */
   public long getLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return linesSkipped;
-    }
+    return linesSkipped + getCounter( LINES_SKIPPED );
   }
 
   /**
@@ -1130,18 +1224,15 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * @return the new incremented value
    */
   public long incrementLinesSkipped() {
-    synchronized ( statusCountersLock ) {
-      return ++linesSkipped;
-    }
+    return linesSkipped + addToCounter( LINES_SKIPPED, 1L );
   }
 
   /**
    * @param newLinesSkippedValue lines number of lines skipped
    */
   public void setLinesSkipped( long newLinesSkippedValue ) {
-    synchronized ( statusCountersLock ) {
-      linesSkipped = newLinesSkippedValue;
-    }
+    setCounter( LINES_SKIPPED, newLinesSkippedValue );
+    linesSkipped = 0L;
   }
 
   /*
@@ -1257,6 +1348,11 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    */
   @Override
   public void putRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    verifyOutputRowMeta( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+  }
+
+  private void verifyOutputRowMeta( RowMetaInterface rowMeta ) throws KettleStepException {
     if ( rowMeta != null ) {
       if ( !allowEmptyFieldNamesAndTypes ) {
         // check row meta for empty field name (BACKLOG-18004)
@@ -1270,10 +1366,75 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         }
       }
     }
-    getRowHandler().putRow( rowMeta, row );
   }
 
-  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+  /**
+   * putRowBatch is used to send a batch of rows to the next steps. When there is at most one output row set, no
+   * partitioning, no row listeners and the default row handler, the rows are handed to the row set directly and the
+   * step status is updated once for the whole batch. In all other cases the rows go through putRow() one by one.
+   *
+   * @param batch The rows to put to the destination rowset(s).
+   * @throws KettleStepException
+   */
+  @Override
+  public void putRowBatch( RowBatch batch ) throws KettleStepException {
+    if ( batch.isEmpty() ) {
+      return;
+    }
+    RowMetaInterface rowMeta = batch.getRowMeta();
+    if ( !isBatchingOutputPossible() ) {
+      for ( int i = 0; i < batch.size(); i++ ) {
+        putRow( rowMeta, batch.getRow( i ) );
+      }
+      return;
+    }
+
+    verifyOutputRowMeta( rowMeta );
+
+    int nrWritten = 0;
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( outputRowSets.size() > 1 ) {
+        // Only a single target is handled in bulk
+        //
+        for ( int i = 0; i < batch.size(); i++ ) {
+          handlePutRow( rowMeta, batch.getRow( i ) );
+        }
+        return;
+      }
+
+      RowSet rowSet = outputRowSets.isEmpty() ? null : outputRowSets.get( 0 );
+      for ( int i = 0; i < batch.size(); i++ ) {
+        if ( !waitUntilRowsCanBePut() ) {
+          return;
+        }
+        if ( rowSet != null ) {
+          putRowToRowSet( rowSet, rowMeta, batch.getRow( i ) );
+        }
+        nrWritten++;
+      }
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+      if ( nrWritten > 0 ) {
+        addLinesWritten( nrWritten );
+      }
+    }
+  }
+
+  private boolean isBatchingOutputPossible() {
+    return getRowHandler() instanceof DefaultRowHandler
+      && rowListeners.isEmpty()
+      && !terminator
+      && repartitioning == StepPartitioningMeta.PARTITIONING_METHOD_NONE
+      && !( distributed && rowDistribution != null );
+  }
+
+  /**
+   * Waits while the step is paused and until the transformation is running.
+   *
+   * @return false if the step was stopped and no more rows should be put.
+   */
+  private boolean waitUntilRowsCanBePut() throws KettleStepException {
     // Are we pausing the step? If so, stall forever...
     //
     while ( paused.get() && !stopped.get() ) {
@@ -1292,7 +1453,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         logDebug( BaseMessages.getString( PKG, "BaseStep.Log.StopPuttingARow" ) );
       }
       stopAll();
-      return;
+      return false;
     }
 
     // Have all threads started?
@@ -1309,6 +1470,13 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       }
       this.checkTransRunning = true;
     }
+    return true;
+  }
+
+  private void handlePutRow( RowMetaInterface rowMeta, Object[] row ) throws KettleStepException {
+    if ( !waitUntilRowsCanBePut() ) {
+      return;
+    }
 
     // call all row listeners...
     //
@@ -1597,11 +1765,17 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     if ( metaFromRs == null ) {
       // RowSet is not initialised so far
       toBeSent = rowMeta.clone();
+      if ( freezeOutputRowMeta ) {
+        // The layout of the rows doesn't change anymore: let the next step read it without locking
+        //
+        toBeSent = new FrozenRowMeta( toBeSent );
+      }
     } else {
       // use the existing
       toBeSent = metaFromRs;
     }
 
+    StepWorkerPool.beforePutRow( rs );
     while ( !rs.putRow( toBeSent, row ) ) {
       if ( isStopped() && !safeStopped.get() ) {
         return;
@@ -1658,6 +1832,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Don't distribute or anything, only go to this rowset!
     //
+    StepWorkerPool.beforePutRow( rowSet );
     while ( !rowSet.putRow( rowMeta, row ) ) {
       if ( isStopped() ) {
         break;
@@ -1717,6 +1892,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     }
 
     if ( errorRowSet != null ) {
+      StepWorkerPool.beforePutRow( errorRowSet );
       while ( !errorRowSet.putRow( errorRowMeta, errorRowData ) ) {
         if ( isStopped() ) {
           break;
@@ -1830,6 +2006,58 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
     return getRowHandler().getRow();
   }
 
+  /**
+   * Get a batch of rows from the source step(s). The first row is read with {@link #getRow()}, so this waits for input
+   * in exactly the same way. When this step reads from a single row set with the default row handler and without row
+   * listeners, the rows that are already waiting in that row set are added to the batch as well, updating the step
+   * status only once.
+   *
+   * @param maxRows The maximum number of rows in the batch
+   * @return a batch of at least one row or null if there are no more rows.
+   */
+  @Override
+  public RowBatch getRowBatch( int maxRows ) throws KettleException {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    RowBatch batch = new RowBatch( getInputRowMeta(), maxRows );
+    batch.addRow( row );
+
+    if ( maxRows > 1 && isBatchingInputPossible() ) {
+      int nrRead = 0;
+      inputRowSetsLock.readLock().lock();
+      try {
+        if ( inputRowSets.size() == 1 ) {
+          RowSet rowSet = inputRowSets.get( 0 );
+          int available = Math.min( rowSet.size(), maxRows - 1 );
+          while ( nrRead < available && !stopped.get() ) {
+            row = rowSet.getRowImmediate();
+            if ( row == null ) {
+              break;
+            }
+            batch.addRow( row );
+            nrRead++;
+          }
+        }
+      } finally {
+        inputRowSetsLock.readLock().unlock();
+      }
+      if ( nrRead > 0 ) {
+        addLinesRead( nrRead );
+      }
+    }
+    return batch;
+  }
+
+  private boolean isBatchingInputPossible() {
+    return getRowHandler() instanceof DefaultRowHandler
+      && rowListeners.isEmpty()
+      && ( prevSteps == null || prevSteps.length <= 1 )
+      && !trans.isSafeModeEnabled()
+      && !paused.get();
+  }
+
 
   private Object[] handleGetRow() throws KettleException {
 
@@ -1921,6 +2149,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
         // Timeout immediately if nothing is there to read.
         // We will then switch to the next row set to read from...
         //
+        StepWorkerPool.beforeGetRow( inputRowSet );
         row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
         if ( row != null ) {
           incrementLinesRead();
@@ -2259,6 +2488,7 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
 
     // Grab a row... If nothing received after a timeout, try again.
     //
+    StepWorkerPool.beforeGetRow( rowSet );
     rowData = rowSet.getRow();
     while ( rowData == null && !rowSet.isDone() && !stopped.get() ) {
       rowData = rowSet.getRow();
@@ -3389,22 +3619,22 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
    * Log summary.
    */
   public void logSummary() {
-    synchronized ( statusCountersLock ) {
-      long li = getLinesInput();
-      long lo = getLinesOutput();
-      long lr = getLinesRead();
-      long lw = getLinesWritten();
-      long lu = getLinesUpdated();
-      long lj = getLinesRejected();
-      if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || errors > 0 ) {
-        logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      } else {
-        logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
-          .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
-          .valueOf( errors + lj ) ) );
-      }
+    StepCounters counters = getCounters();
+    long li = counters.getLinesInput();
+    long lo = counters.getLinesOutput();
+    long lr = counters.getLinesRead();
+    long lw = counters.getLinesWritten();
+    long lu = counters.getLinesUpdated();
+    long lj = counters.getLinesRejected();
+    long le = counters.getErrors();
+    if ( li > 0 || lo > 0 || lr > 0 || lw > 0 || lu > 0 || lj > 0 || le > 0 ) {
+      logBasic( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
+    } else {
+      logDetailed( BaseMessages.getString( PKG, "BaseStep.Log.SummaryInfo", String.valueOf( li ), String
+        .valueOf( lo ), String.valueOf( lr ), String.valueOf( lw ), String.valueOf( lw ), String
+        .valueOf( le + lj ) ) );
     }
   }
 
@@ -3739,6 +3969,23 @@ public class BaseStep implements VariableSpace, StepInterface, LoggingObjectInte
       && ( lines % getTransMeta().getFeedbackSize() ) == 0;
   }
 
+  /**
+   * Check feedback after processing a batch of rows.
+   *
+   * @param lines  the lines after the batch
+   * @param nrRows the number of rows in the batch
+   * @return true, if one of the lines in the batch reached the feedback size
+   */
+  protected boolean checkFeedback( long lines, int nrRows ) {
+    if ( nrRows <= 1 ) {
+      return checkFeedback( lines );
+    }
+    int feedbackSize = getTransMeta().getFeedbackSize();
+    return getTransMeta().isFeedbackShown()
+      && ( lines > 0 ) && ( feedbackSize > 0 )
+      && ( lines / feedbackSize ) != ( Math.max( 0, lines - nrRows ) / feedbackSize );
+  }
+
   /**
    * @return the rowMeta
    */
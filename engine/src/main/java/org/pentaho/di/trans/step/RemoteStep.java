@@ -105,6 +105,9 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
   private int bufferSize;
   private boolean compressingStreams;
 
+  /** The compression of the row block format, rows are sent one by one if this is not set. */
+  private String rowBlockCompression;
+
   private boolean encryptingStreams;
   private byte[] key;
   private CipherInputStream cipherInputStream;
@@ -180,6 +183,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     xml.append( XMLHandler.addTagValue( "port", port, false ) );
     xml.append( XMLHandler.addTagValue( "buffer_size", bufferSize, false ) );
     xml.append( XMLHandler.addTagValue( "compressed_streams", compressingStreams, false ) );
+    xml.append( XMLHandler.addTagValue( "row_block_compression", rowBlockCompression, false ) );
 
     xml.append( XMLHandler.addTagValue( "source_step_name", sourceStep, false ) );
     xml.append( XMLHandler.addTagValue( "source_step_copy", sourceStepCopyNr, false ) );
@@ -213,6 +217,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     port = XMLHandler.getTagValue( node, "port" );
     bufferSize = Integer.parseInt( XMLHandler.getTagValue( node, "buffer_size" ) );
     compressingStreams = "Y".equalsIgnoreCase( XMLHandler.getTagValue( node, "compressed_streams" ) );
+    rowBlockCompression = XMLHandler.getTagValue( node, "row_block_compression" );
 
     sourceStep = XMLHandler.getTagValue( node, "source_step_name" );
     sourceStepCopyNr = Integer.parseInt( XMLHandler.getTagValue( node, "source_step_copy" ) );
@@ -356,7 +361,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
           // Create the output stream...
           OutputStream socketOut = socket.getOutputStream();
 
-          if ( compressingStreams ) {
+          // The row block format compresses every block by itself
+          //
+          RowBlockWriter.Compression blockCompression =
+            RowBlockWriter.Compression.getCompression( rowBlockCompression );
+          boolean gzipStreams = compressingStreams && blockCompression == null;
+          if ( gzipStreams ) {
             gzipOutputStream = new GZIPOutputStream( socketOut, 50000 );
             bufferedOutputStream = new BufferedOutputStream( gzipOutputStream, bufferSize );
           } else {
@@ -393,8 +403,12 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
           // get a row of data...
           Object[] rowData = baseStep.getRowFrom( rowSet );
+          RowBlockWriter blockWriter = null;
           if ( rowData != null ) {
             rowSet.getRowMeta().writeMeta( outputStream );
+            if ( blockCompression != null ) {
+              blockWriter = new RowBlockWriter( outputStream, rowSet.getRowMeta(), blockCompression );
+            }
           }
 
           // Send that row to the remote step
@@ -406,7 +420,11 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
             // Write the row to the remote step via the output stream....
             //
-            rowSet.getRowMeta().writeData( outputStream, rowData );
+            if ( blockWriter != null ) {
+              blockWriter.putRow( rowData );
+            } else {
+              rowSet.getRowMeta().writeData( outputStream, rowData );
+            }
             baseStep.incrementLinesOutput();
 
             if ( baseStep.log.isDebug() ) {
@@ -415,7 +433,10 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             rowData = baseStep.getRowFrom( rowSet );
           }
 
-          if ( compressingStreams ) {
+          if ( blockWriter != null ) {
+            blockWriter.finish();
+          }
+          if ( gzipStreams ) {
             outputStream.flush();
             gzipOutputStream.finish();
           } else {
@@ -583,7 +604,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
         connected = true;
 
         InputStream socketStream = socket.getInputStream();
-        if ( compressingStreams ) {
+        if ( compressingStreams && RowBlockWriter.Compression.getCompression( rowBlockCompression ) == null ) {
           gzipInputStream = new GZIPInputStream( socketStream );
           bufferedInputStream = new BufferedInputStream( gzipInputStream, bufferSize );
         } else {
@@ -686,9 +707,14 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
             throw new KettleEOFException(); // leave now.
           }
 
+          RowBlockReader blockReader = null;
+          if ( RowBlockWriter.Compression.getCompression( rowBlockCompression ) != null ) {
+            blockReader = new RowBlockReader( inputStream, rowMeta );
+          }
+
           // And a first row of data...
           //
-          Object[] rowData = getRowOfData( rowMeta );
+          Object[] rowData = blockReader != null ? blockReader.getRow() : getRowOfData( rowMeta );
 
           // Now get the data itself, row by row...
           //
@@ -702,7 +728,7 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
 
             baseStep.putRowTo( rowMeta, rowData, rowSet );
             baseStep.decrementLinesWritten();
-            rowData = getRowOfData( rowMeta );
+            rowData = blockReader != null ? blockReader.getRow() : getRowOfData( rowMeta );
           }
         } catch ( KettleEOFException e ) {
           // Nothing, we're simply done reading...
@@ -891,6 +917,21 @@ public class RemoteStep implements Cloneable, XMLInterface, Comparable<RemoteSte
     this.compressingStreams = compressingStreams;
   }
 
+  /**
+   * @return the compression of the row block format or null if rows are sent one by one
+   */
+  public String getRowBlockCompression() {
+    return rowBlockCompression;
+  }
+
+  /**
+   * @param rowBlockCompression
+   *          the compression of the row block format (NONE, SNAPPY or DEFLATE), null to send rows one by one
+   */
+  public void setRowBlockCompression( String rowBlockCompression ) {
+    this.rowBlockCompression = rowBlockCompression;
+  }
+
   /**
    * @return the remoteHostname
    */
@@ -0,0 +1,268 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.trans.step.RowBlockWriter.Compression;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Reads the rows written by a {@link RowBlockWriter}, one frame at a time.
+ */
+public class RowBlockReader {
+
+  private final DataInputStream inputStream;
+  private final RowMetaInterface rowMeta;
+  private final int[] encodings;
+
+  private byte[] raw;
+  private byte[] stored;
+  private Inflater inflater;
+
+  private final FrameInput frame;
+  private final DataInputStream frameStream;
+  private final List<String> dictionary;
+  private int nrRowsLeft;
+  private boolean finished;
+
+  public RowBlockReader( DataInputStream inputStream, RowMetaInterface rowMeta ) {
+    this.inputStream = inputStream;
+    this.rowMeta = rowMeta;
+    this.encodings = RowBlockWriter.getEncodings( rowMeta );
+
+    raw = new byte[0];
+    stored = new byte[0];
+    frame = new FrameInput();
+    frameStream = new DataInputStream( frame );
+    dictionary = new ArrayList<String>();
+  }
+
+  /**
+   * @return the next row or null if the end of the stream was reached.
+   * @throws KettleEOFException
+   *           in case the stream ended without an end of stream marker
+   * @throws KettleException
+   */
+  public Object[] getRow() throws KettleException {
+    if ( finished ) {
+      return null;
+    }
+    try {
+      if ( nrRowsLeft == 0 && !readFrame() ) {
+        finished = true;
+        if ( inflater != null ) {
+          inflater.end();
+          inflater = null;
+        }
+        return null;
+      }
+
+      int nrValues = encodings.length;
+      Object[] row = RowDataUtil.allocateRowData( nrValues );
+      int bitmapStart = frame.position();
+      frame.skip( ( nrValues + 7 ) >> 3 );
+      for ( int i = 0; i < nrValues; i++ ) {
+        if ( ( raw[bitmapStart + ( i >> 3 )] & ( 1 << ( i & 7 ) ) ) == 0 ) {
+          row[i] = readValue( i );
+        }
+      }
+      nrRowsLeft--;
+      return row;
+    } catch ( EOFException e ) {
+      throw new KettleEOFException( e );
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to read row block from the remote step", e );
+    }
+  }
+
+  private boolean readFrame() throws IOException {
+    int nrRows = (int) readVarLong( inputStream );
+    if ( nrRows == 0 ) {
+      return false;
+    }
+    int compressionNr = inputStream.readUnsignedByte();
+    if ( compressionNr >= Compression.values().length ) {
+      throw new IOException( "Unknown row block compression: " + compressionNr );
+    }
+    Compression compression = Compression.values()[compressionNr];
+    int rawLength = (int) readVarLong( inputStream );
+    int storedLength = (int) readVarLong( inputStream );
+
+    if ( raw.length < rawLength ) {
+      raw = new byte[rawLength];
+    }
+    switch ( compression ) {
+      case SNAPPY:
+        readStored( storedLength );
+        Snappy.uncompress( stored, 0, storedLength, raw, 0 );
+        break;
+      case DEFLATE:
+        readStored( storedLength );
+        inflate( storedLength, rawLength );
+        break;
+      default:
+        inputStream.readFully( raw, 0, rawLength );
+        break;
+    }
+
+    frame.reset( raw, rawLength );
+    dictionary.clear();
+    nrRowsLeft = nrRows;
+    return true;
+  }
+
+  private void readStored( int storedLength ) throws IOException {
+    if ( stored.length < storedLength ) {
+      stored = new byte[storedLength];
+    }
+    inputStream.readFully( stored, 0, storedLength );
+  }
+
+  private void inflate( int storedLength, int rawLength ) throws IOException {
+    if ( inflater == null ) {
+      inflater = new Inflater( true );
+    }
+    inflater.reset();
+    inflater.setInput( stored, 0, storedLength );
+    try {
+      int length = 0;
+      while ( length < rawLength ) {
+        int inflated = inflater.inflate( raw, length, rawLength - length );
+        if ( inflated == 0 && ( inflater.finished() || inflater.needsInput() ) ) {
+          break;
+        }
+        length += inflated;
+      }
+      if ( length != rawLength ) {
+        throw new IOException( "Corrupt row block: expected " + rawLength + " bytes but got " + length );
+      }
+    } catch ( DataFormatException e ) {
+      throw new IOException( "Corrupt row block", e );
+    }
+  }
+
+  private Object readValue( int index ) throws IOException {
+    switch ( encodings[index] ) {
+      case RowBlockWriter.ENCODING_STRING:
+        return readString();
+      case RowBlockWriter.ENCODING_INTEGER:
+        return Long.valueOf( unZigZag( readVarLong( frameStream ) ) );
+      case RowBlockWriter.ENCODING_NUMBER:
+        return Double.valueOf( frameStream.readDouble() );
+      case RowBlockWriter.ENCODING_DATE:
+        return new Date( unZigZag( readVarLong( frameStream ) ) );
+      case RowBlockWriter.ENCODING_TIMESTAMP:
+        Timestamp timestamp = new Timestamp( unZigZag( readVarLong( frameStream ) ) );
+        timestamp.setNanos( (int) readVarLong( frameStream ) );
+        return timestamp;
+      case RowBlockWriter.ENCODING_BOOLEAN:
+        return Boolean.valueOf( frameStream.readBoolean() );
+      case RowBlockWriter.ENCODING_BIGNUMBER:
+        int scale = (int) unZigZag( readVarLong( frameStream ) );
+        return new BigDecimal( new BigInteger( readBytes() ), scale );
+      case RowBlockWriter.ENCODING_BINARY:
+        return readBytes();
+      default:
+        try {
+          return rowMeta.getValueMeta( index ).readData( frameStream );
+        } catch ( KettleFileException e ) {
+          throw new IOException( e );
+        }
+    }
+  }
+
+  private String readString() throws IOException {
+    int code = (int) readVarLong( frameStream );
+    if ( code > 0 ) {
+      return dictionary.get( code - 1 );
+    }
+    int length = (int) readVarLong( frameStream );
+    String string = new String( raw, frame.position(), length, StandardCharsets.UTF_8 );
+    frame.skip( length );
+    if ( string.length() <= RowBlockWriter.MAX_DICTIONARY_STRING_LENGTH ) {
+      dictionary.add( string );
+    }
+    return string;
+  }
+
+  private byte[] readBytes() throws IOException {
+    byte[] bytes = new byte[(int) readVarLong( frameStream )];
+    frameStream.readFully( bytes );
+    return bytes;
+  }
+
+  static long unZigZag( long value ) {
+    return ( value >>> 1 ) ^ -( value & 1 );
+  }
+
+  static long readVarLong( DataInputStream stream ) throws IOException {
+    long value = 0L;
+    for ( int shift = 0; shift < 64; shift += 7 ) {
+      int b = stream.readUnsignedByte();
+      value |= (long) ( b & 0x7F ) << shift;
+      if ( ( b & 0x80 ) == 0 ) {
+        return value;
+      }
+    }
+    throw new IOException( "Malformed variable length integer in row block" );
+  }
+
+  /**
+   * A byte array input stream over the current frame that can be repositioned on the next frame.
+   */
+  private static class FrameInput extends ByteArrayInputStream {
+
+    FrameInput() {
+      super( new byte[0] );
+    }
+
+    void reset( byte[] data, int length ) {
+      this.buf = data;
+      this.pos = 0;
+      this.count = length;
+      this.mark = 0;
+    }
+
+    int position() {
+      return pos;
+    }
+  }
+}
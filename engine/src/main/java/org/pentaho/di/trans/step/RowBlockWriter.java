@@ -0,0 +1,385 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.util.Utils;
+import org.xerial.snappy.Snappy;
+
+/**
+ * Writes rows to a remote step in blocks instead of one by one.<br>
+ * <br>
+ * Rows are collected in a frame until the frame holds {@link #MAX_ROWS_PER_FRAME} rows or {@link #MAX_FRAME_SIZE}
+ * bytes. Every row starts with a null bitmap, integers and dates are written as variable length integers and strings
+ * are dictionary encoded within the frame. The frame is then compressed as a whole and written as:<br>
+ * <br>
+ * <code>row count, compression, raw length, stored length, data</code><br>
+ * <br>
+ * A frame with a row count of 0 marks the end of the stream. The row metadata itself is not part of the frames, it is
+ * sent once up front by the caller.
+ *
+ * @see RowBlockReader
+ */
+public class RowBlockWriter {
+
+  public enum Compression {
+    NONE, SNAPPY, DEFLATE;
+
+    /**
+     * @return the compression with the given code or null if the code is empty or unknown.
+     */
+    public static Compression getCompression( String code ) {
+      if ( Utils.isEmpty( code ) ) {
+        return null;
+      }
+      for ( Compression compression : values() ) {
+        if ( compression.name().equalsIgnoreCase( code ) ) {
+          return compression;
+        }
+      }
+      return null;
+    }
+  }
+
+  public static final int MAX_ROWS_PER_FRAME = 4096;
+  public static final int MAX_FRAME_SIZE = 128 * 1024;
+
+  /** Strings longer than this are always written in full and never added to the dictionary of the frame */
+  public static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+
+  static final int ENCODING_FALLBACK = 0;
+  static final int ENCODING_STRING = 1;
+  static final int ENCODING_INTEGER = 2;
+  static final int ENCODING_NUMBER = 3;
+  static final int ENCODING_DATE = 4;
+  static final int ENCODING_TIMESTAMP = 5;
+  static final int ENCODING_BOOLEAN = 6;
+  static final int ENCODING_BIGNUMBER = 7;
+  static final int ENCODING_BINARY = 8;
+
+  private final DataOutputStream outputStream;
+  private final RowMetaInterface rowMeta;
+  private final Compression compression;
+  private final int[] encodings;
+
+  private final FrameBuffer frame;
+  private final DataOutputStream frameStream;
+  private final Map<String, Integer> dictionary;
+  private int nrRowsInFrame;
+
+  private byte[] compressed;
+  private Deflater deflater;
+
+  public RowBlockWriter( DataOutputStream outputStream, RowMetaInterface rowMeta, Compression compression ) {
+    this.outputStream = outputStream;
+    this.rowMeta = rowMeta;
+    this.compression = compression == null ? Compression.NONE : compression;
+    this.encodings = getEncodings( rowMeta );
+
+    frame = new FrameBuffer( MAX_FRAME_SIZE + 1024 );
+    frameStream = new DataOutputStream( frame );
+    dictionary = new HashMap<String, Integer>();
+    compressed = new byte[0];
+  }
+
+  /**
+   * Add a row to the current frame, the frame is sent once it is full.
+   *
+   * @param row
+   *          the row to write, described by the row metadata of this writer
+   * @throws KettleException
+   */
+  public void putRow( Object[] row ) throws KettleException {
+    try {
+      int nrValues = encodings.length;
+      int bitmapStart = frame.size();
+      for ( int i = 0; i < nrValues; i += 8 ) {
+        frame.write( 0 );
+      }
+      byte[] buffer = frame.array();
+      for ( int i = 0; i < nrValues; i++ ) {
+        Object value = row[i];
+        if ( value == null ) {
+          buffer[bitmapStart + ( i >> 3 )] |= 1 << ( i & 7 );
+        } else {
+          writeValue( i, value );
+          // The frame buffer can be reallocated while writing a value
+          //
+          buffer = frame.array();
+        }
+      }
+      nrRowsInFrame++;
+
+      if ( nrRowsInFrame >= MAX_ROWS_PER_FRAME || frame.size() >= MAX_FRAME_SIZE ) {
+        flush();
+      }
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write row block to the remote step", e );
+    }
+  }
+
+  /**
+   * Send the rows of the current frame, if any.
+   *
+   * @throws KettleException
+   */
+  public void flush() throws KettleException {
+    if ( nrRowsInFrame == 0 ) {
+      return;
+    }
+    try {
+      writeFrame();
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write row block to the remote step", e );
+    } finally {
+      frame.reset();
+      dictionary.clear();
+      nrRowsInFrame = 0;
+    }
+  }
+
+  /**
+   * Send the remaining rows followed by the end of stream marker.
+   *
+   * @throws KettleException
+   */
+  public void finish() throws KettleException {
+    flush();
+    try {
+      writeVarLong( outputStream, 0L );
+      outputStream.flush();
+    } catch ( IOException e ) {
+      throw new KettleFileException( "Unable to write row block to the remote step", e );
+    } finally {
+      if ( deflater != null ) {
+        deflater.end();
+        deflater = null;
+      }
+    }
+  }
+
+  private void writeFrame() throws IOException {
+    int rawLength = frame.size();
+    byte[] raw = frame.array();
+
+    Compression used = compression;
+    int storedLength;
+    switch ( compression ) {
+      case SNAPPY:
+        ensureCompressedCapacity( Snappy.maxCompressedLength( rawLength ) );
+        storedLength = Snappy.compress( raw, 0, rawLength, compressed, 0 );
+        break;
+      case DEFLATE:
+        storedLength = deflate( raw, rawLength );
+        break;
+      default:
+        storedLength = rawLength;
+        break;
+    }
+
+    // Data that doesn't compress is sent as is
+    //
+    if ( used != Compression.NONE && storedLength >= rawLength ) {
+      used = Compression.NONE;
+    }
+
+    writeVarLong( outputStream, nrRowsInFrame );
+    outputStream.writeByte( used.ordinal() );
+    writeVarLong( outputStream, rawLength );
+    if ( used == Compression.NONE ) {
+      writeVarLong( outputStream, rawLength );
+      outputStream.write( raw, 0, rawLength );
+    } else {
+      writeVarLong( outputStream, storedLength );
+      outputStream.write( compressed, 0, storedLength );
+    }
+  }
+
+  private int deflate( byte[] raw, int rawLength ) {
+    if ( deflater == null ) {
+      deflater = new Deflater( Deflater.BEST_SPEED, true );
+    }
+    deflater.reset();
+    deflater.setInput( raw, 0, rawLength );
+    deflater.finish();
+
+    // When the output doesn't fit in the raw size the frame is stored uncompressed anyway
+    //
+    ensureCompressedCapacity( rawLength );
+    int length = 0;
+    while ( !deflater.finished() && length < rawLength ) {
+      length += deflater.deflate( compressed, length, rawLength - length );
+    }
+    return deflater.finished() ? length : rawLength;
+  }
+
+  private void ensureCompressedCapacity( int size ) {
+    if ( compressed.length < size ) {
+      compressed = new byte[size];
+    }
+  }
+
+  private void writeValue( int index, Object value ) throws IOException {
+    switch ( encodings[index] ) {
+      case ENCODING_STRING:
+        writeString( (String) value );
+        break;
+      case ENCODING_INTEGER:
+        writeVarLong( frameStream, zigZag( ( (Long) value ).longValue() ) );
+        break;
+      case ENCODING_NUMBER:
+        frameStream.writeDouble( ( (Double) value ).doubleValue() );
+        break;
+      case ENCODING_DATE:
+        writeVarLong( frameStream, zigZag( ( (Date) value ).getTime() ) );
+        break;
+      case ENCODING_TIMESTAMP:
+        Timestamp timestamp = (Timestamp) value;
+        writeVarLong( frameStream, zigZag( timestamp.getTime() ) );
+        writeVarLong( frameStream, timestamp.getNanos() );
+        break;
+      case ENCODING_BOOLEAN:
+        frameStream.writeBoolean( ( (Boolean) value ).booleanValue() );
+        break;
+      case ENCODING_BIGNUMBER:
+        BigDecimal bigNumber = (BigDecimal) value;
+        writeVarLong( frameStream, zigZag( bigNumber.scale() ) );
+        writeBytes( bigNumber.unscaledValue().toByteArray() );
+        break;
+      case ENCODING_BINARY:
+        writeBytes( (byte[]) value );
+        break;
+      default:
+        try {
+          rowMeta.getValueMeta( index ).writeData( frameStream, value );
+        } catch ( KettleFileException e ) {
+          throw new IOException( e );
+        }
+        break;
+    }
+  }
+
+  /**
+   * Strings are written as a dictionary reference: 0 for a new string followed by its bytes or the position of the
+   * string in the dictionary of the frame plus one.
+   */
+  private void writeString( String string ) throws IOException {
+    boolean cacheable = string.length() <= MAX_DICTIONARY_STRING_LENGTH;
+    if ( cacheable ) {
+      Integer code = dictionary.get( string );
+      if ( code != null ) {
+        writeVarLong( frameStream, code.intValue() );
+        return;
+      }
+      dictionary.put( string, dictionary.size() + 1 );
+    }
+    writeVarLong( frameStream, 0L );
+    writeBytes( string.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  private void writeBytes( byte[] bytes ) throws IOException {
+    writeVarLong( frameStream, bytes.length );
+    frameStream.write( bytes );
+  }
+
+  static int[] getEncodings( RowMetaInterface rowMeta ) {
+    int[] encodings = new int[rowMeta.size()];
+    for ( int i = 0; i < encodings.length; i++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( i );
+      if ( valueMeta.getStorageType() != ValueMetaInterface.STORAGE_TYPE_NORMAL ) {
+        encodings[i] = ENCODING_FALLBACK;
+        continue;
+      }
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_STRING:
+          encodings[i] = ENCODING_STRING;
+          break;
+        case ValueMetaInterface.TYPE_INTEGER:
+          encodings[i] = ENCODING_INTEGER;
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          encodings[i] = ENCODING_NUMBER;
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+          encodings[i] = ENCODING_DATE;
+          break;
+        case ValueMetaInterface.TYPE_TIMESTAMP:
+          encodings[i] = ENCODING_TIMESTAMP;
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          encodings[i] = ENCODING_BOOLEAN;
+          break;
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          encodings[i] = ENCODING_BIGNUMBER;
+          break;
+        case ValueMetaInterface.TYPE_BINARY:
+          encodings[i] = ENCODING_BINARY;
+          break;
+        default:
+          encodings[i] = ENCODING_FALLBACK;
+          break;
+      }
+    }
+    return encodings;
+  }
+
+  static long zigZag( long value ) {
+    return ( value << 1 ) ^ ( value >> 63 );
+  }
+
+  static void writeVarLong( DataOutputStream stream, long value ) throws IOException {
+    while ( ( value & ~0x7FL ) != 0L ) {
+      stream.writeByte( (int) ( ( value & 0x7F ) | 0x80 ) );
+      value >>>= 7;
+    }
+    stream.writeByte( (int) value );
+  }
+
+  /**
+   * A byte array output stream that gives access to its buffer without copying it.
+   */
+  private static class FrameBuffer extends ByteArrayOutputStream {
+
+    FrameBuffer( int size ) {
+      super( size );
+    }
+
+    byte[] array() {
+      return buf;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.step;
+
+/**
+ * An immutable copy of the row counters of a step, for status reporting (Carte, performance snapshots, the step
+ * metrics).<br>
+ * <br>
+ * The counters of a {@link BaseStep} are copied in one go while no update is in progress, so they are consistent with
+ * each other: lines written never includes a row that lines read doesn't yet. Only steps that still update the
+ * deprecated public counter fields of {@link BaseStep} directly can be off by the rows of that update.
+ *
+ * @since 9.6
+ */
+public class StepCounters {
+
+  private final long linesRead;
+  private final long linesWritten;
+  private final long linesInput;
+  private final long linesOutput;
+  private final long linesUpdated;
+  private final long linesSkipped;
+  private final long linesRejected;
+  private final long errors;
+
+  public StepCounters( long linesRead, long linesWritten, long linesInput, long linesOutput, long linesUpdated,
+    long linesSkipped, long linesRejected, long errors ) {
+    this.linesRead = linesRead;
+    this.linesWritten = linesWritten;
+    this.linesInput = linesInput;
+    this.linesOutput = linesOutput;
+    this.linesUpdated = linesUpdated;
+    this.linesSkipped = linesSkipped;
+    this.linesRejected = linesRejected;
+    this.errors = errors;
+  }
+
+  /**
+   * @return the number of lines read from previous steps
+   */
+  public long getLinesRead() {
+    return linesRead;
+  }
+
+  /**
+   * @return the number of lines written to next steps
+   */
+  public long getLinesWritten() {
+    return linesWritten;
+  }
+
+  /**
+   * @return the number of lines read from an input source: database, file, socket, etc.
+   */
+  public long getLinesInput() {
+    return linesInput;
+  }
+
+  /**
+   * @return the number of lines written to an output target: database, file, socket, etc.
+   */
+  public long getLinesOutput() {
+    return linesOutput;
+  }
+
+  /**
+   * @return the number of lines updated in an output target: database, file, socket, etc.
+   */
+  public long getLinesUpdated() {
+    return linesUpdated;
+  }
+
+  /**
+   * @return the number of lines skipped
+   */
+  public long getLinesSkipped() {
+    return linesSkipped;
+  }
+
+  /**
+   * @return the number of lines rejected to an error handling step
+   */
+  public long getLinesRejected() {
+    return linesRejected;
+  }
+
+  /**
+   * @return the number of errors
+   */
+  public long getErrors() {
+    return errors;
+  }
+}
@@ -33,6 +33,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.logging.HasLogChannelInterface;
 import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.repository.Repository;
@@ -276,6 +277,22 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   long getLinesRejected();
 
+  /**
+   * @return the row counters of this step for status reporting. {@link BaseStep} returns a consistent snapshot, this
+   *         default implementation reads the counters one by one and doesn't know about skipped lines.
+   */
+  default StepCounters getCounters() {
+    return new StepCounters( getLinesRead(), getLinesWritten(), getLinesInput(), getLinesOutput(), getLinesUpdated(),
+      0L, getLinesRejected(), getErrors() );
+  }
+
+  /**
+   * @return the CPU time in nanoseconds used by this step copy so far, -1 if it isn't known
+   */
+  default long getCpuTime() {
+    return -1L;
+  }
+
   /**
    * Put a row on the destination rowsets.
    *
@@ -289,6 +306,44 @@ public interface StepInterface extends VariableSpace, HasLogChannelInterface {
    */
   Object[] getRow() throws KettleException;
 
+  /**
+   * @return the metadata of the rows returned by getRow(), null if it is not known (yet).
+   */
+  default RowMetaInterface getInputRowMeta() {
+    return null;
+  }
+
+  /**
+   * Put a batch of rows on the destination rowsets. The default implementation simply calls putRow() for every row in
+   * the batch.
+   *
+   * @param batch
+   *          The rows to send to the destinations steps
+   */
+  default void putRowBatch( RowBatch batch ) throws KettleException {
+    for ( int i = 0; i < batch.size(); i++ ) {
+      putRow( batch.getRowMeta(), batch.getRow( i ) );
+    }
+  }
+
+  /**
+   * Get a batch of rows from the source step(s). The call waits for the first row like getRow() does but never waits
+   * for more rows to fill up the batch. The default implementation returns a batch with a single row.
+   *
+   * @param maxRows
+   *          The maximum number of rows in the batch
+   * @return a batch of at least one row or null if there are no more rows.
+   */
+  default RowBatch getRowBatch( int maxRows ) throws KettleException {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    RowBatch batch = new RowBatch( getInputRowMeta(), 1 );
+    batch.addRow( row );
+    return batch;
+  }
+
   /**
    * Signal output done to destination steps
    */
@@ -29,6 +29,7 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleFileNotFoundException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueDataUtil;
@@ -72,8 +73,8 @@ public class Calculator extends BaseStep implements StepInterface {
     meta = (CalculatorMeta) smi;
     data = (CalculatorData) sdi;
 
-    Object[] r = getRow(); // get row, set busy!
-    if ( r == null ) { // no more input to be expected...
+    RowBatch batch = getRowBatch( RowBatch.DEFAULT_SIZE ); // get rows, set busy!
+    if ( batch == null ) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -155,29 +156,42 @@ public class Calculator extends BaseStep implements StepInterface {
       }
     }
 
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
-        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
-    }
-
+    RowBatch outputBatch = new RowBatch( data.getOutputRowMeta(), batch.size() );
     try {
-      Object[] row = calcFields( getInputRowMeta(), r );
-      putRow( data.getOutputRowMeta(), row ); // copy row to possible alternate rowset(s).
+      for ( int i = 0; i < batch.size(); i++ ) {
+        Object[] r = batch.getRow( i );
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+            + ( getLinesRead() - batch.size() + i + 1 ) + " : " + getInputRowMeta().getString( r ) );
+        }
+
+        try {
+          outputBatch.addRow( calcFields( getInputRowMeta(), r ) );
+        } catch ( KettleFileNotFoundException e ) {
+          if ( meta.isFailIfNoFile() ) {
+            // The rows calculated before this one are still passed on
+            //
+            putRowBatch( outputBatch );
+            logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
+            setErrors( getErrors() + 1 );
+            return false;
+          }
+        }
+      }
+
+      putRowBatch( outputBatch ); // copy rows to possible alternate rowset(s).
 
       if ( log.isRowLevel() ) {
-        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString( r ) );
+        for ( int i = 0; i < outputBatch.size(); i++ ) {
+          logRowlevel( "Wrote row #" + ( getLinesWritten() - outputBatch.size() + i + 1 ) + " : "
+            + data.getOutputRowMeta().getString( outputBatch.getRow( i ) ) );
+        }
       }
-      if ( checkFeedback( getLinesRead() ) ) {
+      if ( checkFeedback( getLinesRead(), batch.size() ) ) {
         if ( log.isBasic() ) {
           logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
         }
       }
-    } catch ( KettleFileNotFoundException e ) {
-      if ( meta.isFailIfNoFile() ) {
-        logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
-        setErrors( getErrors() + 1 );
-        return false;
-      }
     } catch ( KettleException e ) {
       logError( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" + " : " + e.getMessage() ) );
       throw new KettleStepException( BaseMessages.getString( PKG, "Calculator.ErrorInStepRunning" ), e );
@@ -124,6 +124,25 @@ public class CsvInput extends BaseStep implements StepInterface {
         }
       }
 
+      // A single step copy can parse the files with multiple threads as well
+      //
+      if ( !data.parallel && data.parseThreads > 1 ) {
+        if ( !meta.isNewlinePossibleInFields()
+          && ParallelCsvReader.isSupported( data.encodingType.getLength(), data.delimiter, data.enclosure ) ) {
+          data.parallelParsing = true;
+          int fileFormat = StringUtils.isBlank( meta.getFileFormat() )
+            ? TextFileInputMeta.FILE_FORMAT_MIXED : meta.getFileFormatTypeNr();
+          data.parallelReader =
+            new ParallelCsvReader( data.parseThreads, ParallelCsvReader.DEFAULT_CHUNK_SIZE, data.delimiter[0],
+              data.enclosure, meta.isLazyConversionActive(), data.convertRowMeta, fileFormat,
+              data.outputRowMeta.size() );
+          logBasic( BaseMessages.getString( PKG, "CsvInput.Log.ParallelParsing", Integer
+            .toString( data.parseThreads ) ) );
+        } else {
+          logBasic( BaseMessages.getString( PKG, "CsvInput.Log.ParallelParsingNotSupported" ) );
+        }
+      }
+
       // Now handle the parallel reading aspect: determine total of all the file sizes
       // Then skip to the appropriate file and location in the file to start reading...
       // Also skip to right after the first newline
@@ -150,7 +169,8 @@ public class CsvInput extends BaseStep implements StepInterface {
     }
 
     try {
-      Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
+      // get row, set busy!
+      Object[] outputRowData = data.parallelParsing ? readParsedRow() : readOneRow( false, false );
       // no more input to be expected...
       if ( outputRowData == null ) {
         if ( openNextFile() ) {
@@ -297,6 +317,11 @@ public class CsvInput extends BaseStep implements StepInterface {
 
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
+    if ( data.parallelReader != null ) {
+      data.parallelReader.close();
+      data.parallelReader = null;
+    }
+
     try {
       // Close the previous file...
       //
@@ -353,7 +378,14 @@ public class CsvInput extends BaseStep implements StepInterface {
       }
 
       data.fc = data.fis.getChannel();
-      data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+
+      if ( data.parallelParsing ) {
+        // The parallel reader maps the file itself and takes care of the header row
+        //
+        data.parallelReader.open( data.fc, bomSize, meta.isHeaderPresent(), data.fieldsMapping );
+      } else {
+        data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+      }
 
       // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
       //
@@ -401,7 +433,9 @@ public class CsvInput extends BaseStep implements StepInterface {
       if ( meta.isHeaderPresent() ) {
         // Standard flat file : skip header
         if ( !data.parallel || data.bytesToSkipInFirstFile <= 0 ) {
-          readOneRow( true, false ); // skip this row.
+          if ( !data.parallelParsing ) {
+            readOneRow( true, false ); // skip this row.
+          }
           logBasic( BaseMessages.getString( PKG, "CsvInput.Log.HeaderRowSkipped", data.filenames[ data.filenr - 1 ] ) );
           if ( data.fieldsMapping.size() == 0 ) {
             return false;
@@ -554,6 +588,53 @@ public class CsvInput extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Get the next row parsed by the parallel reader, in file order.
+   *
+   * @return the next row or null if the current file was read completely.
+   * @throws KettleException
+   */
+  private Object[] readParsedRow() throws KettleException {
+    while ( data.parsedBatch == null || data.parsedRowIndex >= data.parsedBatch.size() ) {
+      // The reader stopped on a file error right after the rows that were read
+      //
+      if ( data.parsedBatch != null && data.parsedBatch.getError() != null ) {
+        throw data.parsedBatch.getError();
+      }
+      data.parsedBatch = data.parallelReader.nextBatch();
+      data.parsedRowIndex = 0;
+      if ( data.parsedBatch == null ) {
+        return null;
+      }
+    }
+    int index = data.parsedRowIndex++;
+    Object[] outputRowData = data.parsedBatch.getRow( index );
+
+    // Optionally add the current filename to the mix as well...
+    //
+    if ( meta.isIncludingFilename() && !Utils.isEmpty( meta.getFilenameField() ) ) {
+      if ( meta.isLazyConversionActive() ) {
+        outputRowData[ data.filenameFieldIndex ] = data.binaryFilename;
+      } else {
+        outputRowData[ data.filenameFieldIndex ] = data.filenames[ data.filenr - 1 ];
+      }
+    }
+
+    if ( data.isAddingRowNumber ) {
+      outputRowData[ data.rownumFieldIndex ] = data.rowNumber++;
+    }
+
+    incrementLinesInput();
+
+    ParallelCsvReader.ConversionErrors errors = data.parsedBatch.getErrors( index );
+    if ( errors != null ) {
+      throw new KettleConversionException(
+        "There were " + errors.getCauses().size() + " conversion errors on line " + getLinesInput(),
+        errors.getCauses(), errors.getFields(), outputRowData );
+    }
+    return outputRowData;
+  }
+
   /**
    * Read a single row of data from the file...
    *
@@ -874,6 +955,7 @@ public class CsvInput extends BaseStep implements StepInterface {
       // PDI-10242 see if a variable is used as encoding value
       String realEncoding = environmentSubstitute( meta.getEncoding() );
       data.preferredBufferSize = Integer.parseInt( environmentSubstitute( meta.getBufferSize() ) );
+      data.parseThreads = Const.toInt( environmentSubstitute( meta.getParseThreads() ), 0 );
 
       // If the step doesn't have any previous steps, we just get the filename.
       // Otherwise, we'll grab the list of file names later...
@@ -83,6 +83,12 @@ public class CsvInputData extends BaseStepData implements StepDataInterface {
 
   public FieldsMapping fieldsMapping;
 
+  public int parseThreads;
+  public boolean parallelParsing;
+  public ParallelCsvReader parallelReader;
+  public ParallelCsvReader.Batch parsedBatch;
+  public int parsedRowIndex;
+
   /**
    * Data class for CsvInput step
    *
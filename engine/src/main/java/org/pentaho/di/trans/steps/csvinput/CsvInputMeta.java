@@ -108,6 +108,9 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
 
   private boolean newlinePossibleInFields;
 
+  /** The number of threads to parse a single file with, 0 or 1 to parse in the step thread */
+  private String parseThreads;
+
   public CsvInputMeta() {
     super(); // allocate BaseStepMeta
     allocate( 0 );
@@ -137,6 +140,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
     isaddresult = false;
     bufferSize = "50000";
     fileFormat = "mixed";
+    parseThreads = "0";
   }
 
   private void readData( Node stepnode ) throws KettleXMLException {
@@ -166,6 +170,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       }
       fileFormat = XMLHandler.getTagValue( stepnode, getXmlCode( "FORMAT" ) );
       encoding = XMLHandler.getTagValue( stepnode, getXmlCode( "ENCODING" ) );
+      parseThreads = XMLHandler.getTagValue( stepnode, getXmlCode( "PARSE_THREADS" ) );
 
       Node fields = XMLHandler.getSubNode( stepnode, getXmlCode( "FIELDS" ) );
       int nrfields = XMLHandler.countNodes( fields, getXmlCode( "FIELD" ) );
@@ -220,6 +225,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
       XMLHandler.addTagValue( getXmlCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "FORMAT" ), fileFormat ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "ENCODING" ), encoding ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( getXmlCode( "PARSE_THREADS" ), parseThreads ) );
 
     retval.append( "    " ).append( XMLHandler.openTag( getXmlCode( "FIELDS" ) ) ).append( Const.CR );
     for ( int i = 0; i < inputFields.length; i++ ) {
@@ -269,6 +275,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
         rep.getStepAttributeBoolean( id_step, 0, getRepCode( "NEWLINE_POSSIBLE" ), !runningInParallel );
       fileFormat = rep.getStepAttributeString( id_step, getRepCode( "FORMAT" ) );
       encoding = rep.getStepAttributeString( id_step, getRepCode( "ENCODING" ) );
+      parseThreads = rep.getStepAttributeString( id_step, getRepCode( "PARSE_THREADS" ) );
 
       int nrfields = rep.countNrStepAttributes( id_step, getRepCode( "FIELD_NAME" ) );
 
@@ -315,6 +322,7 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
           id_transformation, id_step, getRepCode( "NEWLINE_POSSIBLE" ), newlinePossibleInFields );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "FORMAT" ), fileFormat );
       rep.saveStepAttribute( id_transformation, id_step, getRepCode( "ENCODING" ), encoding );
+      rep.saveStepAttribute( id_transformation, id_step, getRepCode( "PARSE_THREADS" ), parseThreads );
 
       for ( int i = 0; i < inputFields.length; i++ ) {
         TextFileInputField field = inputFields[i];
@@ -836,6 +844,8 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
           fileFormat = (String) entry.getValue();
         } else if ( attr.getKey().equals( "ENCODING" ) ) {
           encoding = (String) entry.getValue();
+        } else if ( attr.getKey().equals( "PARSE_THREADS" ) ) {
+          parseThreads = (String) entry.getValue();
         } else {
           throw new RuntimeException( "Unhandled metadata injection of attribute: "
             + attr.toString() + " - " + attr.getDescription() );
@@ -918,6 +928,21 @@ public class CsvInputMeta extends BaseStepMeta implements StepMetaInterface, Inp
     this.newlinePossibleInFields = newlinePossibleInFields;
   }
 
+  /**
+   * @return the number of threads to parse a single file with, 0 or 1 to parse in the step thread
+   */
+  public String getParseThreads() {
+    return parseThreads;
+  }
+
+  /**
+   * @param parseThreads
+   *          the number of threads to parse a single file with, 0 or 1 to parse in the step thread
+   */
+  public void setParseThreads( String parseThreads ) {
+    this.parseThreads = parseThreads;
+  }
+
   @Override
   public FileObject getHeaderFileObject( final TransMeta transMeta ) {
     final String filename = transMeta.environmentSubstitute( getFilename() );
@@ -0,0 +1,737 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.RowDataUtil;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputMeta;
+
+/**
+ * Parses a single local CSV file with a pool of threads.<br>
+ * <br>
+ * The file is memory mapped and cut in chunks of {@link #DEFAULT_CHUNK_SIZE} bytes. The parsing happens in two passes
+ * that both run in parallel over the chunks:
+ * <ol>
+ * <li>Every chunk is scanned once for every possible parser state at its first byte (start of a record, inside an
+ * enclosure, ...) to determine the parser state at its last byte. Chaining these results from the first chunk onwards
+ * gives the real state at the start of every chunk, which correctly handles enclosed fields that span chunk edges.</li>
+ * <li>Every chunk then parses and converts the records from the first line that starts inside it, reading past its
+ * end to complete the last one.</li>
+ * </ol>
+ * Only single byte encodings, delimiters and enclosures are supported. Like when the "new line possible in fields"
+ * option is off, new lines are only allowed inside enclosed fields. The records are parsed exactly like
+ * {@link CsvInput} does it when it reads the file itself: the file format decides which line ends are skipped and the
+ * rest of a line with too many fields is ignored, together with the empty lines that follow it.<br>
+ * <br>
+ * The batches of rows are handed out in file order. A batch that doesn't start where the previous one stopped is parsed
+ * again from there, this happens when a line with too many fields hides a new line in an enclosure.
+ */
+public class ParallelCsvReader {
+
+  public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+  /** The number of bytes mapped past the end of a chunk to complete its last record, doubled when that's not enough */
+  static final int RECORD_OVERRUN = 64 * 1024;
+
+  static final int RECORD_START = 0;
+  static final int FIELD_START = 1;
+  static final int UNQUOTED = 2;
+  static final int QUOTED = 3;
+  static final int QUOTE_SEEN = 4;
+  static final int CR_SEEN = 5;
+  static final int NR_STATES = 6;
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  private static Class<?> PKG = CsvInput.class; // for i18n purposes, needed by Translator2!!
+
+  /**
+   * The rows parsed from one chunk, in file order.
+   */
+  public static class Batch {
+    private final Chunk chunk;
+    private final List<Object[]> rows = new ArrayList<Object[]>();
+    private final List<ConversionErrors> errors = new ArrayList<ConversionErrors>();
+    private KettleException error;
+    /** The positions in the chunk of the first record and of the record after the last one, -1 if there are none */
+    private int first = -1;
+    private int next = -1;
+
+    Batch( Chunk chunk ) {
+      this.chunk = chunk;
+    }
+
+    public int size() {
+      return rows.size();
+    }
+
+    public Object[] getRow( int index ) {
+      return rows.get( index );
+    }
+
+    /**
+     * @return the conversion errors of the row or null if the row converted fine.
+     */
+    public ConversionErrors getErrors( int index ) {
+      return errors.get( index );
+    }
+
+    /**
+     * @return the error that stopped the parsing right after the rows of this batch or null if there was none.
+     */
+    public KettleException getError() {
+      return error;
+    }
+  }
+
+  /**
+   * The conversion errors of a single row, the caller turns these into a KettleConversionException.
+   */
+  public static class ConversionErrors {
+    final List<Exception> causes = new ArrayList<Exception>();
+    final List<ValueMetaInterface> fields = new ArrayList<ValueMetaInterface>();
+
+    public List<Exception> getCauses() {
+      return causes;
+    }
+
+    public List<ValueMetaInterface> getFields() {
+      return fields;
+    }
+  }
+
+  private static class Chunk {
+    final FileChannel channel;
+    final long start;
+    final long maxLength;
+    final ByteBuffer buffer;
+    final int end;
+    final boolean first;
+    final boolean skipFirstRecord;
+
+    Chunk( FileChannel channel, long start, long fileSize, int end, boolean first, boolean skipFirstRecord )
+      throws IOException {
+      this.channel = channel;
+      this.start = start;
+      this.maxLength = Math.min( fileSize - start, Integer.MAX_VALUE );
+      this.end = end;
+      this.first = first;
+      this.skipFirstRecord = skipFirstRecord;
+      this.buffer = map( (long) end + RECORD_OVERRUN );
+    }
+
+    /**
+     * @return the bytes of the file from the start of the chunk, length of them or up to the end of the file
+     */
+    ByteBuffer map( long length ) throws IOException {
+      return channel.map( FileChannel.MapMode.READ_ONLY, start, Math.min( length, maxLength ) );
+    }
+  }
+
+  private final int nrThreads;
+  private final int chunkSize;
+  private final byte delimiter;
+  private final byte enclosure;
+  private final boolean enclosed;
+  private final boolean lazyConversion;
+  private final int fileFormat;
+  private final int outputRowSize;
+  private final ThreadLocal<RowMetaInterface> convertRowMetas;
+  private final byte[][] transitions;
+
+  private ExecutorService executor;
+
+  private FileChannel channel;
+  private long fileSize;
+  private long nextChunkStart;
+  private boolean firstChunk;
+  private boolean skipHeader;
+  private long nextRecordStart;
+  private FieldsMapping fieldsMapping;
+  private CompletableFuture<Integer> lastStartState;
+  private CompletableFuture<byte[]> lastEndStates;
+  private final Deque<CompletableFuture<Batch>> pending = new ArrayDeque<CompletableFuture<Batch>>();
+
+  /**
+   * @param nrThreads
+   *          the number of parsing threads
+   * @param chunkSize
+   *          the number of bytes handed to a thread at once
+   * @param delimiter
+   *          the field delimiter
+   * @param enclosure
+   *          the enclosure or null if there is none
+   * @param lazyConversion
+   *          true to return the fields as binary strings, false to convert them using the convert row metadata
+   * @param convertRowMeta
+   *          the metadata of the fields with binary string storage
+   * @param fileFormat
+   *          the file format, one of the TextFileInputMeta.FILE_FORMAT_* constants
+   * @param outputRowSize
+   *          the size of the rows to allocate
+   */
+  public ParallelCsvReader( int nrThreads, int chunkSize, byte delimiter, byte[] enclosure, boolean lazyConversion,
+    final RowMetaInterface convertRowMeta, int fileFormat, int outputRowSize ) {
+    this.nrThreads = nrThreads;
+    this.chunkSize = chunkSize;
+    this.delimiter = delimiter;
+    this.enclosed = enclosure != null && enclosure.length > 0;
+    this.enclosure = enclosed ? enclosure[0] : 0;
+    this.lazyConversion = lazyConversion;
+    this.fileFormat = fileFormat;
+    this.outputRowSize = outputRowSize;
+
+    // The value metadata caches formatters that can't be shared between threads
+    //
+    this.convertRowMetas = new ThreadLocal<RowMetaInterface>() {
+      @Override
+      protected RowMetaInterface initialValue() {
+        return convertRowMeta.clone();
+      }
+    };
+
+    transitions = new byte[NR_STATES][256];
+    for ( int state = 0; state < NR_STATES; state++ ) {
+      for ( int b = 0; b < 256; b++ ) {
+        transitions[state][b] = (byte) computeTransition( state, (byte) b );
+      }
+    }
+  }
+
+  /**
+   * @return true if the given separators can be handled by this reader.
+   */
+  public static boolean isSupported( int encodingLength, byte[] delimiter, byte[] enclosure ) {
+    return encodingLength == 1 && delimiter != null && delimiter.length == 1
+      && ( enclosure == null || enclosure.length <= 1 );
+  }
+
+  private int computeTransition( int state, byte b ) {
+    switch ( state ) {
+      case QUOTED:
+        return enclosed && b == enclosure ? QUOTE_SEEN : QUOTED;
+      case QUOTE_SEEN:
+        if ( b == enclosure ) {
+          return QUOTED;
+        }
+        return computeTransition( UNQUOTED, b );
+      case CR_SEEN:
+        if ( b == LF ) {
+          return RECORD_START;
+        }
+        return computeTransition( RECORD_START, b );
+      default:
+        if ( b == delimiter ) {
+          return FIELD_START;
+        }
+        if ( b == CR ) {
+          return CR_SEEN;
+        }
+        if ( b == LF ) {
+          return RECORD_START;
+        }
+        if ( enclosed && b == enclosure && ( state == RECORD_START || state == FIELD_START ) ) {
+          return QUOTED;
+        }
+        return UNQUOTED;
+    }
+  }
+
+  /**
+   * Start reading a new file. The previous file, if any, should have been read completely.
+   *
+   * @param channel
+   *          the channel of the file to read
+   * @param startPosition
+   *          the position of the first record, after a byte order mark
+   * @param skipHeader
+   *          true to skip the first record
+   * @param fieldsMapping
+   *          maps the fields in the file to the fields of the step
+   * @throws KettleException
+   */
+  public void open( FileChannel channel, long startPosition, boolean skipHeader, FieldsMapping fieldsMapping )
+    throws KettleException {
+    try {
+      this.channel = channel;
+      this.fileSize = channel.size();
+    } catch ( IOException e ) {
+      throw new KettleFileException( e );
+    }
+    this.nextChunkStart = startPosition;
+    this.firstChunk = true;
+    this.skipHeader = skipHeader;
+    this.nextRecordStart = startPosition;
+    this.fieldsMapping = fieldsMapping;
+    this.lastStartState = CompletableFuture.completedFuture( RECORD_START );
+    this.lastEndStates = null;
+    this.pending.clear();
+
+    if ( executor == null ) {
+      final AtomicInteger threadNr = new AtomicInteger();
+      executor = Executors.newFixedThreadPool( nrThreads, runnable -> {
+        Thread thread = new Thread( runnable, "CsvInput parser " + threadNr.incrementAndGet() );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    }
+
+    while ( pending.size() < nrThreads * 2 && submitNextChunk() ) {
+      // Fill the pipeline
+    }
+  }
+
+  /**
+   * @return the rows of the next chunk or null if the file was read completely.
+   * @throws KettleException
+   */
+  public Batch nextBatch() throws KettleException {
+    CompletableFuture<Batch> future = pending.poll();
+    if ( future == null ) {
+      return null;
+    }
+    submitNextChunk();
+    try {
+      Batch batch = future.get();
+      Chunk chunk = batch.chunk;
+      if ( batch.first < 0 || chunk.start + batch.first != nextRecordStart ) {
+        // The previous batch didn't stop where this one starts: parse the chunk again from where it did stop
+        //
+        if ( nextRecordStart >= chunk.start + chunk.end ) {
+          return new Batch( chunk );
+        }
+        batch = parseRecords( chunk, (int) ( nextRecordStart - chunk.start ), false, fieldsMapping );
+      }
+      nextRecordStart = chunk.start + batch.next;
+      return batch;
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    } catch ( ExecutionException | CompletionException e ) {
+      Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+      if ( cause instanceof KettleException ) {
+        throw (KettleException) cause;
+      }
+      throw new KettleException( cause );
+    }
+  }
+
+  private boolean submitNextChunk() throws KettleException {
+    if ( nextChunkStart >= fileSize ) {
+      return false;
+    }
+    final Chunk chunk;
+    try {
+      long start = nextChunkStart;
+      int end = (int) Math.min( chunkSize, fileSize - start );
+      // Map a little past the end of the chunk so the last record can be completed
+      //
+      chunk = new Chunk( channel, start, fileSize, end, firstChunk, skipHeader );
+      nextChunkStart += end;
+      firstChunk = false;
+      skipHeader = false;
+    } catch ( IOException e ) {
+      throw new KettleFileException( e );
+    }
+
+    // The state at the start of this chunk follows from the state at the start of the previous chunk
+    //
+    CompletableFuture<Integer> startState;
+    if ( lastEndStates == null ) {
+      startState = lastStartState;
+    } else {
+      startState = lastStartState.thenCombine( lastEndStates, ( state, endStates ) -> (int) endStates[state] );
+    }
+    CompletableFuture<byte[]> endStates = CompletableFuture.supplyAsync( () -> scanEndStates( chunk ), executor );
+    final FieldsMapping mapping = fieldsMapping;
+    CompletableFuture<Batch> batch =
+      startState.thenApplyAsync( state -> parseChunk( chunk, state, mapping ), executor );
+
+    lastStartState = startState;
+    lastEndStates = endStates;
+    pending.add( batch );
+    return true;
+  }
+
+  /**
+   * @return for every state at the start of the chunk, the state after the last byte of the chunk.
+   */
+  byte[] scanEndStates( Chunk chunk ) {
+    ByteBuffer buffer = chunk.buffer;
+    byte[] states = new byte[NR_STATES];
+    for ( int i = 0; i < NR_STATES; i++ ) {
+      states[i] = (byte) i;
+    }
+    int pos = 0;
+    // Run the state machines side by side until they agree, usually right after the first delimiter or new line.
+    // Inside and outside of an enclosure stay apart as long as there are no enclosures, so check every 64 bytes.
+    //
+    while ( pos < chunk.end ) {
+      int limit = Math.min( chunk.end, pos + 64 );
+      for ( ; pos < limit; pos++ ) {
+        int b = buffer.get( pos ) & 0xFF;
+        for ( int i = 0; i < NR_STATES; i++ ) {
+          states[i] = transitions[states[i]][b];
+        }
+      }
+      if ( allEqual( states ) ) {
+        int state = states[0];
+        for ( ; pos < chunk.end; pos++ ) {
+          state = transitions[state][buffer.get( pos ) & 0xFF];
+        }
+        for ( int i = 0; i < NR_STATES; i++ ) {
+          states[i] = (byte) state;
+        }
+      }
+    }
+    return states;
+  }
+
+  private static boolean allEqual( byte[] states ) {
+    for ( int i = 1; i < states.length; i++ ) {
+      if ( states[i] != states[0] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  Batch parseChunk( Chunk chunk, int startState, FieldsMapping mapping ) {
+    // Find the first line that starts in this chunk. A record that starts on an empty line can't be told apart from
+    // the empty lines that CsvInput skips, so those stay with the line before them.
+    //
+    int pos = 0;
+    if ( !chunk.first ) {
+      ByteBuffer buffer = chunk.buffer;
+      int state = startState;
+      while ( pos < chunk.end && !( isLineEnd( state ) && !isNewLine( buffer.get( pos ) ) ) ) {
+        state = transitions[state][buffer.get( pos ) & 0xFF];
+        pos++;
+      }
+      if ( pos >= chunk.end ) {
+        return new Batch( chunk );
+      }
+    }
+    return parseRecords( chunk, pos, chunk.skipFirstRecord, mapping );
+  }
+
+  /**
+   * Parse the records from the given position up to the first line that starts in the next chunk.
+   */
+  Batch parseRecords( Chunk chunk, int pos, boolean skip, FieldsMapping mapping ) {
+    // A private view of the buffer allows bulk copies of the fields
+    //
+    ByteBuffer buffer = chunk.buffer.duplicate();
+    Batch batch = new Batch( chunk );
+    batch.first = pos;
+    while ( true ) {
+      boolean endOfFile = buffer.limit() >= chunk.maxLength;
+      if ( pos >= buffer.limit() && endOfFile ) {
+        break;
+      }
+      if ( pos < buffer.limit() && pos >= chunk.end && isLineStart( buffer, pos ) ) {
+        break;
+      }
+      int next;
+      try {
+        next = pos < buffer.limit() ? parseRecord( buffer, pos, skip ? null : batch, mapping, endOfFile ) : -1;
+      } catch ( KettleFileException e ) {
+        batch.error = e;
+        break;
+      }
+      if ( next < 0 ) {
+        // The record runs past the mapped bytes: map more of the file and parse it again
+        //
+        try {
+          buffer = chunk.map( (long) buffer.limit() * 2 );
+        } catch ( IOException e ) {
+          throw new CompletionException( new KettleFileException( e ) );
+        }
+        continue;
+      }
+      pos = next;
+      skip = false;
+    }
+    batch.next = pos;
+    return batch;
+  }
+
+  private static boolean isLineEnd( int state ) {
+    return state == RECORD_START || state == CR_SEEN;
+  }
+
+  /**
+   * @return true if a line starts at the given position, where a record starts.
+   */
+  private static boolean isLineStart( ByteBuffer buffer, int pos ) {
+    return !isNewLine( buffer.get( pos ) ) && isNewLine( buffer.get( pos - 1 ) );
+  }
+
+  /**
+   * Parse the record starting at the given position and add it to the batch. This follows CsvInput.readOneRow() step
+   * by step, down to the line ends that are skipped depending on the file format.
+   *
+   * @param endOfFile
+   *          true if the buffer runs up to the end of the file
+   * @return the position of the next record, -1 if the record might continue past the end of the buffer
+   * @throws KettleFileException
+   *           when a DOS format file has a single new line after a delimiter
+   */
+  private int parseRecord( ByteBuffer buffer, int pos, Batch batch, FieldsMapping mapping, boolean endOfFile )
+    throws KettleFileException {
+    int limit = buffer.limit();
+    Object[] row = batch == null ? null : RowDataUtil.allocateRowData( outputRowSize );
+    ConversionErrors errors = null;
+    int fieldNr = 0;
+    boolean newLine = false;
+
+    while ( !newLine && fieldNr < mapping.size() ) {
+      if ( pos >= limit ) {
+        if ( !endOfFile ) {
+          return -1;
+        }
+        // The last line misses fields: like CsvInput, return it without the conversion errors
+        //
+        errors = null;
+        break;
+      }
+
+      int start = pos;
+      boolean enclosureFound = false;
+      boolean endOfBuffer = false;
+      boolean doubleLineEnd = false;
+      int escaped = 0;
+      while ( true ) {
+        if ( pos >= limit ) {
+          if ( !endOfFile ) {
+            return -1;
+          }
+          endOfBuffer = true;
+          break;
+        }
+        byte b = buffer.get( pos );
+        if ( b == delimiter ) {
+          break;
+        }
+        if ( isNewLine( b ) ) {
+          newLine = true;
+          pos++;
+          if ( pos >= limit && !endOfFile ) {
+            return -1;
+          }
+          doubleLineEnd = pos < limit && isNewLine( buffer.get( pos ) );
+          break;
+        }
+        if ( enclosed && b == enclosure && pos == start ) {
+          // Skip over the enclosed part, a doubled enclosure is an escaped one
+          //
+          enclosureFound = true;
+          while ( true ) {
+            pos++;
+            if ( pos >= limit ) {
+              if ( !endOfFile ) {
+                return -1;
+              }
+              enclosureFound = false;
+              break;
+            }
+            if ( buffer.get( pos ) == enclosure ) {
+              pos++;
+              if ( pos >= limit ) {
+                if ( !endOfFile ) {
+                  return -1;
+                }
+                break;
+              }
+              if ( buffer.get( pos ) != enclosure ) {
+                break;
+              }
+              escaped++;
+            }
+          }
+          continue;
+        }
+        pos++;
+      }
+
+      if ( batch != null ) {
+        // Anything between the closing enclosure and the delimiter ends up in the field, minus its last byte
+        //
+        int fieldStart = start;
+        int fieldEnd = newLine ? pos - 1 : pos;
+        if ( enclosureFound ) {
+          fieldStart++;
+          fieldEnd--;
+        }
+        byte[] field = getField( buffer, fieldStart, Math.max( fieldStart, fieldEnd ), escaped );
+        int index = mapping.fieldMetaIndex( fieldNr );
+        if ( index != FieldsMapping.FIELD_DOES_NOT_EXIST ) {
+          if ( lazyConversion ) {
+            row[index] = field;
+          } else {
+            ValueMetaInterface valueMeta = convertRowMetas.get().getValueMeta( index );
+            try {
+              row[index] = valueMeta.convertBinaryStringToNativeType( field );
+            } catch ( KettleValueException e ) {
+              if ( errors == null ) {
+                errors = new ConversionErrors();
+              }
+              errors.causes.add( e );
+              errors.fields.add( valueMeta );
+            }
+          }
+        }
+      }
+      fieldNr++;
+
+      if ( endOfBuffer ) {
+        if ( fieldNr < mapping.size() ) {
+          errors = null;
+        }
+        addRow( batch, row, errors );
+        return pos;
+      }
+
+      if ( ( !newLine && fieldNr < mapping.size() ) || ( newLine && doubleLineEnd ) ) {
+        if ( !newLine ) {
+          pos++; // the delimiter
+        }
+        if ( pos >= limit && !endOfFile ) {
+          return -1;
+        }
+        switch ( fileFormat ) {
+          case TextFileInputMeta.FILE_FORMAT_DOS:
+            if ( pos < limit && isNewLine( buffer.get( pos ) ) ) {
+              pos++;
+              if ( !doubleLineEnd ) {
+                if ( pos >= limit && !endOfFile ) {
+                  return -1;
+                }
+                if ( pos >= limit || !isNewLine( buffer.get( pos ) ) ) {
+                  throw new KettleFileException( BaseMessages.getString( PKG, "TextFileInput.Log.SingleLineFound" ) );
+                }
+              }
+            }
+            break;
+          case TextFileInputMeta.FILE_FORMAT_MIXED:
+            if ( doubleLineEnd || ( pos < limit && buffer.get( pos ) == CR ) ) {
+              pos++;
+            }
+            break;
+          default:
+            break;
+        }
+      }
+    }
+
+    if ( !newLine && pos < limit ) {
+      // Ignore the rest of the line, enclosures included, and the empty lines after it
+      //
+      do {
+        pos++;
+        if ( pos >= limit ) {
+          if ( !endOfFile ) {
+            return -1;
+          }
+          break;
+        }
+      } while ( !isNewLine( buffer.get( pos ) ) );
+      while ( pos < limit && isNewLine( buffer.get( pos ) ) ) {
+        pos++;
+      }
+      if ( pos >= limit && !endOfFile ) {
+        return -1;
+      }
+    }
+
+    addRow( batch, row, errors );
+    return pos;
+  }
+
+  private static void addRow( Batch batch, Object[] row, ConversionErrors errors ) {
+    if ( batch != null ) {
+      batch.rows.add( row );
+      batch.errors.add( errors );
+    }
+  }
+
+  private static boolean isNewLine( byte b ) {
+    return b == LF || b == CR;
+  }
+
+  /**
+   * @return the bytes from start to end with the escaped enclosures removed, the way CsvInputData does it.
+   */
+  private byte[] getField( ByteBuffer buffer, int start, int end, int escaped ) {
+    byte[] field = new byte[end - start];
+    buffer.position( start );
+    buffer.get( field );
+    if ( escaped == 0 ) {
+      return field;
+    }
+    byte[] result = new byte[field.length - escaped];
+    int index = 0;
+    for ( int i = 0; i < field.length; i++ ) {
+      result[index++] = field[i];
+      if ( field[i] == enclosure && i + 1 < field.length && field[i + 1] == enclosure ) {
+        i++; // skip the second enclosure of the pair
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Stop the parsing threads and forget about the current file. The caller closes the file channel.
+   */
+  public void close() {
+    for ( CompletableFuture<Batch> future : pending ) {
+      future.cancel( true );
+    }
+    pending.clear();
+    if ( executor != null ) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    channel = null;
+  }
+}
@@ -22,11 +22,16 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.pentaho.di.core.Const;
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.row.value.ValueMetaBase;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.database.Database;
@@ -34,6 +39,7 @@ import org.pentaho.di.core.database.DatabaseMeta;
 import org.pentaho.di.core.exception.KettleDatabaseException;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -61,6 +67,9 @@ import com.google.common.annotations.VisibleForTesting;
 public class DatabaseLookup extends BaseStep implements StepInterface {
   private static Class<?> PKG = DatabaseLookupMeta.class; // for i18n purposes, needed by Translator2!!
 
+  /** Keep the number of parameters of a batched lookup below the limits of the common databases */
+  static final int MAX_BATCH_PARAMETERS = 1000;
+
   private DatabaseLookupMeta meta;
   private DatabaseLookupData data;
 
@@ -78,8 +87,10 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
    */
   @VisibleForTesting
   synchronized Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
-    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
+    return lookupValues( inputRowMeta, row, createLookupRow( inputRowMeta, row ) );
+  }
 
+  private Object[] createLookupRow( RowMetaInterface inputRowMeta, Object[] row ) throws KettleException {
     Object[] lookupRow = new Object[ data.lookupMeta.size() ];
     int lookupIndex = 0;
 
@@ -118,16 +129,26 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         lookupIndex++;
       }
     }
+    return lookupRow;
+  }
+
+  private Object[] lookupValues( RowMetaInterface inputRowMeta, Object[] row, Object[] lookupRow )
+    throws KettleException {
+    Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
 
     Object[] add;
     boolean cache_now = false;
     boolean cacheHit = false;
+    RowMetaAndData batchKey = null;
 
     // First, check if we looked up before
     if ( meta.isCached() ) {
       add = data.cache.getRowFromCache( data.lookupMeta, lookupRow );
       if ( add != null ) {
         cacheHit = true;
+        data.cacheHits++;
+      } else {
+        data.cacheMisses++;
       }
     } else {
       add = null;
@@ -145,8 +166,21 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
             + data.lookupMeta.getString( lookupRow ) );
         }
 
-        data.db.setValuesLookup( data.lookupMeta, lookupRow );
-        add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        if ( data.batchResults != null ) {
+          batchKey = new RowMetaAndData( data.lookupMeta, lookupRow );
+          if ( !data.batchResults.containsKey( batchKey ) ) {
+            batchKey = null;
+          }
+        }
+        if ( batchKey != null ) {
+          // Already looked up by the batch query, the values get converted below so work on a copy
+          //
+          Object[] found = data.batchResults.get( batchKey );
+          add = found == null ? null : found.clone();
+        } else {
+          data.db.setValuesLookup( data.lookupMeta, lookupRow );
+          add = data.db.getLookup( meta.isFailingOnMultipleResults() );
+        }
         cache_now = true;
       }
     }
@@ -185,13 +219,14 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
       if ( !cacheHit ) {
         incrementLines();
         int[] types = meta.getReturnValueDefaultType();
+        RowMetaInterface returnedMeta = batchKey != null ? data.batchReturnMeta : data.db.getReturnRowMeta();
 
         // The assumption here is that the types are in the same order
         // as the returned lookup row, but since we make the lookup row
         // that should not be a problem.
         //
         for ( int i = 0; i < types.length; i++ ) {
-          ValueMetaInterface returned = data.db.getReturnRowMeta().getValueMeta( i );
+          ValueMetaInterface returned = returnedMeta.getValueMeta( i );
           ValueMetaInterface expected = data.returnMeta.getValueMeta( i );
 
           if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
@@ -357,6 +392,9 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchRows != null && !data.batchRows.isEmpty() && !flushBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
@@ -431,6 +469,9 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         loadAllTableDataIntoTheCache();
       }
 
+      if ( isBatchLookupPossible() ) {
+        initBatchLookup();
+      }
     }
 
     if ( log.isRowLevel() ) {
@@ -438,6 +479,18 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.batchRows != null ) {
+      data.batchRows.add( r );
+      if ( data.batchRows.size() < data.batchSize ) {
+        return true;
+      }
+      return flushBatch();
+    }
+
+    return lookupAndPutRow( r );
+  }
+
+  private boolean lookupAndPutRow( Object[] r ) throws KettleException {
     try {
       // add new lookup values to the row
       Object[] outputRow = lookupValues( getInputRowMeta(), r );
@@ -470,6 +523,147 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * Batching only makes sense for plain equality lookups that are not answered by a fully loaded cache. The lookups
+   * have to return at most one row per key, as the batch query can't tell which rows a single lookup would fail on.
+   */
+  private boolean isBatchLookupPossible() {
+    if ( meta.getLookupBatchSize() <= 1 || data.lookupMeta.isEmpty() || meta.isFailingOnMultipleResults()
+      || ( meta.isCached() && meta.isLoadingAllDataInCache() ) ) {
+      return false;
+    }
+    for ( int condition : data.conditions ) {
+      if ( condition != DatabaseLookupMeta.CONDITION_EQ ) {
+        return false;
+      }
+    }
+    return Math.min( meta.getLookupBatchSize(), MAX_BATCH_PARAMETERS / data.lookupMeta.size() ) > 1;
+  }
+
+  private void initBatchLookup() throws KettleException {
+    data.batchSize = Math.min( meta.getLookupBatchSize(), MAX_BATCH_PARAMETERS / data.lookupMeta.size() );
+    data.batchStatement = data.db.prepareBatchLookup(
+      environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ),
+      meta.getTableKeyField(), meta.getReturnValueField(), meta.getReturnValueNewName(), meta.getOrderByClause(),
+      data.batchSize );
+    data.batchRows = new ArrayList<>( data.batchSize );
+    data.batchResults = new HashMap<>();
+    data.batchReturnMeta = null;
+
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchLookupEnabled", data.batchSize ) );
+    }
+  }
+
+  /**
+   * Looks up the distinct keys of the buffered rows that are not cached with a single query and then releases the
+   * rows in their original order.
+   */
+  private boolean flushBatch() throws KettleException {
+    List<Object[]> rows = data.batchRows;
+    lookupBatch( rows );
+    data.batchRows = data.batchStatement != null ? new ArrayList<Object[]>( data.batchSize ) : null;
+
+    try {
+      for ( Object[] row : rows ) {
+        if ( !lookupAndPutRow( row ) ) {
+          return false;
+        }
+      }
+    } finally {
+      data.batchResults.clear();
+    }
+    return true;
+  }
+
+  /**
+   * Only the keys that come back are recorded. The database can match a key with a value that isn't equal to it once
+   * converted back (collation and padding of strings, DECIMAL or TIMESTAMP columns for numbers and dates), so the
+   * regular lookup verifies the other keys one by one.
+   */
+  @VisibleForTesting
+  void lookupBatch( List<Object[]> rows ) throws KettleException {
+    data.batchResults.clear();
+    if ( data.batchStatement == null ) {
+      return;
+    }
+
+    Set<RowMetaAndData> keys = new LinkedHashSet<>();
+    for ( Object[] row : rows ) {
+      Object[] lookupRow;
+      try {
+        lookupRow = createLookupRow( getInputRowMeta(), row );
+      } catch ( KettleException e ) {
+        // Reported when the row itself is processed
+        continue;
+      }
+      if ( meta.isCached() && data.cache.getRowFromCache( data.lookupMeta, lookupRow ) != null ) {
+        continue;
+      }
+      keys.add( new RowMetaAndData( data.lookupMeta, lookupRow ) );
+    }
+    if ( keys.isEmpty() ) {
+      return;
+    }
+
+    // The statement always takes batchSize keys: repeat the last one to fill it up
+    //
+    List<Object[]> parameters = new ArrayList<>( data.batchSize );
+    Object[] lastKey = null;
+    for ( RowMetaAndData key : keys ) {
+      lastKey = key.getData();
+      parameters.add( lastKey );
+    }
+    while ( parameters.size() < data.batchSize ) {
+      parameters.add( lastKey );
+    }
+
+    List<Object[]> found;
+    try {
+      found = data.db.getBatchLookup( data.batchStatement, data.lookupMeta, parameters );
+    } catch ( KettleDatabaseException e ) {
+      // Keep going one row at a time, the regular lookup reports the errors that also apply to it
+      //
+      logBasic( BaseMessages.getString( PKG, "DatabaseLookup.Log.BatchLookupFailed", e.getMessage() ) );
+      closeBatchStatement();
+      return;
+    }
+
+    RowMetaInterface resultMeta = data.db.getBatchLookupRowMeta();
+    int nrKeys = data.lookupMeta.size();
+    if ( data.batchReturnMeta == null ) {
+      data.batchReturnMeta = new RowMeta();
+      for ( int i = nrKeys; i < resultMeta.size(); i++ ) {
+        data.batchReturnMeta.addValueMeta( resultMeta.getValueMeta( i ) );
+      }
+    }
+
+    for ( Object[] row : found ) {
+      Object[] keyData = new Object[ nrKeys ];
+      for ( int i = 0; i < nrKeys; i++ ) {
+        ValueMetaInterface keyMeta = data.lookupMeta.getValueMeta( i );
+        ValueMetaInterface returned = resultMeta.getValueMeta( i );
+        keyData[ i ] = keyMeta.getType() == returned.getType() ? row[ i ] : keyMeta.convertData( returned, row[ i ] );
+      }
+      RowMetaAndData key = new RowMetaAndData( data.lookupMeta, keyData );
+      // The first row wins, just like the single row lookup does with its order by clause
+      if ( !data.batchResults.containsKey( key ) ) {
+        data.batchResults.put( key, Arrays.copyOfRange( row, nrKeys, resultMeta.size() ) );
+      }
+    }
+  }
+
+  private void closeBatchStatement() {
+    if ( data.batchStatement != null ) {
+      try {
+        data.db.closePreparedStatement( data.batchStatement );
+      } catch ( KettleDatabaseException e ) {
+        logError( e.getMessage() );
+      }
+      data.batchStatement = null;
+    }
+  }
+
   private void loadAllTableDataIntoTheCache() throws KettleException {
     DatabaseMeta dbMeta = meta.getDatabaseMeta();
 
@@ -646,15 +840,38 @@ public class DatabaseLookup extends BaseStep implements StepInterface {
     return false;
   }
 
+  private void logCacheStatistics() {
+    long lookups = data.cacheHits + data.cacheMisses;
+    getLogChannel().snap( Metrics.METRIC_STEP_CACHE_HITS, data.cacheHits );
+    getLogChannel().snap( Metrics.METRIC_STEP_CACHE_MISSES, data.cacheMisses );
+    if ( data.cache instanceof DefaultCache ) {
+      DefaultCache cache = (DefaultCache) data.cache;
+      getLogChannel().snap( Metrics.METRIC_STEP_CACHE_EVICTIONS, cache.getEvictions() );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.MaxCacheEntries", cache.getMaxSize() ) );
+        logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.OverflowCount", cache.getEvictions() ) );
+      }
+    }
+    if ( log.isDetailed() && lookups > 0 ) {
+      logDetailed( BaseMessages.getString( PKG, "DatabaseLookup.Log.CacheMissRate",
+        String.format( "%.2f%%", 100.0 * data.cacheMisses / lookups ) ) );
+    }
+  }
+
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (DatabaseLookupMeta) smi;
     data = (DatabaseLookupData) sdi;
 
     if ( data.db != null ) {
+      closeBatchStatement();
       data.db.disconnect();
     }
 
+    if ( data.cache != null ) {
+      logCacheStatistics();
+    }
+
     // Recover memory immediately, allow in-memory data to be garbage collected
     //
     data.cache = null;
@@ -22,6 +22,11 @@
 
 package org.pentaho.di.trans.steps.databaselookup;
 
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+
+import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.database.Database;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -49,6 +54,17 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public int[] conditions;
   public boolean hasDBCondition;
 
+  /** Cache statistics */
+  public long cacheHits;
+  public long cacheMisses;
+
+  /** Batched lookups: the buffered input rows, the statement and the values found per key */
+  public int batchSize;
+  public List<Object[]> batchRows;
+  public PreparedStatement batchStatement;
+  public Map<RowMetaAndData, Object[]> batchResults;
+  public RowMetaInterface batchReturnMeta;
+
   public DatabaseLookupData() {
     super();
 
@@ -61,7 +77,8 @@ public class DatabaseLookupData extends BaseStepData implements StepDataInterfac
   public interface Cache {
     /**
      * Returns the very first data row that matches all conditions or {@code null} if none has been found.
-     * Note, cache should keep the order in which elements were put into it.
+     * Note, cache should keep the order in which elements were put into it when the conditions are not all equality
+     * conditions.
      *
      * @param lookupMeta  meta object for dealing with {@code lookupRow}
      * @param lookupRow   tuple containing values for comparison
@@ -117,9 +117,15 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
   /** Limit the cache size to this! */
   private int cacheSize;
 
+  /** Limit the estimated memory used by the cache to this number of MB */
+  private int cacheMemorySize;
+
   /** Flag to make it load all data into the cache at startup */
   private boolean loadingAllDataInCache;
 
+  /** Look up this many distinct keys with a single query, 0 or 1 means one query per row */
+  private int lookupBatchSize;
+
   /** Have the lookup fail if multiple results were found, renders the orderByClause useless */
   private boolean failingOnMultipleResults;
 
@@ -160,6 +166,36 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     this.cacheSize = cacheSize;
   }
 
+  /**
+   * @return the maximum estimated memory size of the cache in MB, 0 means no limit
+   */
+  public int getCacheMemorySize() {
+    return cacheMemorySize;
+  }
+
+  /**
+   * @param cacheMemorySize
+   *          the maximum estimated memory size of the cache in MB, 0 means no limit
+   */
+  public void setCacheMemorySize( int cacheMemorySize ) {
+    this.cacheMemorySize = cacheMemorySize;
+  }
+
+  /**
+   * @return the number of distinct keys that are looked up with a single query, 0 or 1 means one query per row
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize
+   *          the number of distinct keys that are looked up with a single query, 0 or 1 means one query per row
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
   /**
    * @return Returns the database.
    */
@@ -397,6 +433,8 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       loadingAllDataInCache = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "cache_load_all" ) );
       csize = XMLHandler.getTagValue( stepnode, "cache_size" );
       cacheSize = Const.toInt( csize, 0 );
+      cacheMemorySize = Const.toInt( XMLHandler.getTagValue( stepnode, "cache_memory_size" ), 0 );
+      lookupBatchSize = Const.toInt( XMLHandler.getTagValue( stepnode, "lookup_batch_size" ), 0 );
       schemaName = XMLHandler.getTagValue( stepnode, "lookup", "schema" );
       tablename = XMLHandler.getTagValue( stepnode, "lookup", "table" );
 
@@ -451,6 +489,8 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     databaseMeta = null;
     cached = false;
     cacheSize = 0;
+    cacheMemorySize = 0;
+    lookupBatchSize = 0;
     schemaName = "";
     tablename = BaseMessages.getString( PKG, "DatabaseLookupMeta.Default.TableName" );
 
@@ -516,6 +556,8 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache", cached ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache_load_all", loadingAllDataInCache ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "cache_size", cacheSize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "cache_memory_size", cacheMemorySize ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "lookup_batch_size", lookupBatchSize ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( "      " ).append( XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " ).append( XMLHandler.addTagValue( "table", tablename ) );
@@ -555,6 +597,8 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       cached = rep.getStepAttributeBoolean( id_step, "cache" );
       loadingAllDataInCache = rep.getStepAttributeBoolean( id_step, "cache_load_all" );
       cacheSize = (int) rep.getStepAttributeInteger( id_step, "cache_size" );
+      cacheMemorySize = (int) rep.getStepAttributeInteger( id_step, "cache_memory_size" );
+      lookupBatchSize = (int) rep.getStepAttributeInteger( id_step, "lookup_batch_size" );
       schemaName = rep.getStepAttributeString( id_step, "lookup_schema" );
       tablename = rep.getStepAttributeString( id_step, "lookup_table" );
       orderByClause = rep.getStepAttributeString( id_step, "lookup_orderby" );
@@ -593,6 +637,8 @@ public class DatabaseLookupMeta extends BaseStepMeta implements StepMetaInterfac
       rep.saveStepAttribute( id_transformation, id_step, "cache", cached );
       rep.saveStepAttribute( id_transformation, id_step, "cache_load_all", loadingAllDataInCache );
       rep.saveStepAttribute( id_transformation, id_step, "cache_size", cacheSize );
+      rep.saveStepAttribute( id_transformation, id_step, "cache_memory_size", cacheMemorySize );
+      rep.saveStepAttribute( id_transformation, id_step, "lookup_batch_size", lookupBatchSize );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_table", tablename );
       rep.saveStepAttribute( id_transformation, id_step, "lookup_orderby", orderByClause );
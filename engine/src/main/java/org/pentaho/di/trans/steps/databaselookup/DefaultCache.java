@@ -27,16 +27,26 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
 
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
- * Old code, copied from {@linkplain DatabaseLookup}
+ * Old code, copied from {@linkplain DatabaseLookup}<br>
+ * <br>
+ * The entries are kept in access order: a key found with an equality lookup becomes the most recently used entry and
+ * the least recently used entries are evicted first. Range lookups only scan the entries so they don't change the
+ * order. The cache can be bounded by a number of rows, by an estimated memory size or both.
  *
  * @author Andrey Khayrutdinov
  */
 public class DefaultCache implements DatabaseLookupData.Cache {
 
+  /** Estimated overhead of a cache entry: the map entry, the key wrapper and the two arrays */
+  private static final long ENTRY_OVERHEAD = 112L;
+
   public static DefaultCache newCache( DatabaseLookupData data, int cacheSize ) {
     if ( cacheSize > 0 ) {
       cacheSize = (int) ( cacheSize * 1.5 );
@@ -50,9 +60,13 @@ public class DefaultCache implements DatabaseLookupData.Cache {
   private final DatabaseLookupData data;
   private final LinkedHashMap<RowMetaAndData, Object[]> map;
 
+  private long memoryUsage;
+  private long evictions;
+  private int maxSize;
+
   DefaultCache( DatabaseLookupData data, int capacity ) {
     this.data = data;
-    map = new LinkedHashMap<>( capacity );
+    map = new LinkedHashMap<>( capacity, 0.75f, true );
   }
 
   @Override
@@ -144,12 +158,84 @@ public class DefaultCache implements DatabaseLookupData.Cache {
     RowMetaAndData rowMetaAndData = new RowMetaAndData( lookupMeta, lookupRow );
     if ( !map.containsKey( rowMetaAndData ) ) {
       map.put( rowMetaAndData, add );
+      memoryUsage += estimateSize( lookupRow, add );
+      maxSize = Math.max( maxSize, map.size() );
     }
 
     // DEinspanjer 2009-02-01: If you had previously set a cache size and then turned on load all, this
     // method would throw out entries if the previous cache size wasn't big enough.
-    if ( !meta.isLoadingAllDataInCache() && meta.getCacheSize() > 0 && map.size() > meta.getCacheSize() ) {
-      map.remove( map.entrySet().iterator().next().getKey() );
+    if ( !meta.isLoadingAllDataInCache() ) {
+      long maxMemory = meta.getCacheMemorySize() * 1024L * 1024L;
+      Iterator<Map.Entry<RowMetaAndData, Object[]>> iterator = map.entrySet().iterator();
+      while ( map.size() > 1
+        && ( ( meta.getCacheSize() > 0 && map.size() > meta.getCacheSize() )
+        || ( maxMemory > 0 && memoryUsage > maxMemory ) ) ) {
+        // The first entry is the least recently used one
+        //
+        Map.Entry<RowMetaAndData, Object[]> eldest = iterator.next();
+        memoryUsage -= estimateSize( eldest.getKey().getData(), eldest.getValue() );
+        iterator.remove();
+        evictions++;
+      }
+    }
+  }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public int size() {
+    return map.size();
+  }
+
+  /**
+   * @return the highest number of entries the cache held
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return the number of entries removed to stay within the size or memory limit
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @return the estimated number of bytes used by the entries in the cache
+   */
+  public long getMemoryUsage() {
+    return memoryUsage;
+  }
+
+  /**
+   * A rough estimate of the heap size of a cache entry, good enough to keep the cache within a memory budget.
+   */
+  static long estimateSize( Object[] key, Object[] value ) {
+    return ENTRY_OVERHEAD + estimateSize( key ) + estimateSize( value );
+  }
+
+  private static long estimateSize( Object[] row ) {
+    if ( row == null ) {
+      return 0L;
+    }
+    long size = 4L * row.length;
+    for ( Object object : row ) {
+      if ( object == null ) {
+        continue;
+      }
+      if ( object instanceof String ) {
+        size += 40L + 2L * ( (String) object ).length();
+      } else if ( object instanceof byte[] ) {
+        size += 16L + ( (byte[]) object ).length;
+      } else if ( object instanceof BigDecimal ) {
+        size += 64L;
+      } else if ( object instanceof Date ) {
+        size += 32L;
+      } else {
+        size += 16L;
+      }
     }
+    return size;
   }
 }
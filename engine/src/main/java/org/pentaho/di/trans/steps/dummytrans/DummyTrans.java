@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.steps.dummytrans;
 
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
@@ -47,16 +48,16 @@ public class DummyTrans extends BaseStep implements StepInterface {
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
-    Object[] r = getRow(); // get row, set busy!
+    RowBatch batch = getRowBatch( RowBatch.DEFAULT_SIZE ); // get rows, set busy!
     // no more input to be expected...
-    if ( r == null ) {
+    if ( batch == null ) {
       setOutputDone();
       return false;
     }
 
-    putRow( getInputRowMeta(), r ); // copy row to possible alternate rowset(s).
+    putRowBatch( batch ); // copy rows to possible alternate rowset(s).
 
-    if ( checkFeedback( getLinesRead() ) ) {
+    if ( checkFeedback( getLinesRead(), batch.size() ) ) {
       if ( log.isBasic() ) {
         logBasic( BaseMessages.getString( PKG, "DummyTrans.Log.LineNumber" ) + getLinesRead() );
       }
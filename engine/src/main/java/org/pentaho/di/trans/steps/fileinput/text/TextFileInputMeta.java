@@ -208,6 +208,10 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     @Injection( name = "LENGTH" )
     public String length;
 
+    /** Flag indicating that the fields are passed on as binary strings and only converted when needed */
+    @Injection( name = "LAZY_CONVERSION" )
+    public boolean lazyConversionActive;
+
   }
 
   /** The filters to use... */
@@ -415,6 +419,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       // Backward compatible
 
       content.dateFormatLenient = !NO.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "date_format_lenient" ) );
+      content.lazyConversionActive = YES.equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "lazy_conversion" ) );
       String dateLocale = XMLHandler.getTagValue( stepnode, "date_format_locale" );
       if ( dateLocale != null ) {
         content.dateFormatLocale = EnvUtil.createLocale( dateLocale );
@@ -502,6 +507,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
     content.rowNumberField = "";
     content.dateFormatLenient = true;
     content.rowNumberByFile = false;
+    content.lazyConversionActive = false;
 
     errorHandling.errorIgnored = false;
     errorHandling.skipBadFiles = false;
@@ -574,6 +580,16 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
         v.setDateFormatLenient( content.dateFormatLenient );
         v.setDateFormatLocale( content.dateFormatLocale );
         v.setTrimType( field.getTrimType() );
+        if ( content.lazyConversionActive ) {
+          // The raw field text is passed on in the file encoding and only converted when a later step needs it.
+          //
+          v.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+          v.setStringEncoding( space == null ? content.encoding : space.environmentSubstitute( content.encoding ) );
+          ValueMetaInterface storageMetadata = ValueMetaFactory.cloneValueMeta( v, ValueMetaInterface.TYPE_STRING );
+          storageMetadata.setStorageType( ValueMetaInterface.STORAGE_TYPE_NORMAL );
+          storageMetadata.setLength( -1, -1 );
+          v.setStorageMetadata( storageMetadata );
+        }
 
         row.addValueMeta( v );
       } catch ( Exception e ) {
@@ -800,6 +816,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
         errorHandling.lineNumberFilesExtension ) );
 
     retval.append( "    " ).append( XMLHandler.addTagValue( "date_format_lenient", content.dateFormatLenient ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "lazy_conversion", content.lazyConversionActive ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "date_format_locale", content.dateFormatLocale != null
         ? content.dateFormatLocale.toString() : null ) );
 
@@ -960,6 +977,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
       errorHandling.lineNumberFilesExtension = rep.getStepAttributeString( id_step, "line_number_files_ext" );
 
       content.dateFormatLenient = rep.getStepAttributeBoolean( id_step, 0, "date_format_lenient", true );
+      content.lazyConversionActive = rep.getStepAttributeBoolean( id_step, 0, "lazy_conversion", false );
 
       String dateLocale = rep.getStepAttributeString( id_step, 0, "date_format_locale" );
       if ( dateLocale != null ) {
@@ -1081,6 +1099,7 @@ public class TextFileInputMeta extends BaseFileInputMeta<BaseFileInputAdditional
           errorHandling.lineNumberFilesExtension );
 
       rep.saveStepAttribute( id_transformation, id_step, "date_format_lenient", content.dateFormatLenient );
+      rep.saveStepAttribute( id_transformation, id_step, "lazy_conversion", content.lazyConversionActive );
       rep.saveStepAttribute( id_transformation, id_step, "date_format_locale", content.dateFormatLocale != null
           ? content.dateFormatLocale.toString() : null );
 
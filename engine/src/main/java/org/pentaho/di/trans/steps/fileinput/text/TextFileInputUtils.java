@@ -22,6 +22,7 @@
 
 package org.pentaho.di.trans.steps.fileinput.text;
 
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
@@ -29,6 +30,7 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.exception.KettleException;
@@ -435,6 +437,25 @@ public class TextFileInputUtils {
     return null;
   }
 
+  /**
+   * Encodes the raw text of a field for lazy conversion, applying the null-if and if-null settings of the field.
+   *
+   * @return the encoded text or null if the field is null
+   */
+  static byte[] convertStringToBinaryString( String pol, String encoding, String nullif, String ifnull )
+    throws UnsupportedEncodingException {
+    if ( pol != null && !Utils.isEmpty( nullif ) && nullif.equals( pol ) ) {
+      pol = null;
+    }
+    if ( Utils.isEmpty( pol ) && !Utils.isEmpty( ifnull ) ) {
+      pol = ifnull;
+    }
+    if ( pol == null ) {
+      return null;
+    }
+    return Utils.isEmpty( encoding ) ? pol.getBytes() : pol.getBytes( encoding );
+  }
+
   public static final Object[] convertLineToRow( LogChannelInterface log, TextFileLine textFileLine,
                                                  TextFileInputMeta info, Object[] passThruFields, int nrPassThruFields, RowMetaInterface outputRowMeta,
                                                  RowMetaInterface convertRowMeta, String fname, long rowNr, String delimiter, String enclosure,
@@ -506,10 +527,17 @@ public class TextFileInputUtils {
         if ( fieldnr < strings.length ) {
           String pol = strings[ fieldnr ];
           try {
-            if ( valueMeta.isNull( pol ) || !Utils.isEmpty( nullif ) && nullif.equals( pol ) ) {
-              pol = null;
+            if ( valueMeta.isStorageBinaryString() ) {
+              // Lazy conversion: keep the raw text, the conversion is done by the step that needs the value.
+              //
+              byte[] binary = convertStringToBinaryString( pol, valueMeta.getStringEncoding(), nullif, ifnull );
+              value = ArrayUtils.isEmpty( binary ) && valueMeta.isNull( binary ) ? null : binary;
+            } else {
+              if ( valueMeta.isNull( pol ) || !Utils.isEmpty( nullif ) && nullif.equals( pol ) ) {
+                pol = null;
+              }
+              value = valueMeta.convertDataFromString( pol, convertMeta, nullif, ifnull, trim_type );
             }
-            value = valueMeta.convertDataFromString( pol, convertMeta, nullif, ifnull, trim_type );
           } catch ( Exception e ) {
             // OK, give some feedback!
             // when getting fields, failOnParseError will be set to false, as we do not want one mis-configured field
@@ -27,6 +27,7 @@ import java.util.List;
 import org.pentaho.di.core.BlockingRowSet;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.FrozenRowMeta;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -135,7 +136,11 @@ public class MappingInput extends BaseStep implements StepInterface {
 
       // This is typical side effect of ESR-4178
       data.outputRowMeta.setValueMetaList( data.outputRowMeta.getValueMetaList() );
-      this.getInputRowMeta().setValueMetaList( this.getInputRowMeta().getValueMetaList() );
+      // A frozen row metadata can't be modified and has no name cache to refresh
+      //
+      if ( !( getInputRowMeta() instanceof FrozenRowMeta ) ) {
+        this.getInputRowMeta().setValueMetaList( this.getInputRowMeta().getValueMetaList() );
+      }
 
       // The input row meta has been manipulated correctly for the call to meta.getFields(), so create a blank
       // outputRowMeta
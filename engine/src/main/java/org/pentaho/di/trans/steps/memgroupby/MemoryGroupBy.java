@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.io.DataInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -33,6 +35,7 @@ import org.apache.commons.math.stat.descriptive.rank.Percentile;
 import org.pentaho.di.core.Const;
 import org.pentaho.di.core.util.Utils;
 import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
@@ -202,23 +205,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   private void handleLastOfGroup() throws KettleException {
     // Dump the content of the map...
     //
-    for ( HashEntry entry : data.map.keySet() ) {
-      Aggregate aggregate = data.map.get( entry );
-      Object[] aggregateResult = getAggregateResult( aggregate );
-
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
-      }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
-      }
-      putRow( data.outputRowMeta, outputRowData );
-    }
+    dumpMap();
 
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
+    // Rows are only spilled when the map holds at least one group so the map isn't empty in that case.
     //
     if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
       Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
@@ -237,6 +228,146 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
       }
       putRow( data.outputRowMeta, outputRowData );
     }
+
+    // Then aggregate the groups that didn't fit in memory, one temporary file at a time...
+    //
+    aggregateSpilledRows();
+  }
+
+  private void dumpMap() throws KettleException {
+    for ( HashEntry entry : data.map.keySet() ) {
+      Aggregate aggregate = data.map.get( entry );
+      Object[] aggregateResult = getAggregateResult( aggregate );
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[index++] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[i] );
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        outputRowData[index++] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[i] );
+      }
+      putRow( data.outputRowMeta, outputRowData );
+    }
+  }
+
+  /**
+   * Reads back the spilled rows partition by partition. Every partition only holds complete groups so its groups can
+   * be aggregated and passed on without looking at the other partitions. A partition with too many groups spills again
+   * to the next level, with a different hash mix.
+   */
+  private void aggregateSpilledRows() throws KettleException {
+    queueSpillPartitions();
+    while ( !data.pendingPartitions.isEmpty() ) {
+      SpillPartition partition = data.pendingPartitions.removeFirst();
+
+      data.map.clear();
+      data.spilling = false;
+      data.freeCounter = 0;
+      data.spillLevel = partition.getLevel() + 1;
+
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Log.AggregatingTempFile", partition.getNrRows(),
+          partition.getFile().getName().getURI() ) );
+      }
+      try {
+        partition.closeOutput();
+        try ( DataInputStream inputStream = partition.openInput() ) {
+          for ( long i = 0; i < partition.getNrRows(); i++ ) {
+            addToAggregate( data.inputRowMeta.readData( inputStream ) );
+          }
+        }
+      } catch ( IOException e ) {
+        throw new KettleException( BaseMessages.getString(
+          PKG, "MemoryGroupBy.Exception.UnableToReadBackRowFromTemporaryFile" ), e );
+      } finally {
+        deleteSpillPartition( partition );
+      }
+
+      dumpMap();
+      queueSpillPartitions();
+    }
+    data.spilling = false;
+    data.spillLevel = 0;
+  }
+
+  private void queueSpillPartitions() {
+    if ( data.spillPartitions != null ) {
+      for ( SpillPartition partition : data.spillPartitions ) {
+        if ( partition != null ) {
+          data.pendingPartitions.addLast( partition );
+        }
+      }
+      data.spillPartitions = null;
+    }
+  }
+
+  private void deleteSpillPartition( SpillPartition partition ) {
+    try {
+      partition.delete();
+    } catch ( IOException e ) {
+      logError( e.getLocalizedMessage(), e );
+    }
+  }
+
+  /**
+   * Decides if a new group still fits in memory. Once the maximum number of groups or the free memory limit is reached
+   * no new groups are added to the map until the end of the batch. The map always keeps at least one group so every
+   * pass over a spilled partition makes progress.
+   */
+  private boolean isSpillNeeded() {
+    if ( data.spilling ) {
+      return true;
+    }
+    if ( data.map.isEmpty() ) {
+      return false;
+    }
+    boolean full = data.maxGroupsInMemory > 0 && data.map.size() >= data.maxGroupsInMemory;
+    if ( !full && data.freeMemoryPctLimit > 0 && ++data.freeCounter >= 1000 ) {
+      data.freeCounter = 0;
+      full = Const.getPercentageFreeMemory() < data.freeMemoryPctLimit;
+    }
+    if ( full ) {
+      data.spilling = true;
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "MemoryGroupBy.Log.SpillingToDisk", data.map.size() ) );
+      }
+    }
+    return full;
+  }
+
+  /**
+   * Writes the input row of a group that isn't in memory to the temporary file of its hash partition.
+   */
+  private void spillRow( HashEntry entry, Object[] r ) throws KettleException {
+    if ( data.spillPartitions == null ) {
+      data.spillPartitions = new SpillPartition[MemoryGroupByData.NR_SPILL_PARTITIONS];
+    }
+    int nr = Math.floorMod( mixHash( entry.hashCode(), data.spillLevel ), data.spillPartitions.length );
+    SpillPartition partition = data.spillPartitions[nr];
+    if ( partition == null ) {
+      try {
+        partition = new SpillPartition( data.spillLevel, meta.getPrefix(),
+          environmentSubstitute( meta.getDirectory() ), getTransMeta() );
+      } catch ( KettleFileException e ) {
+        throw new KettleException( BaseMessages.getString(
+          PKG, "MemoryGroupBy.Exception.UnableToCreateTemporaryFile" ), e );
+      }
+      data.spillPartitions[nr] = partition;
+    }
+    partition.writeRow( data.inputRowMeta, r );
+  }
+
+  /**
+   * Spreads the bits of the group hash differently on every spill level, otherwise all the groups of a spilled
+   * partition would end up in the same partition again.
+   */
+  static int mixHash( int hash, int level ) {
+    int h = hash ^ ( level * 0x9E3779B9 );
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    return h;
   }
 
   @VisibleForTesting
@@ -270,6 +401,11 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     Aggregate aggregate = data.map.get( entry );
     if ( aggregate == null ) {
+      if ( isSpillNeeded() ) {
+        spillRow( entry, r );
+        return;
+      }
+
       // Create a new value...
       //
       aggregate = new Aggregate();
@@ -583,6 +719,8 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
 
     if ( super.init( smi, sdi ) ) {
       data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+      data.maxGroupsInMemory = Const.toInt( environmentSubstitute( meta.getMaxGroupsInMemory() ), 0 );
+      data.freeMemoryPctLimit = Const.toInt( environmentSubstitute( meta.getFreeMemoryLimit() ), 0 );
       return true;
     }
     return false;
@@ -591,7 +729,22 @@ public class MemoryGroupBy extends BaseStep implements StepInterface {
   @Override
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     super.dispose( smi, sdi );
-    ( (MemoryGroupByData) sdi ).clear();
+
+    // Remove the temporary files left behind when the step was stopped
+    //
+    MemoryGroupByData groupByData = (MemoryGroupByData) sdi;
+    if ( groupByData.spillPartitions != null ) {
+      for ( SpillPartition partition : groupByData.spillPartitions ) {
+        if ( partition != null ) {
+          deleteSpillPartition( partition );
+        }
+      }
+      groupByData.spillPartitions = null;
+    }
+    while ( !groupByData.pendingPartitions.isEmpty() ) {
+      deleteSpillPartition( groupByData.pendingPartitions.removeFirst() );
+    }
+    groupByData.clear();
   }
 
   @Override
@@ -22,6 +22,8 @@
 
 package org.pentaho.di.trans.steps.memgroupby;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 
 import org.pentaho.di.core.exception.KettleValueException;
@@ -99,6 +101,19 @@ public class MemoryGroupByData extends BaseStepData implements StepDataInterface
 
   public boolean newBatch;
 
+  /** The number of temporary files the rows of the groups that don't fit in memory are spread over. */
+  static final int NR_SPILL_PARTITIONS = 16;
+
+  public int maxGroupsInMemory;
+  public int freeMemoryPctLimit;
+  public int freeCounter;
+
+  /** True once the map is full: rows of new groups go to the spill partitions until the end of the batch. */
+  public boolean spilling;
+  public int spillLevel;
+  SpillPartition[] spillPartitions;
+  Deque<SpillPartition> pendingPartitions = new ArrayDeque<>();
+
   public MemoryGroupByData() {
     super();
 
@@ -99,6 +99,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
 
   public static final int TYPE_GROUP_COUNT_ANY = 16;
 
+  public static final String DEFAULT_DIRECTORY = "%%java.io.tmpdir%%";
+
+  public static final String DEFAULT_PREFIX = "grp";
+
   public static final String[] typeGroupCode = /* WARNING: DO NOT TRANSLATE THIS. WE ARE SERIOUS, DON'T TRANSLATE! */
   {
     "-", "SUM", "AVERAGE", "MEDIAN", "PERCENTILE", "MIN", "MAX", "COUNT_ALL", "CONCAT_COMMA", "FIRST", "LAST",
@@ -146,6 +150,22 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   /** Flag to indicate that we always give back one row. Defaults to true for existing transformations. */
   private boolean alwaysGivingBackOneRow;
 
+  /** Directory to store the temp files of groups that don't fit in memory */
+  @Injection( name = "DIRECTORY" )
+  private String directory;
+
+  /** Prefix of the temp files */
+  @Injection( name = "PREFIX" )
+  private String prefix;
+
+  /** The maximum number of groups to keep in memory, rows of other groups are spilled to disk. Empty: no limit */
+  @Injection( name = "MAX_GROUPS_IN_MEMORY" )
+  private String maxGroupsInMemory;
+
+  /** The free memory limit in percentages below which rows of new groups are spilled to disk. Empty: no limit */
+  @Injection( name = "FREE_MEMORY_LIMIT" )
+  private String freeMemoryLimit;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -289,6 +309,11 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       } else {
         alwaysGivingBackOneRow = "Y".equalsIgnoreCase( giveBackRow );
       }
+
+      directory = Const.NVL( XMLHandler.getTagValue( stepnode, "directory" ), DEFAULT_DIRECTORY );
+      prefix = Const.NVL( XMLHandler.getTagValue( stepnode, "prefix" ), DEFAULT_PREFIX );
+      maxGroupsInMemory = XMLHandler.getTagValue( stepnode, "max_groups_in_memory" );
+      freeMemoryLimit = XMLHandler.getTagValue( stepnode, "free_memory" );
     } catch ( Exception e ) {
       throw new KettleXMLException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnableToLoadStepInfoFromXML" ), e );
@@ -329,6 +354,11 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     int nrfields = 0;
 
     allocate( sizegroup, nrfields );
+
+    directory = DEFAULT_DIRECTORY;
+    prefix = DEFAULT_PREFIX;
+    maxGroupsInMemory = null;
+    freeMemoryLimit = null;
   }
 
   @Override
@@ -445,6 +475,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     StringBuilder retval = new StringBuilder( 500 );
 
     retval.append( "      " ).append( XMLHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "directory", directory ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "prefix", prefix ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "max_groups_in_memory", maxGroupsInMemory ) );
+    retval.append( "      " ).append( XMLHandler.addTagValue( "free_memory", freeMemoryLimit ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -494,6 +528,11 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
       }
 
       alwaysGivingBackOneRow = rep.getStepAttributeBoolean( id_step, 0, "give_back_row", hasNumberOfValues );
+
+      directory = Const.NVL( rep.getStepAttributeString( id_step, "directory" ), DEFAULT_DIRECTORY );
+      prefix = Const.NVL( rep.getStepAttributeString( id_step, "prefix" ), DEFAULT_PREFIX );
+      maxGroupsInMemory = rep.getStepAttributeString( id_step, "max_groups_in_memory" );
+      freeMemoryLimit = rep.getStepAttributeString( id_step, "free_memory" );
     } catch ( Exception e ) {
       throw new KettleException( BaseMessages.getString(
         PKG, "MemoryGroupByMeta.Exception.UnexpectedErrorInReadingStepInfoFromRepository" ), e );
@@ -504,6 +543,10 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
   public void saveRep( Repository rep, IMetaStore metaStore, ObjectId id_transformation, ObjectId id_step ) throws KettleException {
     try {
       rep.saveStepAttribute( id_transformation, id_step, "give_back_row", alwaysGivingBackOneRow );
+      rep.saveStepAttribute( id_transformation, id_step, "directory", directory );
+      rep.saveStepAttribute( id_transformation, id_step, "prefix", prefix );
+      rep.saveStepAttribute( id_transformation, id_step, "max_groups_in_memory", maxGroupsInMemory );
+      rep.saveStepAttribute( id_transformation, id_step, "free_memory", freeMemoryLimit );
 
       for ( int i = 0; i < groupField.length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "group_name", groupField[i] );
@@ -567,6 +610,66 @@ public class MemoryGroupByMeta extends BaseStepMeta implements StepMetaInterface
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return the directory to store the temp files in
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param directory
+   *          the directory to store the temp files in
+   */
+  public void setDirectory( String directory ) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return the prefix of the temp files
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * @param prefix
+   *          the prefix of the temp files
+   */
+  public void setPrefix( String prefix ) {
+    this.prefix = prefix;
+  }
+
+  /**
+   * @return the maximum number of groups to keep in memory, empty if there is no limit
+   */
+  public String getMaxGroupsInMemory() {
+    return maxGroupsInMemory;
+  }
+
+  /**
+   * @param maxGroupsInMemory
+   *          the maximum number of groups to keep in memory, empty if there is no limit
+   */
+  public void setMaxGroupsInMemory( String maxGroupsInMemory ) {
+    this.maxGroupsInMemory = maxGroupsInMemory;
+  }
+
+  /**
+   * @return the free memory percentage below which rows of new groups are spilled to disk, empty if there is no limit
+   */
+  public String getFreeMemoryLimit() {
+    return freeMemoryLimit;
+  }
+
+  /**
+   * @param freeMemoryLimit
+   *          the free memory percentage below which rows of new groups are spilled to disk, empty if there is no limit
+   */
+  public void setFreeMemoryLimit( String freeMemoryLimit ) {
+    this.freeMemoryLimit = freeMemoryLimit;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.commons.vfs2.FileObject;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleFileException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.variables.VariableSpace;
+import org.pentaho.di.core.vfs.KettleVFS;
+
+/**
+ * A temp file with the input rows of the groups in one hash partition that didn't fit in memory. The rows are kept in
+ * their original order so the aggregates come out exactly as if the groups had stayed in memory.
+ */
+class SpillPartition {
+
+  private final int level;
+  private final FileObject file;
+  private DataOutputStream outputStream;
+  private long nrRows;
+
+  /**
+   * @param level
+   *          0 for rows spilled from the input, n + 1 for rows spilled while aggregating a partition of level n
+   */
+  SpillPartition( int level, String prefix, String directory, VariableSpace space ) throws KettleFileException {
+    this.level = level;
+    this.file = KettleVFS.createTempFile( prefix, ".tmp", directory, space );
+  }
+
+  void writeRow( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
+    if ( outputStream == null ) {
+      outputStream = new DataOutputStream( new BufferedOutputStream( KettleVFS.getOutputStream( file, false ), 50000 ) );
+    }
+    rowMeta.writeData( outputStream, row );
+    nrRows++;
+  }
+
+  /**
+   * Finishes writing, the rows can be read back after this.
+   */
+  void closeOutput() throws IOException {
+    if ( outputStream != null ) {
+      outputStream.close();
+      outputStream = null;
+    }
+  }
+
+  DataInputStream openInput() throws IOException {
+    return new DataInputStream( new BufferedInputStream( KettleVFS.getInputStream( file ), 50000 ) );
+  }
+
+  /**
+   * Closes the file if needed and removes it.
+   */
+  void delete() throws IOException {
+    try {
+      closeOutput();
+    } finally {
+      file.delete();
+    }
+  }
+
+  int getLevel() {
+    return level;
+  }
+
+  long getNrRows() {
+    return nrRows;
+  }
+
+  FileObject getFile() {
+    return file;
+  }
+}
@@ -53,6 +53,10 @@ public class RowsFromResult extends BaseStep implements StepInterface {
   }
 
   public boolean processRow( StepMetaInterface smi, StepDataInterface sdi ) throws KettleException {
+    if ( !getInputRowSets().isEmpty() ) {
+      return processInjectedRow( sdi );
+    }
+
     Result previousResult = getTrans().getPreviousResult();
     if ( previousResult == null || getLinesRead() >= previousResult.getRows().size() ) {
       setOutputDone();
@@ -79,4 +83,22 @@ public class RowsFromResult extends BaseStep implements StepInterface {
 
     return true;
   }
+
+  /**
+   * A transformation executor that keeps this transformation running between groups of rows injects the rows of every
+   * group with a row producer instead of passing them as the previous result.
+   */
+  private boolean processInjectedRow( StepDataInterface sdi ) throws KettleException {
+    Object[] row = getRow();
+    if ( row == null ) {
+      setOutputDone();
+      return false;
+    }
+
+    data = (RowsFromResultData) sdi;
+    data.outputRowMeta = getInputRowMeta();
+    putRow( data.outputRowMeta, row );
+
+    return true;
+  }
 }
@@ -77,6 +77,17 @@ public class RowsToResult extends BaseStep implements StepInterface {
     return true;
   }
 
+  /**
+   * When running single threaded the rows are handed over after every batch so the result of every batch can be
+   * picked up separately.
+   */
+  @Override
+  public void batchComplete() throws KettleException {
+    getTrans().getResultRows().addAll( data.rows );
+    getTrans().setResultRowSet( true );
+    data.rows.clear();
+  }
+
   public boolean init( StepMetaInterface smi, StepDataInterface sdi ) {
     meta = (RowsToResultMeta) smi;
     data = (RowsToResultData) sdi;
@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A tournament tree of losers used to merge sorted runs. Each source (temp file) has a leaf holding its current
+ * smallest value, the inner nodes remember the loser of the match played there and the overall winner is kept on
+ * top. Replacing the winner only replays the matches on the path from its leaf to the root, so every merged row costs
+ * log2(number of sources) comparisons.<br>
+ * <br>
+ * A null value means the source is exhausted and loses every match. Equal values are won by the lowest source index.
+ *
+ * @param <T>
+ *          the type of the values being merged
+ */
+class LoserTree<T> {
+
+  private final Comparator<? super T> comparator;
+  private final Object[] values;
+  private final int[] tree;
+  private final int size;
+
+  /**
+   * @param heads
+   *          the first (smallest) value of every source, null for empty sources
+   * @param comparator
+   *          the order of the sources
+   */
+  LoserTree( List<? extends T> heads, Comparator<? super T> comparator ) {
+    this.comparator = comparator;
+    this.size = heads.size();
+    this.values = heads.toArray();
+    this.tree = new int[Math.max( size, 1 )];
+
+    if ( size > 0 ) {
+      // Play all matches bottom up: winners[size + i] is leaf i, winners[1] the overall winner.
+      //
+      int[] winners = new int[2 * size];
+      for ( int i = 0; i < size; i++ ) {
+        winners[size + i] = i;
+      }
+      for ( int node = size - 1; node > 0; node-- ) {
+        int left = winners[2 * node];
+        int right = winners[2 * node + 1];
+        if ( beats( left, right ) ) {
+          winners[node] = left;
+          tree[node] = right;
+        } else {
+          winners[node] = right;
+          tree[node] = left;
+        }
+      }
+      tree[0] = size == 1 ? 0 : winners[1];
+    }
+  }
+
+  /**
+   * @return the index of the source holding the smallest value
+   */
+  int getWinner() {
+    return tree[0];
+  }
+
+  /**
+   * @return the smallest value of all sources, null when all sources are exhausted
+   */
+  @SuppressWarnings( "unchecked" )
+  T getWinnerValue() {
+    return size == 0 ? null : (T) values[tree[0]];
+  }
+
+  /**
+   * Replaces the value of the winning source with the next value of that source.
+   *
+   * @param value
+   *          the next value of the winning source or null if it is exhausted
+   */
+  void replaceWinner( T value ) {
+    int winner = tree[0];
+    values[winner] = value;
+    for ( int node = ( winner + size ) / 2; node > 0; node /= 2 ) {
+      if ( beats( tree[node], winner ) ) {
+        int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private boolean beats( int source1, int source2 ) {
+    Object value1 = values[source1];
+    Object value2 = values[source2];
+    if ( value1 == null ) {
+      return value2 == null && source1 < source2;
+    }
+    if ( value2 == null ) {
+      return true;
+    }
+    int cmp = comparator.compare( (T) value1, (T) value2 );
+    return cmp < 0 || ( cmp == 0 && source1 < source2 );
+  }
+}
@@ -0,0 +1,122 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBase;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+/**
+ * Encodes the value of the first sort key of a row into a long. The encoding follows the order of
+ * {@link ValueMetaInterface#compare(Object, Object)}, including the null ordering and descending sorts: if the
+ * prefixes of two rows differ, the rows compare the same way as their prefixes. If the prefixes are equal the rows
+ * still have to be compared in full. This turns most comparisons during a sort into a single primitive comparison.
+ */
+class SortKeyPrefix {
+
+  private static final int STRING_PREFIX_CHARS = 3;
+  private static final int BITS_PER_CHAR = 17;
+
+  private final ValueMetaInterface valueMeta;
+  private final boolean descending;
+
+  private SortKeyPrefix( ValueMetaInterface valueMeta ) {
+    this.valueMeta = valueMeta;
+    this.descending = valueMeta.isSortedDescending();
+  }
+
+  /**
+   * @param valueMeta
+   *          the metadata of the first sort key
+   * @return the prefix encoder or null if values of this type can't be encoded while keeping their order
+   */
+  static SortKeyPrefix getInstance( ValueMetaInterface valueMeta ) {
+    // Only the plain value types: subclasses or plugins may compare their values differently.
+    //
+    Class<?> valueMetaClass = valueMeta.getClass();
+    if ( !( valueMeta instanceof ValueMetaBase ) || ( (ValueMetaBase) valueMeta ).getComparator() != null
+      || !valueMeta.isStorageNormal() ) {
+      return null;
+    }
+    if ( valueMetaClass == ValueMetaInteger.class || valueMetaClass == ValueMetaNumber.class
+      || valueMetaClass == ValueMetaDate.class ) {
+      return new SortKeyPrefix( valueMeta );
+    }
+    if ( valueMetaClass == ValueMetaString.class && valueMeta.isCollatorDisabled() && !valueMeta.isCaseInsensitive()
+      && !valueMeta.isIgnoreWhitespace() ) {
+      return new SortKeyPrefix( valueMeta );
+    }
+    return null;
+  }
+
+  long encode( Object value ) throws KettleValueException {
+    // Nulls sort first, or last in a descending sort
+    //
+    if ( valueMeta.isNull( value ) ) {
+      return descending ? Long.MAX_VALUE : Long.MIN_VALUE;
+    }
+
+    long prefix;
+    switch ( valueMeta.getType() ) {
+      case ValueMetaInterface.TYPE_INTEGER:
+        prefix = valueMeta.getInteger( value );
+        break;
+      case ValueMetaInterface.TYPE_DATE:
+        prefix = valueMeta.getDate( value ).getTime();
+        break;
+      case ValueMetaInterface.TYPE_NUMBER:
+        // Same order as Double.compare(): flip all but the sign bit of negative numbers
+        //
+        prefix = Double.doubleToLongBits( valueMeta.getNumber( value ) );
+        prefix ^= ( prefix >> 63 ) & Long.MAX_VALUE;
+        break;
+      default:
+        prefix = encodeString( valueMeta.getString( value ) );
+        break;
+    }
+
+    // ~prefix reverses the order without the overflow of -prefix
+    //
+    return descending ? ~prefix : prefix;
+  }
+
+  /**
+   * The first characters each take 17 bits as char + 1, a missing character is 0 so that a string sorts before any
+   * longer string it is a prefix of, like in String.compareTo().
+   */
+  private static long encodeString( String string ) {
+    long prefix = 0L;
+    for ( int i = 0; i < STRING_PREFIX_CHARS; i++ ) {
+      prefix <<= BITS_PER_CHAR;
+      if ( i < string.length() ) {
+        prefix |= string.charAt( i ) + 1;
+      }
+    }
+    return prefix;
+  }
+}
@@ -27,7 +27,6 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.vfs2.FileObject;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -44,13 +43,11 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int getBufferIndex;
 
   public List<InputStream> fis;
-  public List<GZIPInputStream> gzis;
   public List<DataInputStream> dis;
-  public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
-  public List<RowTempFile> tempRows;
+  // Merges the smallest rows of the temp files
+  LoserTree<Object[]> mergeTree;
 
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
@@ -60,8 +57,8 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
-  Comparator<RowTempFile> comparator;
   Comparator<Object[]> rowComparator;
+  SortKeyPrefix keyPrefix;
 
   public int freeCounter;
   public int freeMemoryPct;
@@ -81,7 +78,6 @@ public class SortRowsData extends BaseStepData implements StepDataInterface {
 
     files = new ArrayList<FileObject>();
     fis = new ArrayList<InputStream>();
-    gzis = new ArrayList<GZIPInputStream>();
     dis = new ArrayList<DataInputStream>();
     bufferSizes = new ArrayList<Integer>();
 
@@ -0,0 +1,153 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.streamlookup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * The lookup data shared by all the copies of a Stream Lookup step. The copies build the table together, each one
+ * inserting the lookup rows it receives into a number of hash partitions. Once every copy is done the table is no
+ * longer modified and all copies probe it without locking.
+ */
+class SharedLookupTable {
+
+  private final int nrCopies;
+  private final Map<RowMetaAndData, Object[]>[] partitions;
+  private final int mask;
+  private final CountDownLatch building;
+
+  private RowMetaInterface keyTypes;
+  private RowMetaInterface cacheKeyMeta;
+  private RowMetaInterface cacheValueMeta;
+  private RowMetaInterface infoMeta;
+
+  @SuppressWarnings( "unchecked" )
+  SharedLookupTable( int nrCopies ) {
+    this.nrCopies = nrCopies;
+
+    // A few partitions per copy keeps the lock contention low while building
+    //
+    int nrPartitions = Integer.highestOneBit( Math.max( 1, nrCopies * 4 - 1 ) ) << 1;
+    partitions = new Map[nrPartitions];
+    for ( int i = 0; i < nrPartitions; i++ ) {
+      partitions[i] = new HashMap<>();
+    }
+    mask = nrPartitions - 1;
+    building = new CountDownLatch( nrCopies );
+  }
+
+  int getPartitionNr( RowMetaAndData key ) {
+    int h = key.hashCode();
+    return ( h ^ ( h >>> 16 ) ) & mask;
+  }
+
+  /**
+   * When every copy receives all the lookup rows, each copy only inserts the rows of the partitions it owns.
+   */
+  boolean isOwnedBy( RowMetaAndData key, int copyNr ) {
+    return getPartitionNr( key ) % nrCopies == copyNr;
+  }
+
+  void put( RowMetaAndData key, Object[] value ) {
+    Map<RowMetaAndData, Object[]> partition = partitions[getPartitionNr( key )];
+    synchronized ( partition ) {
+      partition.put( key, value );
+    }
+  }
+
+  /**
+   * Only call this after {@link #awaitBuild(long)} returned true.
+   */
+  Object[] get( RowMetaAndData key ) {
+    return partitions[getPartitionNr( key )].get( key );
+  }
+
+  /**
+   * The metadata of the first copy that received lookup rows is used by all copies.
+   */
+  synchronized void setMetadata( RowMetaInterface keyTypes, RowMetaInterface cacheKeyMeta,
+    RowMetaInterface cacheValueMeta, RowMetaInterface infoMeta ) {
+    if ( this.keyTypes == null ) {
+      this.keyTypes = keyTypes;
+      this.cacheKeyMeta = cacheKeyMeta;
+      this.cacheValueMeta = cacheValueMeta;
+      this.infoMeta = infoMeta;
+    }
+  }
+
+  /**
+   * Signal that a copy inserted all its lookup rows.
+   */
+  void buildFinished() {
+    building.countDown();
+  }
+
+  /**
+   * @return true if all copies finished building the table, false if the wait timed out
+   */
+  boolean awaitBuild( long millis ) throws InterruptedException {
+    return building.await( millis, TimeUnit.MILLISECONDS );
+  }
+
+  synchronized boolean hasLookupRows() {
+    return keyTypes != null;
+  }
+
+  synchronized RowMetaInterface getKeyTypes() {
+    return keyTypes;
+  }
+
+  synchronized RowMetaInterface getCacheKeyMeta() {
+    return cacheKeyMeta;
+  }
+
+  synchronized RowMetaInterface getCacheValueMeta() {
+    return cacheValueMeta;
+  }
+
+  synchronized RowMetaInterface getInfoMeta() {
+    return infoMeta;
+  }
+
+  int getNrPartitions() {
+    return partitions.length;
+  }
+
+  /**
+   * @return the number of entries, only accurate once the table is built
+   */
+  int size() {
+    int size = 0;
+    for ( Map<RowMetaAndData, Object[]> partition : partitions ) {
+      size += partition.size();
+    }
+    return size;
+  }
+}
@@ -24,7 +24,9 @@ package org.pentaho.di.trans.steps.streamlookup;
 
 import java.math.BigDecimal;
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
@@ -32,6 +34,8 @@ import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
+import org.pentaho.di.core.logging.Metrics;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
@@ -62,6 +66,9 @@ public class StreamLookup extends BaseStep implements StepInterface {
   private StreamLookupMeta meta;
   private StreamLookupData data;
 
+  /** The lookup data shared by all copies, only created by the first copy */
+  private SharedLookupTable sharedLookupTable;
+
   public StreamLookup( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
     Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -150,11 +157,20 @@ public class StreamLookup extends BaseStep implements StepInterface {
     int[] valueNrs = new int[meta.getValue().length];
     boolean firstRun = true;
 
-    // Which row set do we read from?
+    // When every copy of this step receives all the lookup rows, each copy only inserts its own partitions.
+    // Otherwise every copy inserts all the rows it receives.
+    //
+    if ( data.sharedTable != null ) {
+      data.insertOwnPartitionsOnly = isReceivingAllLookupRows( data.infoStream.getStepMeta(), getStepMeta() );
+    }
+
+    // Which row sets do we read from?
     //
-    RowSet rowSet = findInputRowSet( data.infoStream.getStepname() );
-    Object[] rowData = getRowFrom( rowSet ); // rows are originating from "lookup_from"
+    data.infoRowSets = findInfoRowSets( data.infoStream.getStepMeta() );
+    data.infoRowSetNr = 0;
+    Object[] rowData = getLookupRow(); // rows are originating from "lookup_from"
     while ( rowData != null ) {
+      RowSet rowSet = data.infoRowSets.get( data.infoRowSetNr );
       if ( log.isRowLevel() ) {
         logRowlevel( BaseMessages.getString( PKG, "StreamLookup.Log.ReadLookupRow" )
           + rowSet.getRowMeta().getString( rowData ) );
@@ -198,6 +214,10 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
         data.cacheKeyMeta = cacheKeyMeta;
         data.cacheValueMeta = cacheValueMeta;
+
+        if ( data.sharedTable != null ) {
+          data.sharedTable.setMetadata( data.keyTypes, cacheKeyMeta, cacheValueMeta, data.infoMeta );
+        }
       }
 
       Object[] keyData = new Object[keyNrs.length];
@@ -215,12 +235,129 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
       addToCache( data.cacheKeyMeta, keyData, data.cacheValueMeta, valueData );
 
-      rowData = getRowFrom( rowSet );
+      rowData = getLookupRow();
+    }
+    data.infoRowSets = null;
+
+    if ( data.sharedTable != null ) {
+      return awaitSharedTable();
+    }
+
+    if ( data.offHeapIndex != null ) {
+      long memoryUsage = data.offHeapIndex.getMemoryUsage();
+      getLogChannel().snap( Metrics.METRIC_STEP_LOOKUP_MEMORY_USAGE, memoryUsage );
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "StreamLookup.Log.LookupMemoryUsage", data.offHeapIndex.size(),
+          memoryUsage ) );
+      }
     }
 
     return true;
   }
 
+  /**
+   * @return true if every copy of the lookup step sends all its rows to every copy of this step. With the same number
+   *         of copies on both sides, copy n only receives the rows of lookup copy n.
+   */
+  static boolean isReceivingAllLookupRows( StepMeta infoStepMeta, StepMeta stepMeta ) {
+    if ( infoStepMeta.isDistributes() || infoStepMeta.isPartitioned() || stepMeta.isPartitioned() ) {
+      return false;
+    }
+    return infoStepMeta.getCopies() <= 1 || infoStepMeta.getCopies() != stepMeta.getCopies();
+  }
+
+  private List<RowSet> findInfoRowSets( StepMeta infoStepMeta ) throws KettleStepException {
+    List<RowSet> rowSets = new ArrayList<>();
+    if ( infoStepMeta.getCopies() <= 1 ) {
+      rowSets.add( findInputRowSet( infoStepMeta.getName() ) );
+    } else {
+      for ( int c = 0; c < infoStepMeta.getCopies(); c++ ) {
+        RowSet rowSet = findInputRowSet( infoStepMeta.getName(), c, getStepname(), getCopy() );
+        if ( rowSet != null ) {
+          rowSets.add( rowSet );
+        }
+      }
+    }
+    return rowSets;
+  }
+
+  /**
+   * Reads the next lookup row. With several lookup step copies the row sets are read in turn, only waiting for rows
+   * when all of them are empty, so one blocked lookup copy can't keep the others from finishing.
+   *
+   * @return the next lookup row, the row set it came from is at data.infoRowSetNr. Null if there are no more rows.
+   */
+  private Object[] getLookupRow() throws KettleStepException {
+    if ( data.infoRowSets.size() == 1 ) {
+      return getRowFrom( data.infoRowSets.get( 0 ) );
+    }
+    int nrWaiting = 0;
+    while ( !data.infoRowSets.isEmpty() && !isStopped() ) {
+      data.infoRowSetNr = ( data.infoRowSetNr + 1 ) % data.infoRowSets.size();
+      RowSet rowSet = data.infoRowSets.get( data.infoRowSetNr );
+      if ( rowSet.size() > 0 || rowSet.isDone() ) {
+        Object[] rowData = getRowFrom( rowSet );
+        if ( rowData != null ) {
+          return rowData;
+        }
+        data.infoRowSets.remove( data.infoRowSetNr );
+        nrWaiting = 0;
+      } else if ( ++nrWaiting >= data.infoRowSets.size() ) {
+        nrWaiting = 0;
+        try {
+          Thread.sleep( 1 );
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          throw new KettleStepException( e );
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Wait until all copies inserted their lookup rows, then continue with the metadata of the shared table. A copy
+   * that didn't receive any lookup rows can still find all the values that way.
+   */
+  private boolean awaitSharedTable() throws KettleException {
+    data.sharedTable.buildFinished();
+    try {
+      while ( !data.sharedTable.awaitBuild( 100 ) ) {
+        if ( isStopped() ) {
+          return true;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( e );
+    }
+
+    data.hasLookupRows = data.sharedTable.hasLookupRows();
+    if ( data.hasLookupRows ) {
+      data.keyTypes = data.sharedTable.getKeyTypes();
+      data.cacheKeyMeta = data.sharedTable.getCacheKeyMeta();
+      data.cacheValueMeta = data.sharedTable.getCacheValueMeta();
+      data.infoMeta = data.sharedTable.getInfoMeta();
+    }
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "StreamLookup.Log.SharedTableBuilt", data.sharedTable.size(),
+        data.sharedTable.getNrPartitions() ) );
+    }
+    return true;
+  }
+
+  /**
+   * @param nrCopies
+   *          the number of copies that will build the table together
+   * @return the lookup table shared by all copies of this step, created on the first call
+   */
+  synchronized SharedLookupTable getSharedLookupTable( int nrCopies ) {
+    if ( sharedLookupTable == null ) {
+      sharedLookupTable = new SharedLookupTable( nrCopies );
+    }
+    return sharedLookupTable;
+  }
+
   private Object[] lookupValues( RowMetaInterface rowMeta, Object[] row ) throws KettleException {
     // See if we need to stop.
     if ( isStopped() ) {
@@ -294,6 +431,13 @@ public class StreamLookup extends BaseStep implements StepInterface {
 
   private void addToCache( RowMetaInterface keyMeta, Object[] keyData, RowMetaInterface valueMeta,
     Object[] valueData ) throws KettleValueException {
+    if ( data.sharedTable != null ) {
+      RowMetaAndData key = new RowMetaAndData( keyMeta, keyData );
+      if ( !data.insertOwnPartitionsOnly || data.sharedTable.isOwnedBy( key, getCopy() ) ) {
+        data.sharedTable.put( key, valueData );
+      }
+      return;
+    }
     if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, valueData );
@@ -320,6 +464,12 @@ public class StreamLookup extends BaseStep implements StepInterface {
           Long key = keyMeta.getInteger( keyData, 0 );
           Long value = valueMeta.getInteger( valueData, 0 );
           data.longIndex.put( key, value );
+        } else if ( meta.isUsingOffHeapHashIndex() ) {
+          if ( data.offHeapIndex == null ) {
+            data.offHeapIndex = new OffHeapHashIndex( true );
+          }
+          data.offHeapIndex
+            .put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
         } else {
           if ( data.hashIndex == null ) {
             data.hashIndex = new ByteArrayHashIndex( keyMeta );
@@ -336,6 +486,9 @@ public class StreamLookup extends BaseStep implements StepInterface {
   }
 
   private Object[] getFromCache( RowMetaInterface keyMeta, Object[] keyData ) throws KettleValueException {
+    if ( data.sharedTable != null ) {
+      return data.sharedTable.get( new RowMetaAndData( keyMeta, keyData ) );
+    }
     if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, null );
@@ -353,6 +506,12 @@ public class StreamLookup extends BaseStep implements StepInterface {
             return null;
           }
           return new Object[] { value, };
+        } else if ( meta.isUsingOffHeapHashIndex() ) {
+          byte[] value = data.offHeapIndex.get( RowMeta.extractData( keyMeta, keyData ) );
+          if ( value == null ) {
+            return null;
+          }
+          return RowMeta.getRow( data.cacheValueMeta, value );
         } else {
           try {
             byte[] value = data.hashIndex.get( RowMeta.extractData( keyMeta, keyData ) );
@@ -469,6 +628,19 @@ public class StreamLookup extends BaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
       data.readLookupValues = true;
 
+      // All copies of this step can build and use a single lookup table
+      //
+      if ( meta.isSharingLookupData() && getTrans() != null ) {
+        List<StepInterface> copies = getTrans().findStepInterfaces( getStepname() );
+        if ( copies != null && copies.size() > 1 ) {
+          StreamLookup firstCopy = (StreamLookup) getTrans().findStepInterface( getStepname(), 0 );
+          data.sharedTable = firstCopy.getSharedLookupTable( copies.size() );
+          if ( meta.isMemoryPreservationActive() && getCopy() == 0 ) {
+            logBasic( BaseMessages.getString( PKG, "StreamLookup.Log.SharedTableIgnoresPreserveMemory" ) );
+          }
+        }
+      }
+
       return true;
     }
 
@@ -483,6 +655,11 @@ public class StreamLookup extends BaseStep implements StepInterface {
     data.list = null;
     data.hashIndex = null;
     data.longIndex = null;
+    data.sharedTable = null;
+    if ( data.offHeapIndex != null ) {
+      data.offHeapIndex.clear();
+      data.offHeapIndex = null;
+    }
 
     super.dispose( smi, sdi );
   }
@@ -29,9 +29,11 @@ import java.util.List;
 import java.util.Map;
 
 import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.hash.ByteArrayHashIndex;
 import org.pentaho.di.core.hash.LongHashIndex;
+import org.pentaho.di.core.hash.OffHeapHashIndex;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.trans.step.BaseStepData;
 import org.pentaho.di.trans.step.StepDataInterface;
@@ -73,6 +75,17 @@ public class StreamLookupData extends BaseStepData implements StepDataInterface
 
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
+  public OffHeapHashIndex offHeapIndex;
+
+  /** The lookup table built and used by all copies of the step, null if every copy has its own data */
+  SharedLookupTable sharedTable;
+
+  /** Only insert the lookup rows of the partitions of this copy in the shared table */
+  boolean insertOwnPartitionsOnly;
+
+  /** The row sets of the lookup step copies that send rows to this copy, and the one read last */
+  List<RowSet> infoRowSets;
+  int infoRowSetNr;
 
   public RowMetaInterface lookupMeta;
 
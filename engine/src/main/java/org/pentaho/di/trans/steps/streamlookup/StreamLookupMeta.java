@@ -101,6 +101,14 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
   @Injection( name = "INTEGER_PAIR" )
   private boolean usingIntegerPair;
 
+  /** Store the keys and values serialized in memory outside of the Java heap */
+  @Injection( name = "OFF_HEAP_HASH" )
+  private boolean usingOffHeapHashIndex;
+
+  /** Let all the copies of the step build and use a single lookup table */
+  @Injection( name = "SHARE_LOOKUP_DATA" )
+  private boolean sharingLookupData;
+
   public StreamLookupMeta() {
     super(); // allocate BaseStepMeta
   }
@@ -163,6 +171,8 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       setMemoryPreservationActive( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "preserve_memory" ) ) );
       setUsingSortedList( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "sorted_list" ) ) );
       setUsingIntegerPair( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "integer_pair" ) ) );
+      setUsingOffHeapHashIndex( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "off_heap_hash" ) ) );
+      setSharingLookupData( "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "share_lookup_data" ) ) );
 
       Node lookup = XMLHandler.getSubNode( stepnode, "lookup" );
       nrkeys = XMLHandler.countNodes( lookup, "key" );
@@ -211,6 +221,8 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     setMemoryPreservationActive( true );
     setUsingSortedList( false );
     setUsingIntegerPair( false );
+    setUsingOffHeapHashIndex( false );
+    setSharingLookupData( false );
 
     allocate( 0, 0 );
   }
@@ -254,6 +266,8 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     retval.append( "    " ).append( XMLHandler.addTagValue( "preserve_memory", isMemoryPreservationActive() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "sorted_list", isUsingSortedList() ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "integer_pair", isUsingIntegerPair() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "off_heap_hash", isUsingOffHeapHashIndex() ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "share_lookup_data", isSharingLookupData() ) );
 
     retval.append( "    <lookup>" ).append( Const.CR );
     for ( int i = 0; i < getKeystream().length; i++ ) {
@@ -288,6 +302,8 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       setMemoryPreservationActive( rep.getStepAttributeBoolean( id_step, "preserve_memory" ) );
       setUsingSortedList( rep.getStepAttributeBoolean( id_step, "sorted_list" ) );
       setUsingIntegerPair( rep.getStepAttributeBoolean( id_step, "integer_pair" ) );
+      setUsingOffHeapHashIndex( rep.getStepAttributeBoolean( id_step, "off_heap_hash" ) );
+      setSharingLookupData( rep.getStepAttributeBoolean( id_step, "share_lookup_data" ) );
 
       int nrkeys = rep.countNrStepAttributes( id_step, "lookup_key_name" );
       int nrvalues = rep.countNrStepAttributes( id_step, "return_value_name" );
@@ -325,6 +341,8 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
       rep.saveStepAttribute( id_transformation, id_step, "preserve_memory", isMemoryPreservationActive() );
       rep.saveStepAttribute( id_transformation, id_step, "sorted_list", isUsingSortedList() );
       rep.saveStepAttribute( id_transformation, id_step, "integer_pair", isUsingIntegerPair() );
+      rep.saveStepAttribute( id_transformation, id_step, "off_heap_hash", isUsingOffHeapHashIndex() );
+      rep.saveStepAttribute( id_transformation, id_step, "share_lookup_data", isSharingLookupData() );
 
       for ( int i = 0; i < getKeystream().length; i++ ) {
         rep.saveStepAttribute( id_transformation, id_step, i, "lookup_key_name", getKeystream()[i] );
@@ -488,6 +506,15 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
           PKG, "StreamLookupMeta.CheckResult.NeedAtLeast2InputStreams", Const.CR, Const.CR ), stepMeta );
       remarks.add( cr );
     }
+
+    // The shared lookup table keeps the rows as regular objects
+    //
+    if ( isSharingLookupData() && isMemoryPreservationActive() && stepMeta.getCopies() > 1 ) {
+      cr =
+        new CheckResult( CheckResultInterface.TYPE_RESULT_WARNING, BaseMessages.getString(
+          PKG, "StreamLookupMeta.CheckResult.SharedTableIgnoresPreserveMemory" ), stepMeta );
+      remarks.add( cr );
+    }
   }
 
   @Override
@@ -667,6 +694,36 @@ public class StreamLookupMeta extends BaseStepMeta implements StepMetaInterface
     this.usingIntegerPair = usingIntegerPair;
   }
 
+  /**
+   * @return true if the lookup data is stored serialized outside of the Java heap
+   */
+  public boolean isUsingOffHeapHashIndex() {
+    return usingOffHeapHashIndex;
+  }
+
+  /**
+   * @param usingOffHeapHashIndex
+   *          true to store the lookup data serialized outside of the Java heap
+   */
+  public void setUsingOffHeapHashIndex( boolean usingOffHeapHashIndex ) {
+    this.usingOffHeapHashIndex = usingOffHeapHashIndex;
+  }
+
+  /**
+   * @return true if all the copies of the step build and use a single lookup table
+   */
+  public boolean isSharingLookupData() {
+    return sharingLookupData;
+  }
+
+  /**
+   * @param sharingLookupData
+   *          true to let all the copies of the step build and use a single lookup table
+   */
+  public void setSharingLookupData( boolean sharingLookupData ) {
+    this.sharingLookupData = sharingLookupData;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
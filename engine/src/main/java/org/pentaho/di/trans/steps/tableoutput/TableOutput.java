@@ -43,6 +43,7 @@ import org.pentaho.di.trans.step.*;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -73,6 +74,16 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       if ( first && meta.truncateTable() ) {
         truncateTable();
       }
+      if ( data.batchWriter != null ) {
+        try {
+          data.batchWriter.submit();
+          releaseWrittenBatches( true );
+        } catch ( KettleException e ) {
+          logError( "Because of an error, this step can't continue: ", e );
+          setErrors( 1 );
+          stopAll();
+        }
+      }
       return false;
     }
 
@@ -115,6 +126,19 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
           }
         }
       }
+
+      if ( data.writerThreads > 1 && data.batchMode && data.tableName != null
+        && data.db.getUseBatchInsert( data.batchMode ) ) {
+        // The writer threads can't skip the rows that fail and carry on, that only works on the step thread
+        //
+        if ( meta.ignoreErrors() && !getStepMeta().isDoingErrorHandling() ) {
+          if ( log.isBasic() ) {
+            logBasic( BaseMessages.getString( PKG, "TableOutput.Log.WriterThreadsIgnoringErrors" ) );
+          }
+        } else {
+          startBatchWriter();
+        }
+      }
     }
 
     try {
@@ -235,6 +259,16 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
       throw new KettleStepException( "The tablename is not defined (empty)" );
     }
 
+    if ( data.batchWriter != null ) {
+      // The rows are passed on once their batch is committed
+      //
+      if ( data.batchWriter.addRow( outputRowData, insertRowData ) >= data.commitSize ) {
+        data.batchWriter.submit();
+        releaseWrittenBatches( false );
+      }
+      return null;
+    }
+
     insertStatement = data.preparedStatements.get( tableName );
     if ( insertStatement == null ) {
       String sql =
@@ -427,6 +461,96 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     return log.isRowLevel();
   }
 
+  /**
+   * Opens a connection for every writer thread. The main connection is committed first so the writers don't have to
+   * wait for an uncommitted truncate.
+   */
+  private void startBatchWriter() throws KettleException {
+    data.db.commit( true );
+
+    List<Database> connections = new ArrayList<>( data.writerThreads );
+    try {
+      for ( int i = 0; i < data.writerThreads; i++ ) {
+        Database db = new Database( this, data.databaseMeta );
+        db.shareVariablesWith( this );
+        connections.add( db );
+        db.connect( getPartitionID() );
+        db.setCommit( data.commitSize );
+      }
+    } catch ( KettleDatabaseException e ) {
+      for ( Database db : connections ) {
+        db.disconnect();
+      }
+      throw e;
+    }
+
+    String sql =
+      data.db.getInsertStatement( environmentSubstitute( meta.getSchemaName() ), data.tableName, data.insertRowMeta );
+    if ( log.isDetailed() ) {
+      logDetailed( "Prepared statement : " + sql );
+    }
+    data.batchWriter =
+      new TableOutputBatchWriter( getStepname(), connections, sql, data.insertRowMeta,
+        getStepMeta().isDoingErrorHandling() );
+
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.WriterThreadsStarted", data.writerThreads ) );
+    }
+  }
+
+  /**
+   * Passes on the rows of the batches that are written, in the order the batches were handed over.
+   *
+   * @param all true to wait for all batches, false to only wait when too many batches are pending
+   */
+  private void releaseWrittenBatches( boolean all ) throws KettleException {
+    TableOutputBatchWriter writer = data.batchWriter;
+    while ( writer.getNrPending() > 0 ) {
+      boolean wait = all || writer.getNrPending() > 2 * writer.getNrWriters();
+      TableOutputBatchWriter.Batch batch = writer.takeFinished( wait );
+      if ( batch == null ) {
+        return;
+      }
+      releaseBatch( batch );
+    }
+  }
+
+  private void releaseBatch( TableOutputBatchWriter.Batch batch ) throws KettleException {
+    for ( int i = 0; i < batch.rejectedRows.size(); i++ ) {
+      putError( data.outputRowMeta, batch.rejectedRows.get( i ), 1L, batch.rejectedMessages.get( i ), null, "TOP001" );
+    }
+
+    if ( batch.exception != null ) {
+      throw new KettleException( "Error writing batch of rows into table [" + data.tableName + "]", batch.exception );
+    }
+    if ( batch.rolledBack ) {
+      throw new KettleException( "Batch of rows for table [" + data.tableName
+        + "] rolled back because an earlier batch failed" );
+    }
+
+    KettleDatabaseBatchException be = batch.batchException;
+    if ( be == null ) {
+      for ( Object[] row : batch.batchedRows ) {
+        putRow( data.outputRowMeta, row );
+        incrementLinesOutput();
+      }
+    } else if ( getStepMeta().isDoingErrorHandling() ) {
+      data.batchBuffer.addAll( batch.batchedRows );
+      processBatchException( be.toString(), be.getUpdateCounts(), be.getExceptionsList() );
+    } else {
+      StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + data.tableName + "]." );
+      msg.append( Const.CR );
+      msg.append( "Errors encountered (first 10):" ).append( Const.CR );
+      for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
+        Exception exception = be.getExceptionsList().get( x );
+        if ( exception.getMessage() != null ) {
+          msg.append( exception.getMessage() ).append( Const.CR );
+        }
+      }
+      throw new KettleException( msg.toString(), be );
+    }
+  }
+
   private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList ) throws KettleException {
     // There was an error with the commit
     // We should put all the failing rows out there...
@@ -470,6 +594,7 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     if ( super.init( smi, sdi ) ) {
       try {
         data.commitSize = Integer.parseInt( environmentSubstitute( meta.getCommitSize() ) );
+        data.writerThreads = Const.toInt( environmentSubstitute( meta.getWriterThreads() ), 0 );
 
         data.databaseMeta = meta.getDatabaseMeta();
         DatabaseInterface dbInterface = data.databaseMeta.getDatabaseInterface();
@@ -551,6 +676,24 @@ public class TableOutput extends BaseDatabaseStep implements StepInterface {
     meta = (TableOutputMeta) smi;
     data = (TableOutputData) sdi;
 
+    if ( data.batchWriter != null ) {
+      // When the step was stopped, the batches that are still being written are committed, just like the last
+      // batch is committed below when writing on the step thread.
+      //
+      if ( getErrors() == 0 && !data.batchWriter.isFailed() ) {
+        try {
+          data.batchWriter.submit();
+          releaseWrittenBatches( true );
+        } catch ( KettleException e ) {
+          logError( "Unexpected error writing the last batches.", e );
+          setErrors( 1 );
+          stopAll();
+        }
+      }
+      data.batchWriter.close();
+      data.batchWriter = null;
+    }
+
     if ( data.db != null ) {
       try {
         for ( String schemaTable : data.preparedStatements.keySet() ) {
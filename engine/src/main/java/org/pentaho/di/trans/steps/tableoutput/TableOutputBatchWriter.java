@@ -0,0 +1,371 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleDatabaseBatchException;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMetaInterface;
+
+/**
+ * Writes the batches of a Table Output step on a small pool of threads, each with its own database connection, so the
+ * step thread can prepare the next batch while the database works on the previous ones.<br>
+ * <br>
+ * The values of the batches are bound to the statements concurrently, but the batches are executed and committed one
+ * after the other in the order they were handed over. Only one batch holds locks in the database at any time: a batch
+ * that inserts the same key as an earlier batch can't block on it in the database while the earlier batch waits for
+ * its turn to commit. Once a batch fails without error handling, the batches after it are rolled back, so the table
+ * always contains an unbroken sequence of batches. The step gets the finished batches back in the same order to release
+ * or route their rows.
+ */
+class TableOutputBatchWriter {
+
+  /**
+   * A batch of rows with the outcome of writing it.
+   */
+  static class Batch {
+    final long sequenceNr;
+    final List<Object[]> outputRows = new ArrayList<>();
+    final List<Object[]> insertRows = new ArrayList<>();
+
+    /** The output rows that made it into the JDBC batch, in the order of the update counts */
+    final List<Object[]> batchedRows = new ArrayList<>();
+    /** The output rows whose values couldn't be set, only when doing error handling */
+    final List<Object[]> rejectedRows = new ArrayList<>();
+    final List<String> rejectedMessages = new ArrayList<>();
+
+    KettleDatabaseBatchException batchException;
+    Exception exception;
+    /** Set when the batch was rolled back because an earlier batch failed */
+    boolean rolledBack;
+    Future<?> future;
+
+    Batch( long sequenceNr ) {
+      this.sequenceNr = sequenceNr;
+    }
+
+    int size() {
+      return outputRows.size();
+    }
+  }
+
+  private static class Writer {
+    final Database db;
+    PreparedStatement statement;
+
+    Writer( Database db ) {
+      this.db = db;
+    }
+  }
+
+  private final String sql;
+  private final RowMetaInterface insertRowMeta;
+  private final boolean errorHandling;
+
+  private final List<Writer> writers = new ArrayList<>();
+  private final BlockingQueue<Writer> idleWriters;
+  private final ExecutorService executor;
+
+  /** The batches handed over and not yet taken back by the step, oldest first. Only used by the step thread. */
+  private final Deque<Batch> pending = new ArrayDeque<>();
+  private Batch current;
+  private long nextSequenceNr;
+
+  private final Object commitLock = new Object();
+  private long nextToCommit;
+  private volatile boolean failed;
+
+  /**
+   * @param name          the name used for the writer threads
+   * @param connections   the connected databases, one for each writer thread
+   * @param sql           the insert statement
+   * @param insertRowMeta the layout of the rows to insert
+   * @param errorHandling true if failing rows go to the error hop and the rest of their batch is committed
+   */
+  TableOutputBatchWriter( final String name, List<Database> connections, String sql, RowMetaInterface insertRowMeta,
+    boolean errorHandling ) {
+    this.sql = sql;
+    this.insertRowMeta = insertRowMeta;
+    this.errorHandling = errorHandling;
+
+    idleWriters = new ArrayBlockingQueue<>( connections.size() );
+    for ( Database db : connections ) {
+      Writer writer = new Writer( db );
+      writers.add( writer );
+      idleWriters.add( writer );
+    }
+
+    executor = Executors.newFixedThreadPool( connections.size(), new ThreadFactory() {
+      private final AtomicInteger threadNr = new AtomicInteger();
+
+      @Override
+      public Thread newThread( Runnable r ) {
+        Thread thread = new Thread( r, name + " - writer " + threadNr.getAndIncrement() );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+  }
+
+  /**
+   * @return the number of writer threads
+   */
+  int getNrWriters() {
+    return writers.size();
+  }
+
+  /**
+   * Adds a row to the batch that is being filled.
+   *
+   * @param outputRow the row to pass on once it is committed
+   * @param insertRow the values to insert
+   * @return the number of rows in the batch that is being filled
+   */
+  int addRow( Object[] outputRow, Object[] insertRow ) {
+    if ( current == null ) {
+      current = new Batch( nextSequenceNr++ );
+    }
+    current.outputRows.add( outputRow );
+    current.insertRows.add( insertRow );
+    return current.size();
+  }
+
+  /**
+   * Hands the batch that is being filled to the writer threads.
+   */
+  void submit() {
+    if ( current == null || current.size() == 0 ) {
+      return;
+    }
+    final Batch batch = current;
+    current = null;
+    batch.future = executor.submit( new Runnable() {
+      @Override
+      public void run() {
+        write( batch );
+      }
+    } );
+    pending.add( batch );
+  }
+
+  /**
+   * @return the number of batches handed over that were not taken back yet
+   */
+  int getNrPending() {
+    return pending.size();
+  }
+
+  /**
+   * Takes back the oldest batch that was handed over.
+   *
+   * @param wait true to wait for it to be written, false to only take it if it is already written
+   * @return the batch or null if there is nothing (ready) to take back
+   */
+  Batch takeFinished( boolean wait ) throws KettleException {
+    Batch batch = pending.peek();
+    if ( batch == null || ( !wait && !batch.future.isDone() ) ) {
+      return null;
+    }
+    try {
+      batch.future.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleException( "Interrupted while waiting for a batch to be written", e );
+    } catch ( ExecutionException e ) {
+      batch.exception = e;
+    }
+    return pending.poll();
+  }
+
+  /**
+   * @return true if a batch failed and the batches after it were rolled back
+   */
+  boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * Stops the writer threads and closes the connections. Work that is still pending gets rolled back.
+   */
+  void close() {
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination( 1, TimeUnit.MINUTES );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    for ( Writer writer : writers ) {
+      try {
+        if ( writer.statement != null ) {
+          writer.db.closePreparedStatement( writer.statement );
+        }
+        if ( failed || !pending.isEmpty() ) {
+          writer.db.rollback();
+        }
+      } catch ( KettleDatabaseException e ) {
+        // Closing anyway
+      } finally {
+        writer.db.disconnect();
+      }
+    }
+    pending.clear();
+    current = null;
+  }
+
+  private void write( Batch batch ) {
+    Writer writer = null;
+    try {
+      writer = idleWriters.take();
+      bind( writer, batch );
+    } catch ( InterruptedException e ) {
+      batch.exception = e;
+      abandon();
+      Thread.currentThread().interrupt();
+      return;
+    } catch ( Exception e ) {
+      batch.exception = e;
+    }
+
+    try {
+      synchronized ( commitLock ) {
+        while ( nextToCommit != batch.sequenceNr && !failed ) {
+          commitLock.wait();
+        }
+      }
+      try {
+        finish( writer, batch );
+      } finally {
+        synchronized ( commitLock ) {
+          nextToCommit++;
+          commitLock.notifyAll();
+        }
+      }
+    } catch ( InterruptedException e ) {
+      if ( batch.exception == null ) {
+        batch.exception = e;
+      }
+      abandon();
+      Thread.currentThread().interrupt();
+    } finally {
+      if ( writer != null ) {
+        idleWriters.add( writer );
+      }
+    }
+  }
+
+  /**
+   * Gives up on a batch that never got its turn to commit. The sequence is broken from there on: the batches that are
+   * waiting for their turn stop waiting and roll back.
+   */
+  private void abandon() {
+    synchronized ( commitLock ) {
+      failed = true;
+      commitLock.notifyAll();
+    }
+  }
+
+  private void bind( Writer writer, Batch batch ) throws KettleDatabaseException {
+    if ( writer.statement == null ) {
+      writer.statement = writer.db.prepareSQL( sql );
+    }
+    for ( int i = 0; i < batch.size(); i++ ) {
+      try {
+        writer.db.setValues( insertRowMeta, batch.insertRows.get( i ), writer.statement );
+        writer.statement.addBatch();
+        batch.batchedRows.add( batch.outputRows.get( i ) );
+      } catch ( KettleDatabaseException | SQLException e ) {
+        if ( !errorHandling ) {
+          throw new KettleDatabaseException( "Error adding row to batch", e );
+        }
+        batch.rejectedRows.add( batch.outputRows.get( i ) );
+        batch.rejectedMessages.add( e.toString() );
+      }
+    }
+  }
+
+  private void execute( Writer writer, Batch batch ) {
+    try {
+      writer.statement.executeBatch();
+    } catch ( BatchUpdateException ex ) {
+      batch.batchException = Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+    } catch ( SQLException ex ) {
+      batch.batchException = Database.createKettleDatabaseBatchException( "Error updating batch", ex );
+    }
+  }
+
+  /**
+   * Executes and commits the batch, or rolls it back. Called in the order the batches were handed over.
+   */
+  private void finish( Writer writer, Batch batch ) {
+    if ( writer == null ) {
+      failed = true;
+      return;
+    }
+    try {
+      if ( !failed && batch.exception == null ) {
+        execute( writer, batch );
+      }
+      if ( writer.statement != null ) {
+        writer.db.clearBatch( writer.statement );
+      }
+      if ( failed || batch.exception != null ) {
+        batch.rolledBack = batch.exception == null;
+        failed = true;
+        writer.db.rollback();
+      } else if ( batch.batchException != null ) {
+        if ( errorHandling ) {
+          writer.db.commit( true );
+        } else {
+          failed = true;
+          writer.db.rollback();
+        }
+      } else {
+        writer.db.commit();
+      }
+    } catch ( Exception e ) {
+      failed = true;
+      if ( batch.exception == null ) {
+        batch.exception = e;
+      }
+    }
+  }
+}
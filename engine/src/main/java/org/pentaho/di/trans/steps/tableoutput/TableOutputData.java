@@ -78,6 +78,10 @@ public class TableOutputData extends BaseDatabaseStepData implements StepDataInt
 
   public int commitSize;
 
+  /** The number of writer threads asked for and the writers themselves, null when writing on the step thread */
+  public int writerThreads;
+  public TableOutputBatchWriter batchWriter;
+
   public TableOutputData() {
     super();
 
@@ -81,6 +81,10 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
   @Injection( name = "COMMIT_SIZE" )
   private String commitSize;
 
+  /** The number of threads, each with its own connection, that write the batches. 0 or 1 writes on the step thread. */
+  @Injection( name = "WRITER_THREADS" )
+  private String writerThreads;
+
   @Injection( name = "TRUNCATE_TABLE" )
   public void metaSetTruncateTable( String value ) {
     setTruncateTable( "Y".equalsIgnoreCase( value ) );
@@ -357,6 +361,20 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     this.commitSize = commitSize;
   }
 
+  /**
+   * @return the number of threads that write the batches, 0 or 1 writes them on the step thread
+   */
+  public String getWriterThreads() {
+    return writerThreads;
+  }
+
+  /**
+   * @param writerThreads the number of threads that write the batches, 0 or 1 writes them on the step thread
+   */
+  public void setWriterThreads( String writerThreads ) {
+    this.writerThreads = writerThreads;
+  }
+
   /**
    * @return the table name
    */
@@ -454,6 +472,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       schemaName = XMLHandler.getTagValue( stepnode, "schema" );
       tableName = XMLHandler.getTagValue( stepnode, "table" );
       commitSize = XMLHandler.getTagValue( stepnode, "commit" );
+      writerThreads = XMLHandler.getTagValue( stepnode, "writer_threads" );
       truncateTable = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "truncate" ) );
       ignoreErrors = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "ignore_errors" ) );
       useBatchUpdate = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "use_batch" ) );
@@ -493,6 +512,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     databaseMeta = null;
     tableName = "";
     commitSize = "1000";
+    writerThreads = "0";
 
     partitioningEnabled = false;
     partitioningMonthly = true;
@@ -512,6 +532,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
     retval.append( "    " + XMLHandler.addTagValue( "schema", schemaName ) );
     retval.append( "    " + XMLHandler.addTagValue( "table", tableName ) );
     retval.append( "    " + XMLHandler.addTagValue( "commit", commitSize ) );
+    retval.append( "    " + XMLHandler.addTagValue( "writer_threads", writerThreads ) );
     retval.append( "    " + XMLHandler.addTagValue( "truncate", truncateTable ) );
     retval.append( "    " + XMLHandler.addTagValue( "ignore_errors", ignoreErrors ) );
     retval.append( "    " + XMLHandler.addTagValue( "use_batch", useBatchUpdate ) );
@@ -549,6 +570,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       schemaName = rep.getStepAttributeString( id_step, "schema" );
       tableName = rep.getStepAttributeString( id_step, "table" );
       commitSize = rep.getStepAttributeString( id_step, "commit" );
+      writerThreads = rep.getStepAttributeString( id_step, "writer_threads" );
       truncateTable = rep.getStepAttributeBoolean( id_step, "truncate" );
       ignoreErrors = rep.getStepAttributeBoolean( id_step, "ignore_errors" );
       useBatchUpdate = rep.getStepAttributeBoolean( id_step, "use_batch" );
@@ -588,6 +610,7 @@ public class TableOutputMeta extends BaseDatabaseStepMeta implements StepMetaInt
       rep.saveStepAttribute( id_transformation, id_step, "schema", schemaName );
       rep.saveStepAttribute( id_transformation, id_step, "table", tableName );
       rep.saveStepAttribute( id_transformation, id_step, "commit", commitSize );
+      rep.saveStepAttribute( id_transformation, id_step, "writer_threads", writerThreads );
       rep.saveStepAttribute( id_transformation, id_step, "truncate", truncateTable );
       rep.saveStepAttribute( id_transformation, id_step, "ignore_errors", ignoreErrors );
       rep.saveStepAttribute( id_transformation, id_step, "use_batch", useBatchUpdate );
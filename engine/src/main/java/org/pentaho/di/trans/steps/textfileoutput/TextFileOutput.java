@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -77,6 +78,9 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
   public TextFileOutputData data;
 
+  /** True if the output encoding has one byte per character, determined when it's first needed */
+  private Boolean singleByteEncoding;
+
   public TextFileOutput( StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr, TransMeta transMeta,
       Trans trans ) {
     super( stepMeta, stepDataInterface, copyNr, transMeta, trans );
@@ -514,8 +518,7 @@ public class TextFileOutput extends BaseStep implements StepInterface {
 
   private byte[] formatField( ValueMetaInterface v, Object valueData ) throws KettleValueException {
     if ( v.isString() ) {
-      if ( v.isStorageBinaryString() && v.getTrimType() == ValueMetaInterface.TRIM_TYPE_NONE && v.getLength() < 0
-          && Utils.isEmpty( v.getStringEncoding() ) ) {
+      if ( v.isStorageBinaryString() && isBinaryStringPassThrough( v, (byte[]) valueData ) ) {
         return (byte[]) valueData;
       } else {
         String svalue = ( valueData instanceof String ) ? (String) valueData : v.getString( valueData );
@@ -526,6 +529,34 @@ public class TextFileOutput extends BaseStep implements StepInterface {
     }
   }
 
+  /**
+   * A lazy string can be written as it was read if it needs no trimming and is encoded the same way as the output
+   * file. With a field length the value gets padded or truncated to that many characters, so the bytes can only be
+   * used as they are if they already hold exactly that many characters.
+   */
+  private boolean isBinaryStringPassThrough( ValueMetaInterface v, byte[] binary ) {
+    if ( v.getTrimType() != ValueMetaInterface.TRIM_TYPE_NONE ) {
+      return false;
+    }
+    if ( !Utils.isEmpty( v.getStringEncoding() ) && !v.getStringEncoding().equalsIgnoreCase( meta.getEncoding() ) ) {
+      return false;
+    }
+    return v.getLength() < 0 || binary != null && binary.length == v.getLength() && isSingleByteEncoding();
+  }
+
+  private boolean isSingleByteEncoding() {
+    if ( singleByteEncoding == null ) {
+      try {
+        Charset charset =
+          Utils.isEmpty( meta.getEncoding() ) ? Charset.defaultCharset() : Charset.forName( meta.getEncoding() );
+        singleByteEncoding = charset.newEncoder().maxBytesPerChar() == 1.0f;
+      } catch ( IllegalArgumentException | UnsupportedOperationException e ) {
+        singleByteEncoding = false;
+      }
+    }
+    return singleByteEncoding;
+  }
+
   private byte[] convertStringToBinaryString( ValueMetaInterface v, String string ) throws KettleValueException {
     int length = v.getLength();
 
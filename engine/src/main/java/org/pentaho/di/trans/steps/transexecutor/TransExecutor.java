@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.steps.transexecutor;
 
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ArrayList;
@@ -42,16 +43,20 @@ import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.job.DelegationListener;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.SingleThreadedTransExecutor;
 import org.pentaho.di.trans.StepWithMappingMeta;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransExecutionConfiguration;
 import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.TransMeta.TransformationType;
 import org.pentaho.di.trans.step.BaseStep;
 import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.steps.TransStepUtil;
+import org.pentaho.di.trans.steps.rowsfromresult.RowsFromResultMeta;
 
 /**
  * Execute a transformation for every input row, set parameters.
@@ -206,6 +211,26 @@ public class TransExecutor extends BaseStep implements StepInterface {
       discardLogLines( transExecutorData );
     }
 
+    Result result;
+    if ( transExecutorData.reusingTransformation ) {
+      result = executeReusedTransformation( incomingFieldValues );
+    } else {
+      result = executeNewTransformation( incomingFieldValues );
+    }
+
+    if ( result.isSafeStop() ) {
+      getTrans().safeStop();
+    }
+
+    collectTransResults( result );
+    collectExecutionResults( result );
+    collectExecutionResultFiles( result );
+
+    transExecutorData.groupBuffer.clear();
+  }
+
+  private Result executeNewTransformation( List<String> incomingFieldValues ) throws KettleException {
+    TransExecutorData transExecutorData = getData();
     Trans executorTrans = createInternalTrans();
     transExecutorData.setExecutorTrans( executorTrans );
     if ( incomingFieldValues != null ) {
@@ -248,16 +273,115 @@ public class TransExecutor extends BaseStep implements StepInterface {
       result.setResult( false );
       result.setNrErrors( 1 );
     }
+    return result;
+  }
 
-    if ( result.isSafeStop() ) {
-      getTrans().safeStop();
+  /**
+   * Sends the rows of the current group through the executor transformation that is kept between groups. The rows are
+   * injected in the "Get rows from result" step and the steps are driven by the single threaded engine, one iteration
+   * per group. When the group fails the transformation is disposed of and a new one is prepared for the next group.
+   */
+  private Result executeReusedTransformation( List<String> incomingFieldValues ) throws KettleException {
+    TransExecutorData transExecutorData = getData();
+    if ( transExecutorData.getReusedTransExecutor() == null ) {
+      prepareReusedTransformation( incomingFieldValues != null ? incomingFieldValues : getLastIncomingFieldValues() );
+    } else {
+      // Only keep the log lines of the current group around
+      //
+      discardLogLines( transExecutorData );
     }
 
-    collectTransResults( result );
-    collectExecutionResults( result );
-    collectExecutionResultFiles( result );
+    SingleThreadedTransExecutor executor = transExecutorData.getReusedTransExecutor();
+    executor.resetBatchResult();
 
-    transExecutorData.groupBuffer.clear();
+    Result previousResult = new Result();
+    previousResult.setRows( transExecutorData.groupBuffer );
+    executor.getTrans().setPreviousResult( previousResult );
+
+    RowProducer rowProducer = transExecutorData.getReusedTransRowProducer();
+    for ( RowMetaAndData row : transExecutorData.groupBuffer ) {
+      rowProducer.putRow( row.getRowMeta(), row.getData() );
+    }
+
+    Result result;
+    boolean more = false;
+    try {
+      more = executor.oneIteration();
+      result = executor.getResult();
+    } catch ( KettleException e ) {
+      log.logError( "An error occurred executing the transformation: ", e );
+      result = new Result();
+      result.setResult( false );
+      result.setNrErrors( 1 );
+    }
+
+    // The steps report their result files over and over again, only pass on the new ones.
+    //
+    result.getResultFiles().keySet().removeAll( transExecutorData.reportedResultFiles );
+    transExecutorData.reportedResultFiles.addAll( result.getResultFiles().keySet() );
+
+    if ( !more || result.getNrErrors() > 0 || executor.isStopped() ) {
+      disposeReusedTransformation();
+    }
+    return result;
+  }
+
+  @VisibleForTesting
+  void prepareReusedTransformation( List<String> incomingFieldValues ) throws KettleException {
+    TransExecutorData transExecutorData = getData();
+    TransMeta executorTransMeta = transExecutorData.getExecutorTransMeta();
+    StepMeta injectStepMeta = null;
+    for ( StepMeta stepMeta : executorTransMeta.getSteps() ) {
+      if ( stepMeta.getStepMetaInterface() instanceof RowsFromResultMeta ) {
+        injectStepMeta = stepMeta;
+        break;
+      }
+    }
+    if ( injectStepMeta == null ) {
+      throw new KettleException( BaseMessages.getString( PKG, "TransExecutor.Exception.NoRowsFromResultStep" ) );
+    }
+
+    // No threads and no row locking: the steps run in this thread, group after group.
+    //
+    executorTransMeta.setTransformationType( TransformationType.SingleThreaded );
+    executorTransMeta.setUsingThreadPriorityManagment( false );
+
+    Trans executorTrans = createInternalTrans();
+    transExecutorData.setExecutorTrans( executorTrans );
+    passParametersToTrans( incomingFieldValues );
+
+    executorTrans.prepareExecution( getTrans().getArguments() );
+    RowProducer rowProducer = executorTrans.addRowProducer( injectStepMeta.getName(), 0 );
+    executorTrans.startThreads();
+
+    SingleThreadedTransExecutor executor = new SingleThreadedTransExecutor( executorTrans );
+    transExecutorData.setReusedTransExecutor( executor );
+    transExecutorData.setReusedTransRowProducer( rowProducer );
+    transExecutorData.reportedResultFiles = new HashSet<String>();
+
+    // The steps were initialized by prepareExecution(), only check that they can run single threaded
+    //
+    executor.checkSupportedTransformationTypes();
+
+    getTrans().addActiveSubTransformation( getStepname(), executorTrans );
+    for ( DelegationListener delegationListener : getTrans().getDelegationListeners() ) {
+      delegationListener.transformationDelegationStarted( executorTrans, new TransExecutionConfiguration() );
+    }
+  }
+
+  private void disposeReusedTransformation() {
+    TransExecutorData transExecutorData = getData();
+    SingleThreadedTransExecutor executor = transExecutorData.getReusedTransExecutor();
+    if ( executor == null ) {
+      return;
+    }
+    transExecutorData.setReusedTransExecutor( null );
+    transExecutorData.setReusedTransRowProducer( null );
+    try {
+      executor.dispose();
+    } catch ( KettleException e ) {
+      log.logError( "Error disposing of the executor transformation: ", e );
+    }
   }
 
   @VisibleForTesting
@@ -519,6 +643,15 @@ public class TransExecutor extends BaseStep implements StepInterface {
           if ( !Utils.isEmpty( meta.getGroupField() ) ) {
             transExecutorData.groupField = environmentSubstitute( meta.getGroupField() );
           }
+
+          // A transformation that keeps running only gets its parameters once, so it can't follow values that
+          // change from group to group.
+          //
+          transExecutorData.reusingTransformation = meta.isReusingTransformation();
+          if ( transExecutorData.reusingTransformation && meta.hasParametersFromFields() ) {
+            logBasic( BaseMessages.getString( PKG, "TransExecutor.Log.NotReusingWithFieldParameters" ) );
+            transExecutorData.reusingTransformation = false;
+          }
           // That's all for now...
           return true;
         } else {
@@ -540,6 +673,7 @@ public class TransExecutor extends BaseStep implements StepInterface {
 
   public void dispose( StepMetaInterface smi, StepDataInterface sdi ) {
     TransExecutorData transExecutorData = getData();
+    disposeReusedTransformation();
     transExecutorData.groupBuffer = null;
     super.dispose( smi, sdi );
   }
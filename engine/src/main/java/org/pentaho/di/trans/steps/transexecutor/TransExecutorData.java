@@ -23,11 +23,14 @@
 package org.pentaho.di.trans.steps.transexecutor;
 
 import java.util.List;
+import java.util.Set;
 
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.RowSet;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.trans.RowProducer;
+import org.pentaho.di.trans.SingleThreadedTransExecutor;
 import org.pentaho.di.trans.Trans;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.BaseStepData;
@@ -59,11 +62,17 @@ public class TransExecutorData extends BaseStepData implements StepDataInterface
 
   public Object prevGroupFieldData;
 
+  public boolean reusingTransformation;
+
   private RowSet executorStepOutputRowSet;
   private RowSet resultRowsRowSet;
   private RowSet resultFilesRowSet;
   private RowSet executionResultRowSet;
 
+  private SingleThreadedTransExecutor reusedTransExecutor;
+  private RowProducer reusedTransRowProducer;
+  public Set<String> reportedResultFiles;
+
   public TransExecutorData() {
     super();
   }
@@ -155,4 +164,20 @@ public class TransExecutorData extends BaseStepData implements StepDataInterface
   public void setExecutionResultRowSet( RowSet executionResultRowSet ) {
     this.executionResultRowSet = executionResultRowSet;
   }
+
+  public SingleThreadedTransExecutor getReusedTransExecutor() {
+    return reusedTransExecutor;
+  }
+
+  public void setReusedTransExecutor( SingleThreadedTransExecutor reusedTransExecutor ) {
+    this.reusedTransExecutor = reusedTransExecutor;
+  }
+
+  public RowProducer getReusedTransRowProducer() {
+    return reusedTransRowProducer;
+  }
+
+  public void setReusedTransRowProducer( RowProducer reusedTransRowProducer ) {
+    this.reusedTransRowProducer = reusedTransRowProducer;
+  }
 }
@@ -101,6 +101,12 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
    */
   private String groupTime;
 
+  /**
+   * Keep one single threaded transformation around and send every group of rows through it instead of starting a new
+   * transformation for every group. The parameters are only passed once, with the values of the first group.
+   */
+  private boolean reusingTransformation;
+
   private TransExecutorParameters parameters;
 
   private String executionResultTargetStep;
@@ -270,6 +276,7 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
     retval.append( "    " ).append( XMLHandler.addTagValue( "group_size", groupSize ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "group_field", groupField ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "group_time", groupTime ) );
+    retval.append( "    " ).append( XMLHandler.addTagValue( "reuse_transformation", reusingTransformation ) );
 
     // Add the mapping parameters too
     //
@@ -338,6 +345,7 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
       groupSize = XMLHandler.getTagValue( stepnode, "group_size" );
       groupField = XMLHandler.getTagValue( stepnode, "group_field" );
       groupTime = XMLHandler.getTagValue( stepnode, "group_time" );
+      reusingTransformation = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "reuse_transformation" ) );
 
       // Load the mapping parameters too..
       //
@@ -399,6 +407,7 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
     groupSize = rep.getStepAttributeString( id_step, "group_size" );
     groupField = rep.getStepAttributeString( id_step, "group_field" );
     groupTime = rep.getStepAttributeString( id_step, "group_time" );
+    reusingTransformation = rep.getStepAttributeBoolean( id_step, 0, "reuse_transformation", false );
 
     parameters = new TransExecutorParameters( rep, id_step );
 
@@ -448,6 +457,7 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
     rep.saveStepAttribute( id_transformation, id_step, "group_size", groupSize );
     rep.saveStepAttribute( id_transformation, id_step, "group_field", groupField );
     rep.saveStepAttribute( id_transformation, id_step, "group_time", groupTime );
+    rep.saveStepAttribute( id_transformation, id_step, "reuse_transformation", reusingTransformation );
 
     // save the mapping parameters too
     //
@@ -500,6 +510,7 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
     groupSize = "1";
     groupField = "";
     groupTime = "";
+    reusingTransformation = false;
 
     executionTimeField = "ExecutionTime";
     executionResultField = "ExecutionResult";
@@ -628,6 +639,13 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
           "TransExecutorMeta.CheckResult.NoInputReceived" ), stepinfo );
       remarks.add( cr );
     }
+
+    if ( reusingTransformation && hasParametersFromFields() ) {
+      cr =
+        new CheckResult( CheckResultInterface.TYPE_RESULT_WARNING, BaseMessages.getString( PKG,
+          "TransExecutorMeta.CheckResult.NotReusingWithFieldParameters" ), stepinfo );
+      remarks.add( cr );
+    }
   }
 
   public StepInterface getStep( StepMeta stepMeta, StepDataInterface stepDataInterface, int cnr, TransMeta tr,
@@ -1024,6 +1042,35 @@ public class TransExecutorMeta extends StepWithMappingMeta implements StepMetaIn
     this.groupTime = groupTime;
   }
 
+  /**
+   * @return true if one transformation is kept running between the groups of rows
+   */
+  public boolean isReusingTransformation() {
+    return reusingTransformation;
+  }
+
+  /**
+   * @param reusingTransformation true to keep one transformation running between the groups of rows
+   */
+  public void setReusingTransformation( boolean reusingTransformation ) {
+    this.reusingTransformation = reusingTransformation;
+  }
+
+  /**
+   * @return true if the value of at least one parameter is taken from a field of the incoming rows
+   */
+  public boolean hasParametersFromFields() {
+    if ( parameters == null || parameters.getField() == null ) {
+      return false;
+    }
+    for ( String field : parameters.getField() ) {
+      if ( !Utils.isEmpty( Const.trim( field ) ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public boolean excludeFromCopyDistributeVerification() {
     return true;
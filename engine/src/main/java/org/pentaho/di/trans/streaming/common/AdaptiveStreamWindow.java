@@ -0,0 +1,275 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.streaming.common;
+
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.processors.FlowableProcessor;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.Schedulers;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.SubtransExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * A StreamWindow which adapts the number of records per batch and the number of batches running in parallel to the
+ * load, see {@link org.pentaho.di.core.Const#KETTLE_STREAMING_ADAPTIVE_WINDOW}.
+ * <p>
+ * The configured duration stays the upper limit for the time a record waits in the window. The configured number of
+ * records is the smallest batch size and the configured parallelism is the most batches running at the same time.
+ * When batches queue up or a sub-transformation takes longer than the duration, the window first runs more batches in
+ * parallel and then makes the batches bigger, up to the prefetch count. When the stream calms down again it goes back
+ * step by step.
+ */
+public class AdaptiveStreamWindow<I extends List> extends FixedTimeStreamWindow<I> {
+
+  private static final Class<?> PKG = BaseStreamStep.class;
+
+  /** Weight of the latest sub-transformation duration in the moving average */
+  private static final double LATENCY_WEIGHT = 0.2;
+
+  private final LogChannelInterface log;
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final int maxParallelism;
+
+  private volatile int currentBatchSize;
+  private volatile int currentParallelism;
+
+  private final Object limiter = new Object();
+  private int running;
+
+  private final AtomicInteger pendingBatches = new AtomicInteger();
+  private final AtomicLong batchCount = new AtomicLong();
+  private final AtomicLong rowCount = new AtomicLong();
+  private volatile double averageLatency;
+  private int batchesSinceAdjustment;
+  private long rowsSinceAdjustment;
+
+  private final AtomicInteger openBatchRows = new AtomicInteger();
+  private volatile long openBatchStart = System.nanoTime();
+
+  public AdaptiveStreamWindow( SubtransExecutor subtransExecutor, RowMetaInterface rowMeta, long millis,
+                               int batchSize, int parallelism, LogChannelInterface log ) {
+    super( subtransExecutor, rowMeta, millis, batchSize, parallelism, ( p ) -> { }, ( p ) -> p );
+    this.log = log;
+    this.maxParallelism = Math.max( 1, parallelism );
+    this.minBatchSize = batchSize;
+    this.maxBatchSize = Math.max( batchSize, subtransExecutor.getPrefetchCount() );
+    this.currentBatchSize = batchSize;
+    this.currentParallelism = maxParallelism;
+  }
+
+  @Override public Iterable<Result> buffer( Flowable<I> flowable ) {
+    FlowableProcessor<Long> boundary = PublishProcessor.<Long>create().toSerialized();
+    Disposable timer = millis > 0
+      ? Flowable.interval( Math.max( 1L, Math.min( millis, 100L ) / 4 ), MILLISECONDS, Schedulers.computation() )
+        .subscribe( tick -> {
+          if ( openBatchRows.get() > 0 && System.nanoTime() - openBatchStart >= MILLISECONDS.toNanos( millis ) ) {
+            closeBatch( boundary );
+          }
+        } )
+      : null;
+
+    // The record is counted once it is in the buffer, so the record that fills the batch closes it right away instead
+    // of the next record or the timer.
+    //
+    return flowable
+      .doAfterNext( row -> {
+        int size = currentBatchSize;
+        if ( openBatchRows.incrementAndGet() >= size && size > 0 ) {
+          closeBatch( boundary );
+        }
+      } )
+      .buffer( boundary, ArrayList::new )
+      .filter( list -> !list.isEmpty() )
+      .doOnNext( list -> pendingBatches.incrementAndGet() )
+      .parallel( maxParallelism, rxBatchCount )
+      .runOn( getScheduler(), rxBatchCount )
+      .map( this::executeBatch )
+      .filter( Optional::isPresent )
+      .map( Optional::get )
+      .sequential()
+      .doOnNext( this::failOnError )
+      .doOnNext( postProcessor )
+      .map( Map.Entry::getValue )
+      .doFinally( () -> {
+        if ( timer != null ) {
+          timer.dispose();
+        }
+      } )
+      .blockingIterable();
+  }
+
+  private void closeBatch( FlowableProcessor<Long> boundary ) {
+    openBatchRows.set( 0 );
+    openBatchStart = System.nanoTime();
+    boundary.onNext( openBatchStart );
+  }
+
+  private Optional<Map.Entry<List<I>, Result>> executeBatch( List<I> input ) throws Exception {
+    acquire();
+    pendingBatches.decrementAndGet();
+    try {
+      List<I> rows = bufferFilter.apply( input ); // apply any filtering for data that should no longer be processed
+      if ( rows.isEmpty() ) {
+        return Optional.empty();
+      }
+      long start = System.nanoTime();
+      Optional<Map.Entry<List<I>, Result>> result = sendBufferToSubtrans( rows );
+      batchFinished( rows.size(), ( System.nanoTime() - start ) / 1000000.0 );
+      return result;
+    } finally {
+      release();
+    }
+  }
+
+  private void acquire() throws InterruptedException {
+    synchronized ( limiter ) {
+      while ( running >= currentParallelism ) {
+        limiter.wait();
+      }
+      running++;
+    }
+  }
+
+  private void release() {
+    synchronized ( limiter ) {
+      running--;
+      limiter.notifyAll();
+    }
+  }
+
+  private synchronized void batchFinished( int rows, double latency ) {
+    batchCount.incrementAndGet();
+    rowCount.addAndGet( rows );
+    averageLatency = batchCount.get() == 1 ? latency : averageLatency + LATENCY_WEIGHT * ( latency - averageLatency );
+
+    // Look at the load once per round of parallel batches
+    //
+    batchesSinceAdjustment++;
+    rowsSinceAdjustment += rows;
+    if ( batchesSinceAdjustment >= currentParallelism ) {
+      // Without a batch size every batch is closed by the timer, only the waiting batches tell about the load
+      //
+      double fill = currentBatchSize > 0 ? (double) rowsSinceAdjustment / batchesSinceAdjustment / currentBatchSize : 0;
+      adjust( pendingBatches.get(), averageLatency, fill );
+      batchesSinceAdjustment = 0;
+      rowsSinceAdjustment = 0;
+    }
+  }
+
+  /**
+   * Changes the batch size and parallelism for the next batches.
+   *
+   * @param waiting
+   *          the number of batches waiting to be executed
+   * @param latency
+   *          the average duration of a sub-transformation run in milliseconds
+   * @param fill
+   *          the average number of records of the last batches relative to the batch size
+   */
+  synchronized void adjust( int waiting, double latency, double fill ) {
+    int newBatchSize = currentBatchSize;
+    int newParallelism = currentParallelism;
+    boolean lagging = waiting > newParallelism || ( millis > 0 && latency > millis );
+    if ( lagging ) {
+      if ( newParallelism < maxParallelism ) {
+        newParallelism++;
+      } else if ( newBatchSize > 0 && newBatchSize < maxBatchSize ) {
+        newBatchSize = (int) Math.min( maxBatchSize, newBatchSize * 2L );
+      }
+    } else if ( waiting == 0 && fill < 0.5 ) {
+      if ( newBatchSize > minBatchSize ) {
+        newBatchSize = Math.max( minBatchSize, newBatchSize / 2 );
+      } else if ( newParallelism > 1 ) {
+        newParallelism--;
+      }
+    }
+    if ( newBatchSize == currentBatchSize && newParallelism == currentParallelism ) {
+      return;
+    }
+    currentBatchSize = newBatchSize;
+    synchronized ( limiter ) {
+      currentParallelism = newParallelism;
+      limiter.notifyAll();
+    }
+    if ( log != null && log.isDetailed() ) {
+      log.logDetailed( BaseMessages.getString( PKG, "AdaptiveStreamWindow.Adjusted", String.valueOf( newBatchSize ),
+        String.valueOf( newParallelism ), String.valueOf( waiting ), String.valueOf( Math.round( latency ) ) ) );
+    }
+  }
+
+  /**
+   * @return the number of records after which a batch is sent to the sub-transformation, 0 for no limit
+   */
+  public int getBatchSize() {
+    return currentBatchSize;
+  }
+
+  /**
+   * @return the number of batches that can run at the same time
+   */
+  public int getParallelism() {
+    return currentParallelism;
+  }
+
+  /**
+   * @return the number of complete batches waiting for a sub-transformation
+   */
+  public int getPendingBatches() {
+    return pendingBatches.get();
+  }
+
+  /**
+   * @return the moving average of the sub-transformation duration in milliseconds
+   */
+  public double getAverageLatency() {
+    return averageLatency;
+  }
+
+  /**
+   * @return the number of batches sent to the sub-transformation
+   */
+  public long getBatchCount() {
+    return batchCount.get();
+  }
+
+  /**
+   * @return the number of records sent to the sub-transformation
+   */
+  public long getRowCount() {
+    return rowCount.get();
+  }
+}
@@ -26,10 +26,13 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import org.pentaho.di.core.CheckResultInterface;
+import org.pentaho.di.core.Const;
 import org.pentaho.di.core.Result;
 import org.pentaho.di.core.RowMetaAndData;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.i18n.BaseMessages;
 import org.pentaho.di.trans.SubtransExecutor;
 import org.pentaho.di.trans.Trans;
@@ -181,6 +184,33 @@ public class BaseStreamStep extends BaseStep {
     } );
   }
 
+  /**
+   * Creates the window for the records of this step: an {@link AdaptiveStreamWindow} when
+   * {@link Const#KETTLE_STREAMING_ADAPTIVE_WINDOW} is set, a {@link FixedTimeStreamWindow} otherwise.
+   *
+   * @param rowMeta the layout of the records sent to the sub-transformation
+   * @return the new window
+   */
+  protected StreamWindow<List<Object>, Result> createWindow( RowMetaInterface rowMeta ) {
+    Boolean adaptive = ValueMetaString.convertStringToBoolean( getVariable( Const.KETTLE_STREAMING_ADAPTIVE_WINDOW ) );
+    if ( adaptive != null && adaptive ) {
+      return new AdaptiveStreamWindow<>(
+        getSubtransExecutor(), rowMeta, getDuration(), getBatchSize(), getParallelism(), getLogChannel() );
+    }
+    return new FixedTimeStreamWindow<>(
+      getSubtransExecutor(), rowMeta, getDuration(), getBatchSize(), getParallelism() );
+  }
+
+  /**
+   * Exposes the batch size, parallelism, waiting batches and sub-transformation duration of an adaptive window.
+   *
+   * @return the window of this step if it is adaptive, null otherwise
+   */
+  @SuppressWarnings( "unchecked" )
+  public AdaptiveStreamWindow<List<Object>> getAdaptiveWindow() {
+    return window instanceof AdaptiveStreamWindow ? (AdaptiveStreamWindow<List<Object>>) window : null;
+  }
+
   protected int getBatchSize() {
     try {
       return Integer.parseInt( variablizedStepMeta.getBatchSize() );
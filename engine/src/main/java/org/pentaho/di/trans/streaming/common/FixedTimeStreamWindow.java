@@ -23,6 +23,7 @@
 package org.pentaho.di.trans.streaming.common;
 
 import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
@@ -55,15 +56,15 @@ public class FixedTimeStreamWindow<I extends List> implements StreamWindow<I, Re
   private static final Class<?> PKG = BaseStreamStep.class;
 
   private final RowMetaInterface rowMeta;
-  private final long millis;
+  protected final long millis;
   private final int batchSize;
   private SubtransExecutor subtransExecutor;
   private int parallelism;
-  private final Consumer<Map.Entry<List<I>, Result>> postProcessor;
-  private final Function<List<I>, List<I>> bufferFilter;
+  protected final Consumer<Map.Entry<List<I>, Result>> postProcessor;
+  protected final Function<List<I>, List<I>> bufferFilter;
   private int sharedStreamingBatchPoolSize = 0;
   private static ThreadPoolExecutor sharedStreamingBatchPool;
-  private final int rxBatchCount;
+  protected final int rxBatchCount;
 
   public FixedTimeStreamWindow( SubtransExecutor subtransExecutor, RowMetaInterface rowMeta, long millis,
                                 int batchSize, int parallelism ) {
@@ -115,8 +116,7 @@ public class FixedTimeStreamWindow<I extends List> implements StreamWindow<I, Re
       : flowable.buffer( batchSize );
     return buffer
       .parallel( parallelism, rxBatchCount )
-      .runOn( sharedStreamingBatchPoolSize > 0 ? Schedulers.from( sharedStreamingBatchPool ) : Schedulers.io(),
-        rxBatchCount )
+      .runOn( getScheduler(), rxBatchCount )
       .filter( list -> !list.isEmpty() )
       .map( this.bufferFilter ) // apply any filtering for data that should no longer be processed
       .filter( list -> !list.isEmpty() ) // ensure at least one record is left before sending to subtrans
@@ -130,13 +130,20 @@ public class FixedTimeStreamWindow<I extends List> implements StreamWindow<I, Re
       .blockingIterable();
   }
 
-  private void failOnError( Map.Entry<List<I>, Result> pair ) throws KettleException {
+  /**
+   * @return the scheduler to run the batches on: the shared streaming batch pool when it is configured
+   */
+  protected Scheduler getScheduler() {
+    return sharedStreamingBatchPoolSize > 0 ? Schedulers.from( sharedStreamingBatchPool ) : Schedulers.io();
+  }
+
+  protected void failOnError( Map.Entry<List<I>, Result> pair ) throws KettleException {
     if ( pair.getValue().getNrErrors() > 0 ) {
       throw new KettleException( BaseMessages.getString( PKG, "FixedTimeStreamWindow.SubtransFailed"  ) );
     }
   }
 
-  private Optional<Map.Entry<List<I>, Result>> sendBufferToSubtrans( List<I> input ) throws KettleException {
+  protected Optional<Map.Entry<List<I>, Result>> sendBufferToSubtrans( List<I> input ) throws KettleException {
     final List<RowMetaAndData> rows = input.stream()
       .map( row -> row.toArray( new Object[ 0 ] ) )
       .map( objects -> new RowMetaAndData( rowMeta, objects ) )
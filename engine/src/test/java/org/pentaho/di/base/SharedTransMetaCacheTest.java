@@ -0,0 +1,121 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.base;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.trans.TransMeta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class SharedTransMetaCacheTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private SharedTransMetaCache cache;
+  private String filename;
+  private String previousSize;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    KettleEnvironment.init( false );
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    previousSize = System.getProperty( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE );
+    File file = temporaryFolder.newFile( "one-step-trans.ktr" );
+    try ( InputStream in = getClass().getResourceAsStream( "one-step-trans.ktr" ) ) {
+      Files.copy( in, file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    }
+    filename = file.getAbsolutePath();
+    cache = new SharedTransMetaCache();
+  }
+
+  @After
+  public void tearDown() {
+    if ( previousSize == null ) {
+      System.clearProperty( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE );
+    } else {
+      System.setProperty( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE, previousSize );
+    }
+  }
+
+  @Test
+  public void testDisabledByDefault() throws Exception {
+    System.clearProperty( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE );
+
+    cache.getTransMeta( filename, null, new Variables() );
+    cache.getTransMeta( filename, null, new Variables() );
+
+    assertEquals( 0, cache.size() );
+    assertEquals( 0L, cache.getHits() );
+  }
+
+  @Test
+  public void testCachedTransformationIsClonedForEveryCaller() throws Exception {
+    System.setProperty( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE, "10" );
+    Variables space = new Variables();
+    space.setVariable( "SHARED_CACHE_TEST", "first" );
+
+    TransMeta first = cache.getTransMeta( filename, null, space );
+    space.setVariable( "SHARED_CACHE_TEST", "second" );
+    TransMeta second = cache.getTransMeta( filename, null, space );
+
+    assertEquals( 1, cache.size() );
+    assertEquals( 1L, cache.getMisses() );
+    assertEquals( 1L, cache.getHits() );
+    assertNotSame( first, second );
+    assertNotSame( first.getStep( 0 ), second.getStep( 0 ) );
+    assertEquals( first.nrSteps(), second.nrSteps() );
+    assertEquals( "first", first.getVariable( "SHARED_CACHE_TEST" ) );
+    assertEquals( "second", second.getVariable( "SHARED_CACHE_TEST" ) );
+  }
+
+  @Test
+  public void testChangedFileIsReloaded() throws Exception {
+    System.setProperty( Const.KETTLE_SHARED_TRANS_META_CACHE_SIZE, "10" );
+    File file = new File( filename );
+
+    cache.getTransMeta( filename, null, new Variables() );
+    file.setLastModified( file.lastModified() - 60000L );
+    cache.getTransMeta( filename, null, new Variables() );
+
+    assertEquals( 0L, cache.getHits() );
+    assertEquals( 2L, cache.getMisses() );
+  }
+}
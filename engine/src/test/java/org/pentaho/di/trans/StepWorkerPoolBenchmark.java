@@ -0,0 +1,103 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogLevel;
+
+/**
+ * Runs transformations with and without the step worker pool ({@link Const#KETTLE_STEP_WORKER_POOL} set to N, then Y)
+ * and prints the average duration of a run. This is not a unit test, run it from the engine module:
+ *
+ * <pre>
+ * java -cp ... org.pentaho.di.trans.StepWorkerPoolBenchmark [transformation.ktr ...]
+ * </pre>
+ *
+ * Without arguments the sample transformations that don't need files or databases are used.
+ */
+public class StepWorkerPoolBenchmark {
+
+  private static final String SAMPLES_FOLDER = "../assemblies/samples/src/main/resources/transformations/";
+
+  private static final String[] SAMPLES = {
+    "Add sequence - specify a common counter.ktr",
+    "Append streams - Basic example.ktr",
+    "Calculator - Substract constant value one from a number.ktr",
+    "Denormaliser - Simple example.ktr",
+    "Exchange_lastname_firstname.ktr",
+    "General - Populate date dimension.ktr",
+    "General sample - first and average coordinates calculation.ktr",
+    "Memory Group By - simple example.ktr",
+  };
+
+  private static final int WARMUP_RUNS = 3;
+  private static final int RUNS = 10;
+
+  public static void main( String[] args ) throws Exception {
+    KettleEnvironment.init( false );
+
+    List<String> filenames = new ArrayList<>();
+    if ( args.length > 0 ) {
+      filenames.addAll( Arrays.asList( args ) );
+    } else {
+      for ( String sample : SAMPLES ) {
+        filenames.add( SAMPLES_FOLDER + sample );
+      }
+    }
+
+    for ( String filename : filenames ) {
+      TransMeta transMeta = new TransMeta( filename );
+      run( transMeta, "N", WARMUP_RUNS );
+      run( transMeta, "Y", WARMUP_RUNS );
+      double threads = run( transMeta, "N", RUNS );
+      double pool = run( transMeta, "Y", RUNS );
+      System.out.println( String.format( "%-70s %s=N: %9.1f ms, %s=Y: %9.1f ms", transMeta.getName(),
+        Const.KETTLE_STEP_WORKER_POOL, threads, Const.KETTLE_STEP_WORKER_POOL, pool ) );
+    }
+    System.exit( 0 );
+  }
+
+  /**
+   * @return the average duration of a run in milliseconds
+   */
+  private static double run( TransMeta transMeta, String workerPool, int runs ) throws KettleException {
+    long start = System.nanoTime();
+    for ( int i = 0; i < runs; i++ ) {
+      Trans trans = new Trans( transMeta );
+      trans.setLogLevel( LogLevel.MINIMAL );
+      trans.setVariable( Const.KETTLE_STEP_WORKER_POOL, workerPool );
+      trans.execute( null );
+      trans.waitUntilFinished();
+      if ( trans.getErrors() > 0 ) {
+        throw new KettleException( "Transformation " + transMeta.getName() + " finished with errors" );
+      }
+    }
+    return ( System.nanoTime() - start ) / 1e6 / runs;
+  }
+}
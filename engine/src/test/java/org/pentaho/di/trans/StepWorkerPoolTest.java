@@ -0,0 +1,140 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.Const;
+import org.pentaho.di.core.KettleEnvironment;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.steps.dummytrans.DummyTransMeta;
+import org.pentaho.di.trans.steps.normaliser.NormaliserMeta;
+
+public class StepWorkerPoolTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String TEST_STEPNAME = "dummy in the middle";
+
+  @BeforeClass
+  public static void before() throws KettleException {
+    KettleEnvironment.init( false );
+  }
+
+  @Test
+  public void testAllRowsPassInOrder() throws KettleException {
+    TransMeta transMeta = TransTestFactory.generateTestTransformation( null, new DummyTransMeta(), TEST_STEPNAME );
+    // Small row sets so the steps have to hand over the workers many times
+    //
+    transMeta.setSizeRowset( 50 );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    List<RowMetaAndData> input = new ArrayList<>();
+    for ( long i = 0; i < 10000; i++ ) {
+      input.add( new RowMetaAndData( rowMeta, i ) );
+    }
+
+    Variables variables = new Variables();
+    variables.setVariable( Const.KETTLE_STEP_WORKER_POOL, "Y" );
+    List<RowMetaAndData> result = TransTestFactory.executeTestTransformation( transMeta,
+      TransTestFactory.INJECTOR_STEPNAME, TEST_STEPNAME, TransTestFactory.DUMMY_STEPNAME, input, variables, null );
+
+    assertEquals( input.size(), result.size() );
+    for ( int i = 0; i < result.size(); i++ ) {
+      assertEquals( Long.valueOf( i ), result.get( i ).getInteger( 0 ) );
+    }
+  }
+
+  /**
+   * Every input row of the normaliser results in many output rows, so the normaliser fills its small output row set
+   * halfway its slice and has to wait for the consumer to run.
+   */
+  @Test( timeout = 60000 )
+  public void testStepWritingMoreRowsThanItReads() throws KettleException {
+    int nrFields = 50;
+    NormaliserMeta normaliserMeta = new NormaliserMeta();
+    normaliserMeta.setDefault();
+    normaliserMeta.setTypeField( "type" );
+    NormaliserMeta.NormaliserField[] normaliserFields = new NormaliserMeta.NormaliserField[nrFields];
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    for ( int f = 0; f < nrFields; f++ ) {
+      normaliserFields[f] = new NormaliserMeta.NormaliserField();
+      normaliserFields[f].setName( "field" + f );
+      normaliserFields[f].setValue( "type" + f );
+      normaliserFields[f].setNorm( "value" );
+      rowMeta.addValueMeta( new ValueMetaInteger( "field" + f ) );
+    }
+    normaliserMeta.setNormaliserFields( normaliserFields );
+
+    List<RowMetaAndData> input = new ArrayList<>();
+    for ( long i = 0; i < 1000; i++ ) {
+      Object[] row = new Object[nrFields + 1];
+      for ( int f = 0; f < row.length; f++ ) {
+        row[f] = i;
+      }
+      input.add( new RowMetaAndData( rowMeta, row ) );
+    }
+
+    for ( String workerPool : new String[] { "N", "Y" } ) {
+      TransMeta transMeta = TransTestFactory.generateTestTransformation( null, normaliserMeta, TEST_STEPNAME );
+      transMeta.setSizeRowset( 10 );
+      Variables variables = new Variables();
+      variables.setVariable( Const.KETTLE_STEP_WORKER_POOL, workerPool );
+
+      long start = System.nanoTime();
+      List<RowMetaAndData> result = TransTestFactory.executeTestTransformation( transMeta,
+        TransTestFactory.INJECTOR_STEPNAME, TEST_STEPNAME, TransTestFactory.DUMMY_STEPNAME, input, variables, null );
+      long nanos = System.nanoTime() - start;
+      System.out.println( String.format( "Normalising %d rows into %d rows with %s=%s: %.0f rows/s",
+        input.size(), result.size(), Const.KETTLE_STEP_WORKER_POOL, workerPool, result.size() * 1e9 / nanos ) );
+
+      assertEquals( input.size() * nrFields, result.size() );
+      RowMetaAndData last = result.get( result.size() - 1 );
+      assertEquals( Long.valueOf( input.size() - 1 ), last.getInteger( "id" ) );
+      assertEquals( "type" + ( nrFields - 1 ), last.getString( "type", null ) );
+    }
+  }
+
+  @Test
+  public void testUsesWorkerPoolOnlyWhenEnabled() {
+    Trans trans = new Trans();
+    assertFalse( trans.isUsingStepWorkerPool() );
+    trans.setVariable( Const.KETTLE_STEP_WORKER_POOL, "Y" );
+    assertTrue( trans.isUsingStepWorkerPool() );
+  }
+}
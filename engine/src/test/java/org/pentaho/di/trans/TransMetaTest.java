@@ -46,11 +46,13 @@ import org.pentaho.di.core.row.value.ValueMetaFactory;
 import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.core.xml.XMLHandler;
 import org.pentaho.di.metastore.DatabaseMetaStoreUtil;
 import org.pentaho.di.repository.ObjectRevision;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectory;
 import org.pentaho.di.repository.RepositoryDirectoryInterface;
+import org.pentaho.di.trans.step.StepErrorMeta;
 import org.pentaho.di.trans.step.StepIOMeta;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaChangeListenerInterface;
@@ -867,4 +869,43 @@ public class TransMetaTest {
 
     assertEquals( "Original value defined at run execution", transMetaTest.getVariable( Const.INTERNAL_VARIABLE_ENTRY_CURRENT_DIRECTORY ) );
   }
+
+  @Test
+  public void testLoadXmlResolvesHopsAndErrorHops() throws Exception {
+    TransMeta original = new TransMeta();
+    StepMeta previous = null;
+    for ( int i = 0; i < 100; i++ ) {
+      StepMeta step = new StepMeta( "Step " + i, new DummyTransMeta() );
+      original.addStep( step );
+      if ( previous != null ) {
+        original.addTransHop( new TransHopMeta( previous, step ) );
+      }
+      previous = step;
+    }
+    StepMeta errorSource = original.getStep( 10 );
+    StepMeta errorTarget = new StepMeta( "Errors", new DummyTransMeta() );
+    original.addStep( errorTarget );
+    StepErrorMeta stepErrorMeta = new StepErrorMeta( original, errorSource, errorTarget );
+    stepErrorMeta.setEnabled( true );
+    errorSource.setStepErrorMeta( stepErrorMeta );
+    TransHopMeta errorHop = new TransHopMeta( errorSource, errorTarget );
+    errorHop.setErrorHop( true );
+    original.addTransHop( errorHop );
+
+    TransMeta loaded = new TransMeta( XMLHandler.loadXMLString( original.getXML(), TransMeta.XML_TAG ), null );
+
+    assertEquals( original.nrSteps(), loaded.nrSteps() );
+    assertEquals( original.nrTransHops(), loaded.nrTransHops() );
+    for ( int i = 0; i < original.nrTransHops(); i++ ) {
+      TransHopMeta expected = original.getTransHop( i );
+      TransHopMeta hop = loaded.getTransHop( i );
+      assertSame( loaded.findStep( expected.getFromStep().getName() ), hop.getFromStep() );
+      assertSame( loaded.findStep( expected.getToStep().getName() ), hop.getToStep() );
+      assertEquals( expected.isErrorHop(), hop.isErrorHop() );
+    }
+    for ( int i = 0; i < original.nrSteps(); i++ ) {
+      assertEquals( original.getStep( i ).getName(), loaded.getStep( i ).getName() );
+    }
+    assertSame( loaded.findStep( "Errors" ), loaded.findStep( "Step 10" ).getStepErrorMeta().getTargetStep() );
+  }
 }
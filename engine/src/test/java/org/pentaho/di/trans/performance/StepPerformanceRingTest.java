@@ -0,0 +1,182 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.performance;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pentaho.di.trans.step.StepCounters;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class StepPerformanceRingTest {
+
+  /**
+   * Adds samples 1..count: step read 10 lines per sample, the input buffer size is the sequence number.
+   */
+  private static void addSamples( StepPerformanceRing ring, int first, int last ) {
+    for ( int seqNr = first; seqNr <= last; seqNr++ ) {
+      StepCounters counters = new StepCounters( seqNr * 10L, seqNr * 5L, 0L, 0L, 0L, 0L, 0L, 0L );
+      ring.add( seqNr, 1L, seqNr * 1000L, counters, seqNr, 0L, seqNr * 100L );
+    }
+  }
+
+  private static long sumLinesRead( List<StepPerformanceSnapShot> snapShots ) {
+    long sum = 0L;
+    for ( StepPerformanceSnapShot snapShot : snapShots ) {
+      sum += snapShot.getLinesRead();
+    }
+    return sum;
+  }
+
+  @Test
+  public void testSnapShotDifferences() {
+    StepPerformanceRing ring = new StepPerformanceRing( "trans", "step", 0, 10, false );
+    addSamples( ring, 1, 3 );
+
+    List<StepPerformanceSnapShot> snapShots = ring.getSnapShots();
+    Assert.assertEquals( 3, snapShots.size() );
+    StepPerformanceSnapShot first = snapShots.get( 0 );
+    Assert.assertEquals( 10L, first.getLinesRead() );
+    Assert.assertEquals( 0L, first.getTimeDifference() );
+    Assert.assertEquals( "trans", first.getTransName() );
+    Assert.assertEquals( "step", first.getStepName() );
+
+    StepPerformanceSnapShot last = snapShots.get( 2 );
+    Assert.assertEquals( 3, last.getSeqNr() );
+    Assert.assertEquals( 30L, last.getTotalLinesRead() );
+    Assert.assertEquals( 10L, last.getLinesRead() );
+    Assert.assertEquals( 5L, last.getLinesWritten() );
+    Assert.assertEquals( 1000L, last.getTimeDifference() );
+    Assert.assertEquals( 3L, last.getInputBufferSize() );
+    Assert.assertEquals( 100L, last.getCpuTime() );
+  }
+
+  @Test
+  public void testDropOldest() {
+    StepPerformanceRing ring = new StepPerformanceRing( "trans", "step", 0, 10, false );
+    addSamples( ring, 1, 25 );
+
+    List<StepPerformanceSnapShot> snapShots = ring.getSnapShots();
+    Assert.assertEquals( 10, snapShots.size() );
+    Assert.assertEquals( 16, snapShots.get( 0 ).getSeqNr() );
+    // The first snapshot that is kept is still compared to the one before it
+    Assert.assertEquals( 10L, snapShots.get( 0 ).getLinesRead() );
+    Assert.assertEquals( 25, snapShots.get( 9 ).getSeqNr() );
+  }
+
+  @Test
+  public void testDownsampling() {
+    StepPerformanceRing ring = new StepPerformanceRing( "trans", "step", 0, 100, true );
+    addSamples( ring, 1, 10000 );
+
+    List<StepPerformanceSnapShot> snapShots = ring.getSnapShots();
+    Assert.assertTrue( snapShots.size() <= 100 );
+    Assert.assertTrue( snapShots.size() > 50 );
+    Assert.assertEquals( 10000, snapShots.get( snapShots.size() - 1 ).getSeqNr() );
+
+    // No lines are lost and the snapshots cover periods of the same length
+    //
+    Assert.assertEquals( 100000L, sumLinesRead( snapShots ) );
+    long timeDifference = snapShots.get( 1 ).getTimeDifference();
+    Assert.assertTrue( timeDifference > 1000L );
+    for ( int i = 1; i < snapShots.size() - 1; i++ ) {
+      Assert.assertEquals( timeDifference, snapShots.get( i ).getTimeDifference() );
+    }
+
+    // A merged snapshot keeps the largest buffer size
+    //
+    for ( StepPerformanceSnapShot snapShot : snapShots ) {
+      Assert.assertEquals( snapShot.getSeqNr(), snapShot.getInputBufferSize() );
+    }
+  }
+
+  @Test
+  public void testDownsamplingKeepsWrittenSnapShotsApart() {
+    StepPerformanceRing ring = new StepPerformanceRing( "trans", "step", 0, 8, true );
+    addSamples( ring, 1, 5 );
+    Assert.assertEquals( 50L, sumLinesRead( ring.takeSnapShotsUpTo( 5 ) ) );
+    addSamples( ring, 6, 40 );
+
+    List<StepPerformanceSnapShot> snapShots = ring.getSnapShots();
+    boolean found = false;
+    for ( StepPerformanceSnapShot snapShot : snapShots ) {
+      // Sample 5 was written and sample 6 wasn't, they are never merged
+      //
+      if ( snapShot.getSeqNr() == 5 ) {
+        Assert.assertEquals( 50L, snapShot.getTotalLinesRead() );
+        found = true;
+      }
+    }
+    Assert.assertTrue( found );
+    Assert.assertEquals( 400L, sumLinesRead( snapShots ) );
+  }
+
+  @Test
+  public void testTakenSnapShotsAreNotChanged() {
+    StepPerformanceRing ring = new StepPerformanceRing( "trans", "step", 0, 4, true );
+    long linesWritten = 0L;
+    int startSeqNr = 1;
+    for ( int seqNr = 1; seqNr <= 100; seqNr++ ) {
+      addSamples( ring, seqNr, seqNr );
+      if ( seqNr % 3 == 0 || seqNr == 100 ) {
+        List<StepPerformanceSnapShot> snapShots = ring.takeSnapShotsUpTo( seqNr );
+        Assert.assertEquals( seqNr, snapShots.get( snapShots.size() - 1 ).getSeqNr() );
+        for ( StepPerformanceSnapShot snapShot : snapShots ) {
+          if ( snapShot.getSeqNr() >= startSeqNr ) {
+            linesWritten += snapShot.getLinesRead();
+          }
+        }
+        startSeqNr = seqNr + 1;
+      } else if ( seqNr % 3 == 1 && seqNr > 1 ) {
+        // The next sample isn't merged into the snapshot that was just taken
+        //
+        List<StepPerformanceSnapShot> snapShots = ring.getSnapShots();
+        Assert.assertEquals( seqNr - 1, snapShots.get( snapShots.size() - 2 ).getSeqNr() );
+      }
+    }
+    Assert.assertEquals( 1000L, linesWritten );
+
+    // Samples added after the last sequence number to take are left for the next time
+    //
+    addSamples( ring, 101, 102 );
+    for ( StepPerformanceSnapShot snapShot : ring.takeSnapShotsUpTo( 101 ) ) {
+      Assert.assertTrue( snapShot.getSeqNr() <= 101 );
+    }
+  }
+
+  @Test
+  public void testSnapShotMap() {
+    StepPerformanceRing ring = new StepPerformanceRing( "trans", "step", 0, 10, false );
+    Map<String, List<StepPerformanceSnapShot>> map =
+      StepPerformanceRing.asSnapShotMap( Collections.singletonMap( "step.0", ring ) );
+    Assert.assertTrue( map.get( "step.0" ).isEmpty() );
+
+    addSamples( ring, 1, 2 );
+    Assert.assertEquals( 2, map.get( "step.0" ).size() );
+    Assert.assertEquals( 2, map.values().iterator().next().size() );
+    Assert.assertNull( map.get( "other" ) );
+    Assert.assertEquals( Collections.singleton( "step.0" ), map.keySet() );
+  }
+}
@@ -64,6 +64,7 @@ import org.pentaho.di.core.exception.KettleValueException;
 import org.pentaho.di.core.fileinput.NonAccessibleFileObject;
 import org.pentaho.di.core.logging.LogChannelInterface;
 import org.pentaho.di.core.logging.LoggingObjectInterface;
+import org.pentaho.di.core.row.RowBatch;
 import org.pentaho.di.core.row.RowMeta;
 import org.pentaho.di.core.row.RowMetaInterface;
 import org.pentaho.di.core.row.ValueMetaInterface;
@@ -527,4 +528,195 @@ public class BaseStepTest {
     baseStepSpy.getRow();
     verify( mockHelper.transMeta, times( 1 ) ).checkRowMixingStatically( any( StepMeta.class ), anyObject() );
   }
+
+  @Test
+  public void testPutRowBatchToSingleRowSet() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    BlockingRowSet rowSet = new BlockingRowSet( 10 );
+    baseStep.setOutputRowSets( new ArrayList<RowSet>( Collections.singletonList( rowSet ) ) );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowBatch batch = new RowBatch( rowMeta, 5 );
+    for ( long i = 0; i < 5; i++ ) {
+      batch.addRow( new Object[] { i } );
+    }
+
+    baseStep.putRowBatch( batch );
+
+    assertEquals( 5, baseStep.getLinesWritten() );
+    assertEquals( 5, rowSet.size() );
+    for ( long i = 0; i < 5; i++ ) {
+      assertEquals( i, rowSet.getRowImmediate()[ 0 ] );
+    }
+  }
+
+  @Test
+  public void testPutRowBatchCallsRowListeners() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    baseStep.setOutputRowSets( new ArrayList<RowSet>( Collections.singletonList( new BlockingRowSet( 10 ) ) ) );
+    RowListener rowListener = mock( RowListener.class );
+    baseStep.addRowListener( rowListener );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    RowBatch batch = new RowBatch( rowMeta, 2 );
+    batch.addRow( new Object[] { 1L } );
+    batch.addRow( new Object[] { 2L } );
+
+    baseStep.putRowBatch( batch );
+
+    verify( rowListener, times( 2 ) ).rowWrittenEvent( eq( rowMeta ), any( Object[].class ) );
+    assertEquals( 2, baseStep.getLinesWritten() );
+  }
+
+  @Test
+  public void testGetRowBatchReadsAvailableRows() throws KettleException {
+    when( mockHelper.trans.isRunning() ).thenReturn( true );
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    BlockingRowSet rowSet = new BlockingRowSet( 10 );
+    for ( long i = 0; i < 5; i++ ) {
+      rowSet.putRow( rowMeta, new Object[] { i } );
+    }
+    rowSet.setDone();
+    baseStep.setInputRowSets( new ArrayList<RowSet>( Collections.singletonList( rowSet ) ) );
+
+    RowBatch batch = baseStep.getRowBatch( 3 );
+    assertEquals( 3, batch.size() );
+    assertEquals( rowMeta, batch.getRowMeta() );
+    for ( int i = 0; i < 3; i++ ) {
+      assertEquals( (long) i, batch.getValue( i, 0 ) );
+    }
+    assertEquals( 3, baseStep.getLinesRead() );
+
+    batch = baseStep.getRowBatch( 3 );
+    assertEquals( 2, batch.size() );
+    assertEquals( 5, baseStep.getLinesRead() );
+
+    assertNull( baseStep.getRowBatch( 3 ) );
+  }
+
+  @Test
+  public void testCountersAreNotLostUnderConcurrentUpdates() throws Exception {
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final int nrThreads = 4;
+    final int nrIncrements = 10000;
+
+    Thread[] threads = new Thread[nrThreads];
+    for ( int t = 0; t < nrThreads; t++ ) {
+      threads[t] = new Thread( () -> {
+        for ( int i = 0; i < nrIncrements; i++ ) {
+          baseStep.incrementLinesRead();
+          baseStep.incrementLinesWritten();
+          baseStep.incrementLinesRejected();
+        }
+      } );
+      threads[t].start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+
+    StepCounters counters = baseStep.getCounters();
+    assertEquals( nrThreads * nrIncrements, counters.getLinesRead() );
+    assertEquals( nrThreads * nrIncrements, counters.getLinesWritten() );
+    assertEquals( nrThreads * nrIncrements, counters.getLinesRejected() );
+    assertEquals( 0, counters.getLinesInput() );
+  }
+
+  @Test
+  public void testSetCountersAndDeprecatedFields() {
+    BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+
+    baseStep.incrementLinesInput();
+    baseStep.incrementLinesInput();
+    baseStep.setLinesInput( 10 );
+    assertEquals( 10, baseStep.getLinesInput() );
+    assertEquals( 11, baseStep.incrementLinesInput() );
+
+    // Steps that still update the deprecated fields directly are counted as well
+    baseStep.linesInput++;
+    assertEquals( 12, baseStep.getLinesInput() );
+    assertEquals( 12, baseStep.getCounters().getLinesInput() );
+
+    assertEquals( 1, baseStep.incrementLinesWritten() );
+    assertEquals( 0, baseStep.decrementLinesWritten() );
+
+    baseStep.incrementLinesSkipped();
+    baseStep.setErrors( 2 );
+    assertEquals( 1, baseStep.getCounters().getLinesSkipped() );
+    assertEquals( 2, baseStep.getCounters().getErrors() );
+  }
+
+  @Test
+  public void testCountersSnapshotIsConsistent() throws Exception {
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final AtomicBoolean done = new AtomicBoolean();
+    Thread stepThread = new Thread( () -> {
+      for ( int i = 0; i < 1000000; i++ ) {
+        baseStep.incrementLinesRead();
+        baseStep.incrementLinesWritten();
+      }
+      done.set( true );
+    } );
+    stepThread.start();
+
+    // Every row is counted as read before it is counted as written
+    //
+    while ( !done.get() ) {
+      StepCounters counters = baseStep.getCounters();
+      long difference = counters.getLinesRead() - counters.getLinesWritten();
+      assertTrue( "read " + counters.getLinesRead() + ", written " + counters.getLinesWritten(),
+        difference == 0 || difference == 1 );
+    }
+    stepThread.join();
+    assertEquals( 1000000, baseStep.getCounters().getLinesWritten() );
+  }
+
+  /**
+   * Not a benchmark with warm-up and forks, but it shows what counting a row costs while a monitoring thread takes a
+   * snapshot of the counters every millisecond.
+   */
+  @Test
+  public void testCountersThroughputWithPollingReader() throws Exception {
+    final BaseStep baseStep =
+      new BaseStep( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta, mockHelper.trans );
+    final int nrRows = 5000000;
+    final AtomicBoolean done = new AtomicBoolean();
+    Thread monitor = new Thread( () -> {
+      while ( !done.get() ) {
+        baseStep.getCounters();
+        try {
+          Thread.sleep( 1 );
+        } catch ( InterruptedException e ) {
+          return;
+        }
+      }
+    } );
+    monitor.start();
+
+    long start = System.nanoTime();
+    for ( int i = 0; i < nrRows; i++ ) {
+      baseStep.incrementLinesRead();
+      baseStep.incrementLinesWritten();
+    }
+    long elapsed = System.nanoTime() - start;
+    done.set( true );
+    monitor.join();
+
+    System.out.println( String.format( "Counting a row read and written: %.1f ns/row", (double) elapsed / nrRows ) );
+    assertEquals( nrRows, baseStep.getCounters().getLinesRead() );
+    assertEquals( nrRows, baseStep.getCounters().getLinesWritten() );
+  }
 }
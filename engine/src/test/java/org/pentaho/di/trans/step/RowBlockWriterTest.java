@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.step;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleEOFException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBigNumber;
+import org.pentaho.di.core.row.value.ValueMetaBinary;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.row.value.ValueMetaTimestamp;
+
+public class RowBlockWriterTest {
+
+  private static RowMetaInterface createRowMeta() {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "binary" ) );
+    ValueMetaInterface lazy = new ValueMetaString( "lazy" );
+    lazy.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    rowMeta.addValueMeta( lazy );
+    return rowMeta;
+  }
+
+  private static List<Object[]> createRows( int nrRows ) {
+    List<Object[]> rows = new ArrayList<Object[]>();
+    for ( int i = 0; i < nrRows; i++ ) {
+      Timestamp timestamp = new Timestamp( 1500000000000L + i );
+      timestamp.setNanos( 123456789 );
+      Object[] row = new Object[] {
+        "value " + ( i % 10 ), Long.valueOf( i % 2 == 0 ? i : -i * 1000000000L ), Double.valueOf( i / 3.0 ),
+        new Date( 1500000000000L - i ), timestamp, Boolean.valueOf( i % 2 == 0 ),
+        new BigDecimal( "-12345678901234567890.123" ).add( BigDecimal.valueOf( i ) ), new byte[] { 1, 2, (byte) i },
+        ( "lazy " + i ).getBytes( StandardCharsets.UTF_8 ), };
+      // Some nulls in every column
+      //
+      if ( i % 7 == 0 ) {
+        row[i % row.length] = null;
+      }
+      rows.add( row );
+    }
+    return rows;
+  }
+
+  private static List<Object[]> roundTrip( RowMetaInterface rowMeta, List<Object[]> rows,
+    RowBlockWriter.Compression compression ) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    RowBlockWriter writer = new RowBlockWriter( new DataOutputStream( bytes ), rowMeta, compression );
+    for ( Object[] row : rows ) {
+      writer.putRow( row );
+    }
+    writer.finish();
+
+    RowBlockReader reader =
+      new RowBlockReader( new DataInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ), rowMeta );
+    List<Object[]> result = new ArrayList<Object[]>();
+    Object[] row = reader.getRow();
+    while ( row != null ) {
+      result.add( row );
+      row = reader.getRow();
+    }
+    assertNull( reader.getRow() );
+    return result;
+  }
+
+  private static void assertRowsEqual( List<Object[]> expected, List<Object[]> actual ) {
+    assertEquals( expected.size(), actual.size() );
+    for ( int r = 0; r < expected.size(); r++ ) {
+      Object[] expectedRow = expected.get( r );
+      Object[] actualRow = actual.get( r );
+      for ( int i = 0; i < expectedRow.length; i++ ) {
+        if ( expectedRow[i] instanceof byte[] ) {
+          assertArrayEquals( (byte[]) expectedRow[i], (byte[]) actualRow[i] );
+        } else {
+          assertEquals( "row " + r + " value " + i, expectedRow[i], actualRow[i] );
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    List<Object[]> rows = createRows( RowBlockWriter.MAX_ROWS_PER_FRAME * 2 + 17 );
+    for ( RowBlockWriter.Compression compression : RowBlockWriter.Compression.values() ) {
+      assertRowsEqual( rows, roundTrip( rowMeta, rows, compression ) );
+    }
+  }
+
+  @Test
+  public void testEmptyStream() throws Exception {
+    assertTrue( roundTrip( createRowMeta(), new ArrayList<Object[]>(), RowBlockWriter.Compression.SNAPPY )
+      .isEmpty() );
+  }
+
+  @Test
+  public void testRepeatedStringsAreDictionaryEncoded() throws Exception {
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    String value = "a fairly long string value that repeats in every row";
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    RowBlockWriter writer =
+      new RowBlockWriter( new DataOutputStream( bytes ), rowMeta, RowBlockWriter.Compression.NONE );
+    for ( int i = 0; i < 100; i++ ) {
+      writer.putRow( new Object[] { value } );
+    }
+    writer.finish();
+
+    // The string is only written once, every other row takes a null bitmap and a dictionary reference
+    //
+    assertTrue( bytes.size() < value.length() + 100 * 2 + 16 );
+  }
+
+  @Test( expected = KettleEOFException.class )
+  public void testTruncatedStream() throws Exception {
+    RowMetaInterface rowMeta = createRowMeta();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    RowBlockWriter writer =
+      new RowBlockWriter( new DataOutputStream( bytes ), rowMeta, RowBlockWriter.Compression.NONE );
+    for ( Object[] row : createRows( 10 ) ) {
+      writer.putRow( row );
+    }
+    writer.flush();
+
+    byte[] data = bytes.toByteArray();
+    RowBlockReader reader =
+      new RowBlockReader( new DataInputStream( new ByteArrayInputStream( data, 0, data.length - 5 ) ), rowMeta );
+    reader.getRow();
+  }
+}
@@ -0,0 +1,326 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.csvinput;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.pentaho.di.core.QueueRowSet;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.step.StepDataInterface;
+import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.mock.StepMockHelper;
+import org.pentaho.di.trans.steps.textfileinput.TextFileInputMeta;
+
+public class ParallelCsvReaderTest extends CsvInputUnitTestBase {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  private static final String CONTENT =
+    "h1,h2,h3\r\n"
+      + "a,\"b,\"\"x\"\"\ny\",c\n"
+      + "\n"
+      + "1,2\r\n"
+      + "\"q\",5,6,7\n"
+      + ",,\n"
+      + "last,x,\"z\"";
+
+  /**
+   * Lines with too many fields followed by empty lines, mixed line ends, delimiters right before a new line, escaped
+   * enclosures, enclosed new lines and text after a closing enclosure.
+   */
+  private static final String[] LINES = {
+    CONTENT,
+    "a,b,c,d,e\n\n\n1,2,3,4\r\n\r\n\r\nx,y\n",
+    "a,b\r\nc,\r\nd,,\n\ne\r\rf,\rg,h\n,\n",
+    "\"x\",\"y\"\"z\"\r\n\r\n\"multi\r\nline\",2,3,4\n\nlast",
+    "\n\r\na,b,c\n\"ab\"x,c\n\"open",
+    "1,2,3,\"4\n5\",6\n7,8,9,\"10\n11,12\"\r\n\r\n13,14\r\r\n\n15,,,\r\n",
+  };
+
+  private static final String[] FILE_FORMATS = { "DOS", "UNIX", "mixed" };
+  private static final int[] FILE_FORMAT_NRS = {
+    TextFileInputMeta.FILE_FORMAT_DOS, TextFileInputMeta.FILE_FORMAT_UNIX, TextFileInputMeta.FILE_FORMAT_MIXED };
+
+  private StepMockHelper<CsvInputMeta, StepDataInterface> stepMockHelper;
+
+  @Before
+  public void setUp() throws Exception {
+    stepMockHelper = StepMockUtil.getStepMockHelper( CsvInputMeta.class, "ParallelCsvReaderTest" );
+  }
+
+  @After
+  public void cleanUp() {
+    stepMockHelper.cleanUp();
+  }
+
+  private List<String> read( File file, int chunkSize, int nrThreads, boolean header ) throws Exception {
+    return read( file, chunkSize, nrThreads, header, TextFileInputMeta.FILE_FORMAT_MIXED );
+  }
+
+  /**
+   * @return the rows as text, followed by "<error>" if the parsing stopped on an error
+   */
+  private List<String> read( File file, int chunkSize, int nrThreads, boolean header, int fileFormat )
+    throws Exception {
+    ParallelCsvReader reader =
+      new ParallelCsvReader( nrThreads, chunkSize, (byte) ',', new byte[] { '"' }, true, null, fileFormat, 3 );
+    List<String> rows = new ArrayList<String>();
+    try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+      reader.open( channel, 0L, header, UnnamedFieldsMapping.mapping( 3 ) );
+      ParallelCsvReader.Batch batch = reader.nextBatch();
+      while ( batch != null ) {
+        for ( int i = 0; i < batch.size(); i++ ) {
+          assertNull( batch.getErrors( i ) );
+          rows.add( toString( batch.getRow( i ) ) );
+        }
+        if ( batch.getError() != null ) {
+          rows.add( "<error>" );
+          break;
+        }
+        batch = reader.nextBatch();
+      }
+    } finally {
+      reader.close();
+    }
+    return rows;
+  }
+
+  private static String toString( Object[] row ) throws Exception {
+    StringBuilder text = new StringBuilder();
+    for ( int f = 0; f < 3; f++ ) {
+      Object value = row[f];
+      if ( value instanceof byte[] ) {
+        value = new String( (byte[]) value, "UTF-8" );
+      }
+      text.append( value == null ? "<null>" : "[" + value + "]" );
+    }
+    return text.toString();
+  }
+
+  @Test
+  public void testParseRecords() throws Exception {
+    File file = createTestFile( ENCODING, CONTENT );
+    try {
+      // The empty line after the first record is skipped as part of its line end
+      //
+      List<String> expected = Arrays.asList(
+        "[a][b,\"x\"\ny][c]",
+        "[1][2]<null>",
+        "[q][5][6]",
+        "[][][]",
+        "[last][x][z]" );
+      assertEquals( expected, read( file, ParallelCsvReader.DEFAULT_CHUNK_SIZE, 2, true ) );
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testRecordsSpanningChunks() throws Exception {
+    StringBuilder content = new StringBuilder();
+    for ( int i = 0; i < 500; i++ ) {
+      content.append( i ).append( ",\"multi\nline, \"\"" ).append( i ).append( "\"\"\"," );
+      content.append( i % 3 == 0 ? "\r\n" : "\n" );
+    }
+    File file = createTestFile( ENCODING, content.toString() );
+    try {
+      List<String> expected = read( file, ParallelCsvReader.DEFAULT_CHUNK_SIZE, 1, false );
+      assertEquals( 500, expected.size() );
+      for ( int chunkSize : new int[] { 1, 2, 3, 7, 64, 1000 } ) {
+        assertEquals( "chunk size " + chunkSize, expected, read( file, chunkSize, 4, false ) );
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testRecordsLongerThanTheOverrun() throws Exception {
+    // The mapping past the end of a chunk has to grow to complete these records
+    //
+    char[] chars = new char[ParallelCsvReader.RECORD_OVERRUN * 3];
+    Arrays.fill( chars, 'x' );
+    String longValue = new String( chars );
+    StringBuilder content = new StringBuilder();
+    List<String> expected = new ArrayList<String>();
+    for ( int i = 0; i < 5; i++ ) {
+      content.append( i ).append( ",\"" ).append( longValue ).append( "\"," ).append( longValue ).append( '\n' );
+      expected.add( "[" + i + "][" + longValue + "][" + longValue + "]" );
+    }
+    File file = createTestFile( ENCODING, content.toString() );
+    try {
+      assertEquals( expected, read( file, 1000, 4, false ) );
+      assertEquals( expected, read( file, ParallelCsvReader.RECORD_OVERRUN, 2, false ) );
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSameRowsAsSingleThreadedStep() throws Exception {
+    StringBuilder content = new StringBuilder( "f1,f2,f3\n" );
+    for ( int i = 0; i < 2000; i++ ) {
+      content.append( "\"" ).append( i ).append( "\"," ).append( i * 7 ).append( ",value " ).append( i ).append( '\n' );
+    }
+    File file = createTestFile( ENCODING, content.toString() );
+    try {
+      List<String> expected = readWithStep( file, null, null, true, false );
+      assertEquals( 2000, expected.size() );
+      assertEquals( expected, readWithStep( file, "3", null, true, false ) );
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSameLinesAsSingleThreadedStep() throws Exception {
+    for ( String content : LINES ) {
+      File file = createTestFile( ENCODING, content );
+      try {
+        for ( int f = 0; f < FILE_FORMATS.length; f++ ) {
+          for ( boolean header : new boolean[] { false, true } ) {
+            String message = FILE_FORMATS[f] + ( header ? " with header: " : ": " ) + content;
+            List<String> expected = readWithStep( file, null, FILE_FORMATS[f], header, true );
+            assertEquals( message, expected, readWithStep( file, "2", FILE_FORMATS[f], header, true ) );
+
+            // Small chunks put the chunk edges everywhere
+            //
+            for ( int chunkSize : new int[] { 1, 2, 3, 7, 64 } ) {
+              assertEquals( message + " in chunks of " + chunkSize, expected,
+                read( file, chunkSize, 3, header, FILE_FORMAT_NRS[f] ) );
+            }
+          }
+        }
+      } finally {
+        file.delete();
+      }
+    }
+  }
+
+  @Test
+  public void testLineWithTooManyFieldsSkipsTheEmptyLinesAfterIt() throws Exception {
+    File file = createTestFile( ENCODING, "a,b,c,d\n\n\r\ne,f,g\n" );
+    try {
+      List<String> expected = Arrays.asList( "[a][b][c]", "[e][f][g]" );
+      for ( String fileFormat : FILE_FORMATS ) {
+        assertEquals( fileFormat, expected, readWithStep( file, null, fileFormat, false, true ) );
+        assertEquals( fileFormat, expected, readWithStep( file, "2", fileFormat, false, true ) );
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSingleNewLineAfterDelimiterInDosFormat() throws Exception {
+    File file = createTestFile( ENCODING, "a,b,c\r\nd,\ne,f\r\n" );
+    try {
+      List<String> expected = Arrays.asList( "[a][b][c]", "<error>" );
+      assertEquals( expected, readWithStep( file, null, "DOS", false, true ) );
+      assertEquals( expected, readWithStep( file, "2", "DOS", false, true ) );
+      assertEquals( expected, read( file, 4, 2, false, TextFileInputMeta.FILE_FORMAT_DOS ) );
+
+      expected = Arrays.asList( "[a][b][c]", "[d][]<null>", "[e][f]<null>" );
+      assertEquals( expected, readWithStep( file, "2", "mixed", false, true ) );
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testBatchesThatDontFollowThePreviousOneAreParsedAgain() throws Exception {
+    // A line with too many fields ignores the enclosures after its last field, so the enclosed new line ends it
+    //
+    StringBuilder content = new StringBuilder();
+    for ( int i = 0; i < 200; i++ ) {
+      content.append( i ).append( ",x,y,\"z\nw,v\n" );
+    }
+    File file = createTestFile( ENCODING, content.toString() );
+    try {
+      List<String> expected = readWithStep( file, null, "UNIX", false, true );
+      assertEquals( 400, expected.size() );
+      assertTrue( expected.contains( "[w][v]<null>" ) );
+      for ( int chunkSize : new int[] { 1, 5, 16, 100 } ) {
+        assertEquals( "chunk size " + chunkSize, expected,
+          read( file, chunkSize, 4, false, TextFileInputMeta.FILE_FORMAT_UNIX ) );
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * @return the rows as text, followed by "<error>" if the step failed
+   */
+  private List<String> readWithStep( File file, String parseThreads, String fileFormat, boolean header,
+    boolean lazyConversion ) throws Exception {
+    CsvInputMeta meta = createMeta( file, createInputFileFields( "f1", "f2", "f3" ) );
+    meta.setHeaderPresent( header );
+    meta.setFileFormat( fileFormat );
+    meta.setLazyConversionActive( lazyConversion );
+    meta.setNewlinePossibleInFields( false );
+    meta.setParseThreads( parseThreads );
+    CsvInputData data = new CsvInputData();
+
+    CsvInput csvInput = new CsvInput(
+      stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, 0, stepMockHelper.transMeta, stepMockHelper.trans );
+    csvInput.init( meta, data );
+    RowSet output = new QueueRowSet();
+    csvInput.addRowSetToOutputRowSets( output );
+    boolean failed = false;
+    try {
+      while ( csvInput.processRow( meta, data ) ) {
+        // read all rows
+      }
+    } catch ( KettleException e ) {
+      failed = true;
+    } finally {
+      csvInput.dispose( meta, data );
+    }
+
+    List<String> rows = new ArrayList<String>();
+    Object[] row = output.getRowImmediate();
+    while ( row != null ) {
+      rows.add( toString( row ) );
+      row = output.getRowImmediate();
+    }
+    if ( failed ) {
+      rows.add( "<error>" );
+    }
+    return rows;
+  }
+}
@@ -66,7 +66,7 @@ public class DatabaseLookupMetaTest implements InitializerInterface<StepMetaInte
     PluginRegistry.init( false );
     List<String> attributes =
         Arrays.asList( "schemaName", "tablename", "databaseMeta", "orderByClause", "cached",
-            "cacheSize", "loadingAllDataInCache", "failingOnMultipleResults", "eatingRowOnLookupFailure",
+            "cacheSize", "cacheMemorySize", "lookupBatchSize", "loadingAllDataInCache", "failingOnMultipleResults", "eatingRowOnLookupFailure",
             "streamKeyField1", "streamKeyField2", "keyCondition", "tableKeyField", "returnValueField",
             "returnValueNewName", "returnValueDefault", "returnValueDefaultType" );
 
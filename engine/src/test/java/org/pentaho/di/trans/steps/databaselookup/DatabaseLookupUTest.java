@@ -42,6 +42,7 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -54,6 +55,7 @@ import java.sql.ResultSetMetaData;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -63,6 +65,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.mockito.internal.util.reflection.Whitebox;
@@ -451,6 +454,130 @@ public class DatabaseLookupUTest {
     assertNotNull( data.cache.getRowFromCache( data.lookupMeta, new Object[] { 2L } ) );
   }
 
+  private DatabaseLookup createBatchStep( Database db, DatabaseLookupData data, ValueMetaInterface keyMeta ) {
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.allocate( 1, 1 );
+    meta.setStreamKeyField1( new String[] { "id" } );
+    meta.setStreamKeyField2( new String[] { null } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setTableKeyField( new String[] { "id" } );
+    meta.setReturnValueField( new String[] { "name" } );
+    meta.setReturnValueNewName( new String[] { "name" } );
+    meta.setReturnValueDefault( new String[] { null } );
+    meta.setReturnValueDefaultType( new int[] { ValueMetaInterface.TYPE_STRING } );
+
+    RowMeta input = new RowMeta();
+    input.addValueMeta( keyMeta.clone() );
+
+    data.db = db;
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.lookupMeta = new RowMeta();
+    data.lookupMeta.addValueMeta( keyMeta.clone() );
+    data.returnMeta = new RowMeta();
+    data.returnMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.outputRowMeta = input.clone();
+    data.outputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.nullif = new Object[ 1 ];
+    data.batchSize = 4;
+    data.batchStatement = mock( PreparedStatement.class );
+    data.batchResults = new HashMap<>();
+
+    DatabaseLookup step =
+      new DatabaseLookup( mockHelper.stepMeta, mockHelper.stepDataInterface, 0, mockHelper.transMeta,
+        mockHelper.trans );
+    Whitebox.setInternalState( step, "meta", meta );
+    Whitebox.setInternalState( step, "data", data );
+    step.setInputRowMeta( input );
+    return step;
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void batchLookupResolvesDistinctKeysWithOneQuery() throws Exception {
+    Database db = mock( Database.class );
+    RowMeta resultMeta = new RowMeta();
+    resultMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    resultMeta.addValueMeta( new ValueMetaString( "name" ) );
+    when( db.getBatchLookupRowMeta() ).thenReturn( resultMeta );
+    when( db.getBatchLookup( any( PreparedStatement.class ), any( RowMetaInterface.class ), any( List.class ) ) )
+      .thenReturn( Arrays.asList( new Object[] { 2L, "two" }, new Object[] { 1L, "one" } ) );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    DatabaseLookup step = createBatchStep( db, data, new ValueMetaInteger( "id" ) );
+
+    step.lookupBatch( Arrays.asList( new Object[] { 1L }, new Object[] { 2L }, new Object[] { 1L },
+      new Object[] { 3L } ) );
+
+    ArgumentCaptor<List> keys = ArgumentCaptor.forClass( List.class );
+    verify( db, times( 1 ) ).getBatchLookup( eq( data.batchStatement ), any( RowMetaInterface.class ),
+      keys.capture() );
+    List<Object[]> parameters = keys.getValue();
+    assertEquals( 4, parameters.size() );
+    assertArrayEquals( new Object[] { 1L }, parameters.get( 0 ) );
+    assertArrayEquals( new Object[] { 2L }, parameters.get( 1 ) );
+    assertArrayEquals( new Object[] { 3L }, parameters.get( 2 ) );
+    assertArrayEquals( new Object[] { 3L }, parameters.get( 3 ) );
+
+    RowMetaInterface input = step.getInputRowMeta();
+    assertEquals( "one", step.lookupValues( input, new Object[] { 1L } )[ 1 ] );
+    assertEquals( "two", step.lookupValues( input, new Object[] { 2L } )[ 1 ] );
+    verify( db, never() ).getLookup( anyBoolean() );
+
+    // The key that didn't come back is verified with the regular lookup
+    assertEquals( null, step.lookupValues( input, new Object[] { 3L } )[ 1 ] );
+    verify( db, times( 1 ) ).getLookup( anyBoolean() );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void batchLookupVerifiesMissingStringKeysOneByOne() throws Exception {
+    Database db = mock( Database.class );
+    RowMeta resultMeta = new RowMeta();
+    resultMeta.addValueMeta( new ValueMetaString( "id" ) );
+    resultMeta.addValueMeta( new ValueMetaString( "name" ) );
+    when( db.getBatchLookupRowMeta() ).thenReturn( resultMeta );
+    when( db.getReturnRowMeta() ).thenReturn( resultMeta );
+    when( db.getBatchLookup( any( PreparedStatement.class ), any( RowMetaInterface.class ), any( List.class ) ) )
+      .thenReturn( Collections.<Object[]>singletonList( new Object[] { "a", "found in batch" } ) );
+    when( db.getLookup( anyBoolean() ) ).thenReturn( new Object[] { "found by single lookup" } );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    DatabaseLookup step = createBatchStep( db, data, new ValueMetaString( "id" ) );
+
+    step.lookupBatch( Arrays.asList( new Object[] { "a" }, new Object[] { "B " } ) );
+
+    RowMetaInterface input = step.getInputRowMeta();
+    assertEquals( "found in batch", step.lookupValues( input, new Object[] { "a" } )[ 1 ] );
+    assertEquals( "found by single lookup", step.lookupValues( input, new Object[] { "B " } )[ 1 ] );
+    verify( db, times( 1 ) ).getLookup( anyBoolean() );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void batchLookupVerifiesMissingNumberKeysOneByOne() throws Exception {
+    // A DECIMAL column can match the key while the value returned by the batch query doesn't compare equal to it
+    //
+    Database db = mock( Database.class );
+    RowMeta resultMeta = new RowMeta();
+    resultMeta.addValueMeta( new ValueMetaNumber( "id" ) );
+    resultMeta.addValueMeta( new ValueMetaString( "name" ) );
+    when( db.getBatchLookupRowMeta() ).thenReturn( resultMeta );
+    when( db.getReturnRowMeta() ).thenReturn( resultMeta );
+    when( db.getBatchLookup( any( PreparedStatement.class ), any( RowMetaInterface.class ), any( List.class ) ) )
+      .thenReturn( Collections.<Object[]>singletonList( new Object[] { 0.30000000000000004, "rounded" } ) );
+    when( db.getLookup( anyBoolean() ) ).thenReturn( new Object[] { "found by single lookup" } );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    DatabaseLookup step = createBatchStep( db, data, new ValueMetaNumber( "id" ) );
+
+    step.lookupBatch( Collections.<Object[]>singletonList( new Object[] { 0.3 } ) );
+
+    RowMetaInterface input = step.getInputRowMeta();
+    assertEquals( "found by single lookup", step.lookupValues( input, new Object[] { 0.3 } )[ 1 ] );
+    verify( db, times( 1 ) ).getLookup( anyBoolean() );
+  }
+
   @Test
   public void testIncrementLinesNotClustered() {
 
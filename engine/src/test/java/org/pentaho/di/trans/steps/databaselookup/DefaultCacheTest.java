@@ -29,10 +29,13 @@ import org.pentaho.di.core.row.ValueMetaInterface;
 import org.pentaho.di.core.row.value.ValueMetaInteger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 
 import static org.mockito.Mockito.mock;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 
@@ -316,4 +319,52 @@ public class DefaultCacheTest {
       assertEquals( new Object[]{ i * 100 }[0], result[0] );
     }
   }
+
+  @Test
+  public void storeRowInCacheEvictsLeastRecentlyUsedTest() throws Exception {
+    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 3 );
+    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( false );
+    when( databaseLookupMeta.getCacheSize() ).thenReturn( 3 );
+    Whitebox.setInternalState( databaseLookupData, "allEquals", true );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    Whitebox.setInternalState( databaseLookupData, "lookupMeta", rowMeta );
+    for ( long i = 1; i <= 3; ++i ) {
+      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ i }, new Object[]{ i * 100 } );
+    }
+    //Looking up the oldest entry makes it the most recently used one
+    assertEquals( 100L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 1L } )[0] );
+    defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ 4L }, new Object[]{ 400L } );
+
+    assertEquals( 3, defaultCache.size() );
+    assertEquals( 1L, defaultCache.getEvictions() );
+    assertEquals( 100L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 1L } )[0] );
+    assertNull( defaultCache.getRowFromCache( rowMeta, new Object[]{ 2L } ) );
+    assertEquals( 300L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 3L } )[0] );
+    assertEquals( 400L, defaultCache.getRowFromCache( rowMeta, new Object[]{ 4L } )[0] );
+  }
+
+  @Test
+  public void storeRowInCacheMemoryLimitTest() throws Exception {
+    DatabaseLookupData databaseLookupData = mock( DatabaseLookupData.class );
+    DatabaseLookupMeta databaseLookupMeta = mock( DatabaseLookupMeta.class );
+    DefaultCache defaultCache = new DefaultCache( databaseLookupData, 16 );
+    when( databaseLookupMeta.isLoadingAllDataInCache() ).thenReturn( false );
+    when( databaseLookupMeta.getCacheSize() ).thenReturn( 0 );
+    when( databaseLookupMeta.getCacheMemorySize() ).thenReturn( 1 );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    //Values of about 20KB each, only about 50 of them fit in 1MB
+    char[] chars = new char[10000];
+    Arrays.fill( chars, 'x' );
+    String value = new String( chars );
+    for ( long i = 1; i <= 200; ++i ) {
+      defaultCache.storeRowInCache( databaseLookupMeta, rowMeta, new Object[]{ i }, new Object[]{ value } );
+    }
+    assertTrue( defaultCache.getMemoryUsage() <= 1024L * 1024L );
+    assertTrue( defaultCache.size() > 40 && defaultCache.size() < 60 );
+    assertEquals( 200L - defaultCache.size(), defaultCache.getEvictions() );
+  }
 }
@@ -203,6 +203,12 @@ public class TextFileInputMetaNewInjectionTest extends BaseMetadataInjectionTest
       }
     }, "en", "en_us" );
 
+    check( "LAZY_CONVERSION", new BooleanGetter() {
+      public boolean get() {
+        return meta.content.lazyConversionActive;
+      }
+    } );
+
     ///////////////////////////////
     check( "FILTER_POSITION", new IntGetter() {
       public int get() {
@@ -242,4 +242,18 @@ public class TextFileInputUtilsTest {
     Assert.assertNotNull(strings);
     Assert.assertEquals("{\"Example1\":\"\",\"Example\":\"Test\"}", strings[0]);//""""
   }
+
+  @Test
+  public void convertStringToBinaryStringForLazyConversion() throws Exception {
+    String utf8 = StandardCharsets.UTF_8.name();
+    Assert.assertArrayEquals( "\u00e9t\u00e9".getBytes( utf8 ),
+      TextFileInputUtils.convertStringToBinaryString( "\u00e9t\u00e9", utf8, null, null ) );
+    Assert.assertNull( TextFileInputUtils.convertStringToBinaryString( "NA", utf8, "NA", null ) );
+    Assert.assertNull( TextFileInputUtils.convertStringToBinaryString( null, utf8, "NA", null ) );
+    Assert.assertArrayEquals( "0".getBytes( utf8 ),
+      TextFileInputUtils.convertStringToBinaryString( "NA", utf8, "NA", "0" ) );
+    Assert.assertArrayEquals( "0".getBytes( utf8 ),
+      TextFileInputUtils.convertStringToBinaryString( "", utf8, null, "0" ) );
+    Assert.assertEquals( 0, TextFileInputUtils.convertStringToBinaryString( "", utf8, null, null ).length );
+  }
 }
@@ -77,5 +77,29 @@ public class MemoryGroupByMetaInjectionTest extends BaseMetadataInjectionTest<Me
           return meta.isAlwaysGivingBackOneRow();
         }
       } );
+    check( "DIRECTORY", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getDirectory();
+      }
+    } );
+    check( "PREFIX", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getPrefix();
+      }
+    } );
+    check( "MAX_GROUPS_IN_MEMORY", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getMaxGroupsInMemory();
+      }
+    } );
+    check( "FREE_MEMORY_LIMIT", new StringGetter() {
+      @Override
+      public String get() {
+        return meta.getFreeMemoryLimit();
+      }
+    } );
   }
 }
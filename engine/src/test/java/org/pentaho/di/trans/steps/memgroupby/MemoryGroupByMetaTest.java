@@ -71,7 +71,8 @@ public class MemoryGroupByMetaTest implements InitializerInterface<MemoryGroupBy
     KettleEnvironment.init();
     PluginRegistry.init( false );
     List<String> attributes =
-        Arrays.asList( "alwaysGivingBackOneRow", "groupField", "aggregateField", "subjectField", "aggregateType", "valueField" );
+        Arrays.asList( "alwaysGivingBackOneRow", "groupField", "aggregateField", "subjectField", "aggregateType", "valueField",
+            "directory", "prefix", "maxGroupsInMemory", "freeMemoryLimit" );
 
     FieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
         new ArrayLoadSaveValidator<String>( new StringLoadSaveValidator(), 5 );
@@ -0,0 +1,228 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.memgroupby;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.KettleClientEnvironment;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.exception.KettleStepException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.core.variables.Variables;
+import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
+import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.di.trans.step.StepMeta;
+
+/**
+ * Runs the same rows through the step with and without a limit on the number of groups in memory: the groups that
+ * spill to the temporary files must come out with the same aggregates.
+ */
+public class MemoryGroupBySpillTest {
+  @ClassRule public static RestorePDIEngineEnvironment env = new RestorePDIEngineEnvironment();
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private static final String STEP_NAME = "testStep";
+  private static final int NR_GROUPS = 37;
+
+  private static final int[] AGGREGATE_TYPES = {
+    MemoryGroupByMeta.TYPE_GROUP_SUM, MemoryGroupByMeta.TYPE_GROUP_AVERAGE, MemoryGroupByMeta.TYPE_GROUP_MIN,
+    MemoryGroupByMeta.TYPE_GROUP_MAX, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL,
+    MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY, MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT,
+    MemoryGroupByMeta.TYPE_GROUP_FIRST, MemoryGroupByMeta.TYPE_GROUP_LAST, };
+
+  private RowMetaInterface rowMeta;
+  private List<Object[]> rows;
+  private File directory;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws KettleException {
+    KettleClientEnvironment.init();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "value" ) );
+
+    // One of the groups has a null key and every fifth value is null
+    //
+    rows = new ArrayList<>();
+    for ( int i = 0; i < 1000; i++ ) {
+      String key = i % NR_GROUPS == 0 ? null : "k" + ( i % NR_GROUPS );
+      Long value = i % 5 == 0 ? null : Long.valueOf( i % 11 );
+      rows.add( new Object[] { key, value } );
+    }
+
+    directory = tempFolder.newFolder( "spill" );
+  }
+
+  @Test
+  public void testSpilledGroupsMatchInMemoryResult() throws Exception {
+    Map<Object, List<Object>> expected = toMap( runStep( 0 ) );
+    assertThat( expected.size(), is( NR_GROUPS ) );
+    assertThat( directory.list().length, is( 0 ) );
+
+    Map<Object, List<Object>> spilled = toMap( runStep( 2 ) );
+    assertEquals( expected, spilled );
+    assertThat( directory.list().length, is( 0 ) );
+  }
+
+  @Test
+  public void testTempFilesAreDeletedOnError() throws Exception {
+    MemoryGroupByMeta meta = createMeta( 2 );
+    MemoryGroupByData data = new MemoryGroupByData();
+    MemoryGroupBy step = createStep( meta, data );
+
+    // Fail while the groups of the temporary files are passed on
+    //
+    final int[] nrOutputRows = new int[1];
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        if ( ++nrOutputRows[0] > 5 ) {
+          throw new KettleStepException( "Output failed" );
+        }
+        return null;
+      }
+    } ).when( step ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+
+    for ( Object[] row : rows ) {
+      doReturn( row ).when( step ).getRow();
+      assertThat( step.processRow( meta, data ), is( true ) );
+    }
+    assertTrue( directory.list().length > 1 );
+
+    doReturn( null ).when( step ).getRow();
+    try {
+      step.processRow( meta, data );
+      fail( "The output error should be passed on" );
+    } catch ( KettleStepException e ) {
+      // expected
+    }
+    assertTrue( directory.list().length > 0 );
+
+    step.dispose( meta, data );
+    assertThat( directory.list().length, is( 0 ) );
+  }
+
+  private List<Object[]> runStep( int maxGroupsInMemory ) throws Exception {
+    MemoryGroupByMeta meta = createMeta( maxGroupsInMemory );
+    MemoryGroupByData data = new MemoryGroupByData();
+    MemoryGroupBy step = createStep( meta, data );
+
+    final List<Object[]> output = new ArrayList<>();
+    doAnswer( new Answer<Void>() {
+      @Override public Void answer( InvocationOnMock invocation ) throws Throwable {
+        RowMetaInterface outputRowMeta = (RowMetaInterface) invocation.getArguments()[0];
+        Object[] row = (Object[]) invocation.getArguments()[1];
+        output.add( Arrays.copyOf( row, outputRowMeta.size() ) );
+        return null;
+      }
+    } ).when( step ).putRow( any( RowMetaInterface.class ), any( Object[].class ) );
+
+    for ( Object[] row : rows ) {
+      doReturn( row ).when( step ).getRow();
+      assertThat( step.processRow( meta, data ), is( true ) );
+    }
+    if ( maxGroupsInMemory > 0 ) {
+      // The groups that didn't fit are spread over several temporary files
+      //
+      assertTrue( directory.list().length > 1 );
+    }
+
+    doReturn( null ).when( step ).getRow();
+    assertThat( step.processRow( meta, data ), is( false ) );
+
+    step.dispose( meta, data );
+    return output;
+  }
+
+  private MemoryGroupByMeta createMeta( int maxGroupsInMemory ) {
+    MemoryGroupByMeta meta = new MemoryGroupByMeta();
+    meta.allocate( 1, AGGREGATE_TYPES.length );
+    meta.getGroupField()[0] = "key";
+    for ( int i = 0; i < AGGREGATE_TYPES.length; i++ ) {
+      meta.getAggregateField()[i] = "agg" + i;
+      meta.getSubjectField()[i] = "value";
+      meta.getAggregateType()[i] = AGGREGATE_TYPES[i];
+    }
+    meta.setDirectory( directory.getAbsolutePath() );
+    meta.setPrefix( "grp" );
+    meta.setMaxGroupsInMemory( Integer.toString( maxGroupsInMemory ) );
+    return meta;
+  }
+
+  private MemoryGroupBy createStep( MemoryGroupByMeta meta, MemoryGroupByData data ) throws KettleException {
+    data.map = new HashMap<>();
+    data.maxGroupsInMemory = Integer.parseInt( meta.getMaxGroupsInMemory() );
+
+    TransMeta transMeta = mock( TransMeta.class );
+    StepMeta stepMeta = new StepMeta( STEP_NAME, meta );
+    when( transMeta.findStep( STEP_NAME ) ).thenReturn( stepMeta );
+
+    MemoryGroupBy step = spy( new MemoryGroupBy( stepMeta, data, 0, transMeta, mock( Trans.class ) ) );
+    step.copyVariablesFrom( new Variables() );
+    doNothing().when( step ).setOutputDone();
+    doReturn( rowMeta ).when( step ).getInputRowMeta();
+    return step;
+  }
+
+  private static Map<Object, List<Object>> toMap( List<Object[]> output ) {
+    Map<Object, List<Object>> map = new HashMap<>();
+    for ( Object[] row : output ) {
+      assertThat( map.put( row[0], Arrays.asList( row ).subList( 1, row.length ) ) == null, is( true ) );
+    }
+    return map;
+  }
+}
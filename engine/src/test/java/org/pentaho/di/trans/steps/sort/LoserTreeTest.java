@@ -0,0 +1,108 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LoserTreeTest {
+
+  @Test
+  public void testMergeSortedRuns() {
+    Random random = new Random( 42 );
+    for ( int nrRuns = 0; nrRuns < 20; nrRuns++ ) {
+      List<List<Integer>> runs = new ArrayList<>();
+      List<Integer> expected = new ArrayList<>();
+      for ( int r = 0; r < nrRuns; r++ ) {
+        List<Integer> run = new ArrayList<>();
+        int size = random.nextInt( 50 );
+        for ( int i = 0; i < size; i++ ) {
+          run.add( random.nextInt( 100 ) );
+        }
+        Collections.sort( run );
+        runs.add( run );
+        expected.addAll( run );
+      }
+      Collections.sort( expected );
+
+      assertEquals( expected, merge( runs ) );
+    }
+  }
+
+  @Test
+  public void testEmptyAndExhaustedSources() {
+    List<List<Integer>> runs = new ArrayList<>();
+    runs.add( Collections.<Integer>emptyList() );
+    runs.add( Arrays.asList( 2, 4 ) );
+    runs.add( Collections.<Integer>emptyList() );
+    runs.add( Arrays.asList( 1, 3, 5 ) );
+
+    assertEquals( Arrays.asList( 1, 2, 3, 4, 5 ), merge( runs ) );
+    assertNull( new LoserTree<Integer>( new ArrayList<Integer>(), Comparator.<Integer>naturalOrder() )
+      .getWinnerValue() );
+  }
+
+  @Test
+  public void testEqualValuesAreWonByLowestSource() {
+    List<Integer> heads = Arrays.asList( 7, 7, 7 );
+    LoserTree<Integer> tree = new LoserTree<>( heads, Comparator.<Integer>naturalOrder() );
+    assertEquals( 0, tree.getWinner() );
+    tree.replaceWinner( null );
+    assertEquals( 1, tree.getWinner() );
+    tree.replaceWinner( null );
+    assertEquals( 2, tree.getWinner() );
+    tree.replaceWinner( null );
+    assertNull( tree.getWinnerValue() );
+  }
+
+  private static List<Integer> merge( List<List<Integer>> runs ) {
+    List<Integer> heads = new ArrayList<>();
+    List<Integer> positions = new ArrayList<>();
+    for ( List<Integer> run : runs ) {
+      heads.add( run.isEmpty() ? null : run.get( 0 ) );
+      positions.add( 1 );
+    }
+
+    LoserTree<Integer> tree = new LoserTree<>( heads, Comparator.<Integer>naturalOrder() );
+    List<Integer> merged = new ArrayList<>();
+    for ( Integer value = tree.getWinnerValue(); value != null; value = tree.getWinnerValue() ) {
+      merged.add( value );
+      int source = tree.getWinner();
+      List<Integer> run = runs.get( source );
+      int position = positions.get( source );
+      positions.set( source, position + 1 );
+      tree.replaceWinner( position < run.size() ? run.get( position ) : null );
+    }
+    return merged;
+  }
+}
@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.exception.KettleValueException;
+import org.pentaho.di.core.row.ValueMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaBoolean;
+import org.pentaho.di.core.row.value.ValueMetaDate;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+import org.pentaho.di.core.row.value.ValueMetaNumber;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+public class SortKeyPrefixTest {
+
+  @Test
+  public void testIntegerOrder() throws KettleValueException {
+    List<Object> values =
+      Arrays.<Object>asList( null, Long.MIN_VALUE, -5L, -1L, 0L, 1L, 3L, 1000000000000L, Long.MAX_VALUE );
+    assertSameOrder( new ValueMetaInteger( "int" ), values );
+  }
+
+  @Test
+  public void testNumberOrder() throws KettleValueException {
+    List<Object> values =
+      Arrays.<Object>asList( null, Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 1E-10, 2.5, Double.MAX_VALUE,
+        Double.POSITIVE_INFINITY, Double.NaN );
+    assertSameOrder( new ValueMetaNumber( "num" ), values );
+  }
+
+  @Test
+  public void testDateOrder() throws KettleValueException {
+    List<Object> values = Arrays.<Object>asList( null, new Date( -1000L ), new Date( 0L ), new Date( 1234567890L ) );
+    assertSameOrder( new ValueMetaDate( "date" ), values );
+  }
+
+  @Test
+  public void testStringOrder() throws KettleValueException {
+    ValueMetaInterface valueMeta = new ValueMetaString( "str" );
+    valueMeta.setCollatorDisabled( true );
+    List<Object> values =
+      Arrays.<Object>asList( null, "\u0000", "A", "AB", "ABC", "ABCD", "ABCE", "ABD", "B", "a", "\uffff\uffff" );
+    assertSameOrder( valueMeta, values );
+  }
+
+  @Test
+  public void testUnsupportedKeys() {
+    ValueMetaInterface caseInsensitive = new ValueMetaString( "str" );
+    caseInsensitive.setCollatorDisabled( true );
+    caseInsensitive.setCaseInsensitive( true );
+    assertNull( SortKeyPrefix.getInstance( caseInsensitive ) );
+
+    ValueMetaInterface collator = new ValueMetaString( "str" );
+    collator.setCollatorDisabled( false );
+    assertNull( SortKeyPrefix.getInstance( collator ) );
+
+    ValueMetaInterface binaryString = new ValueMetaInteger( "int" );
+    binaryString.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    assertNull( SortKeyPrefix.getInstance( binaryString ) );
+
+    assertNull( SortKeyPrefix.getInstance( new ValueMetaBoolean( "bool" ) ) );
+  }
+
+  /**
+   * The values are given in ascending order. Whenever the prefixes of two values differ they have to be in the same
+   * order as the values, for both ascending and descending sorts.
+   */
+  private void assertSameOrder( ValueMetaInterface valueMeta, List<Object> values ) throws KettleValueException {
+    for ( boolean descending : new boolean[] { false, true } ) {
+      valueMeta.setSortedDescending( descending );
+      SortKeyPrefix keyPrefix = SortKeyPrefix.getInstance( valueMeta );
+      assertNotNull( keyPrefix );
+
+      for ( Object value1 : values ) {
+        for ( Object value2 : values ) {
+          long prefix1 = keyPrefix.encode( value1 );
+          long prefix2 = keyPrefix.encode( value2 );
+          if ( prefix1 != prefix2 ) {
+            assertEquals( value1 + " <> " + value2, Integer.signum( valueMeta.compare( value1, value2 ) ),
+              Long.signum( Long.compare( prefix1, prefix2 ) ) );
+          }
+        }
+      }
+    }
+  }
+}
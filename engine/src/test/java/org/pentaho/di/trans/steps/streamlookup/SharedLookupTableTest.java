@@ -0,0 +1,130 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.streamlookup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.pentaho.di.core.RowMetaAndData;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaInteger;
+
+public class SharedLookupTableTest {
+
+  private static final int NR_COPIES = 4;
+  private static final int NR_ROWS = 10000;
+
+  private final RowMetaInterface keyMeta = new RowMeta();
+
+  public SharedLookupTableTest() {
+    keyMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+  }
+
+  @Test
+  public void testDistributedBuild() throws Exception {
+    // Every copy receives a different part of the lookup rows
+    //
+    final SharedLookupTable table = new SharedLookupTable( NR_COPIES );
+    build( table, false );
+
+    assertEquals( NR_ROWS, table.size() );
+    for ( long i = 0; i < NR_ROWS; i++ ) {
+      assertArrayEquals( new Object[] { "value" + i }, table.get( key( i ) ) );
+    }
+    assertNull( table.get( key( NR_ROWS ) ) );
+  }
+
+  @Test
+  public void testCopiedBuildOnlyInsertsOwnPartitions() throws Exception {
+    // Every copy receives all the lookup rows
+    //
+    final SharedLookupTable table = new SharedLookupTable( NR_COPIES );
+    build( table, true );
+
+    assertEquals( NR_ROWS, table.size() );
+    for ( long i = 0; i < NR_ROWS; i++ ) {
+      assertArrayEquals( new Object[] { "value" + i }, table.get( key( i ) ) );
+    }
+  }
+
+  @Test
+  public void testAwaitBuildWaitsForAllCopies() throws Exception {
+    SharedLookupTable table = new SharedLookupTable( 2 );
+    assertFalse( table.hasLookupRows() );
+
+    table.buildFinished();
+    assertFalse( table.awaitBuild( 10 ) );
+    table.buildFinished();
+    assertTrue( table.awaitBuild( 10 ) );
+  }
+
+  @Test
+  public void testFirstMetadataWins() {
+    SharedLookupTable table = new SharedLookupTable( 2 );
+    RowMetaInterface other = new RowMeta();
+    table.setMetadata( keyMeta, keyMeta, keyMeta, keyMeta );
+    table.setMetadata( other, other, other, other );
+
+    assertTrue( table.hasLookupRows() );
+    assertTrue( keyMeta == table.getKeyTypes() );
+    assertTrue( keyMeta == table.getCacheValueMeta() );
+  }
+
+  private void build( final SharedLookupTable table, final boolean copied ) throws Exception {
+    List<Thread> threads = new ArrayList<>();
+    for ( int c = 0; c < NR_COPIES; c++ ) {
+      final int copyNr = c;
+      Thread thread = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          for ( long i = 0; i < NR_ROWS; i++ ) {
+            RowMetaAndData key = key( i );
+            if ( copied ? table.isOwnedBy( key, copyNr ) : i % NR_COPIES == copyNr ) {
+              table.put( key, new Object[] { "value" + i } );
+            }
+          }
+          table.buildFinished();
+        }
+      } );
+      threads.add( thread );
+      thread.start();
+    }
+    assertTrue( table.awaitBuild( 10000 ) );
+    for ( Thread thread : threads ) {
+      thread.join();
+    }
+  }
+
+  private RowMetaAndData key( long id ) {
+    return new RowMetaAndData( keyMeta, new Object[] { id } );
+  }
+}
@@ -37,6 +37,7 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.pentaho.di.core.CheckResultInterface;
 import org.pentaho.di.core.KettleEnvironment;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.plugins.PluginRegistry;
@@ -61,8 +62,8 @@ public class StreamLookupMetaTest implements InitializerInterface<StepMetaInterf
     KettleEnvironment.init();
     PluginRegistry.init( false );
     List<String> attributes =
-        Arrays.asList( "inputSorted", "memoryPreservationActive", "usingSortedList", "usingIntegerPair", "keystream",
-            "keylookup", "value", "valueName", "valueDefault", "valueDefaultType" );
+        Arrays.asList( "inputSorted", "memoryPreservationActive", "usingSortedList", "usingIntegerPair",
+            "usingOffHeapHashIndex", "sharingLookupData", "keystream", "keylookup", "value", "valueName", "valueDefault", "valueDefaultType" );
 
     FieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
         new ArrayLoadSaveValidator<String>( new StringLoadSaveValidator(), 5 );
@@ -111,6 +112,35 @@ public class StreamLookupMetaTest implements InitializerInterface<StepMetaInterf
       cloned.getStepIOMeta().getInfoStreams().get( 0 ) );
   }
 
+  @Test
+  public void testCheckWarnsThatSharedTableIgnoresPreserveMemory() {
+    StreamLookupMeta meta = new StreamLookupMeta();
+    meta.setDefault();
+    meta.setMemoryPreservationActive( true );
+    meta.setUsingOffHeapHashIndex( true );
+    meta.setSharingLookupData( true );
+    StepMeta stepMeta = new StepMeta( "lookup", meta );
+
+    stepMeta.setCopies( 1 );
+    assertEquals( 0, countWarnings( meta, stepMeta ) );
+    stepMeta.setCopies( 2 );
+    assertEquals( 1, countWarnings( meta, stepMeta ) );
+    meta.setSharingLookupData( false );
+    assertEquals( 0, countWarnings( meta, stepMeta ) );
+  }
+
+  private static int countWarnings( StreamLookupMeta meta, StepMeta stepMeta ) {
+    List<CheckResultInterface> remarks = new ArrayList<>();
+    meta.check( remarks, null, stepMeta, null, new String[0], new String[0], null, null, null, null );
+    int warnings = 0;
+    for ( CheckResultInterface remark : remarks ) {
+      if ( remark.getType() == CheckResultInterface.TYPE_RESULT_WARNING ) {
+        warnings++;
+      }
+    }
+    return warnings;
+  }
+
   //PDI-16110
   @Test
   public void testGetXML() {
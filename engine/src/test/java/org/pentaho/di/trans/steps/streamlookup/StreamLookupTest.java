@@ -29,6 +29,12 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.After;
 import org.pentaho.di.core.row.ValueMetaInterface;
 import junit.framework.Assert;
@@ -46,6 +52,7 @@ import org.pentaho.di.core.row.value.ValueMetaString;
 import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.step.StepIOMeta;
+import org.pentaho.di.trans.step.StepInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.errorhandling.Stream;
 import org.pentaho.di.trans.step.errorhandling.StreamIcon;
@@ -93,10 +100,20 @@ public class StreamLookupTest {
       convertDataToBinary( data );
     }
 
+    return mockLookupRowSet( 0, data, storageType );
+  }
+
+  private RowSet mockLookupRowSet( int copyNr, Object[][] data ) {
+    return mockLookupRowSet( copyNr, data, ValueMetaInterface.STORAGE_TYPE_NORMAL );
+  }
+
+  private RowSet mockLookupRowSet( int copyNr, Object[][] data, int storageType ) {
     RowSet lookupRowSet =
       smh.getMockInputRowSet( data );
     doReturn( "Lookup" ).when( lookupRowSet ).getOriginStepName();
     doReturn( "StreamLookup" ).when( lookupRowSet ).getDestinationStepName();
+    doReturn( copyNr ).when( lookupRowSet ).getOriginStepCopy();
+    doReturn( copyNr ).when( lookupRowSet ).getDestinationStepCopy();
 
     RowMeta lookupRowMeta = new RowMeta();
     ValueMetaString valueMeta = new ValueMetaString( "Value" );
@@ -121,6 +138,14 @@ public class StreamLookupTest {
       convertDataToBinary( data );
     }
 
+    return mockDataRowSet( data, storageType );
+  }
+
+  private RowSet mockDataRowSet( Object[][] data ) {
+    return mockDataRowSet( data, ValueMetaInterface.STORAGE_TYPE_NORMAL );
+  }
+
+  private RowSet mockDataRowSet( Object[][] data, int storageType ) {
     RowSet dataRowSet = smh.getMockInputRowSet( data );
 
     RowMeta dataRowMeta = new RowMeta();
@@ -138,7 +163,8 @@ public class StreamLookupTest {
     return dataRowSet;
   }
 
-  private StreamLookupMeta mockProcessRowMeta( boolean memoryPreservationActive ) throws KettleStepException {
+  private StreamLookupMeta mockProcessRowMeta( boolean memoryPreservationActive, boolean offHeapHashIndex )
+    throws KettleStepException {
     StreamLookupMeta meta = smh.processRowsStepMetaInterface;
 
     StepMeta lookupStepMeta = when( mock( StepMeta.class ).getName() ).thenReturn( "Lookup" ).getMock();
@@ -154,6 +180,7 @@ public class StreamLookupTest {
     doReturn( memoryPreservationActive ).when( meta ).isMemoryPreservationActive();
     doReturn( false ).when( meta ).isUsingSortedList();
     doReturn( false ).when( meta ).isUsingIntegerPair();
+    doReturn( offHeapHashIndex ).when( meta ).isUsingOffHeapHashIndex();
     doReturn( new int[] { -1 } ).when( meta ).getValueDefaultType();
     doReturn( new String[] { "" } ).when( meta ).getValueDefault();
     doReturn( new String[] { "Value" } ).when( meta ).getValueName();
@@ -165,13 +192,18 @@ public class StreamLookupTest {
   }
 
   private void doTest( boolean memoryPreservationActive, boolean binaryLookupStream, boolean binaryDataStream ) throws KettleException {
+    doTest( memoryPreservationActive, false, binaryLookupStream, binaryDataStream );
+  }
+
+  private void doTest( boolean memoryPreservationActive, boolean offHeapHashIndex, boolean binaryLookupStream,
+    boolean binaryDataStream ) throws KettleException {
     StreamLookup step = new StreamLookup( smh.stepMeta, smh.stepDataInterface, 0, smh.transMeta, smh.trans );
     step.init( smh.initStepMetaInterface, smh.initStepDataInterface );
     step.addRowSetToInputRowSets( mockLookupRowSet( binaryLookupStream ) );
     step.addRowSetToInputRowSets( mockDataRowSet( binaryDataStream ) );
     step.addRowSetToOutputRowSets( new QueueRowSet() );
 
-    StreamLookupMeta meta = mockProcessRowMeta( memoryPreservationActive );
+    StreamLookupMeta meta = mockProcessRowMeta( memoryPreservationActive, offHeapHashIndex );
     StreamLookupData data = new StreamLookupData();
     data.readLookupValues = true;
 
@@ -238,4 +270,91 @@ public class StreamLookupTest {
   public void testMemoryPreservationWithBinaryStreams() throws KettleException {
     doTest( true, false, true );
   }
+
+  @Test
+  public void testOffHeapHashIndexWithNormalStreams() throws KettleException {
+    doTest( true, true, false, false );
+  }
+
+  @Test
+  public void testOffHeapHashIndexWithBinaryStreams() throws KettleException {
+    doTest( true, true, true, true );
+  }
+
+  /**
+   * Two lookup step copies feed two copies sharing the lookup data. Copy n only receives the lookup rows of lookup copy
+   * n, so every copy has to insert all the rows it gets.
+   */
+  @Test
+  public void testSharedLookupDataWithLookupStepCopies() throws Exception {
+    when( smh.stepMeta.getCopies() ).thenReturn( 2 );
+    doReturn( true ).when( smh.initStepMetaInterface ).isSharingLookupData();
+    final StreamLookupMeta meta = mockProcessRowMeta( false, false );
+    StepMeta lookupStepMeta = meta.getStepIOMeta().getInfoStreams().get( 0 ).getStepMeta();
+    when( lookupStepMeta.getCopies() ).thenReturn( 2 );
+
+    final StreamLookup[] steps = new StreamLookup[2];
+    for ( int c = 0; c < steps.length; c++ ) {
+      steps[c] = new StreamLookup( smh.stepMeta, smh.stepDataInterface, c, smh.transMeta, smh.trans );
+    }
+    when( smh.trans.findStepInterfaces( "StreamLookup" ) ).thenReturn( Arrays.<StepInterface>asList( steps ) );
+    when( smh.trans.findStepInterface( "StreamLookup", 0 ) ).thenReturn( steps[0] );
+
+    Object[][][] lookupRows = {
+      { { "Value1", "1" }, { "Value2", "2" } },
+      { { "Value3", "3" }, { "Value4", "4" } } };
+    Object[][][] dataRows = {
+      { { "Name1", "1" }, { "Name4", "4" } },
+      { { "Name2", "2" }, { "Name3", "3" } } };
+    final StreamLookupData[] datas = new StreamLookupData[steps.length];
+    for ( int c = 0; c < steps.length; c++ ) {
+      datas[c] = new StreamLookupData();
+      Assert.assertTrue( steps[c].init( smh.initStepMetaInterface, datas[c] ) );
+      Assert.assertNotNull( datas[c].sharedTable );
+      steps[c].addRowSetToInputRowSets( mockLookupRowSet( c, lookupRows[c] ) );
+      steps[c].addRowSetToInputRowSets( mockDataRowSet( dataRows[c] ) );
+      steps[c].addRowSetToOutputRowSets( new QueueRowSet() );
+    }
+    // The copies wait for each other until the lookup table is built
+    //
+    final List<Exception> errors = new ArrayList<Exception>();
+    List<Thread> threads = new ArrayList<Thread>();
+    for ( int c = 0; c < steps.length; c++ ) {
+      final int copyNr = c;
+      Thread thread = new Thread( new Runnable() {
+        @Override
+        public void run() {
+          try {
+            while ( steps[copyNr].processRow( meta, datas[copyNr] ) ) {
+              // keep going
+            }
+          } catch ( Exception e ) {
+            synchronized ( errors ) {
+              errors.add( e );
+            }
+          }
+        }
+      } );
+      threads.add( thread );
+      thread.start();
+    }
+    for ( Thread thread : threads ) {
+      thread.join( 10000 );
+    }
+    Assert.assertTrue( errors.toString(), errors.isEmpty() );
+
+    Map<String, Object> found = new HashMap<String, Object>();
+    for ( StreamLookup step : steps ) {
+      RowSet outputRowSet = step.getOutputRowSets().get( 0 );
+      Object[] rowData = outputRowSet.getRow();
+      while ( rowData != null ) {
+        found.put( (String) rowData[0], rowData[2] );
+        rowData = outputRowSet.getRow();
+      }
+    }
+    Assert.assertEquals( 4, found.size() );
+    for ( int i = 1; i <= 4; i++ ) {
+      Assert.assertEquals( "Value" + i, found.get( "Name" + i ) );
+    }
+  }
 }
@@ -0,0 +1,287 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.pentaho.di.trans.steps.tableoutput;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.pentaho.di.core.database.Database;
+import org.pentaho.di.core.exception.KettleDatabaseException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TableOutputBatchWriterTest {
+  private RowMetaInterface insertRowMeta;
+  private List<Database> connections;
+  private AtomicInteger commits;
+  private AtomicInteger rollbacks;
+  private TableOutputBatchWriter writer;
+
+  /** The keys inserted and not yet committed or rolled back, with the connection that holds the lock on them */
+  private Map<Object, Database> lockedKeys;
+
+  private CountDownLatch slowRelease;
+  private CountDownLatch waitingStarted;
+  private AtomicReference<Thread> waitingThread;
+
+  @Before
+  public void setUp() throws Exception {
+    slowRelease = new CountDownLatch( 1 );
+    waitingStarted = new CountDownLatch( 1 );
+    waitingThread = new AtomicReference<>();
+    lockedKeys = new HashMap<>();
+
+    insertRowMeta = new RowMeta();
+    insertRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    commits = new AtomicInteger();
+    rollbacks = new AtomicInteger();
+    connections = new ArrayList<>();
+    for ( int i = 0; i < 2; i++ ) {
+      connections.add( createDatabase() );
+    }
+  }
+
+  @After
+  public void tearDown() {
+    if ( writer != null ) {
+      writer.close();
+    }
+  }
+
+  /**
+   * A connection that locks the keys it inserts until it commits or rolls back, like a unique index does.
+   */
+  private Database createDatabase() throws Exception {
+    final Database db = mock( Database.class );
+    final List<Object> boundKeys = new ArrayList<>();
+    PreparedStatement statement = mock( PreparedStatement.class );
+    when( db.prepareSQL( anyString() ) ).thenReturn( statement );
+    doAnswer( new Answer<int[]>() {
+      @Override
+      public int[] answer( InvocationOnMock invocation ) throws Throwable {
+        synchronized ( lockedKeys ) {
+          for ( Object key : boundKeys ) {
+            while ( lockedKeys.containsKey( key ) && lockedKeys.get( key ) != db ) {
+              lockedKeys.wait();
+            }
+            lockedKeys.put( key, db );
+          }
+        }
+        int[] updateCounts = new int[ boundKeys.size() ];
+        Arrays.fill( updateCounts, 1 );
+        boundKeys.clear();
+        return updateCounts;
+      }
+    } ).when( statement ).executeBatch();
+    doAnswer( new Answer<Void>() {
+      @Override
+      public Void answer( InvocationOnMock invocation ) throws Throwable {
+        Object[] row = (Object[]) invocation.getArguments()[ 1 ];
+        boundKeys.add( row[ 0 ] );
+        if ( "bad".equals( row[ 0 ] ) ) {
+          throw new KettleDatabaseException( "bad value" );
+        }
+        if ( "slow".equals( row[ 0 ] ) ) {
+          slowRelease.await();
+        }
+        if ( "waiting".equals( row[ 0 ] ) ) {
+          waitingThread.set( Thread.currentThread() );
+          waitingStarted.countDown();
+        }
+        return null;
+      }
+    } ).when( db ).setValues( any( RowMetaInterface.class ), any( Object[].class ), any( PreparedStatement.class ) );
+    doAnswer( new Answer<Void>() {
+      @Override
+      public Void answer( InvocationOnMock invocation ) throws Throwable {
+        commits.incrementAndGet();
+        releaseKeys( db, boundKeys );
+        return null;
+      }
+    } ).when( db ).commit();
+    doAnswer( new Answer<Void>() {
+      @Override
+      public Void answer( InvocationOnMock invocation ) throws Throwable {
+        rollbacks.incrementAndGet();
+        releaseKeys( db, boundKeys );
+        return null;
+      }
+    } ).when( db ).rollback();
+    return db;
+  }
+
+  private void releaseKeys( Database db, List<Object> boundKeys ) {
+    synchronized ( lockedKeys ) {
+      lockedKeys.values().removeAll( Collections.singleton( db ) );
+      lockedKeys.notifyAll();
+    }
+    boundKeys.clear();
+  }
+
+  private void addBatch( String... values ) {
+    for ( String value : values ) {
+      Object[] row = new Object[] { value };
+      writer.addRow( row, row );
+    }
+    writer.submit();
+  }
+
+  @Test
+  public void batchesAreTakenBackInOrder() throws Exception {
+    writer = new TableOutputBatchWriter( "test", connections, "INSERT", insertRowMeta, false );
+
+    addBatch( "a", "b" );
+    addBatch( "c", "d" );
+    addBatch( "e" );
+    assertEquals( 3, writer.getNrPending() );
+
+    List<Object> written = new ArrayList<>();
+    for ( int i = 0; i < 3; i++ ) {
+      TableOutputBatchWriter.Batch batch = writer.takeFinished( true );
+      assertEquals( i, batch.sequenceNr );
+      assertNull( batch.exception );
+      assertNull( batch.batchException );
+      for ( Object[] row : batch.batchedRows ) {
+        written.add( row[ 0 ] );
+      }
+    }
+
+    assertNull( writer.takeFinished( true ) );
+    assertEquals( Arrays.<Object>asList( "a", "b", "c", "d", "e" ), written );
+    assertEquals( 3, commits.get() );
+    assertFalse( writer.isFailed() );
+  }
+
+  @Test
+  public void rejectedRowsAreKeptApartWithErrorHandling() throws Exception {
+    writer = new TableOutputBatchWriter( "test", connections, "INSERT", insertRowMeta, true );
+
+    addBatch( "a", "bad", "c" );
+
+    TableOutputBatchWriter.Batch batch = writer.takeFinished( true );
+    assertNull( batch.exception );
+    assertEquals( 2, batch.batchedRows.size() );
+    assertEquals( 1, batch.rejectedRows.size() );
+    assertEquals( "bad", batch.rejectedRows.get( 0 )[ 0 ] );
+    assertEquals( 1, commits.get() );
+  }
+
+  @Test
+  public void failedBatchRollsBackTheBatchesAfterIt() throws Exception {
+    writer = new TableOutputBatchWriter( "test", connections, "INSERT", insertRowMeta, false );
+
+    addBatch( "a" );
+    addBatch( "bad" );
+    addBatch( "c" );
+
+    TableOutputBatchWriter.Batch first = writer.takeFinished( true );
+    TableOutputBatchWriter.Batch second = writer.takeFinished( true );
+    TableOutputBatchWriter.Batch third = writer.takeFinished( true );
+
+    assertNull( first.exception );
+    assertNotNull( second.exception );
+    assertFalse( second.rolledBack );
+    assertTrue( third.rolledBack );
+    assertTrue( writer.isFailed() );
+    assertEquals( 1, commits.get() );
+    assertEquals( 2, rollbacks.get() );
+    assertSame( null, writer.takeFinished( false ) );
+  }
+
+  @Test( timeout = 10000 )
+  public void batchesWithTheSameKeyDoNotDeadlock() throws Exception {
+    writer = new TableOutputBatchWriter( "test", connections, "INSERT", insertRowMeta, false );
+
+    // The second batch is bound while the first one is still being bound, it may not lock the key first
+    //
+    addBatch( "slow", "key" );
+    addBatch( "key2", "key" );
+    Thread.sleep( 100 );
+    slowRelease.countDown();
+
+    TableOutputBatchWriter.Batch first = writer.takeFinished( true );
+    TableOutputBatchWriter.Batch second = writer.takeFinished( true );
+
+    assertNull( first.exception );
+    assertNull( second.exception );
+    assertEquals( 2, commits.get() );
+    assertTrue( lockedKeys.isEmpty() );
+    assertFalse( writer.isFailed() );
+  }
+
+  @Test( timeout = 10000 )
+  public void interruptedBatchDoesNotStallTheBatchesAfterIt() throws Exception {
+    writer = new TableOutputBatchWriter( "test", connections, "INSERT", insertRowMeta, false );
+
+    addBatch( "slow" );
+    addBatch( "waiting" );
+    addBatch( "c" );
+
+    // Interrupt the second batch while it waits for the first one to commit
+    //
+    waitingStarted.await();
+    waitingThread.get().interrupt();
+    while ( !writer.isFailed() ) {
+      Thread.sleep( 1 );
+    }
+    slowRelease.countDown();
+
+    TableOutputBatchWriter.Batch first = writer.takeFinished( true );
+    TableOutputBatchWriter.Batch second = writer.takeFinished( true );
+    TableOutputBatchWriter.Batch third = writer.takeFinished( true );
+
+    assertTrue( second.exception instanceof InterruptedException );
+    assertTrue( first.rolledBack );
+    assertTrue( third.rolledBack );
+    assertTrue( writer.isFailed() );
+    assertEquals( 0, commits.get() );
+  }
+}
@@ -38,6 +38,7 @@ import java.sql.Connection;
 import java.util.Map;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.any;
@@ -180,6 +181,23 @@ public class TableOutputTest {
     verify( tableOutputSpy, never() ).truncateTable();
   }
 
+  @Test
+  public void testProcessRow_ignoringErrorsDoesNotStartWriterThreads() throws Exception {
+    when( tableOutputMeta.ignoreErrors() ).thenReturn( true );
+    when( db.getUseBatchInsert( true ) ).thenReturn( true );
+    tableOutputData.writerThreads = 2;
+    tableOutputData.batchMode = true;
+    Object[] row = new Object[]{};
+    doReturn( row ).when( tableOutputSpy ).getRow();
+    doReturn( mock( RowMetaInterface.class ) ).when( tableOutputSpy ).getInputRowMeta();
+    doReturn( null ).when( tableOutputSpy ).writeToTable( any( RowMetaInterface.class ), any( row.getClass() ) );
+
+    assertTrue( tableOutputSpy.processRow( tableOutputMeta, tableOutputData ) );
+    assertNull( tableOutputData.batchWriter );
+    verify( db, never() ).commit( true );
+    verify( tableOutputSpy ).writeToTable( any( RowMetaInterface.class ), any( row.getClass() ) );
+  }
+
   @Test
   public void testInit_unsupportedConnection() {
 
@@ -33,6 +33,7 @@ import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -647,6 +648,57 @@ public class TextFileOutputTest {
     verify( textFileOutput.data.writer ).write( testString.getBytes( outputEncode ) );
   }
 
+  @Test
+  public void testLazyStringWithSameEncodingIsPadded() throws Exception {
+    String encoding = StandardCharsets.UTF_8.name();
+    byte[] binary = "\u00d6\u00dc\u00e4".getBytes( encoding );
+
+    writeLazyString( encoding, binary, 10 );
+    verify( textFileOutput.data.writer ).write( "\u00d6\u00dc\u00e4       ".getBytes( encoding ) );
+  }
+
+  @Test
+  public void testLazyStringWithSameEncodingIsWrittenAsIs() throws Exception {
+    String encoding = StandardCharsets.ISO_8859_1.name();
+    byte[] binary = "\u00d6\u00dc\u00e4".getBytes( encoding );
+
+    writeLazyString( encoding, binary, 3 );
+    verify( textFileOutput.data.writer ).write( same( binary ) );
+
+    writeLazyString( encoding, binary, -1 );
+    verify( textFileOutput.data.writer ).write( same( binary ) );
+  }
+
+  private void writeLazyString( String encoding, byte[] binary, int length ) throws Exception {
+    textFileOutput =
+      new TextFileOutputTestHandler( stepMockHelper.stepMeta, stepMockHelper.stepDataInterface, 0,
+        stepMockHelper.transMeta,
+        stepMockHelper.trans );
+    textFileOutput.meta = stepMockHelper.processRowsStepMetaInterface;
+
+    Object[] rows = { binary };
+
+    ValueMetaBase valueMetaInterface = new ValueMetaBase( "test", ValueMetaInterface.TYPE_STRING );
+    valueMetaInterface.setStringEncoding( encoding );
+    valueMetaInterface.setLength( length );
+    valueMetaInterface.setStorageType( ValueMetaInterface.STORAGE_TYPE_BINARY_STRING );
+    valueMetaInterface.setStorageMetadata( new ValueMetaString() );
+
+    TextFileOutputData data = new TextFileOutputData();
+    data.binarySeparator = " ".getBytes();
+    data.binaryEnclosure = "\"".getBytes();
+    data.binaryNewline = "\n".getBytes();
+    textFileOutput.data = data;
+
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( valueMetaInterface );
+
+    doReturn( encoding ).when( stepMockHelper.processRowsStepMetaInterface ).getEncoding();
+    textFileOutput.data.writer = mock( BufferedOutputStream.class );
+
+    textFileOutput.writeRow( rowMeta, rows );
+  }
+
   /**
    * Test for writeRowToFile not to call #initFileStreamWriter() if a variable is set.
    * Performance issue discovered, that previous implementation called #initFileStreamWriter() for every invocation of
@@ -82,6 +82,7 @@ public class TransExecutorMetaTest {
 
     List<String> attributes =
       Arrays.asList( "fileName", "transName", "directoryPath", "groupSize", "groupField", "groupTime",
+        "reusingTransformation",
         "executionTimeField", "executionFilesRetrievedField", "executionLogTextField",
         "executionLogChannelIdField", "executionResultField", "executionNrErrorsField", "executionLinesReadField",
         "executionLinesWrittenField", "executionLinesInputField", "executionLinesOutputField",
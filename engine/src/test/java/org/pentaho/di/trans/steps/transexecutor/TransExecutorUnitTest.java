@@ -22,7 +22,9 @@
 
 package org.pentaho.di.trans.steps.transexecutor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -48,9 +50,12 @@ import org.pentaho.di.core.variables.VariableSpace;
 import org.pentaho.di.junit.rules.RestorePDIEngineEnvironment;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransHopMeta;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.StepMockUtil;
+import org.pentaho.di.trans.steps.rowsfromresult.RowsFromResultMeta;
+import org.pentaho.di.trans.steps.rowstoresult.RowsToResultMeta;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -60,6 +65,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -619,6 +625,99 @@ public class TransExecutorUnitTest {
     verify( executor.getTrans(), never() ).stopAll();
   }
 
+  @Test( expected = KettleException.class )
+  public void testReusingTransformationRequiresRowsFromResultStep() throws Exception {
+    prepareOneRowForExecutor();
+    meta.setGroupSize( "1" );
+    meta.setReusingTransformation( true );
+
+    Trans parent = new Trans();
+    Mockito.when( executor.getTrans() ).thenReturn( parent );
+
+    executor.init( meta, data );
+    executor.setInputRowMeta( new RowMeta() );
+    executor.processRow( meta, data );
+  }
+
+  @Test
+  public void reusedTransformationReturnsTheRowsOfEachGroup() throws Exception {
+    prepareMultipleRowsForExecutor();
+    meta.setGroupField( "groupField" );
+    meta.setReusingTransformation( true );
+
+    TransMeta reusedTransMeta = new TransMeta();
+    StepMeta rowsFromResult = new StepMeta( "Get rows from result", new RowsFromResultMeta() );
+    StepMeta rowsToResult = new StepMeta( "Copy rows to result", new RowsToResultMeta() );
+    reusedTransMeta.addStep( rowsFromResult );
+    reusedTransMeta.addStep( rowsToResult );
+    reusedTransMeta.addTransHop( new TransHopMeta( rowsFromResult, rowsToResult ) );
+    doReturn( reusedTransMeta ).when( executor ).loadExecutorTransMeta();
+    doCallRealMethod().when( executor ).createInternalTrans();
+    doReturn( LogLevel.NOTHING ).when( executor ).getLogLevel();
+
+    RowSet rowSet = new QueueRowSet();
+    StepMeta stepMeta = mockStepAndMapItToRowSet( "stepMetaMock", rowSet );
+    meta.setOutputRowsSourceStepMeta( stepMeta );
+
+    Trans parent = new Trans();
+    parent.setLog( new LogChannel( this ) );
+    Mockito.when( executor.getTrans() ).thenReturn( parent );
+
+    executor.init( meta, data );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "groupField" ) );
+    executor.setInputRowMeta( rowMeta );
+
+    // 5th row - the first group of 4 rows is sent through the transformation
+    for ( int i = 0; i < 5; i++ ) {
+      executor.processRow( meta, data );
+    }
+    assertEquals( Arrays.asList( "value1", "value1", "value1", "value1" ), readFirstValues( rowSet ) );
+
+    // 8th call - end of file, the second group of 3 rows goes through the same transformation
+    executor.processRow( meta, data );
+    executor.processRow( meta, data );
+    executor.processRow( meta, data );
+    assertEquals( Arrays.asList( "value12", "value12", "value12" ), readFirstValues( rowSet ) );
+
+    verify( executor, times( 1 ) ).createInternalTrans();
+    executor.dispose( meta, data );
+  }
+
+  @Test
+  public void parametersFromFieldsStartATransformationForEveryGroup() throws Exception {
+    prepareMultipleRowsForExecutor();
+    meta.setGroupField( "groupField" );
+    meta.setReusingTransformation( true );
+    meta.getParameters().setVariable( new String[] { "groupParameter" } );
+    meta.getParameters().setField( new String[] { "groupField" } );
+    meta.getParameters().setInput( new String[] { null } );
+
+    Trans parent = new Trans();
+    Mockito.when( executor.getTrans() ).thenReturn( parent );
+
+    executor.init( meta, data );
+    assertFalse( data.reusingTransformation );
+
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "groupField" ) );
+    executor.setInputRowMeta( rowMeta );
+    for ( int i = 0; i < 8; i++ ) {
+      executor.processRow( meta, data );
+    }
+
+    verify( executor, times( 2 ) ).createInternalTrans();
+    verify( executor, never() ).prepareReusedTransformation( Mockito.<List<String>>any() );
+  }
+
+  private static List<Object> readFirstValues( RowSet rowSet ) {
+    List<Object> values = new ArrayList<Object>();
+    for ( Object[] row = rowSet.getRowImmediate(); row != null; row = rowSet.getRowImmediate() ) {
+      values.add( row[ 0 ] );
+    }
+    return values;
+  }
+
   private void prepareNoRowForExecutor() throws Exception {
     doReturn( null ).when( executor ).getRow();
   }
@@ -0,0 +1,149 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.streaming.common;
+
+import io.reactivex.Flowable;
+import io.reactivex.processors.PublishProcessor;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.pentaho.di.core.Result;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.row.RowMeta;
+import org.pentaho.di.core.row.RowMetaInterface;
+import org.pentaho.di.core.row.value.ValueMetaString;
+import org.pentaho.di.trans.SubtransExecutor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith( MockitoJUnitRunner.class )
+public class AdaptiveStreamWindowTest {
+  @Mock private SubtransExecutor subtransExecutor;
+
+  private AdaptiveStreamWindow<List> createWindow( long millis, int batchSize, int parallelism ) {
+    when( subtransExecutor.getPrefetchCount() ).thenReturn( 100 );
+    RowMetaInterface rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "field" ) );
+    return new AdaptiveStreamWindow<>( subtransExecutor, rowMeta, millis, batchSize, parallelism, null );
+  }
+
+  @Test
+  public void allRecordsAreSentToTheSubtrans() throws KettleException {
+    Result result = new Result();
+    when( subtransExecutor.execute( any() ) ).thenReturn( Optional.of( result ) );
+    AdaptiveStreamWindow<List> window = createWindow( 0, 2, 1 );
+
+    List<List> input = new ArrayList<>();
+    for ( int i = 0; i < 10; i++ ) {
+      input.add( asList( "v" + i ) );
+    }
+    List<Result> results = new ArrayList<>();
+    window.buffer( Flowable.fromIterable( input ) ).forEach( results::add );
+
+    // The batch size can grow while the records queue up, so only the totals are fixed
+    assertEquals( results.size(), window.getBatchCount() );
+    assertEquals( 10, window.getRowCount() );
+    assertEquals( 0, window.getPendingBatches() );
+  }
+
+  @Test
+  public void fullBatchIsSentWithoutWaitingForTheNextRecord() throws KettleException {
+    when( subtransExecutor.execute( any() ) ).thenReturn( Optional.of( new Result() ) );
+    AdaptiveStreamWindow<List> window = createWindow( 60000, 2, 1 );
+
+    PublishProcessor<List> records = PublishProcessor.create();
+    Iterator<Result> results = window.buffer( records ).iterator();
+    records.onNext( asList( "v0" ) );
+    records.onNext( asList( "v1" ) );
+
+    // Neither a third record nor the timer closes the batch
+    ArgumentCaptor<List> batch = ArgumentCaptor.forClass( List.class );
+    verify( subtransExecutor, timeout( 5000 ) ).execute( batch.capture() );
+    assertEquals( 2, batch.getValue().size() );
+
+    records.onComplete();
+    assertTrue( results.hasNext() );
+    results.next();
+    assertFalse( results.hasNext() );
+    assertEquals( 1, window.getBatchCount() );
+  }
+
+  @Test
+  public void laggingAddsParallelismThenGrowsBatches() {
+    AdaptiveStreamWindow<List> window = createWindow( 1000, 10, 2 );
+    window.adjust( 0, 10, 0.1 );
+    assertEquals( 1, window.getParallelism() );
+
+    window.adjust( 5, 10, 1.0 );
+    assertEquals( 2, window.getParallelism() );
+    assertEquals( 10, window.getBatchSize() );
+
+    window.adjust( 5, 10, 1.0 );
+    assertEquals( 20, window.getBatchSize() );
+
+    // A sub-transformation slower than the duration counts as lagging as well
+    window.adjust( 0, 2000, 1.0 );
+    assertEquals( 40, window.getBatchSize() );
+
+    window.adjust( 5, 10, 1.0 );
+    window.adjust( 5, 10, 1.0 );
+    assertEquals( 100, window.getBatchSize() );
+  }
+
+  @Test
+  public void calmStreamGoesBackToTheConfiguredBatchSize() {
+    AdaptiveStreamWindow<List> window = createWindow( 1000, 10, 2 );
+    window.adjust( 5, 10, 1.0 );
+    window.adjust( 5, 10, 1.0 );
+    assertEquals( 40, window.getBatchSize() );
+
+    // Half empty batches without a queue: shrink the batches first, then the parallelism
+    window.adjust( 0, 10, 0.1 );
+    assertEquals( 20, window.getBatchSize() );
+    window.adjust( 0, 10, 0.1 );
+    assertEquals( 10, window.getBatchSize() );
+    assertEquals( 2, window.getParallelism() );
+    window.adjust( 0, 10, 0.1 );
+    assertEquals( 10, window.getBatchSize() );
+    assertEquals( 1, window.getParallelism() );
+
+    // Full batches without a queue are left alone
+    window.adjust( 0, 10, 1.0 );
+    assertEquals( 10, window.getBatchSize() );
+    assertEquals( 1, window.getParallelism() );
+  }
+}
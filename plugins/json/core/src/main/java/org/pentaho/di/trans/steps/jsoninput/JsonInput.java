@@ -52,6 +52,7 @@ import org.pentaho.di.trans.steps.jsoninput.exception.JsonInputException;
 import org.pentaho.di.trans.steps.jsoninput.reader.FastJsonReader;
 import org.pentaho.di.trans.steps.jsoninput.reader.InputsReader;
 import org.pentaho.di.trans.steps.jsoninput.reader.RowOutputConverter;
+import org.pentaho.di.trans.steps.jsoninput.reader.StreamingJsonReader;
 
 /**
  * Read Json files, parse them and convert them to rows and writes these to one or more output streams.
@@ -86,9 +87,19 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
     }
     try {
       // Init a new JSON reader
-      data.reader =
-        new FastJsonReader( this, meta.getInputFields(), meta.isDefaultPathLeafToNull(), meta.isIgnoreMissingPath(),
-          meta.isIncludeNulls(), log );
+      if ( meta.isStreamingMode() ) {
+        data.reader =
+          StreamingJsonReader.newReader( this, meta.getInputFields(), meta.isIgnoreMissingPath(), meta.isIncludeNulls(),
+            log );
+        if ( data.reader == null ) {
+          logBasic( BaseMessages.getString( PKG, "JsonInput.Log.StreamingNotSupported" ) );
+        }
+      }
+      if ( data.reader == null ) {
+        data.reader =
+          new FastJsonReader( this, meta.getInputFields(), meta.isDefaultPathLeafToNull(), meta.isIgnoreMissingPath(),
+            meta.isIncludeNulls(), log );
+      }
     } catch ( KettleException e ) {
       logError( e.getMessage() );
       return false;
@@ -255,7 +266,9 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
   private void parseNextInputToRowSet( InputStream input ) throws KettleException {
     try {
       data.readerRowSet = data.reader.parse( input );
-      input.close();
+      if ( !data.reader.isStreaming() ) {
+        input.close();
+      }
     } catch ( KettleException ke ) {
       logInputError( ke );
       throw new JsonInputException( ke );
@@ -312,6 +325,15 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
     }
   }
 
+  private Object[] getReaderRow() throws JsonInputException {
+    try {
+      return data.readerRowSet.getRow();
+    } catch ( StreamingJsonReader.StreamingReadException e ) {
+      logInputError( e.getKettleException() );
+      throw new JsonInputException( e.getKettleException() );
+    }
+  }
+
   /**
    * get final row for output
    */
@@ -320,16 +342,20 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
       return null;
     }
     Object[] rawReaderRow;
-    while ( ( rawReaderRow = data.readerRowSet.getRow() ) == null ) {
+    while ( ( rawReaderRow = getReaderRow() ) == null ) {
       if ( data.inputs.hasNext() && data.readerRowSet.isDone() ) {
-        try ( InputStream nextIn = data.inputs.next() ) {
-
-          if ( nextIn != null ) {
-            parseNextInputToRowSet( nextIn );
-          } else {
-            parseNextInputToRowSet( new ByteArrayInputStream( EMPTY_JSON ) );
-          }
-
+        InputStream nextIn = data.inputs.next();
+        if ( nextIn == null ) {
+          nextIn = new ByteArrayInputStream( EMPTY_JSON );
+        }
+        if ( data.reader.isStreaming() ) {
+          // The row set reads the input while the rows are fetched and closes it at the end
+          //
+          parseNextInputToRowSet( nextIn );
+          continue;
+        }
+        try ( InputStream in = nextIn ) {
+          parseNextInputToRowSet( in );
         } catch ( IOException e ) {
           logError( BaseMessages.getString( PKG, "JsonInput.Log.UnexpectedError", e.toString() ), e );
           incrementErrors();
@@ -478,6 +504,10 @@ public class JsonInput extends BaseFileInputStep<JsonInputMeta, JsonInputData> i
     }
     data.inputs = null;
     data.reader = null;
+    if ( data.readerRowSet != null ) {
+      // A streaming row set still holds the input when the step is stopped early
+      data.readerRowSet.clear();
+    }
     data.readerRowSet = null;
     data.repeatedFields = null;
     super.dispose( smi, sdi );
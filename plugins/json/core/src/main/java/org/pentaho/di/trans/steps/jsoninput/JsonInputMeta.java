@@ -240,6 +240,9 @@ public class JsonInputMeta extends
 
   private boolean includeNulls;
 
+  /** Flag : read the records one by one instead of parsing the whole document, see {@link #isStreamingMode()} */
+  private boolean streamingMode;
+
   public JsonInputMeta() {
     additionalOutputFields = new JsonInputMeta.AdditionalFileOutputFields();
     inputFiles = new JsonInputMeta.InputFiles();
@@ -274,6 +277,24 @@ public class JsonInputMeta extends
     this.includeNulls = includeNulls;
   }
 
+  /**
+   * In streaming mode the document is not loaded into memory as a whole: the rows are returned as soon as a record is
+   * read. This works for paths which select fields of the elements of an array, paths with other expressions are
+   * still evaluated against the whole document.
+   *
+   * @return true if the step reads the input in streaming mode
+   */
+  public boolean isStreamingMode() {
+    return streamingMode;
+  }
+
+  /**
+   * @param streamingMode true to read the input in streaming mode
+   */
+  public void setStreamingMode( boolean streamingMode ) {
+    this.streamingMode = streamingMode;
+  }
+
   /**
    * @return Returns the shortFileFieldName.
    */
@@ -644,6 +665,7 @@ public class JsonInputMeta extends
     retval.append( "    " + XMLHandler.addTagValue( "ignoreMissingPath", ignoreMissingPath ) );
     retval.append( "    " + XMLHandler.addTagValue( "defaultPathLeafToNull", defaultPathLeafToNull ) );
     retval.append( "    " + XMLHandler.addTagValue( INCLUDE_NULLS, includeNulls ) );
+    retval.append( "    " + XMLHandler.addTagValue( "streamingMode", streamingMode ) );
     retval.append( "    " ).append( XMLHandler.addTagValue( "rownum_field", rowNumberField ) );
 
     retval.append( "    <file>" ).append( Const.CR );
@@ -704,6 +726,7 @@ public class JsonInputMeta extends
       ignoreMissingPath = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "ignoreMissingPath" ) );
       defaultPathLeafToNull = getDefaultPathLeafToNull( stepnode );
       includeNulls = getincludeNulls( stepnode );
+      streamingMode = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "streamingMode" ) );
       doNotFailIfNoFile = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "doNotFailIfNoFile" ) );
       includeRowNumber = "Y".equalsIgnoreCase( XMLHandler.getTagValue( stepnode, "rownum" ) );
       rowNumberField = XMLHandler.getTagValue( stepnode, "rownum_field" );
@@ -798,6 +821,7 @@ public class JsonInputMeta extends
     ignoreMissingPath = true;
     defaultPathLeafToNull = true;
     includeNulls = getIncludeNullsProperty();
+    streamingMode = false;
     doNotFailIfNoFile = true;
     includeFilename = false;
     filenameField = "";
@@ -882,6 +906,7 @@ public class JsonInputMeta extends
       ignoreMissingPath = rep.getStepAttributeBoolean( id_step, "ignoreMissingPath" );
       defaultPathLeafToNull = rep.getStepAttributeBoolean( id_step, 0, "defaultPathLeafToNull", true );
       includeNulls = rep.getStepAttributeBoolean( id_step, 0, INCLUDE_NULLS, getIncludeNullsProperty() );
+      streamingMode = rep.getStepAttributeBoolean( id_step, "streamingMode" );
 
       doNotFailIfNoFile = rep.getStepAttributeBoolean( id_step, "doNotFailIfNoFile" );
 
@@ -954,6 +979,7 @@ public class JsonInputMeta extends
       rep.saveStepAttribute( id_transformation, id_step, "ignoreMissingPath", ignoreMissingPath );
       rep.saveStepAttribute( id_transformation, id_step, "defaultPathLeafToNull", defaultPathLeafToNull );
       rep.saveStepAttribute( id_transformation, id_step, INCLUDE_NULLS, includeNulls );
+      rep.saveStepAttribute( id_transformation, id_step, "streamingMode", streamingMode );
 
       rep.saveStepAttribute( id_transformation, id_step, "doNotFailIfNoFile", doNotFailIfNoFile );
 
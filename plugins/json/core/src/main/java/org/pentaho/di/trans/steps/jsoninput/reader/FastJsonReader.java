@@ -142,18 +142,24 @@ public class FastJsonReader implements IJsonReader {
       compiledJsonPaths = new JsonPath[ inputFields.length ];
       int i = 0;
       for ( JsonInputField inputField : inputFields ) {
-        if ( System.getProperty( Const.KETTLE_COMPATIBILITY_JSON_INPUT_LEGACY_MODE, "N" ).equals( "Y" ) ) {
-          compiledJsonPaths[ i++ ] = JsonPath.compile( step.environmentSubstitute( inputField.getPath(), false ).trim() );
-        } else {
-          compiledJsonPaths[ i++ ] = JsonPath.compile( step.environmentSubstitute( inputField.getPath(), true ) );
-        }
-
+        compiledJsonPaths[ i++ ] = JsonPath.compile( resolvePath( step, inputField ) );
       }
     } else {
       this.inputFields = ZERO_INPUT_FIELDS;
     }
   }
 
+  /**
+   * @return the path of the field with the variables of the step substituted
+   */
+  static String resolvePath( JsonInput step, JsonInputField inputField ) {
+    if ( System.getProperty( Const.KETTLE_COMPATIBILITY_JSON_INPUT_LEGACY_MODE, "N" ).equals( "Y" ) ) {
+      return step.environmentSubstitute( inputField.getPath(), false ).trim();
+    } else {
+      return step.environmentSubstitute( inputField.getPath(), true );
+    }
+  }
+
   @Override
   public RowSet parse( InputStream in ) throws KettleException {
     readInput( in );
@@ -33,4 +33,14 @@ public interface IJsonReader {
    * Parse compiled Json Paths into a rowset
    */
   RowSet parse( InputStream in ) throws KettleException;
+
+  /**
+   * A streaming reader reads the input while the rows are fetched from the row set, the input stream then has to stay
+   * open until the row set is done. The row set closes it.
+   *
+   * @return true if the row set returned by {@link #parse(InputStream)} reads the input lazily
+   */
+  default boolean isStreaming() {
+    return false;
+  }
 }
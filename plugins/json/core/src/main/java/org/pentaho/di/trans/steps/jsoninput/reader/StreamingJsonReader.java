@@ -0,0 +1,401 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.jsoninput.reader;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.SingleRowRowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.i18n.BaseMessages;
+import org.pentaho.di.trans.steps.jsoninput.JsonInput;
+import org.pentaho.di.trans.steps.jsoninput.JsonInputField;
+import org.pentaho.di.trans.steps.jsoninput.JsonInputMeta;
+import org.pentaho.di.trans.steps.jsoninput.exception.JsonInputException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A reader which walks the JSON document token by token and returns a row as soon as a record is complete, so only one
+ * record at a time is held in memory.<br>
+ * <br>
+ * The paths of the fields have to select the same records: they start with the same path up to the last wildcard, like
+ * <code>$.data[*]</code> or <code>$[*].items[*]</code>, followed by names and array indexes within the record. Paths
+ * with filters, deep scans, slices or more than one name between brackets are not supported, see
+ * {@link #newReader(JsonInput, JsonInputField[], boolean, boolean, LogChannelInterface)}.<br>
+ * <br>
+ * Unlike the {@link FastJsonReader} a missing value is always returned as null, and a path that is not found at all
+ * is only reported after the rows of the document are read.
+ */
+public class StreamingJsonReader implements IJsonReader {
+  private static Class<?> PKG = JsonInputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  /** Matches any name or index */
+  private static final Object WILDCARD = new Object();
+  /** Stands in for a record which is the JSON null value */
+  private static final Object NULL_RECORD = new Object();
+
+  private final JsonInputField[] inputFields;
+  private final Object[] recordPath;
+  private final Object[][] fieldPaths;
+  private final boolean ignoreMissingPath;
+  private final boolean includeNulls;
+  private final LogChannelInterface log;
+
+  private StreamingJsonReader( JsonInputField[] inputFields, Object[] recordPath, Object[][] fieldPaths,
+                               boolean ignoreMissingPath, boolean includeNulls, LogChannelInterface log ) {
+    this.inputFields = inputFields;
+    this.recordPath = recordPath;
+    this.fieldPaths = fieldPaths;
+    this.ignoreMissingPath = ignoreMissingPath;
+    this.includeNulls = includeNulls;
+    this.log = log;
+  }
+
+  /**
+   * Creates a streaming reader for the given fields.
+   *
+   * @return the reader or null if one of the paths can't be evaluated while streaming
+   */
+  public static StreamingJsonReader newReader( JsonInput step, JsonInputField[] inputFields,
+                                               boolean ignoreMissingPath, boolean includeNulls,
+                                               LogChannelInterface log ) {
+    JsonInputField[] fields = inputFields == null ? new JsonInputField[ 0 ] : inputFields;
+    Object[] recordPath = null;
+    Object[][] fieldPaths = new Object[ fields.length ][];
+    for ( int i = 0; i < fields.length; i++ ) {
+      List<Object> tokens = tokenize( FastJsonReader.resolvePath( step, fields[ i ] ) );
+      if ( tokens == null ) {
+        return null;
+      }
+      int recordLength = tokens.lastIndexOf( WILDCARD ) + 1;
+      Object[] prefix = tokens.subList( 0, recordLength ).toArray();
+      if ( recordPath == null ) {
+        recordPath = prefix;
+      } else if ( !Arrays.equals( recordPath, prefix ) ) {
+        return null;
+      }
+      fieldPaths[ i ] = tokens.subList( recordLength, tokens.size() ).toArray();
+    }
+    return new StreamingJsonReader( fields, recordPath == null ? new Object[ 0 ] : recordPath, fieldPaths,
+      ignoreMissingPath, includeNulls, log );
+  }
+
+  /**
+   * Splits a path in names (String), array indexes (Integer) and wildcards.
+   *
+   * @return the tokens or null if the path uses an expression which is not supported
+   */
+  static List<Object> tokenize( String path ) {
+    if ( path == null ) {
+      return null;
+    }
+    path = path.trim();
+    if ( !path.startsWith( "$" ) || path.contains( ".." ) ) {
+      return null;
+    }
+    List<Object> tokens = new ArrayList<>();
+    int pos = 1;
+    while ( pos < path.length() ) {
+      char c = path.charAt( pos );
+      if ( c == '.' ) {
+        int end = pos + 1;
+        while ( end < path.length() && path.charAt( end ) != '.' && path.charAt( end ) != '[' ) {
+          end++;
+        }
+        String name = path.substring( pos + 1, end );
+        if ( name.isEmpty() || ( !"*".equals( name ) && name.matches( ".*[*?@()\\s,:].*" ) ) ) {
+          // functions like length() and other expressions
+          return null;
+        }
+        tokens.add( "*".equals( name ) ? WILDCARD : name );
+        pos = end;
+      } else if ( c == '[' ) {
+        int end = path.indexOf( ']', pos );
+        if ( end < 0 ) {
+          return null;
+        }
+        String selector = path.substring( pos + 1, end ).trim();
+        if ( "*".equals( selector ) ) {
+          tokens.add( WILDCARD );
+        } else if ( selector.length() >= 2 && ( selector.charAt( 0 ) == '\'' || selector.charAt( 0 ) == '"' )
+          && selector.charAt( selector.length() - 1 ) == selector.charAt( 0 ) ) {
+          String name = selector.substring( 1, selector.length() - 1 );
+          if ( name.indexOf( '\'' ) >= 0 || name.indexOf( '"' ) >= 0 ) {
+            return null;
+          }
+          tokens.add( name );
+        } else if ( !selector.isEmpty() && selector.chars().allMatch( Character::isDigit ) ) {
+          tokens.add( Integer.valueOf( selector ) );
+        } else {
+          return null;
+        }
+        pos = end + 1;
+      } else {
+        return null;
+      }
+    }
+    return tokens;
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return true;
+  }
+
+  @Override
+  public RowSet parse( InputStream in ) throws KettleException {
+    try {
+      return new StreamingRowSet( MAPPER.getFactory().createParser( in ) );
+    } catch ( IOException e ) {
+      throw new KettleException( e );
+    }
+  }
+
+  /**
+   * Signals a problem found while the rows are read: the JSON is not valid or a path is not found at all.
+   */
+  public static class StreamingReadException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    StreamingReadException( KettleException cause ) {
+      super( cause );
+    }
+
+    public KettleException getKettleException() {
+      return (KettleException) getCause();
+    }
+  }
+
+  /**
+   * A position in the document: a container on the path to the records and the index of its next element.
+   */
+  private static class Level {
+    private final boolean array;
+    private int index;
+
+    Level( boolean array ) {
+      this.array = array;
+    }
+  }
+
+  private class StreamingRowSet extends SingleRowRowSet {
+    private final JsonParser parser;
+    private final Deque<Level> levels = new ArrayDeque<>();
+    private final boolean[] found = new boolean[ inputFields.length ];
+    private boolean started;
+    private boolean finished;
+    private long records;
+    private Object[] firstNullRow;
+
+    StreamingRowSet( JsonParser parser ) {
+      this.parser = parser;
+    }
+
+    @Override
+    public Object[] getRow() {
+      if ( finished ) {
+        return null;
+      }
+      try {
+        Object record;
+        while ( ( record = nextRecord() ) != null ) {
+          records++;
+          Object[] row = new Object[ fieldPaths.length ];
+          boolean allNulls = !includeNulls;
+          for ( int i = 0; i < fieldPaths.length; i++ ) {
+            row[ i ] = toValue( select( record, fieldPaths[ i ] ) );
+            found[ i ] |= row[ i ] != null;
+            allNulls &= row[ i ] == null;
+          }
+          // Like the FastJsonReader, rows with only nulls are skipped unless there is only one row
+          //
+          if ( !allNulls || fieldPaths.length == 0 ) {
+            firstNullRow = null;
+            return row;
+          }
+          firstNullRow = records == 1 ? row : null;
+        }
+        return finish();
+      } catch ( IOException e ) {
+        close();
+        throw new StreamingReadException( new JsonInputException( e ) );
+      }
+    }
+
+    private Object[] finish() {
+      close();
+      if ( log.isDetailed() ) {
+        log.logDetailed( BaseMessages.getString( PKG, "JsonInput.Log.NrRecords", records ) );
+      }
+      if ( !ignoreMissingPath ) {
+        for ( int i = 0; i < found.length; i++ ) {
+          if ( !found[ i ] ) {
+            throw new StreamingReadException( new JsonInputException(
+              BaseMessages.getString( PKG, "JsonReader.Error.CanNotFindPath", inputFields[ i ].getPath() ) ) );
+          }
+        }
+      }
+      if ( records == 0 ) {
+        return new Object[ inputFields.length ];
+      }
+      return records == 1 ? firstNullRow : null;
+    }
+
+    /**
+     * Moves the parser to the next value matching the record path and reads it.
+     *
+     * @return the record or null when there are no more records
+     */
+    private Object nextRecord() throws IOException {
+      if ( !started ) {
+        started = true;
+        JsonToken token = parser.nextToken();
+        if ( token == null ) {
+          return null;
+        }
+        if ( recordPath.length == 0 ) {
+          return readRecord();
+        }
+        if ( !enter( token ) ) {
+          return null;
+        }
+      }
+      while ( !levels.isEmpty() ) {
+        Level level = levels.peek();
+        JsonToken token = parser.nextToken();
+        if ( token == null ) {
+          return null;
+        }
+        if ( token == JsonToken.END_ARRAY || token == JsonToken.END_OBJECT ) {
+          levels.pop();
+          continue;
+        }
+        boolean matches;
+        Object selector = recordPath[ levels.size() - 1 ];
+        if ( level.array ) {
+          matches = selector == WILDCARD || Integer.valueOf( level.index ).equals( selector );
+          level.index++;
+        } else {
+          String name = parser.getCurrentName();
+          token = parser.nextToken();
+          matches = selector == WILDCARD || selector.equals( name );
+        }
+        if ( !matches ) {
+          parser.skipChildren();
+        } else if ( levels.size() == recordPath.length ) {
+          return readRecord();
+        } else if ( !enter( token ) ) {
+          parser.skipChildren();
+        }
+      }
+      return null;
+    }
+
+    private boolean enter( JsonToken token ) {
+      if ( token == JsonToken.START_ARRAY || token == JsonToken.START_OBJECT ) {
+        levels.push( new Level( token == JsonToken.START_ARRAY ) );
+        return true;
+      }
+      return false;
+    }
+
+    private Object readRecord() throws IOException {
+      Object record = MAPPER.readValue( parser, Object.class );
+      return record == null ? NULL_RECORD : record;
+    }
+
+    @Override
+    public int size() {
+      return finished ? 0 : 1;
+    }
+
+    @Override
+    public boolean isDone() {
+      return finished;
+    }
+
+    @Override
+    public void clear() {
+      close();
+    }
+
+    private void close() {
+      finished = true;
+      try {
+        parser.close();
+      } catch ( IOException e ) {
+        log.logError( e.getLocalizedMessage(), e );
+      }
+    }
+  }
+
+  /**
+   * Follows the names and indexes of a field path within a record.
+   */
+  private static Object select( Object record, Object[] path ) {
+    Object current = record == NULL_RECORD ? null : record;
+    for ( int i = 0; i < path.length && current != null; i++ ) {
+      Object selector = path[ i ];
+      if ( selector instanceof String && current instanceof Map ) {
+        current = ( (Map<?, ?>) current ).get( selector );
+      } else if ( selector instanceof Integer && current instanceof List ) {
+        List<?> list = (List<?>) current;
+        int index = (Integer) selector;
+        current = index < list.size() ? list.get( index ) : null;
+      } else {
+        current = null;
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Objects and arrays are returned the way the JSON path library returns them, so they are written as JSON.
+   */
+  @SuppressWarnings( "unchecked" )
+  private static Object toValue( Object value ) {
+    if ( value instanceof Map ) {
+      return new JSONObject( (Map<String, ?>) value );
+    }
+    if ( value instanceof List ) {
+      JSONArray array = new JSONArray();
+      array.addAll( (List<?>) value );
+      return array;
+    }
+    return value;
+  }
+}
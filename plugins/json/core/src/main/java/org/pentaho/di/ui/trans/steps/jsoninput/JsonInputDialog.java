@@ -145,6 +145,8 @@ public class JsonInputDialog extends BaseStepDialog implements StepDialogInterfa
   // include null values
   private Button wIncludeNulls;
 
+  private Button wStreamingMode;
+
   // do not fail if no files?
   private Button wdoNotFailIfNoFile;
 
@@ -616,13 +618,38 @@ public class JsonInputDialog extends BaseStepDialog implements StepDialogInterfa
     wIncludeNulls.setLayoutData( fdIncludeNulls );
     // Include nulls - end
 
+    Label wlStreamingMode = new Label( wConf, SWT.RIGHT );
+    wlStreamingMode.setText( BaseMessages.getString( PKG, "JsonInputDialog.StreamingMode.Label" ) );
+    props.setLook( wlStreamingMode );
+
+    FormData fdlStreamingMode = new FormData();
+    fdlStreamingMode.left = new FormAttachment( 0, 0 );
+    fdlStreamingMode.top = new FormAttachment( wIncludeNulls, margin );
+    fdlStreamingMode.right = new FormAttachment( middle, -margin );
+    wlStreamingMode.setLayoutData( fdlStreamingMode );
+    wStreamingMode = new Button( wConf, SWT.CHECK );
+    props.setLook( wStreamingMode );
+    wStreamingMode.addSelectionListener( new SelectionAdapter() {
+      @Override
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+    wStreamingMode.setToolTipText( BaseMessages.getString( PKG, "JsonInputDialog.StreamingMode.Tooltip" ) );
+
+    FormData fdStreamingMode = new FormData();
+    fdStreamingMode.left = new FormAttachment( middle, 0 );
+    fdStreamingMode.top = new FormAttachment( wIncludeNulls, margin );
+    wStreamingMode.setLayoutData( fdStreamingMode );
+    // Streaming mode - end
+
     wlLimit = new Label( wConf, SWT.RIGHT );
     wlLimit.setText( BaseMessages.getString( PKG, "JsonInputDialog.Limit.Label" ) );
     props.setLook( wlLimit );
 
     FormData fdlLimit = new FormData();
     fdlLimit.left = new FormAttachment( 0, 0 );
-    fdlLimit.top = new FormAttachment( wIncludeNulls, margin );
+    fdlLimit.top = new FormAttachment( wStreamingMode, margin );
     fdlLimit.right = new FormAttachment( middle, -margin );
     wlLimit.setLayoutData( fdlLimit );
     wLimit = new Text( wConf, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
@@ -631,7 +658,7 @@ public class JsonInputDialog extends BaseStepDialog implements StepDialogInterfa
 
     FormData fdLimit = new FormData();
     fdLimit.left = new FormAttachment( middle, 0 );
-    fdLimit.top = new FormAttachment( wIncludeNulls, margin );
+    fdLimit.top = new FormAttachment( wStreamingMode, margin );
     fdLimit.right = new FormAttachment( 100, 0 );
     wLimit.setLayoutData( fdLimit );
 
@@ -1259,6 +1286,7 @@ public class JsonInputDialog extends BaseStepDialog implements StepDialogInterfa
     wIgnoreMissingPath.setSelection( in.isIgnoreMissingPath() );
     wDefaultPathLeafToNull.setSelection( in.isDefaultPathLeafToNull() );
     wIncludeNulls.setSelection( in.isIncludeNulls() || JsonInputMeta.getIncludeNullsProperty() );
+    wStreamingMode.setSelection( in.isStreamingMode() );
     wremoveSourceField.setSelection( in.isRemoveSourceField() );
     wSourceStreamField.setSelection( in.isInFields() );
     wSourceIsAFile.setSelection( in.getIsAFile() );
@@ -1401,6 +1429,7 @@ public class JsonInputDialog extends BaseStepDialog implements StepDialogInterfa
     in.setIgnoreMissingPath( wIgnoreMissingPath.getSelection() );
     in.setDefaultPathLeafToNull( wDefaultPathLeafToNull.getSelection() );
     in.setIncludeNulls( wIncludeNulls.getSelection() );
+    in.setStreamingMode( wStreamingMode.getSelection() );
     in.setRemoveSourceField( wremoveSourceField.getSelection() );
     in.setInFields( wSourceStreamField.getSelection() );
     in.setIsAFile( wSourceIsAFile.getSelection() );
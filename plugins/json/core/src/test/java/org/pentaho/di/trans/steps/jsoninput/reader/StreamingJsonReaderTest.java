@@ -0,0 +1,137 @@
+/*! ******************************************************************************
+ *
+ * Pentaho Data Integration
+ *
+ * Copyright (C) 2002-2023 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.pentaho.di.trans.steps.jsoninput.reader;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.core.RowSet;
+import org.pentaho.di.core.exception.KettleException;
+import org.pentaho.di.core.logging.LogChannelInterface;
+import org.pentaho.di.trans.steps.jsoninput.JsonInput;
+import org.pentaho.di.trans.steps.jsoninput.JsonInputField;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StreamingJsonReaderTest {
+  private final LogChannelInterface logMock = mock( LogChannelInterface.class );
+  private final JsonInput step = mock( JsonInput.class );
+
+  @Before
+  public void setUp() {
+    when( step.environmentSubstitute( anyString(), anyBoolean() ) )
+      .thenAnswer( invocation -> invocation.getArguments()[ 0 ] );
+  }
+
+  private StreamingJsonReader newReader( boolean ignoreMissingPath, String... paths ) {
+    JsonInputField[] fields = new JsonInputField[ paths.length ];
+    for ( int i = 0; i < paths.length; i++ ) {
+      fields[ i ] = new JsonInputField( "field" + i );
+      fields[ i ].setPath( paths[ i ] );
+    }
+    return StreamingJsonReader.newReader( step, fields, ignoreMissingPath, false, logMock );
+  }
+
+  private List<Object[]> read( StreamingJsonReader reader, String json ) throws KettleException {
+    RowSet rowSet = reader.parse( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) );
+    List<Object[]> rows = new ArrayList<>();
+    for ( Object[] row = rowSet.getRow(); row != null; row = rowSet.getRow() ) {
+      rows.add( row );
+    }
+    return rows;
+  }
+
+  @Test
+  public void testTokenize() {
+    assertEquals( Arrays.asList( "data", 0, "name" ), StreamingJsonReader.tokenize( "$.data[0].name" ) );
+    assertEquals( Arrays.asList( "a b", "c" ), StreamingJsonReader.tokenize( "$['a b'].c" ) );
+    assertEquals( 2, StreamingJsonReader.tokenize( "$[*].*" ).size() );
+    assertNull( StreamingJsonReader.tokenize( "$..name" ) );
+    assertNull( StreamingJsonReader.tokenize( "$.data[?(@.id > 1)].name" ) );
+    assertNull( StreamingJsonReader.tokenize( "$.data[0:2].name" ) );
+    assertNull( StreamingJsonReader.tokenize( "$.data.length()" ) );
+  }
+
+  @Test
+  public void testPathsMustSelectTheSameRecords() {
+    assertNotNull( newReader( true, "$.data[*].name", "$.data[*].address.city" ) );
+    assertNull( newReader( true, "$.data[*].name", "$.other[*].name" ) );
+    assertNull( newReader( true, "$.data[*].name", "$..name" ) );
+  }
+
+  @Test
+  public void testRowPerRecord() throws KettleException {
+    StreamingJsonReader reader = newReader( true, "$.data[*].name", "$.data[*].address.city", "$.data[*].tags[1]" );
+    List<Object[]> rows = read( reader, "{ \"skip\" : { \"data\" : [ 1 ] }, \"data\" : ["
+      + "{ \"name\" : \"a\", \"address\" : { \"city\" : \"x\" }, \"tags\" : [ 1, 2 ] },"
+      + "{ \"name\" : \"b\", \"tags\" : [ 3 ] },"
+      + "{ \"name\" : \"c\", \"address\" : { \"city\" : \"z\" } } ] }" );
+
+    assertEquals( 3, rows.size() );
+    assertArrayEquals( new Object[] { "a", "x", 2 }, rows.get( 0 ) );
+    assertArrayEquals( new Object[] { "b", null, null }, rows.get( 1 ) );
+    assertArrayEquals( new Object[] { "c", "z", null }, rows.get( 2 ) );
+  }
+
+  @Test
+  public void testNestedWildcardsAndObjectValues() throws KettleException {
+    StreamingJsonReader reader = newReader( true, "$[*].items[*].sku", "$[*].items[*].size" );
+    List<Object[]> rows = read( reader, "[ { \"items\" : [ { \"sku\" : 1, \"size\" : { \"w\" : 2 } } ] },"
+      + "{ \"items\" : [ { \"sku\" : 3 }, { \"sku\" : 4, \"size\" : [ 5 ] } ] } ]" );
+
+    assertEquals( 3, rows.size() );
+    assertEquals( 1, rows.get( 0 )[ 0 ] );
+    assertEquals( "{\"w\":2}", rows.get( 0 )[ 1 ].toString() );
+    assertEquals( 3, rows.get( 1 )[ 0 ] );
+    assertEquals( "[5]", rows.get( 2 )[ 1 ].toString() );
+  }
+
+  @Test
+  public void testEmptyDocumentGivesOneEmptyRow() throws KettleException {
+    List<Object[]> rows = read( newReader( true, "$.data[*].name" ), "{ \"data\" : [] }" );
+    assertEquals( 1, rows.size() );
+    assertArrayEquals( new Object[] { null }, rows.get( 0 ) );
+  }
+
+  @Test( expected = StreamingJsonReader.StreamingReadException.class )
+  public void testMissingPathFailsAtTheEnd() throws KettleException {
+    read( newReader( false, "$.data[*].name", "$.data[*].missing" ), "{ \"data\" : [ { \"name\" : \"a\" } ] }" );
+  }
+
+  @Test( expected = StreamingJsonReader.StreamingReadException.class )
+  public void testInvalidJson() throws KettleException {
+    read( newReader( true, "$.data[*].name" ), "{ \"data\" : [ { \"name\" : \"a\" }, " );
+  }
+}
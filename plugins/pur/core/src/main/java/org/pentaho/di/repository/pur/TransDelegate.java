@@ -105,6 +105,8 @@ public class TransDelegate extends AbstractDelegate implements ITransformer, ISh
 
   private static final String PROP_USING_THREAD_PRIORITIES = "USING_THREAD_PRIORITIES";
 
+  private static final String PROP_LOCK_FREE_ROWSETS = "LOCK_FREE_ROWSETS";
+
   static final String PROP_FEEDBACK_SIZE = "FEEDBACK_SIZE";
 
   private static final String PROP_FEEDBACK_SHOWN = "FEEDBACK_SHOWN";
@@ -580,6 +582,11 @@ public class TransDelegate extends AbstractDelegate implements ITransformer, ISh
       usingThreadPriorityManagement = rootNode.getProperty( PROP_USING_THREAD_PRIORITIES ).getBoolean();
     }
     transMeta.setUsingThreadPriorityManagment( usingThreadPriorityManagement );
+    boolean usingLockFreeRowSets = false;
+    if ( rootNode.hasProperty( PROP_LOCK_FREE_ROWSETS ) ) {
+      usingLockFreeRowSets = rootNode.getProperty( PROP_LOCK_FREE_ROWSETS ).getBoolean();
+    }
+    transMeta.setUsingLockFreeRowSets( usingLockFreeRowSets );
     transMeta.setSharedObjectsFile( getString( rootNode, PROP_SHARED_FILE ) );
     String transTypeCode = getString( rootNode, PROP_TRANSFORMATION_TYPE );
     transMeta.setTransformationType( TransformationType.getTransformationTypeByCode( transTypeCode ) );
@@ -831,6 +838,7 @@ public class TransDelegate extends AbstractDelegate implements ITransformer, ISh
     rootNode.setProperty( PROP_FEEDBACK_SHOWN, transMeta.isFeedbackShown() );
     rootNode.setProperty( PROP_FEEDBACK_SIZE, transMeta.getFeedbackSize() );
     rootNode.setProperty( PROP_USING_THREAD_PRIORITIES, transMeta.isUsingThreadPriorityManagment() );
+    rootNode.setProperty( PROP_LOCK_FREE_ROWSETS, transMeta.isUsingLockFreeRowSets() );
     rootNode.setProperty( PROP_SHARED_FILE, transMeta.getSharedObjectsFile() );
 
     rootNode.setProperty( PROP_CAPTURE_STEP_PERFORMANCE, transMeta.isCapturingStepPerformanceSnapShots() );
@@ -28,7 +28,6 @@ import org.pentaho.di.trans.step.StepDataInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.step.StepMetaInterface;
 import org.pentaho.di.trans.streaming.common.BaseStreamStep;
-import org.pentaho.di.trans.streaming.common.FixedTimeStreamWindow;
 
 import static java.util.Objects.requireNonNull;
 import static org.pentaho.di.i18n.BaseMessages.getString;
@@ -55,8 +54,7 @@ public class JmsConsumer extends BaseStreamStep {
     log.logDebug( "Connection Details: "
       + jmsConsumerMeta.jmsDelegate.getJmsProvider().getConnectionDetails( jmsConsumerMeta.jmsDelegate ) );
 
-    window = new FixedTimeStreamWindow<>(
-      getSubtransExecutor(), jmsConsumerMeta.getRowMeta(), getDuration(), getBatchSize(), getParallelism() );
+    window = createWindow( jmsConsumerMeta.getRowMeta() );
     source = new JmsStreamSource( this, requireNonNull( jmsConsumerMeta.jmsDelegate ), getReceiverTimeout( jmsConsumerMeta ) );
     return superStatus;
   }
@@ -54,7 +54,9 @@ import org.pentaho.di.ui.core.PropsUI;
 import org.pentaho.di.ui.core.dialog.EnterSelectionDialog;
 import org.pentaho.di.ui.core.gui.GUIResource;
 import org.pentaho.di.ui.core.gui.WindowProperty;
+import org.pentaho.di.trans.step.RowBlockWriter;
 import org.pentaho.di.ui.core.widget.ColumnInfo;
+import org.pentaho.di.ui.core.widget.ComboVar;
 import org.pentaho.di.ui.core.widget.TableView;
 import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
@@ -109,6 +111,8 @@ public class ClusterSchemaDialog extends Dialog {
 
   private Button wCompressed;
 
+  private ComboVar wBlockCompression;
+
   private Button wDynamic;
 
   private List<SlaveServer> slaveServers;
@@ -259,13 +263,37 @@ public class ClusterSchemaDialog extends Dialog {
     fdCompressed.right = new FormAttachment( 95, 0 );
     wCompressed.setLayoutData( fdCompressed );
 
+    // Send the rows in compressed blocks?
+    Label wlBlockCompression = new Label( shell, SWT.RIGHT );
+    wlBlockCompression.setToolTipText( BaseMessages.getString( PKG, "ClusterSchemaDialog.BlockCompression.Tooltip" ) );
+    props.setLook( wlBlockCompression );
+    wlBlockCompression.setText( BaseMessages.getString( PKG, "ClusterSchemaDialog.BlockCompression.Label" ) );
+    FormData fdlBlockCompression = new FormData();
+    fdlBlockCompression.top = new FormAttachment( wCompressed, margin );
+    fdlBlockCompression.left = new FormAttachment( 0, 0 ); // First one in the left top corner
+    fdlBlockCompression.right = new FormAttachment( middle, 0 );
+    wlBlockCompression.setLayoutData( fdlBlockCompression );
+
+    wBlockCompression = new ComboVar( clusterSchema, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wBlockCompression.setToolTipText( BaseMessages.getString( PKG, "ClusterSchemaDialog.BlockCompression.Tooltip" ) );
+    props.setLook( wBlockCompression );
+    wBlockCompression.add( "" );
+    for ( RowBlockWriter.Compression compression : RowBlockWriter.Compression.values() ) {
+      wBlockCompression.add( compression.name() );
+    }
+    FormData fdBlockCompression = new FormData();
+    fdBlockCompression.top = new FormAttachment( wCompressed, margin );
+    fdBlockCompression.left = new FormAttachment( middle, margin ); // To the right of the label
+    fdBlockCompression.right = new FormAttachment( 95, 0 );
+    wBlockCompression.setLayoutData( fdBlockCompression );
+
     // What are the sockets buffer sizes??
     Label wlDynamic = new Label( shell, SWT.RIGHT );
     wlDynamic.setToolTipText( BaseMessages.getString( PKG, "ClusterSchemaDialog.DynamicCluster.Tooltip" ) );
     props.setLook( wlDynamic );
     wlDynamic.setText( BaseMessages.getString( PKG, "ClusterSchemaDialog.DynamicCluster.Label" ) );
     FormData fdlDynamic = new FormData();
-    fdlDynamic.top = new FormAttachment( wCompressed, margin );
+    fdlDynamic.top = new FormAttachment( wBlockCompression, margin );
     fdlDynamic.left = new FormAttachment( 0, 0 ); // First one in the left top corner
     fdlDynamic.right = new FormAttachment( middle, 0 );
     wlDynamic.setLayoutData( fdlDynamic );
@@ -274,7 +302,7 @@ public class ClusterSchemaDialog extends Dialog {
     wDynamic.setToolTipText( BaseMessages.getString( PKG, "ClusterSchemaDialog.DynamicCluster.Tooltip" ) );
     props.setLook( wDynamic );
     FormData fdDynamic = new FormData();
-    fdDynamic.top = new FormAttachment( wCompressed, margin );
+    fdDynamic.top = new FormAttachment( wBlockCompression, margin );
     fdDynamic.left = new FormAttachment( middle, margin ); // To the right of the label
     fdDynamic.right = new FormAttachment( 95, 0 );
     wDynamic.setLayoutData( fdDynamic );
@@ -421,6 +449,7 @@ public class ClusterSchemaDialog extends Dialog {
     wBufferSize.setText( Const.NVL( clusterSchema.getSocketsBufferSize(), "" ) );
     wFlushInterval.setText( Const.NVL( clusterSchema.getSocketsFlushInterval(), "" ) );
     wCompressed.setSelection( clusterSchema.isSocketsCompressed() );
+    wBlockCompression.setText( Const.NVL( clusterSchema.getSocketsBlockCompression(), "" ) );
     wDynamic.setSelection( clusterSchema.isDynamic() );
 
     refreshSlaveServers();
@@ -470,6 +499,7 @@ public class ClusterSchemaDialog extends Dialog {
     originalSchema.setSocketsBufferSize( clusterSchema.getSocketsBufferSize() );
     originalSchema.setSocketsFlushInterval( clusterSchema.getSocketsFlushInterval() );
     originalSchema.setSocketsCompressed( clusterSchema.isSocketsCompressed() );
+    originalSchema.setSocketsBlockCompression( clusterSchema.getSocketsBlockCompression() );
     originalSchema.setDynamic( clusterSchema.isDynamic() );
     originalSchema.setSlaveServers( clusterSchema.getSlaveServers() );
     originalSchema.setChanged();
@@ -498,6 +528,8 @@ public class ClusterSchemaDialog extends Dialog {
     clusterSchema.setSocketsBufferSize( wBufferSize.getText() );
     clusterSchema.setSocketsFlushInterval( wFlushInterval.getText() );
     clusterSchema.setSocketsCompressed( wCompressed.getSelection() );
+    clusterSchema.setSocketsBlockCompression( Const.isEmpty( wBlockCompression.getText() ) ? null : wBlockCompression
+      .getText() );
     clusterSchema.setDynamic( wDynamic.getSelection() );
 
     String[] names = SlaveServer.getSlaveServerNames( slaveServers );
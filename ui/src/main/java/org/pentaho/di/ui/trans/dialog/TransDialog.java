@@ -196,6 +196,8 @@ public class TransDialog extends Dialog {
 
   private Button wManageThreads;
 
+  private Button wLockFreeRowSets;
+
   private boolean directoryChangeAllowed;
 
   private Label wlDirectory;
@@ -1853,13 +1855,33 @@ public class TransDialog extends Dialog {
     fdSizeRowset.right = new FormAttachment( 100, 0 );
     wSizeRowset.setLayoutData( fdSizeRowset );
 
+    // Lock-free row sets between single step copies?
+    Label wlLockFreeRowSets = new Label( wMiscComp, SWT.RIGHT );
+    wlLockFreeRowSets.setText( BaseMessages.getString( PKG, "TransDialog.LockFreeRowSets.Label" ) );
+    wlLockFreeRowSets.setToolTipText( BaseMessages.getString( PKG, "TransDialog.LockFreeRowSets.Tooltip" ) );
+    props.setLook( wlLockFreeRowSets );
+    FormData fdlLockFreeRowSets = new FormData();
+    fdlLockFreeRowSets.left = new FormAttachment( 0, 0 );
+    fdlLockFreeRowSets.top = new FormAttachment( wSizeRowset, margin );
+    fdlLockFreeRowSets.right = new FormAttachment( middle, -margin );
+    wlLockFreeRowSets.setLayoutData( fdlLockFreeRowSets );
+    wLockFreeRowSets = new Button( wMiscComp, SWT.CHECK );
+    wLockFreeRowSets.setToolTipText( BaseMessages.getString( PKG, "TransDialog.LockFreeRowSets.Tooltip" ) );
+    props.setLook( wLockFreeRowSets );
+    wLockFreeRowSets.addSelectionListener( lsModSel );
+    FormData fdLockFreeRowSets = new FormData();
+    fdLockFreeRowSets.left = new FormAttachment( middle, 0 );
+    fdLockFreeRowSets.top = new FormAttachment( wSizeRowset, margin );
+    fdLockFreeRowSets.right = new FormAttachment( 100, 0 );
+    wLockFreeRowSets.setLayoutData( fdLockFreeRowSets );
+
     // Show feedback in transformations steps?
     Label wlShowFeedback = new Label( wMiscComp, SWT.RIGHT );
     wlShowFeedback.setText( BaseMessages.getString( PKG, "TransDialog.ShowFeedbackRow.Label" ) );
     props.setLook( wlShowFeedback );
     FormData fdlShowFeedback = new FormData();
     fdlShowFeedback.left = new FormAttachment( 0, 0 );
-    fdlShowFeedback.top = new FormAttachment( wSizeRowset, margin );
+    fdlShowFeedback.top = new FormAttachment( wLockFreeRowSets, margin );
     fdlShowFeedback.right = new FormAttachment( middle, -margin );
     wlShowFeedback.setLayoutData( fdlShowFeedback );
     wShowFeedback = new Button( wMiscComp, SWT.CHECK );
@@ -1867,7 +1889,7 @@ public class TransDialog extends Dialog {
     wShowFeedback.addSelectionListener( lsModSel );
     FormData fdShowFeedback = new FormData();
     fdShowFeedback.left = new FormAttachment( middle, 0 );
-    fdShowFeedback.top = new FormAttachment( wSizeRowset, margin );
+    fdShowFeedback.top = new FormAttachment( wLockFreeRowSets, margin );
     fdShowFeedback.right = new FormAttachment( 100, 0 );
     wShowFeedback.setLayoutData( fdShowFeedback );
 
@@ -2175,6 +2197,7 @@ public class TransDialog extends Dialog {
     wFeedbackSize.setText( Integer.toString( transMeta.getFeedbackSize() ) );
     wSharedObjectsFile.setText( Const.NVL( transMeta.getSharedObjectsFile(), "" ) );
     wManageThreads.setSelection( transMeta.isUsingThreadPriorityManagment() );
+    wLockFreeRowSets.setSelection( transMeta.isUsingLockFreeRowSets() );
     wTransformationType.setText( transMeta.getTransformationType().getDescription() );
 
     wFields.setRowNums();
@@ -2313,6 +2336,7 @@ public class TransDialog extends Dialog {
     transMeta.setFeedbackSize( Const.toInt( wFeedbackSize.getText(), Const.ROWS_UPDATE ) );
     transMeta.setSharedObjectsFile( wSharedObjectsFile.getText() );
     transMeta.setUsingThreadPriorityManagment( wManageThreads.getSelection() );
+    transMeta.setUsingLockFreeRowSets( wLockFreeRowSets.getSelection() );
     transMeta.setTransformationType( TransformationType.values()[Const.indexOfString( wTransformationType
       .getText(), TransformationType.getTransformationTypesDescriptions() )] );
 
@@ -138,6 +138,9 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
 
   private Label wlRunningInParallel;
 
+  private Label wlParseThreads;
+  private TextVar wParseThreads;
+
   private boolean initializing;
 
   private AtomicBoolean previewBusy;
@@ -365,6 +368,28 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     wBufferSize.setLayoutData( fdBufferSize );
     lastControl = wBufferSize;
 
+    // parseThreads
+    //
+    wlParseThreads = new Label( shell, SWT.RIGHT );
+    wlParseThreads.setText( BaseMessages.getString( PKG, inputMeta.getDescription( "PARSE_THREADS" ) ) );
+    wlParseThreads.setToolTipText( BaseMessages.getString( PKG, inputMeta.getTooltip( "PARSE_THREADS" ) ) );
+    props.setLook( wlParseThreads );
+    FormData fdlParseThreads = new FormData();
+    fdlParseThreads.top = new FormAttachment( lastControl, margin );
+    fdlParseThreads.left = new FormAttachment( 0, 0 );
+    fdlParseThreads.right = new FormAttachment( middle, -margin );
+    wlParseThreads.setLayoutData( fdlParseThreads );
+    wParseThreads = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wParseThreads.setToolTipText( BaseMessages.getString( PKG, inputMeta.getTooltip( "PARSE_THREADS" ) ) );
+    props.setLook( wParseThreads );
+    wParseThreads.addModifyListener( lsMod );
+    FormData fdParseThreads = new FormData();
+    fdParseThreads.top = new FormAttachment( lastControl, margin );
+    fdParseThreads.left = new FormAttachment( middle, 0 );
+    fdParseThreads.right = new FormAttachment( 100, 0 );
+    wParseThreads.setLayoutData( fdParseThreads );
+    lastControl = wParseThreads;
+
     // performingLazyConversion?
     //
     Label wlLazyConversion = new Label( shell, SWT.RIGHT );
@@ -670,6 +695,7 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     wDelimiter.addSelectionListener( lsDef );
     wEnclosure.addSelectionListener( lsDef );
     wBufferSize.addSelectionListener( lsDef );
+    wParseThreads.addSelectionListener( lsDef );
     wRowNumField.addSelectionListener( lsDef );
 
     // Allow the insertion of tabs as separator...
@@ -727,6 +753,8 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     if ( !parallelPossible ) {
       wRunningInParallel.setSelection( false );
     }
+    wlParseThreads.setEnabled( parallelPossible );
+    wParseThreads.setEnabled( parallelPossible );
   }
 
   private void setEncodings() {
@@ -786,6 +814,7 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     wDelimiter.setText( Const.NVL( inputMeta.getDelimiter(), "" ) );
     wEnclosure.setText( Const.NVL( inputMeta.getEnclosure(), "" ) );
     wBufferSize.setText( Const.NVL( inputMeta.getBufferSize(), "" ) );
+    wParseThreads.setText( Const.NVL( inputMeta.getParseThreads(), "" ) );
     wLazyConversion.setSelection( inputMeta.isLazyConversionActive() );
     wHeaderPresent.setSelection( inputMeta.isHeaderPresent() );
     wRunningInParallel.setSelection( inputMeta.isRunningInParallel() );
@@ -843,6 +872,7 @@ public class CsvInputDialog extends BaseStepDialog implements StepDialogInterfac
     inputMeta.setDelimiter( wDelimiter.getText() );
     inputMeta.setEnclosure( wEnclosure.getText() );
     inputMeta.setBufferSize( wBufferSize.getText() );
+    inputMeta.setParseThreads( wParseThreads.getText() );
     inputMeta.setLazyConversionActive( wLazyConversion.getSelection() );
     inputMeta.setHeaderPresent( wHeaderPresent.getSelection() );
     inputMeta.setRowNumField( wRowNumField.getText() );
@@ -85,6 +85,14 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
 
   private Label wlCachesize;
   private Text wCachesize;
+
+  private Label wlCacheMemorySize;
+  private Text wCacheMemorySize;
+  private FormData fdlCacheMemorySize, fdCacheMemorySize;
+
+  private Label wlBatchSize;
+  private Text wBatchSize;
+  private FormData fdlBatchSize, fdBatchSize;
   private FormData fdlCachesize, fdCachesize;
 
   private Label wlKey;
@@ -311,6 +319,26 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     fdCachesize.top = new FormAttachment( wCache, margin );
     wCachesize.setLayoutData( fdCachesize );
 
+    // Cache memory size line
+    wlCacheMemorySize = new Label( shell, SWT.RIGHT );
+    wlCacheMemorySize.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.CacheMemorySize.Label" ) );
+    props.setLook( wlCacheMemorySize );
+    wlCacheMemorySize.setEnabled( input.isCached() );
+    fdlCacheMemorySize = new FormData();
+    fdlCacheMemorySize.left = new FormAttachment( 0, 0 );
+    fdlCacheMemorySize.right = new FormAttachment( middle, -margin );
+    fdlCacheMemorySize.top = new FormAttachment( wCachesize, margin );
+    wlCacheMemorySize.setLayoutData( fdlCacheMemorySize );
+    wCacheMemorySize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCacheMemorySize );
+    wCacheMemorySize.setEnabled( input.isCached() );
+    wCacheMemorySize.addModifyListener( lsMod );
+    fdCacheMemorySize = new FormData();
+    fdCacheMemorySize.left = new FormAttachment( middle, 0 );
+    fdCacheMemorySize.right = new FormAttachment( 100, 0 );
+    fdCacheMemorySize.top = new FormAttachment( wCachesize, margin );
+    wCacheMemorySize.setLayoutData( fdCacheMemorySize );
+
     // Cache : Load all?
     wlCacheLoadAll = new Label( shell, SWT.RIGHT );
     wlCacheLoadAll.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.CacheLoadAll.Label" ) );
@@ -318,13 +346,13 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     fdlCacheLoadAll = new FormData();
     fdlCacheLoadAll.left = new FormAttachment( 0, 0 );
     fdlCacheLoadAll.right = new FormAttachment( middle, -margin );
-    fdlCacheLoadAll.top = new FormAttachment( wCachesize, margin );
+    fdlCacheLoadAll.top = new FormAttachment( wCacheMemorySize, margin );
     wlCacheLoadAll.setLayoutData( fdlCacheLoadAll );
     wCacheLoadAll = new Button( shell, SWT.CHECK );
     props.setLook( wCacheLoadAll );
     fdCacheLoadAll = new FormData();
     fdCacheLoadAll.left = new FormAttachment( middle, 0 );
-    fdCacheLoadAll.top = new FormAttachment( wCachesize, margin );
+    fdCacheLoadAll.top = new FormAttachment( wCacheMemorySize, margin );
     wCacheLoadAll.setLayoutData( fdCacheLoadAll );
     wCacheLoadAll.addSelectionListener( new SelectionAdapter() {
       public void widgetSelected( SelectionEvent e ) {
@@ -333,12 +361,31 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
       }
     } );
 
+    // Lookup batch size
+    wlBatchSize = new Label( shell, SWT.RIGHT );
+    wlBatchSize.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.LookupBatchSize.Label" ) );
+    props.setLook( wlBatchSize );
+    fdlBatchSize = new FormData();
+    fdlBatchSize.left = new FormAttachment( 0, 0 );
+    fdlBatchSize.right = new FormAttachment( middle, -margin );
+    fdlBatchSize.top = new FormAttachment( wCacheLoadAll, margin );
+    wlBatchSize.setLayoutData( fdlBatchSize );
+    wBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wBatchSize.setToolTipText( BaseMessages.getString( PKG, "DatabaseLookupDialog.LookupBatchSize.Tooltip" ) );
+    props.setLook( wBatchSize );
+    wBatchSize.addModifyListener( lsMod );
+    fdBatchSize = new FormData();
+    fdBatchSize.left = new FormAttachment( middle, 0 );
+    fdBatchSize.right = new FormAttachment( 100, 0 );
+    fdBatchSize.top = new FormAttachment( wCacheLoadAll, margin );
+    wBatchSize.setLayoutData( fdBatchSize );
+
     wlKey = new Label( shell, SWT.NONE );
     wlKey.setText( BaseMessages.getString( PKG, "DatabaseLookupDialog.Keys.Label" ) );
     props.setLook( wlKey );
     fdlKey = new FormData();
     fdlKey.left = new FormAttachment( 0, 0 );
-    fdlKey.top = new FormAttachment( wCacheLoadAll, margin );
+    fdlKey.top = new FormAttachment( wBatchSize, margin );
     wlKey.setLayoutData( fdlKey );
 
     int nrKeyCols = 4;
@@ -530,6 +577,8 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
     wTable.addSelectionListener( lsDef );
     wOrderBy.addSelectionListener( lsDef );
     wCachesize.addSelectionListener( lsDef );
+    wCacheMemorySize.addSelectionListener( lsDef );
+    wBatchSize.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -641,6 +690,8 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
 
     wCachesize.setEnabled( wCache.getSelection() && !wCacheLoadAll.getSelection() );
     wlCachesize.setEnabled( wCache.getSelection() && !wCacheLoadAll.getSelection() );
+    wCacheMemorySize.setEnabled( wCache.getSelection() && !wCacheLoadAll.getSelection() );
+    wlCacheMemorySize.setEnabled( wCache.getSelection() && !wCacheLoadAll.getSelection() );
     wCacheLoadAll.setEnabled( wCache.getSelection() );
     wlCacheLoadAll.setEnabled( wCache.getSelection() );
     wFailMultiple.setEnabled( !wCache.getSelection() );
@@ -655,7 +706,9 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
 
     wCache.setSelection( input.isCached() );
     wCachesize.setText( "" + input.getCacheSize() );
+    wCacheMemorySize.setText( "" + input.getCacheMemorySize() );
     wCacheLoadAll.setSelection( input.isLoadingAllDataInCache() );
+    wBatchSize.setText( "" + input.getLookupBatchSize() );
 
     if ( input.getStreamKeyField1() != null ) {
       for ( int i = 0; i < input.getStreamKeyField1().length; i++ ) {
@@ -739,7 +792,9 @@ public class DatabaseLookupDialog extends BaseStepDialog implements StepDialogIn
 
     input.setCached( wCache.getSelection() );
     input.setCacheSize( Const.toInt( wCachesize.getText(), 0 ) );
+    input.setCacheMemorySize( Const.toInt( wCacheMemorySize.getText(), 0 ) );
     input.setLoadingAllDataInCache( wCacheLoadAll.getSelection() );
+    input.setLookupBatchSize( Const.toInt( wBatchSize.getText(), 0 ) );
 
     logDebug( BaseMessages.getString( PKG, "DatabaseLookupDialog.Log.FoundKeys", String.valueOf( nrkeys ) ) );
     //CHECKSTYLE:Indentation:OFF
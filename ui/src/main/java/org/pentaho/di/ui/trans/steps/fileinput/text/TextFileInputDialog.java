@@ -302,6 +302,10 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
 
   private Label wlDateLocale;
   private CCombo wDateLocale;
+
+  private Label wlLazyConversion;
+  private Button wLazyConversion;
+  private FormData fdlLazyConversion, fdLazyConversion;
   private FormData fdlDateLocale, fdDateLocale;
 
   // ERROR HANDLING...
@@ -1521,6 +1525,22 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
       }
     } );
 
+    wlLazyConversion = new Label( wContentComp, SWT.RIGHT );
+    wlLazyConversion.setText( BaseMessages.getString( PKG, "TextFileInputDialog.LazyConversion.Label" ) );
+    props.setLook( wlLazyConversion );
+    fdlLazyConversion = new FormData();
+    fdlLazyConversion.left = new FormAttachment( 0, 0 );
+    fdlLazyConversion.top = new FormAttachment( wDateLocale, margin );
+    fdlLazyConversion.right = new FormAttachment( middle, -margin );
+    wlLazyConversion.setLayoutData( fdlLazyConversion );
+    wLazyConversion = new Button( wContentComp, SWT.CHECK );
+    wLazyConversion.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.LazyConversion.Tooltip" ) );
+    props.setLook( wLazyConversion );
+    fdLazyConversion = new FormData();
+    fdLazyConversion.left = new FormAttachment( middle, 0 );
+    fdLazyConversion.top = new FormAttachment( wDateLocale, margin );
+    wLazyConversion.setLayoutData( fdLazyConversion );
+
     // ///////////////////////////////
     // START OF AddFileResult GROUP //
     // ///////////////////////////////
@@ -1539,7 +1559,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     props.setLook( wlAddResult );
     fdlAddResult = new FormData();
     fdlAddResult.left = new FormAttachment( 0, 0 );
-    fdlAddResult.top = new FormAttachment( wDateLocale, margin );
+    fdlAddResult.top = new FormAttachment( wLazyConversion, margin );
     fdlAddResult.right = new FormAttachment( middle, -margin );
     wlAddResult.setLayoutData( fdlAddResult );
     wAddResult = new Button( wAddFileResult, SWT.CHECK );
@@ -1547,12 +1567,12 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     wAddResult.setToolTipText( BaseMessages.getString( PKG, "TextFileInputDialog.AddResult.Tooltip" ) );
     fdAddResult = new FormData();
     fdAddResult.left = new FormAttachment( middle, 0 );
-    fdAddResult.top = new FormAttachment( wDateLocale, margin );
+    fdAddResult.top = new FormAttachment( wLazyConversion, margin );
     wAddResult.setLayoutData( fdAddResult );
 
     fdAddFileResult = new FormData();
     fdAddFileResult.left = new FormAttachment( 0, margin );
-    fdAddFileResult.top = new FormAttachment( wDateLocale, margin );
+    fdAddFileResult.top = new FormAttachment( wLazyConversion, margin );
     fdAddFileResult.right = new FormAttachment( 100, -margin );
     wAddFileResult.setLayoutData( fdAddFileResult );
 
@@ -2218,6 +2238,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     wInclRownum.setSelection( meta.content.includeRowNumber );
     wRownumByFile.setSelection( meta.content.rowNumberByFile );
     wDateLenient.setSelection( meta.content.dateFormatLenient );
+    wLazyConversion.setSelection( meta.content.lazyConversionActive );
     wAddResult.setSelection( meta.inputFiles.isaddresult );
 
     if ( meta.content.filenameField != null ) {
@@ -2501,6 +2522,7 @@ public class TextFileInputDialog extends BaseStepDialog implements StepDialogInt
     meta.content.nrLinesDocHeader = Const.toInt( wNrLinesDocHeader.getText(), 0 );
     meta.content.fileCompression = wCompression.getText();
     meta.content.dateFormatLenient = wDateLenient.getSelection();
+    meta.content.lazyConversionActive = wLazyConversion.getSelection();
     meta.content.noEmptyLines = wNoempty.getSelection();
     meta.content.encoding = wEncoding.getText();
     meta.content.length = wLength.getText();
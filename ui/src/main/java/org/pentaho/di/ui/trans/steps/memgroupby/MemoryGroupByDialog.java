@@ -58,8 +58,12 @@ import org.pentaho.di.trans.step.StepDialogInterface;
 import org.pentaho.di.trans.step.StepMeta;
 import org.pentaho.di.trans.steps.memgroupby.MemoryGroupByMeta;
 import org.pentaho.di.ui.core.dialog.ErrorDialog;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterFileDialogTextVar;
+import org.pentaho.di.ui.core.events.dialog.SelectionAdapterOptions;
+import org.pentaho.di.ui.core.events.dialog.SelectionOperation;
 import org.pentaho.di.ui.core.widget.ColumnInfo;
 import org.pentaho.di.ui.core.widget.TableView;
+import org.pentaho.di.ui.core.widget.TextVar;
 import org.pentaho.di.ui.trans.step.BaseStepDialog;
 
 public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInterface {
@@ -77,6 +81,23 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
   private Button wAlwaysAddResult;
   private FormData fdlAlwaysAddResult, fdAlwaysAddResult;
 
+  private Label wlSortDir;
+  private Button wbSortDir;
+  private TextVar wSortDir;
+  private FormData fdlSortDir, fdbSortDir, fdSortDir;
+
+  private Label wlPrefix;
+  private Text wPrefix;
+  private FormData fdlPrefix, fdPrefix;
+
+  private Label wlMaxGroups;
+  private TextVar wMaxGroups;
+  private FormData fdlMaxGroups, fdMaxGroups;
+
+  private Label wlFreeMemory;
+  private TextVar wFreeMemory;
+  private FormData fdlFreeMemory, fdFreeMemory;
+
   private Button wGet, wGetAgg;
   private FormData fdGet, fdGetAgg;
   private Listener lsGet, lsGetAgg;
@@ -168,12 +189,102 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     wAlwaysAddResult.setLayoutData( fdAlwaysAddResult );
     wAlwaysAddResult.addSelectionListener( lsSel );
 
+    // Temp directory for the groups that don't fit in memory
+    //
+    wlSortDir = new Label( shell, SWT.RIGHT );
+    wlSortDir.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.TempDir.Label" ) );
+    props.setLook( wlSortDir );
+    fdlSortDir = new FormData();
+    fdlSortDir.left = new FormAttachment( 0, 0 );
+    fdlSortDir.right = new FormAttachment( middle, -margin );
+    fdlSortDir.top = new FormAttachment( wAlwaysAddResult, margin );
+    wlSortDir.setLayoutData( fdlSortDir );
+
+    wbSortDir = new Button( shell, SWT.PUSH | SWT.CENTER );
+    props.setLook( wbSortDir );
+    wbSortDir.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Browse.Button" ) );
+    fdbSortDir = new FormData();
+    fdbSortDir.right = new FormAttachment( 100, 0 );
+    fdbSortDir.top = new FormAttachment( wAlwaysAddResult, margin );
+    wbSortDir.setLayoutData( fdbSortDir );
+
+    wSortDir = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSortDir );
+    wSortDir.addModifyListener( lsMod );
+    fdSortDir = new FormData();
+    fdSortDir.left = new FormAttachment( middle, 0 );
+    fdSortDir.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdSortDir.right = new FormAttachment( wbSortDir, -margin );
+    wSortDir.setLayoutData( fdSortDir );
+
+    wbSortDir.addSelectionListener( new SelectionAdapterFileDialogTextVar( log, wSortDir, transMeta,
+      new SelectionAdapterOptions( SelectionOperation.FOLDER ) ) );
+
+    // Prefix line...
+    //
+    wlPrefix = new Label( shell, SWT.RIGHT );
+    wlPrefix.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FilePrefix.Label" ) );
+    props.setLook( wlPrefix );
+    fdlPrefix = new FormData();
+    fdlPrefix.left = new FormAttachment( 0, 0 );
+    fdlPrefix.right = new FormAttachment( middle, -margin );
+    fdlPrefix.top = new FormAttachment( wbSortDir, margin * 2 );
+    wlPrefix.setLayoutData( fdlPrefix );
+    wPrefix = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wPrefix );
+    wPrefix.addModifyListener( lsMod );
+    fdPrefix = new FormData();
+    fdPrefix.left = new FormAttachment( middle, 0 );
+    fdPrefix.top = new FormAttachment( wbSortDir, margin * 2 );
+    fdPrefix.right = new FormAttachment( 100, 0 );
+    wPrefix.setLayoutData( fdPrefix );
+
+    // Max groups in memory line...
+    //
+    wlMaxGroups = new Label( shell, SWT.RIGHT );
+    wlMaxGroups.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MaxGroupsInMemory.Label" ) );
+    props.setLook( wlMaxGroups );
+    fdlMaxGroups = new FormData();
+    fdlMaxGroups.left = new FormAttachment( 0, 0 );
+    fdlMaxGroups.right = new FormAttachment( middle, -margin );
+    fdlMaxGroups.top = new FormAttachment( wPrefix, margin );
+    wlMaxGroups.setLayoutData( fdlMaxGroups );
+    wMaxGroups = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wMaxGroups.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MaxGroupsInMemory.Tooltip" ) );
+    props.setLook( wMaxGroups );
+    wMaxGroups.addModifyListener( lsMod );
+    fdMaxGroups = new FormData();
+    fdMaxGroups.left = new FormAttachment( middle, 0 );
+    fdMaxGroups.top = new FormAttachment( wPrefix, margin );
+    fdMaxGroups.right = new FormAttachment( 100, 0 );
+    wMaxGroups.setLayoutData( fdMaxGroups );
+
+    // Free memory threshold line...
+    //
+    wlFreeMemory = new Label( shell, SWT.RIGHT );
+    wlFreeMemory.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FreeMemoryLimit.Label" ) );
+    props.setLook( wlFreeMemory );
+    fdlFreeMemory = new FormData();
+    fdlFreeMemory.left = new FormAttachment( 0, 0 );
+    fdlFreeMemory.right = new FormAttachment( middle, -margin );
+    fdlFreeMemory.top = new FormAttachment( wMaxGroups, margin );
+    wlFreeMemory.setLayoutData( fdlFreeMemory );
+    wFreeMemory = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wFreeMemory.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FreeMemoryLimit.Tooltip" ) );
+    props.setLook( wFreeMemory );
+    wFreeMemory.addModifyListener( lsMod );
+    fdFreeMemory = new FormData();
+    fdFreeMemory.left = new FormAttachment( middle, 0 );
+    fdFreeMemory.top = new FormAttachment( wMaxGroups, margin );
+    fdFreeMemory.right = new FormAttachment( 100, 0 );
+    wFreeMemory.setLayoutData( fdFreeMemory );
+
     wlGroup = new Label( shell, SWT.NONE );
     wlGroup.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Group.Label" ) );
     props.setLook( wlGroup );
     fdlGroup = new FormData();
     fdlGroup.left = new FormAttachment( 0, 0 );
-    fdlGroup.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlGroup.top = new FormAttachment( wFreeMemory, margin );
     wlGroup.setLayoutData( fdlGroup );
 
     int nrKeyCols = 1;
@@ -375,6 +486,10 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     logDebug( BaseMessages.getString( PKG, "MemoryGroupByDialog.Log.GettingKeyInfo" ) );
 
     wAlwaysAddResult.setSelection( input.isAlwaysGivingBackOneRow() );
+    wSortDir.setText( Const.NVL( input.getDirectory(), "" ) );
+    wPrefix.setText( Const.NVL( input.getPrefix(), "" ) );
+    wMaxGroups.setText( Const.NVL( input.getMaxGroupsInMemory(), "" ) );
+    wFreeMemory.setText( Const.NVL( input.getFreeMemoryLimit(), "" ) );
 
     if ( input.getGroupField() != null ) {
       for ( int i = 0; i < input.getGroupField().length; i++ ) {
@@ -425,6 +540,10 @@ public class MemoryGroupByDialog extends BaseStepDialog implements StepDialogInt
     int nrfields = wAgg.nrNonEmpty();
 
     input.setAlwaysGivingBackOneRow( wAlwaysAddResult.getSelection() );
+    input.setDirectory( wSortDir.getText() );
+    input.setPrefix( wPrefix.getText() );
+    input.setMaxGroupsInMemory( wMaxGroups.getText() );
+    input.setFreeMemoryLimit( wFreeMemory.getText() );
 
     input.allocate( sizegroup, nrfields );
 
@@ -93,6 +93,14 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
   private Button wIntegerPair;
   private FormData fdlIntegerPair, fdIntegerPair;
 
+  private Label wlOffHeapHashIndex;
+  private Button wOffHeapHashIndex;
+  private FormData fdlOffHeapHashIndex, fdOffHeapHashIndex;
+
+  private Label wlShareLookupData;
+  private Button wShareLookupData;
+  private FormData fdlShareLookupData, fdShareLookupData;
+
   private StreamLookupMeta input;
 
   private Button wGetLU;
@@ -258,7 +266,7 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     fdReturn.left = new FormAttachment( 0, 0 );
     fdReturn.top = new FormAttachment( wlReturn, margin );
     fdReturn.right = new FormAttachment( 100, 0 );
-    fdReturn.bottom = new FormAttachment( 100, -125 );
+    fdReturn.bottom = new FormAttachment( 100, -175 );
     wReturn.setLayoutData( fdReturn );
 
     wlPreserveMemory = new Label( shell, SWT.RIGHT );
@@ -325,6 +333,52 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
         input.setChanged();
       }
     } );
+
+    wlOffHeapHashIndex = new Label( shell, SWT.RIGHT );
+    wlOffHeapHashIndex.setText( BaseMessages.getString( PKG, "StreamLookupDialog.OffHeapHashIndex.Label" ) );
+    props.setLook( wlOffHeapHashIndex );
+    fdlOffHeapHashIndex = new FormData();
+    fdlOffHeapHashIndex.left = new FormAttachment( 0, 0 );
+    fdlOffHeapHashIndex.top = new FormAttachment( wSortedList, margin );
+    fdlOffHeapHashIndex.right = new FormAttachment( middle, -margin );
+    wlOffHeapHashIndex.setLayoutData( fdlOffHeapHashIndex );
+    wOffHeapHashIndex = new Button( shell, SWT.RADIO );
+    wOffHeapHashIndex.setToolTipText( BaseMessages.getString( PKG, "StreamLookupDialog.OffHeapHashIndex.Tooltip" ) );
+    wOffHeapHashIndex.setEnabled( false );
+    props.setLook( wOffHeapHashIndex );
+    fdOffHeapHashIndex = new FormData();
+    fdOffHeapHashIndex.left = new FormAttachment( middle, 0 );
+    fdOffHeapHashIndex.top = new FormAttachment( wSortedList, margin );
+    fdOffHeapHashIndex.right = new FormAttachment( 100, 0 );
+    wOffHeapHashIndex.setLayoutData( fdOffHeapHashIndex );
+    wOffHeapHashIndex.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    wlShareLookupData = new Label( shell, SWT.RIGHT );
+    wlShareLookupData.setText( BaseMessages.getString( PKG, "StreamLookupDialog.ShareLookupData.Label" ) );
+    wlShareLookupData.setToolTipText( BaseMessages.getString( PKG, "StreamLookupDialog.ShareLookupData.Tooltip" ) );
+    props.setLook( wlShareLookupData );
+    fdlShareLookupData = new FormData();
+    fdlShareLookupData.left = new FormAttachment( 0, 0 );
+    fdlShareLookupData.top = new FormAttachment( wOffHeapHashIndex, margin );
+    fdlShareLookupData.right = new FormAttachment( middle, -margin );
+    wlShareLookupData.setLayoutData( fdlShareLookupData );
+    wShareLookupData = new Button( shell, SWT.CHECK );
+    wShareLookupData.setToolTipText( BaseMessages.getString( PKG, "StreamLookupDialog.ShareLookupData.Tooltip" ) );
+    props.setLook( wShareLookupData );
+    fdShareLookupData = new FormData();
+    fdShareLookupData.left = new FormAttachment( middle, 0 );
+    fdShareLookupData.top = new FormAttachment( wOffHeapHashIndex, margin );
+    fdShareLookupData.right = new FormAttachment( 100, 0 );
+    wShareLookupData.setLayoutData( fdShareLookupData );
+    wShareLookupData.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
     // PDI-2107 preserve memory should be enabled to have this options on.
     wPreserveMemory.addListener( SWT.Selection, new Listener() {
       @Override
@@ -332,6 +386,7 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
         boolean selection = wPreserveMemory.getSelection();
         wSortedList.setEnabled( selection );
         wIntegerPair.setEnabled( selection );
+        wOffHeapHashIndex.setEnabled( selection );
       }
     } );
 
@@ -531,12 +586,15 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     if ( isPreserveMemory ) {
       wSortedList.setEnabled( true );
       wIntegerPair.setEnabled( true );
+      wOffHeapHashIndex.setEnabled( true );
     }
     // PDI-2107 usually this is sorted list or integer pair
     // for backward compatibility they can be set both
     // but user will be forced to choose only one option later.
     wSortedList.setSelection( input.isUsingSortedList() );
     wIntegerPair.setSelection( input.isUsingIntegerPair() );
+    wOffHeapHashIndex.setSelection( input.isUsingOffHeapHashIndex() );
+    wShareLookupData.setSelection( input.isSharingLookupData() );
 
     wKey.setRowNums();
     wKey.optWidth( true );
@@ -564,6 +622,8 @@ public class StreamLookupDialog extends BaseStepDialog implements StepDialogInte
     input.setMemoryPreservationActive( wPreserveMemory.getSelection() );
     input.setUsingSortedList( wSortedList.getSelection() );
     input.setUsingIntegerPair( wIntegerPair.getSelection() );
+    input.setUsingOffHeapHashIndex( wOffHeapHashIndex.getSelection() );
+    input.setSharingLookupData( wShareLookupData.getSelection() );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "StreamLookupDialog.Log.FoundKeys", nrkeys + "" ) );
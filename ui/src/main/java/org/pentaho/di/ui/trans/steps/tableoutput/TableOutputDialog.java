@@ -119,6 +119,10 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
   private TextVar wCommit;
   private FormData fdlCommit, fdCommit;
 
+  private Label wlWriterThreads;
+  private TextVar wWriterThreads;
+  private FormData fdlWriterThreads, fdWriterThreads;
+
   private Label wlTruncate;
   private Button wTruncate;
   private FormData fdlTruncate, fdTruncate;
@@ -347,20 +351,39 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     fdCommit.right = new FormAttachment( 100, 0 );
     wCommit.setLayoutData( fdCommit );
 
+    // Writer threads
+    wlWriterThreads = new Label( shell, SWT.RIGHT );
+    wlWriterThreads.setText( BaseMessages.getString( PKG, "TableOutputDialog.WriterThreads.Label" ) );
+    props.setLook( wlWriterThreads );
+    fdlWriterThreads = new FormData();
+    fdlWriterThreads.left = new FormAttachment( 0, 0 );
+    fdlWriterThreads.right = new FormAttachment( middle, -margin );
+    fdlWriterThreads.top = new FormAttachment( wCommit, margin );
+    wlWriterThreads.setLayoutData( fdlWriterThreads );
+    wWriterThreads = new TextVar( transMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wWriterThreads.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.WriterThreads.Tooltip" ) );
+    props.setLook( wWriterThreads );
+    wWriterThreads.addModifyListener( lsMod );
+    fdWriterThreads = new FormData();
+    fdWriterThreads.left = new FormAttachment( middle, 0 );
+    fdWriterThreads.top = new FormAttachment( wCommit, margin );
+    fdWriterThreads.right = new FormAttachment( 100, 0 );
+    wWriterThreads.setLayoutData( fdWriterThreads );
+
     // Truncate table
     wlTruncate = new Label( shell, SWT.RIGHT );
     wlTruncate.setText( BaseMessages.getString( PKG, "TableOutputDialog.TruncateTable.Label" ) );
     props.setLook( wlTruncate );
     fdlTruncate = new FormData();
     fdlTruncate.left = new FormAttachment( 0, 0 );
-    fdlTruncate.top = new FormAttachment( wCommit, margin );
+    fdlTruncate.top = new FormAttachment( wWriterThreads, margin );
     fdlTruncate.right = new FormAttachment( middle, -margin );
     wlTruncate.setLayoutData( fdlTruncate );
     wTruncate = new Button( shell, SWT.CHECK );
     props.setLook( wTruncate );
     fdTruncate = new FormData();
     fdTruncate.left = new FormAttachment( middle, 0 );
-    fdTruncate.top = new FormAttachment( wCommit, margin );
+    fdTruncate.top = new FormAttachment( wWriterThreads, margin );
     fdTruncate.right = new FormAttachment( 100, 0 );
     wTruncate.setLayoutData( fdTruncate );
     SelectionAdapter lsSelMod = new SelectionAdapter() {
@@ -851,6 +874,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
 
     wStepname.addSelectionListener( lsDef );
     wCommit.addSelectionListener( lsDef );
+    wWriterThreads.addSelectionListener( lsDef );
     wSchema.addSelectionListener( lsDef );
     wTable.addSelectionListener( lsDef );
     wPartField.addSelectionListener( lsDef );
@@ -1243,6 +1267,8 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
 
     wlBatch.setEnabled( enableBatch );
     wBatch.setEnabled( enableBatch );
+    wlWriterThreads.setEnabled( enableBatch );
+    wWriterThreads.setEnabled( enableBatch );
 
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled( specifyFields );
@@ -1291,6 +1317,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     wBatch.setSelection( input.useBatchUpdate() );
 
     wCommit.setText( input.getCommitSize() );
+    wWriterThreads.setText( Const.NVL( input.getWriterThreads(), "" ) );
 
     wUsePart.setSelection( input.isPartitioningEnabled() );
     wPartDaily.setSelection( input.isPartitioningDaily() );
@@ -1339,6 +1366,7 @@ public class TableOutputDialog extends BaseStepDialog implements StepDialogInter
     info.setTableName( wTable.getText() );
     info.setDatabaseMeta( transMeta.findDatabase( wConnection.getText() ) );
     info.setCommitSize( wCommit.getText() );
+    info.setWriterThreads( wWriterThreads.getText() );
     info.setTruncateTable( wTruncate.getSelection() );
     info.setIgnoreErrors( wIgnore.getSelection() );
     info.setUseBatchUpdate( wBatch.getSelection() );
@@ -113,6 +113,7 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
   private CCombo wGroupField;
   private Label wlGroupTime;
   private TextVar wGroupTime;
+  private Button wReuseTrans;
 
   private Label wlExecutionResultTarget;
   private CCombo wExecutionResultTarget;
@@ -452,6 +453,7 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
     wGroupSize.setText( Const.NVL( transExecutorMeta.getGroupSize(), "" ) );
     wGroupTime.setText( Const.NVL( transExecutorMeta.getGroupTime(), "" ) );
     wGroupField.setText( Const.NVL( transExecutorMeta.getGroupField(), "" ) );
+    wReuseTrans.setSelection( transExecutorMeta.isReusingTransformation() );
 
     wExecutionResultTarget.setText( transExecutorMeta.getExecutionResultTargetStepMeta() == null ? ""
       : transExecutorMeta.getExecutionResultTargetStepMeta().getName() );
@@ -719,6 +721,17 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
     fdGroupTime.left = new FormAttachment( 0, 0 );
     wGroupTime.setLayoutData( fdGroupTime );
 
+    // Keep the transformation running between groups
+    //
+    wReuseTrans = new Button( wInputComposite, SWT.CHECK );
+    props.setLook( wReuseTrans );
+    wReuseTrans.setText( BaseMessages.getString( PKG, "TransExecutorDialog.ReuseTransformation.Label" ) );
+    wReuseTrans.setToolTipText( BaseMessages.getString( PKG, "TransExecutorDialog.ReuseTransformation.Tooltip" ) );
+    FormData fdReuseTrans = new FormData();
+    fdReuseTrans.top = new FormAttachment( wGroupTime, 15 );
+    fdReuseTrans.left = new FormAttachment( 0, 0 );
+    wReuseTrans.setLayoutData( fdReuseTrans );
+
     wTab.setControl( wInputComposite );
     wTabFolder.setSelection( wTab );
   }
@@ -1093,6 +1106,7 @@ public class TransExecutorDialog extends BaseStepDialog implements StepDialogInt
     transExecutorMeta.setGroupSize( wGroupSize.getText() );
     transExecutorMeta.setGroupField( wGroupField.getText() );
     transExecutorMeta.setGroupTime( wGroupTime.getText() );
+    transExecutorMeta.setReusingTransformation( wReuseTrans.getSelection() );
 
     transExecutorMeta.setExecutionResultTargetStep( wExecutionResultTarget.getText() );
     transExecutorMeta.setExecutionResultTargetStepMeta( transMeta.findStep( wExecutionResultTarget.getText() ) );